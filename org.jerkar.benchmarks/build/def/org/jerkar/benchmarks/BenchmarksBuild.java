@@ -0,0 +1,246 @@
+package org.jerkar.benchmarks;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jerkar.CoreBuild;
+import org.jerkar.api.depmanagement.JkDependencies;
+import org.jerkar.api.java.JkJavaCompiler;
+import org.jerkar.api.java.JkJavaProcess;
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsString;
+import org.jerkar.tool.JkDoc;
+import org.jerkar.tool.JkInit;
+import org.jerkar.tool.JkProject;
+import org.jerkar.tool.builtins.javabuild.JkJavaBuild;
+
+/**
+ * Build class running the JMH benchmarks of Jerkar core hot paths. Results are written as JSON in
+ * build/output/benchmarks, in a file named after the current git commit, so runs of different commits
+ * can be compared (see {@link #compareWith}).
+ */
+public class BenchmarksBuild extends JkJavaBuild {
+
+    private static final String JMH_VERSION = "1.19";
+
+    private static final Pattern BENCHMARK = Pattern.compile("\"benchmark\"\\s*:\\s*\"([^\"]+)\"");
+
+    private static final Pattern PARAMS = Pattern.compile("\"params\"\\s*:\\s*\\{([^}]*)\\}");
+
+    private static final Pattern SCORE = Pattern.compile(
+            "\"primaryMetric\"\\s*:\\s*\\{\\s*\"score\"\\s*:\\s*([-0-9.Ee]+|\"NaN\")");
+
+    private static final Pattern UNIT = Pattern.compile("\"scoreUnit\"\\s*:\\s*\"([^\"]+)\"");
+
+    @JkProject("../org.jerkar.core")
+    private CoreBuild core;
+
+    @JkDoc("Regular expression selecting the benchmarks to run. All benchmarks are run if empty.")
+    public String include = "";
+
+    @JkDoc("Number of JVMs forked for each benchmark.")
+    public int forks = 1;
+
+    @JkDoc("Number of warmup iterations.")
+    public int warmupIterations = 3;
+
+    @JkDoc("Number of measurement iterations.")
+    public int iterations = 5;
+
+    @JkDoc("Path of the JSON result file of a previous run to compare the results with.")
+    public String compareWith;
+
+    @JkDoc("Options of the end to end build performance suite.")
+    public PerfOptions perf = new PerfOptions();
+
+    public static void main(String[] args) {
+        JkInit.instanceOf(BenchmarksBuild.class, args).benchmark();
+    }
+
+    @Override
+    public String javaSourceVersion() {
+        return JkJavaCompiler.V7;
+    }
+
+    @Override
+    protected JkDependencies dependencies() {
+        return JkDependencies.builder().on(core.asDependency(core.packer().jarFile())).scope(COMPILE)
+                .on("org.openjdk.jmh:jmh-core:" + JMH_VERSION).scope(COMPILE)
+                .on("org.openjdk.jmh:jmh-generator-annprocess:" + JMH_VERSION).scope(PROVIDED)
+                .on("junit:junit:4.11").scope(COMPILE).build();
+    }
+
+    @JkDoc("Compiles then runs the benchmarks, writing the results in build/output/benchmarks/jmh-[commit].json.")
+    public void benchmark() {
+        compile();
+        final File resultFile = ouputDir("benchmarks/jmh-" + commit() + ".json");
+        resultFile.getParentFile().mkdirs();
+        final List<String> args = new LinkedList<String>();
+        if (!JkUtilsString.isBlank(include)) {
+            args.add(include);
+        }
+        args.add("-f");
+        args.add(Integer.toString(forks));
+        args.add("-wi");
+        args.add(Integer.toString(warmupIterations));
+        args.add("-i");
+        args.add(Integer.toString(iterations));
+        args.add("-rf");
+        args.add("json");
+        args.add("-rff");
+        args.add(resultFile.getAbsolutePath());
+        JkLog.startln("Running benchmarks");
+        JkJavaProcess.of().withClasspath(depsFor(RUNTIME).andHead(classDir()))
+        .runClassSync("org.openjdk.jmh.Main", args.toArray(new String[0]));
+        JkLog.done("Results written in " + resultFile.getPath());
+        if (!JkUtilsString.isBlank(compareWith)) {
+            compare(file(compareWith), resultFile);
+        }
+    }
+
+    @JkDoc({ "Compiles then runs clean, no-op and single file change builds of generated multi-module projects,",
+        "writing the median metrics in build/output/benchmarks/builds-[commit].json." })
+    public void buildPerformance() {
+        compile();
+        final File report = ouputDir("benchmarks/builds-" + commit() + ".json");
+        final List<String> args = new LinkedList<String>();
+        args.add("workDir=" + ouputDir("benchmarks/work").getAbsolutePath());
+        args.add("report=" + report.getAbsolutePath());
+        args.add("commit=" + commit());
+        args.add("modules=" + perf.modules);
+        args.add("classes=" + perf.classes);
+        args.add("tests=" + perf.tests);
+        args.add("resources=" + perf.resources);
+        args.add("fanOut=" + perf.fanOut);
+        args.add("libs=" + perf.libs);
+        args.add("runs=" + perf.runs);
+        args.add("showOutput=" + perf.showOutput);
+        if (!JkUtilsString.isBlank(perf.baseline)) {
+            args.add("baseline=" + file(perf.baseline).getAbsolutePath());
+            args.add("threshold=" + perf.threshold);
+        }
+        JkLog.startln("Running build performance suite");
+        JkJavaProcess.of().withClasspath(depsFor(RUNTIME).andHead(classDir()))
+        .runClassSync("org.jerkar.benchmarks.BuildPerformanceSuite", args.toArray(new String[0]));
+        JkLog.done("Results written in " + report.getPath());
+    }
+
+    private static void compare(File previousFile, File currentFile) {
+        final Map<String, Double> previous = scores(previousFile);
+        final Map<String, Double> current = scores(currentFile);
+        JkLog.info("Comparison with " + previousFile.getPath() + " :");
+        for (final Map.Entry<String, Double> entry : current.entrySet()) {
+            final Double previousScore = previous.get(entry.getKey());
+            final String delta;
+            if (previousScore == null || previousScore == 0 || previousScore.isNaN()) {
+                delta = "new";
+            } else {
+                delta = String.format("%+.1f%%", (entry.getValue() - previousScore) * 100 / previousScore);
+            }
+            JkLog.info(entry.getKey() + " : " + previousScore + " -> " + entry.getValue() + " (" + delta + ")");
+        }
+    }
+
+    // Extracts the primary score of each benchmark, keyed by benchmark name, parameters and unit
+    private static Map<String, Double> scores(File jsonFile) {
+        final Map<String, Double> result = new LinkedHashMap<String, Double>();
+        final String json = JkUtilsFile.read(jsonFile);
+        final Matcher benchmarkMatcher = BENCHMARK.matcher(json);
+        final List<Integer> starts = new LinkedList<Integer>();
+        while (benchmarkMatcher.find()) {
+            starts.add(benchmarkMatcher.start());
+        }
+        starts.add(json.length());
+        for (int i = 0; i < starts.size() - 1; i++) {
+            final String block = json.substring(starts.get(i), starts.get(i + 1));
+            final Matcher nameMatcher = BENCHMARK.matcher(block);
+            final Matcher scoreMatcher = SCORE.matcher(block);
+            if (!nameMatcher.find() || !scoreMatcher.find()) {
+                continue;
+            }
+            final Matcher paramsMatcher = PARAMS.matcher(block);
+            final Matcher unitMatcher = UNIT.matcher(block);
+            String key = nameMatcher.group(1);
+            if (paramsMatcher.find()) {
+                key = key + " {" + paramsMatcher.group(1).replaceAll("\\s+", "") + "}";
+            }
+            if (unitMatcher.find()) {
+                key = key + " [" + unitMatcher.group(1) + "]";
+            }
+            final String score = scoreMatcher.group(1);
+            result.put(key, score.startsWith("\"") ? Double.NaN : Double.parseDouble(score));
+        }
+        return result;
+    }
+
+    // Reads the current commit from the git directory, without requiring git to be installed
+    private String commit() {
+        final File gitDir = file("../.git");
+        final File head = new File(gitDir, "HEAD");
+        if (!head.isFile()) {
+            return "local-" + buildTimestamp();
+        }
+        final String content = JkUtilsFile.read(head).trim();
+        if (!content.startsWith("ref:")) {
+            return content.substring(0, Math.min(10, content.length()));
+        }
+        final String ref = content.substring("ref:".length()).trim();
+        final File refFile = new File(gitDir, ref);
+        if (refFile.isFile()) {
+            return JkUtilsFile.read(refFile).trim().substring(0, 10);
+        }
+        final File packedRefs = new File(gitDir, "packed-refs");
+        if (packedRefs.isFile()) {
+            for (final String line : JkUtilsFile.readLines(packedRefs)) {
+                if (line.endsWith(" " + ref)) {
+                    return line.substring(0, 10);
+                }
+            }
+        }
+        return "local-" + buildTimestamp();
+    }
+
+    /**
+     * Options about the end to end build performance suite.
+     */
+    public static final class PerfOptions {
+
+        @JkDoc("Number of generated modules.")
+        public int modules = 4;
+
+        @JkDoc("Number of classes per generated module.")
+        public int classes = 50;
+
+        @JkDoc("Number of test classes per generated module.")
+        public int tests = 10;
+
+        @JkDoc("Number of resource files per generated module.")
+        public int resources = 10;
+
+        @JkDoc("Number of preceding modules each generated module depends on.")
+        public int fanOut = 2;
+
+        @JkDoc("Number of third party libraries in the generated repository.")
+        public int libs = 5;
+
+        @JkDoc("Number of runs of each scenario, the median being reported.")
+        public int runs = 3;
+
+        @JkDoc("When true, the output of the measured builds is displayed.")
+        public boolean showOutput;
+
+        @JkDoc("Path of a previous build performance report to check for regressions against.")
+        public String baseline;
+
+        @JkDoc("Percentage over which a metric worse than the baseline fails the build.")
+        public double threshold = 10;
+
+    }
+
+}
@@ -0,0 +1,92 @@
+package org.jerkar.api.depmanagement;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.jerkar.api.depmanagement.JkDependencyNode.ModuleNodeInfo;
+import org.jerkar.api.utils.JkUtilsIterable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures traversals of a generated dependency tree. Each generated module depends on a few modules
+ * picked among the ones of the lower level, so the same modules appear many times in the tree as in
+ * real life graphs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DependencyNodeBenchmark {
+
+    private static final Set<JkScope> SCOPES = JkUtilsIterable.setOf(JkScope.of("compile"));
+
+    @Param({ "5", "7" })
+    public int depth;
+
+    @Param({ "4" })
+    public int fanOut;
+
+    private JkDependencyNode root;
+
+    private JkModuleId deepestModule;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(0);
+        List<JkDependencyNode> lowerLevel = Collections.emptyList();
+        for (int level = depth; level > 0; level--) {
+            final List<JkDependencyNode> currentLevel = new ArrayList<JkDependencyNode>();
+            for (int i = 0; i < fanOut * 2; i++) {
+                final JkModuleId moduleId = JkModuleId.of("group" + level, "module" + i);
+                if (deepestModule == null) {
+                    deepestModule = moduleId;
+                }
+                final List<JkDependencyNode> children = new ArrayList<JkDependencyNode>();
+                for (int j = 0; j < fanOut && !lowerLevel.isEmpty(); j++) {
+                    children.add(lowerLevel.get(random.nextInt(lowerLevel.size())));
+                }
+                currentLevel.add(JkDependencyNode.ofModuleDep(moduleInfo(moduleId), children));
+            }
+            lowerLevel = currentLevel;
+        }
+        root = JkDependencyNode.ofModuleDep(moduleInfo(JkModuleId.of("root", "root")), lowerLevel);
+    }
+
+    private static ModuleNodeInfo moduleInfo(JkModuleId moduleId) {
+        return new ModuleNodeInfo(moduleId, JkVersionRange.of("1.0"), SCOPES, SCOPES, JkVersion.name("1.0"),
+                new LinkedList<File>());
+    }
+
+    @Benchmark
+    public List<JkDependencyNode> flatten() {
+        return root.flatten();
+    }
+
+    @Benchmark
+    public Set<JkVersionedModule> childModules() {
+        return root.childModules();
+    }
+
+    @Benchmark
+    public JkDependencyNode find() {
+        return root.find(deepestModule);
+    }
+
+    @Benchmark
+    public JkVersionProvider flattenToVersionProvider() {
+        return root.flattenToVersionProvider();
+    }
+
+}
@@ -0,0 +1,45 @@
+package org.jerkar.api.file;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the matching of Ant patterns against typical source paths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AntPatternBenchmark {
+
+    private static final String[] PATHS = new String[] { "org/jerkar/api/file/JkFileTree.java",
+        "org/jerkar/api/file/JkFileTree.class", "META-INF/services/javax.annotation.processing.Processor",
+        "org/jerkar/tool/builtins/javabuild/jee/JeePacker.java", "com/company/very/deep/package/Foo$Bar.class",
+        "readme.txt", "org/jerkar/api/utils/samplefolder/subfolder/sample.txt" };
+
+    @Param({ "**/*.java", "org/jerkar/**/*.class", "**/builtins/**", "*.txt", "**/sub*/**/*.txt" })
+    public String pattern;
+
+    private AntPattern antPattern;
+
+    @Setup
+    public void setup() {
+        antPattern = AntPattern.of(pattern);
+    }
+
+    @Benchmark
+    public void doMatch(Blackhole blackhole) {
+        for (final String path : PATHS) {
+            blackhole.consume(antPattern.doMatch(path));
+        }
+    }
+
+}
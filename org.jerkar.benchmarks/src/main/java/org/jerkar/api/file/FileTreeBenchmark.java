@@ -0,0 +1,51 @@
+package org.jerkar.api.file;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jerkar.api.utils.JkUtilsFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the listing of files of a synthetic source tree, with and without filter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FileTreeBenchmark {
+
+    @Param({ "1000", "10000" })
+    public int fileCount;
+
+    private File root;
+
+    @Setup
+    public void setup() {
+        root = SyntheticTrees.sourceTree(fileCount);
+    }
+
+    @TearDown
+    public void tearDown() {
+        JkUtilsFile.tryDeleteDir(root);
+    }
+
+    @Benchmark
+    public List<File> files() {
+        return JkFileTree.of(root).files(false);
+    }
+
+    @Benchmark
+    public List<File> filesFiltered() {
+        return JkFileTree.of(root).include("**/*.java").exclude("**/package2/**").files(false);
+    }
+
+}
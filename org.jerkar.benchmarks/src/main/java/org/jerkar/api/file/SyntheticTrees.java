@@ -0,0 +1,41 @@
+package org.jerkar.api.file;
+
+import java.io.File;
+
+import org.jerkar.api.utils.JkUtilsFile;
+
+/**
+ * Creates file trees shaped as source trees for benchmarks.
+ */
+public final class SyntheticTrees {
+
+    private static final int FILES_PER_PACKAGE = 50;
+
+    private SyntheticTrees() {
+        // Can not instantiate
+    }
+
+    /**
+     * Creates a temporary tree containing the specified number of files, spread in nested packages and
+     * mixing java sources and resources.
+     */
+    public static File sourceTree(int fileCount) {
+        final File root = JkUtilsFile.createTempDir("benchmark-tree");
+        for (int i = 0; i < fileCount; i++) {
+            final int packageIndex = i / FILES_PER_PACKAGE;
+            final String dir = "org/jerkar/package" + (packageIndex % 10) + "/sub" + packageIndex;
+            final String name = i % 5 == 0 ? "resource" + i + ".properties" : "Class" + i + ".java";
+            JkUtilsFile.writeString(new File(root, dir + "/" + name), content(i), false);
+        }
+        return root;
+    }
+
+    private static String content(int index) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            builder.append("line ").append(i).append(" of file ").append(index).append(" ${version}\n");
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,76 @@
+package org.jerkar.api.file;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsIO;
+import org.jerkar.api.utils.JkUtilsZip;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures archive creation from a file tree and the merge of an archive into another one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ZipBenchmark {
+
+    @Param({ "1000" })
+    public int fileCount;
+
+    private File root;
+
+    private File workDir;
+
+    private File sourceZip;
+
+    @Setup
+    public void setup() {
+        JkLog.silent(true);
+        root = SyntheticTrees.sourceTree(fileCount);
+        workDir = JkUtilsFile.createTempDir("benchmark-zip");
+        sourceZip = new File(workDir, "source.zip");
+        JkFileTree.of(root).zip().to(sourceZip);
+    }
+
+    @TearDown
+    public void tearDown() {
+        JkUtilsFile.tryDeleteDir(root);
+        JkUtilsFile.tryDeleteDir(workDir);
+    }
+
+    @Benchmark
+    public File zipperTo() {
+        final File zip = new File(workDir, "zipper.zip");
+        JkZipper.of(root).to(zip);
+        return zip;
+    }
+
+    @Benchmark
+    public File mergeZip() {
+        final File zip = new File(workDir, "merged.zip");
+        final ZipOutputStream outputStream = JkUtilsZip.createZipOutputStream(zip, Deflater.DEFAULT_COMPRESSION);
+        final ZipFile zipFile = JkUtilsZip.zipFile(sourceZip);
+        try {
+            JkUtilsZip.mergeZip(outputStream, zipFile);
+        } finally {
+            JkUtilsIO.closeQuietly(zipFile);
+            JkUtilsIO.closeOrFail(outputStream);
+        }
+        return zip;
+    }
+
+}
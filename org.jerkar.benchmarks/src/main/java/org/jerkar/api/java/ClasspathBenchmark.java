@@ -0,0 +1,73 @@
+package org.jerkar.api.java;
+
+import java.io.File;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.jerkar.api.file.JkFileTree;
+import org.jerkar.api.file.JkPathFilter;
+import org.jerkar.api.file.SyntheticTrees;
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the lookup of items in a classpath made of directories and jars.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ClasspathBenchmark {
+
+    @Param({ "10" })
+    public int entryCount;
+
+    private final List<File> temps = new LinkedList<File>();
+
+    private JkClasspath classpath;
+
+    private final JkPathFilter filter = JkPathFilter.include("**/*.java");
+
+    @Setup
+    public void setup() {
+        JkLog.silent(true);
+        final File jarDir = JkUtilsFile.createTempDir("benchmark-classpath");
+        temps.add(jarDir);
+        final List<File> entries = new LinkedList<File>();
+        for (int i = 0; i < entryCount; i++) {
+            final File tree = SyntheticTrees.sourceTree(500);
+            temps.add(tree);
+            if (i % 2 == 0) {
+                entries.add(tree);
+            } else {
+                final File jar = new File(jarDir, "entry" + i + ".jar");
+                JkFileTree.of(tree).zip().to(jar);
+                entries.add(jar);
+            }
+        }
+        classpath = JkClasspath.of(entries);
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (final File temp : temps) {
+            JkUtilsFile.tryDeleteDir(temp);
+        }
+    }
+
+    @Benchmark
+    public Set<String> allItemsMatching() {
+        return classpath.allItemsMatching(filter);
+    }
+
+}
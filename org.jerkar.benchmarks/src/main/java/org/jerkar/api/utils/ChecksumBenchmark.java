@@ -0,0 +1,58 @@
+package org.jerkar.api.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures file checksum computation, as done for published artifacts and cache keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ChecksumBenchmark {
+
+    @Param({ "MD5", "SHA-1" })
+    public String algorithm;
+
+    @Param({ "1048576", "16777216" })
+    public int size;
+
+    private File file;
+
+    @Setup
+    public void setup() {
+        final byte[] bytes = new byte[size];
+        new Random(0).nextBytes(bytes);
+        file = JkUtilsFile.tempFile("benchmark-checksum", ".bin");
+        final OutputStream outputStream = JkUtilsIO.outputStream(file, false);
+        try {
+            JkUtilsIO.copy(new ByteArrayInputStream(bytes), outputStream);
+        } finally {
+            JkUtilsIO.closeOrFail(outputStream);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        JkUtilsFile.deleteIfExist(file);
+    }
+
+    @Benchmark
+    public String checksum() {
+        return JkUtilsFile.checksum(file, algorithm);
+    }
+
+}
@@ -0,0 +1,61 @@
+package org.jerkar.api.utils;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures token replacement on a resource-like text, as done while processing resources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TokenReplacingReaderBenchmark {
+
+    @Param({ "0", "10", "100" })
+    public int tokenEveryLines;
+
+    private String text;
+
+    private final Map<String, String> values = new HashMap<String, String>();
+
+    @Setup
+    public void setup() {
+        values.put("version", "1.0.0");
+        values.put("name", "jerkar");
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            builder.append("key").append(i).append("=some plain value for line ").append(i);
+            if (tokenEveryLines > 0 && i % tokenEveryLines == 0) {
+                builder.append(" ${version} ${name} ${unknown}");
+            }
+            builder.append('\n');
+        }
+        text = builder.toString();
+    }
+
+    @Benchmark
+    public int read() throws IOException {
+        final TokenReplacingReader reader = new TokenReplacingReader(new StringReader(text), values);
+        final char[] buffer = new char[8192];
+        int total = 0;
+        int count;
+        while ((count = reader.read(buffer)) != -1) {
+            total += count;
+        }
+        reader.close();
+        return total;
+    }
+
+}
@@ -0,0 +1,334 @@
+package org.jerkar.benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jerkar.api.java.JkJavaProcess;
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsIO;
+import org.jerkar.api.utils.JkUtilsString;
+import org.jerkar.api.utils.JkUtilsTime;
+
+/**
+ * End to end performance suite : generates a synthetic multi-module project with
+ * {@link SyntheticProjectGenerator}, then measures <i>clean</i>, <i>no-op</i> and
+ * <i>single file change</i> builds of its last module. Each build runs in a fresh JVM (see
+ * {@link ScenarioMain}) with its own user home, so the repository cache starts empty and third party
+ * dependencies are resolved against the generated file repository only.
+ * <p>
+ * The median of each metric over the runs of a scenario is written to a JSON report that can be
+ * compared with the report of another commit.
+ *
+ * @author Jerome Angibaud
+ */
+public final class BuildPerformanceSuite {
+
+    /** Scenario where all module outputs are deleted before building. */
+    public static final String CLEAN = "clean";
+
+    /** Scenario where the build is run again without any change. */
+    public static final String NO_OP = "noop";
+
+    /** Scenario where a method body of the built module is changed before building. */
+    public static final String SINGLE_FILE_CHANGE = "singleFileChange";
+
+    static final String WALL_MS = "wallMs";
+
+    // Metrics checked for regressions, gc counts being too dependent on heap sizing
+    private static final String[] CHECKED_METRICS = new String[] { WALL_MS, ScenarioMain.BUILD_MS,
+        ScenarioMain.CPU_MS, ScenarioMain.PEAK_HEAP_MB };
+
+    // Deltas under this absolute value (ms or MB) are considered as noise
+    private static final long MIN_SIGNIFICANT_DELTA = 20;
+
+    private static final Pattern OBJECT = Pattern.compile("\"(\\w+)\"\\s*:\\s*\\{([^{}]*)\\}");
+
+    private static final Pattern NUMBER_FIELD = Pattern.compile("\"(\\w+)\"\\s*:\\s*(-?\\d+)");
+
+    private final SyntheticProjectGenerator generator;
+
+    private final int runs;
+
+    private final boolean showOutput;
+
+    private BuildPerformanceSuite(SyntheticProjectGenerator generator, int runs, boolean showOutput) {
+        this.generator = generator;
+        this.runs = runs;
+        this.showOutput = showOutput;
+    }
+
+    /**
+     * Creates a suite building projects generated by the specified generator, running each scenario
+     * 3 times.
+     */
+    public static BuildPerformanceSuite of(SyntheticProjectGenerator generator) {
+        return new BuildPerformanceSuite(generator, 3, false);
+    }
+
+    /**
+     * Returns a copy of this suite running each scenario the specified number of times.
+     */
+    public BuildPerformanceSuite withRuns(int runs) {
+        return new BuildPerformanceSuite(generator, runs, showOutput);
+    }
+
+    /**
+     * Returns a copy of this suite displaying or not the output of the measured builds.
+     */
+    public BuildPerformanceSuite withShowOutput(boolean showOutput) {
+        return new BuildPerformanceSuite(generator, runs, showOutput);
+    }
+
+    /**
+     * Runs all scenarios in the specified working directory and returns, for each scenario, the median
+     * value of each metric.
+     */
+    public Map<String, Map<String, Long>> run(File workDir) {
+        final File projects = new File(workDir, "projects");
+        final File home = new File(workDir, "home");
+        JkUtilsFile.deleteDirContent(home);
+        home.mkdirs();
+        JkLog.startln("Generating synthetic projects in " + projects.getPath());
+        final File topModule = generator.generate(projects);
+        JkLog.done();
+        final String repoArg = "-repo.download.url="
+                + new File(projects, SyntheticProjectGenerator.REPO_DIR).getAbsolutePath();
+
+        // Warms up the repository cache so clean builds measure building rather than downloading
+        JkLog.startln("Warm-up build");
+        measure(workDir, home, topModule, repoArg, "doDefault");
+        JkLog.done();
+
+        final Map<String, Map<String, Long>> result = new LinkedHashMap<String, Map<String, Long>>();
+        final List<Map<String, Long>> cleanRuns = new LinkedList<Map<String, Long>>();
+        final List<Map<String, Long>> noopRuns = new LinkedList<Map<String, Long>>();
+        final List<Map<String, Long>> changeRuns = new LinkedList<Map<String, Long>>();
+        for (int i = 0; i < runs; i++) {
+            JkLog.startln("Run " + (i + 1) + "/" + runs);
+            for (final File moduleDir : generator.moduleDirs(projects)) {
+                JkUtilsFile.deleteDirContent(new File(moduleDir, "build/output"));
+            }
+            cleanRuns.add(measure(workDir, home, topModule, repoArg, "doDefault"));
+            noopRuns.add(measure(workDir, home, topModule, repoArg, "compile", "unitTest", "pack"));
+            SyntheticProjectGenerator.changeOneSource(topModule);
+            changeRuns.add(measure(workDir, home, topModule, repoArg, "compile", "unitTest", "pack"));
+            JkLog.done();
+        }
+        result.put(CLEAN, medians(cleanRuns));
+        result.put(NO_OP, medians(noopRuns));
+        result.put(SINGLE_FILE_CHANGE, medians(changeRuns));
+        return result;
+    }
+
+    private Map<String, Long> measure(File workDir, File home, File projectDir, String... args) {
+        final File resultFile = new File(workDir, "scenario-result.ser");
+        resultFile.delete();
+        final List<String> arguments = new LinkedList<String>();
+        arguments.add(resultFile.getAbsolutePath());
+        arguments.add(projectDir.getAbsolutePath());
+        Collections.addAll(arguments, args);
+        final JkJavaProcess process = JkJavaProcess.of().withClasspath(currentClasspath())
+                .andOptions("-Duser.home=" + home.getAbsolutePath());
+        final boolean silent = JkLog.silent();
+        JkLog.silent(!showOutput);
+        final long start = System.nanoTime();
+        try {
+            process.runClassSync(ScenarioMain.class.getName(), arguments.toArray(new String[0]));
+        } finally {
+            JkLog.silent(silent);
+        }
+        final Map<String, Long> result = new LinkedHashMap<String, Long>();
+        result.put(WALL_MS, JkUtilsTime.durationInMillis(start));
+        final Properties properties = (Properties) JkUtilsIO.deserialize(resultFile);
+        for (final String name : properties.stringPropertyNames()) {
+            result.put(name, Long.parseLong(properties.getProperty(name)));
+        }
+        JkLog.info(JkUtilsString.join(args, " ") + " : " + result);
+        return result;
+    }
+
+    // JkClasspath#current requires an URLClassLoader, that recent JDKs do not provide
+    private static List<File> currentClasspath() {
+        final List<File> result = new LinkedList<File>();
+        for (final String item : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            result.add(new File(item));
+        }
+        return result;
+    }
+
+    private static Map<String, Long> medians(List<Map<String, Long>> runs) {
+        final Map<String, Long> result = new LinkedHashMap<String, Long>();
+        for (final String metric : runs.get(0).keySet()) {
+            final List<Long> values = new ArrayList<Long>();
+            for (final Map<String, Long> run : runs) {
+                values.add(run.get(metric));
+            }
+            Collections.sort(values);
+            result.put(metric, values.get(values.size() / 2));
+        }
+        return result;
+    }
+
+    /**
+     * Writes the specified results as a JSON report.
+     */
+    public static void writeReport(File file, String commit, Map<String, String> config,
+            Map<String, Map<String, Long>> results) {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("{\n");
+        builder.append("  \"commit\" : \"").append(commit).append("\",\n");
+        builder.append("  \"date\" : \"").append(JkUtilsTime.nowUtc("yyyy-MM-dd'T'HH:mm:ss'Z'")).append("\",\n");
+        builder.append("  \"java\" : \"").append(System.getProperty("java.version")).append("\",\n");
+        builder.append("  \"config\" : {");
+        appendFields(builder, config, true);
+        builder.append("},\n");
+        builder.append("  \"scenarios\" : {\n");
+        int i = 0;
+        for (final Map.Entry<String, Map<String, Long>> scenario : results.entrySet()) {
+            builder.append("    \"").append(scenario.getKey()).append("\" : {");
+            appendFields(builder, scenario.getValue(), false);
+            builder.append(++i < results.size() ? "},\n" : "}\n");
+        }
+        builder.append("  }\n");
+        builder.append("}\n");
+        file.getParentFile().mkdirs();
+        JkUtilsFile.writeString(file, builder.toString(), false);
+    }
+
+    private static void appendFields(StringBuilder builder, Map<String, ?> fields, boolean quoted) {
+        int i = 0;
+        for (final Map.Entry<String, ?> entry : fields.entrySet()) {
+            builder.append(i++ == 0 ? " " : ", ").append('"').append(entry.getKey()).append("\" : ");
+            if (quoted) {
+                builder.append('"').append(entry.getValue()).append('"');
+            } else {
+                builder.append(entry.getValue());
+            }
+        }
+        builder.append(' ');
+    }
+
+    /**
+     * Reads the scenario results of a report written by {@link #writeReport(File, String, Map, Map)}.
+     */
+    public static Map<String, Map<String, Long>> readReport(File file) {
+        final Map<String, Map<String, Long>> result = new LinkedHashMap<String, Map<String, Long>>();
+        final Matcher objectMatcher = OBJECT.matcher(JkUtilsFile.read(file));
+        while (objectMatcher.find()) {
+            final String name = objectMatcher.group(1);
+            if (!JkUtilsString.equalsAny(name, CLEAN, NO_OP, SINGLE_FILE_CHANGE)) {
+                continue;
+            }
+            final Map<String, Long> metrics = new LinkedHashMap<String, Long>();
+            final Matcher fieldMatcher = NUMBER_FIELD.matcher(objectMatcher.group(2));
+            while (fieldMatcher.find()) {
+                metrics.put(fieldMatcher.group(1), Long.parseLong(fieldMatcher.group(2)));
+            }
+            result.put(name, metrics);
+        }
+        return result;
+    }
+
+    /**
+     * Compares the specified results with the baseline ones and returns the description of metrics
+     * that got worse by more than the specified percentage.
+     */
+    public static List<String> regressions(Map<String, Map<String, Long>> baseline,
+            Map<String, Map<String, Long>> results, double thresholdPercent) {
+        final List<String> result = new LinkedList<String>();
+        for (final Map.Entry<String, Map<String, Long>> scenario : results.entrySet()) {
+            final Map<String, Long> baselineMetrics = baseline.get(scenario.getKey());
+            if (baselineMetrics == null) {
+                continue;
+            }
+            for (final String metric : CHECKED_METRICS) {
+                final Long before = baselineMetrics.get(metric);
+                final Long after = scenario.getValue().get(metric);
+                if (before == null || after == null || before <= 0 || after < 0) {
+                    continue;
+                }
+                final double percent = (after - before) * 100.0 / before;
+                final String description = String.format("%s %s : %d -> %d (%+.1f%%)", scenario.getKey(),
+                        metric, before, after, percent);
+                JkLog.info(description);
+                if (percent > thresholdPercent && after - before > MIN_SIGNIFICANT_DELTA) {
+                    result.add(description);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Runs the suite. Arguments are <code>name=value</code> pairs : <code>workDir</code>,
+     * <code>report</code>, <code>commit</code>, <code>modules</code>, <code>classes</code>,
+     * <code>tests</code>, <code>resources</code>, <code>fanOut</code>, <code>libs</code>,
+     * <code>runs</code>, <code>showOutput</code>, <code>baseline</code> and <code>threshold</code>
+     * (percent). Exits with code 1 if a regression against the baseline is detected.
+     */
+    public static void main(String[] args) {
+        final Map<String, String> options = new HashMap<String, String>();
+        for (final String arg : args) {
+            options.put(JkUtilsString.substringBeforeFirst(arg, "="), JkUtilsString.substringAfterFirst(arg, "="));
+        }
+        final Map<String, String> config = new LinkedHashMap<String, String>();
+        for (final String name : new String[] {"modules", "classes", "tests", "resources", "fanOut", "libs", "runs"}) {
+            if (options.containsKey(name)) {
+                config.put(name, options.get(name));
+            }
+        }
+        SyntheticProjectGenerator generator = SyntheticProjectGenerator.of();
+        if (config.containsKey("modules")) {
+            generator = generator.withModules(Integer.parseInt(config.get("modules")));
+        }
+        if (config.containsKey("classes")) {
+            generator = generator.withClassesPerModule(Integer.parseInt(config.get("classes")));
+        }
+        if (config.containsKey("tests")) {
+            generator = generator.withTestsPerModule(Integer.parseInt(config.get("tests")));
+        }
+        if (config.containsKey("resources")) {
+            generator = generator.withResourcesPerModule(Integer.parseInt(config.get("resources")));
+        }
+        if (config.containsKey("fanOut")) {
+            generator = generator.withFanOut(Integer.parseInt(config.get("fanOut")));
+        }
+        if (config.containsKey("libs")) {
+            generator = generator.withLibs(Integer.parseInt(config.get("libs")));
+        }
+        BuildPerformanceSuite suite = of(generator).withShowOutput(Boolean.parseBoolean(options.get("showOutput")));
+        if (config.containsKey("runs")) {
+            suite = suite.withRuns(Integer.parseInt(config.get("runs")));
+        }
+        final Map<String, Map<String, Long>> results = suite.run(new File(options.get("workDir")));
+        final File report = new File(options.get("report"));
+        writeReport(report, options.get("commit"), config, results);
+        JkLog.info("Report written in " + report.getPath());
+        final String baseline = options.get("baseline");
+        if (!JkUtilsString.isBlank(baseline)) {
+            final String threshold = options.get("threshold");
+            final List<String> regressions = regressions(readReport(new File(baseline)), results,
+                    JkUtilsString.isBlank(threshold) ? 10 : Double.parseDouble(threshold));
+            if (!regressions.isEmpty()) {
+                JkLog.error("Performance regressions against " + baseline + " :");
+                for (final String regression : regressions) {
+                    JkLog.error(regression);
+                }
+                JkLog.flush();
+                System.exit(1);
+            }
+        }
+        JkLog.flush();
+    }
+
+}
@@ -0,0 +1,111 @@
+package org.jerkar.benchmarks;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.jerkar.api.utils.JkUtilsIO;
+import org.jerkar.tool.Main;
+
+/**
+ * Runs one Jerkar build through {@link Main#exec(File, String...)} in the current JVM and stores its
+ * metrics in a properties file. Launched in a fresh JVM by {@link BuildPerformanceSuite} for each
+ * measured build, so each measure starts from a cold JVM as a command line build does.
+ * <p>
+ * Arguments are the result file, the project base directory then the Jerkar arguments.
+ *
+ * @author Jerome Angibaud
+ */
+public final class ScenarioMain {
+
+    static final String BUILD_MS = "buildMs";
+
+    static final String CPU_MS = "cpuMs";
+
+    static final String PEAK_HEAP_MB = "peakHeapMb";
+
+    static final String GC_COUNT = "gcCount";
+
+    static final String GC_MS = "gcMs";
+
+    /**
+     * Entry point, see class documentation for arguments.
+     */
+    public static void main(String[] args) {
+        final File resultFile = new File(args[0]);
+        final File projectDir = new File(args[1]);
+        final String[] buildArgs = Arrays.copyOfRange(args, 2, args.length);
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+        final long gcCountBefore = gcCount();
+        final long gcMsBefore = gcMillis();
+        final long cpuBefore = processCpuNanos();
+        final long start = System.nanoTime();
+        Main.exec(projectDir, buildArgs);
+        final long buildNanos = System.nanoTime() - start;
+        final Properties result = new Properties();
+        result.setProperty(BUILD_MS, Long.toString(buildNanos / 1000000));
+        final long cpuAfter = processCpuNanos();
+        result.setProperty(CPU_MS, Long.toString(cpuAfter < 0 ? -1 : (cpuAfter - cpuBefore) / 1000000));
+        result.setProperty(PEAK_HEAP_MB, Long.toString(peakHeapBytes() / (1024 * 1024)));
+        result.setProperty(GC_COUNT, Long.toString(gcCount() - gcCountBefore));
+        result.setProperty(GC_MS, Long.toString(gcMillis() - gcMsBefore));
+        JkUtilsIO.serialize(result, resultFile);
+        System.exit(0);
+    }
+
+    // Sums the peak usage of heap pools : an upper bound of the actual peak as pools peak at different times
+    private static long peakHeapBytes() {
+        long result = 0;
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                result += pool.getPeakUsage().getUsed();
+            }
+        }
+        return result;
+    }
+
+    private static long gcCount() {
+        long result = 0;
+        for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            result += Math.max(0, gc.getCollectionCount());
+        }
+        return result;
+    }
+
+    private static long gcMillis() {
+        long result = 0;
+        for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            result += Math.max(0, gc.getCollectionTime());
+        }
+        return result;
+    }
+
+    // CPU time of all threads of the process, or -1 if the JVM does not expose it
+    private static long processCpuNanos() {
+        final OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        try {
+            final Class<?> type = Class.forName("com.sun.management.OperatingSystemMXBean");
+            if (!type.isInstance(bean)) {
+                return -1;
+            }
+            final Method method = type.getMethod("getProcessCpuTime");
+            return ((Number) method.invoke(bean)).longValue();
+        } catch (final Exception e) {
+            return -1;
+        }
+    }
+
+    private ScenarioMain() {
+    }
+
+}
@@ -0,0 +1,344 @@
+package org.jerkar.benchmarks;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jerkar.api.file.JkFileTree;
+import org.jerkar.api.utils.JkUtilsFile;
+
+/**
+ * Generates multi-module Jerkar projects of configurable size, along a file based Maven repository
+ * providing their third party dependencies. Modules are laid out as <code>org.jerkar.samples</code>
+ * and <code>org.jerkar.samples-dependee</code> : each module has its own build class referencing the
+ * modules it depends on through {@link org.jerkar.tool.JkProject} fields.
+ * <p>
+ * Module <code>n</code> depends on the <code>fanOut</code> previous modules, so the last generated
+ * module is the one depending transitively on all others.
+ *
+ * @author Jerome Angibaud
+ */
+public final class SyntheticProjectGenerator {
+
+    static final String REPO_DIR = "repo";
+
+    private static final String LIB_GROUP = "synthetic";
+
+    private static final String LIB_VERSION = "1.0";
+
+    private static final String JUNIT = "junit:junit:4.11";
+
+    private static final Pattern REVISION = Pattern.compile("public int revision\\(\\) \\{ return (\\d+); \\}");
+
+    private final int modules;
+
+    private final int classesPerModule;
+
+    private final int testsPerModule;
+
+    private final int resourcesPerModule;
+
+    private final int fanOut;
+
+    private final int libs;
+
+    private SyntheticProjectGenerator(int modules, int classesPerModule, int testsPerModule,
+            int resourcesPerModule, int fanOut, int libs) {
+        this.modules = modules;
+        this.classesPerModule = classesPerModule;
+        this.testsPerModule = testsPerModule;
+        this.resourcesPerModule = resourcesPerModule;
+        this.fanOut = fanOut;
+        this.libs = libs;
+    }
+
+    /**
+     * Creates a generator for 4 modules of 50 classes, 10 tests and 10 resources each, every module
+     * depending on its 2 predecessors and on one of 5 third party libraries.
+     */
+    public static SyntheticProjectGenerator of() {
+        return new SyntheticProjectGenerator(4, 50, 10, 10, 2, 5);
+    }
+
+    /**
+     * Returns a copy of this generator generating the specified number of modules.
+     */
+    public SyntheticProjectGenerator withModules(int modules) {
+        return new SyntheticProjectGenerator(modules, classesPerModule, testsPerModule, resourcesPerModule,
+                fanOut, libs);
+    }
+
+    /**
+     * Returns a copy of this generator generating the specified number of classes per module.
+     */
+    public SyntheticProjectGenerator withClassesPerModule(int classesPerModule) {
+        return new SyntheticProjectGenerator(modules, classesPerModule, testsPerModule, resourcesPerModule,
+                fanOut, libs);
+    }
+
+    /**
+     * Returns a copy of this generator generating the specified number of test classes per module.
+     * Tests are generated only if JUnit is available in the current classpath.
+     */
+    public SyntheticProjectGenerator withTestsPerModule(int testsPerModule) {
+        return new SyntheticProjectGenerator(modules, classesPerModule, testsPerModule, resourcesPerModule,
+                fanOut, libs);
+    }
+
+    /**
+     * Returns a copy of this generator generating the specified number of resources per module.
+     */
+    public SyntheticProjectGenerator withResourcesPerModule(int resourcesPerModule) {
+        return new SyntheticProjectGenerator(modules, classesPerModule, testsPerModule, resourcesPerModule,
+                fanOut, libs);
+    }
+
+    /**
+     * Returns a copy of this generator where each module depends on the specified number of
+     * preceding modules.
+     */
+    public SyntheticProjectGenerator withFanOut(int fanOut) {
+        return new SyntheticProjectGenerator(modules, classesPerModule, testsPerModule, resourcesPerModule,
+                fanOut, libs);
+    }
+
+    /**
+     * Returns a copy of this generator publishing the specified number of third party libraries in
+     * the generated repository. Each library depends on the previous one, so resolution has
+     * transitive dependencies to fetch.
+     */
+    public SyntheticProjectGenerator withLibs(int libs) {
+        return new SyntheticProjectGenerator(modules, classesPerModule, testsPerModule, resourcesPerModule,
+                fanOut, libs);
+    }
+
+    /**
+     * Generates the modules and the repository in the specified directory, replacing any previous
+     * content. Returns the base directory of the last module, the one depending on all others.
+     */
+    public File generate(File root) {
+        JkUtilsFile.deleteDirContent(root);
+        final File repo = new File(root, REPO_DIR);
+        for (int i = 0; i < libs; i++) {
+            generateLib(repo, i);
+        }
+        final boolean tests = testsPerModule > 0 && installJunit(repo);
+        File moduleDir = null;
+        for (int i = 0; i < modules; i++) {
+            moduleDir = new File(root, moduleName(i));
+            generateModule(moduleDir, i, tests);
+        }
+        return moduleDir;
+    }
+
+    /**
+     * Returns the module directories generated in the specified root, in dependency order.
+     */
+    public File[] moduleDirs(File root) {
+        final File[] result = new File[modules];
+        for (int i = 0; i < modules; i++) {
+            result[i] = new File(root, moduleName(i));
+        }
+        return result;
+    }
+
+    /**
+     * Changes the body of a method of a source file of the specified module, leaving its signature
+     * untouched.
+     */
+    public static void changeOneSource(File moduleDir) {
+        final File source = JkFileTree.of(new File(moduleDir, "src/main/java")).include("**/Class0.java")
+                .files(false).get(0);
+        final String content = JkUtilsFile.read(source);
+        final Matcher matcher = REVISION.matcher(content);
+        if (!matcher.find()) {
+            throw new IllegalStateException("No revision method found in " + source);
+        }
+        final int revision = Integer.parseInt(matcher.group(1)) + 1;
+        JkUtilsFile.writeString(source, content.substring(0, matcher.start())
+                + "public int revision() { return " + revision + "; }" + content.substring(matcher.end()), false);
+    }
+
+    private static String moduleName(int index) {
+        return "module" + index;
+    }
+
+    private void generateModule(File moduleDir, int index, boolean tests) {
+        final String packageName = "synthetic.m" + index;
+        final String packagePath = packageName.replace('.', '/');
+        for (int i = 0; i < classesPerModule; i++) {
+            JkUtilsFile.writeString(new File(moduleDir, "src/main/java/" + packagePath + "/Class" + i + ".java"),
+                    classSource(packageName, index, i), false);
+        }
+        if (tests) {
+            for (int i = 0; i < Math.min(testsPerModule, classesPerModule); i++) {
+                JkUtilsFile.writeString(new File(moduleDir, "src/test/java/" + packagePath + "/Class" + i
+                        + "Test.java"), testSource(packageName, i), false);
+            }
+        }
+        for (int i = 0; i < resourcesPerModule; i++) {
+            JkUtilsFile.writeString(new File(moduleDir, "src/main/resources/" + packagePath + "/resource" + i
+                    + ".properties"), resourceContent(i), false);
+        }
+        JkUtilsFile.writeString(new File(moduleDir, "build/def/synthetic/build/" + buildClassName(index)
+                + ".java"), buildSource(index, tests), false);
+    }
+
+    private String classSource(String packageName, int moduleIndex, int classIndex) {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("package ").append(packageName).append(";\n\n");
+        builder.append("public class Class").append(classIndex).append(" {\n\n");
+        builder.append("    public int compute(int value) {\n");
+        builder.append("        int result = value;\n");
+        builder.append("        for (int i = 0; i < 10; i++) {\n");
+        builder.append("            result = result * 31 + i;\n");
+        builder.append("        }\n");
+        if (classIndex > 0) {
+            builder.append("        result = result + new Class").append(classIndex - 1).append("().compute(value);\n");
+        } else {
+            for (final int dependency : dependencies(moduleIndex)) {
+                builder.append("        result = result + new synthetic.m").append(dependency)
+                .append(".Class0().compute(value);\n");
+            }
+        }
+        builder.append("        return result + revision();\n");
+        builder.append("    }\n\n");
+        builder.append("    public int revision() { return 0; }\n\n");
+        builder.append("}\n");
+        return builder.toString();
+    }
+
+    private static String testSource(String packageName, int classIndex) {
+        final String className = "Class" + classIndex;
+        return "package " + packageName + ";\n\n"
+                + "import org.junit.Assert;\n"
+                + "import org.junit.Test;\n\n"
+                + "public class " + className + "Test {\n\n"
+                + "    @Test\n"
+                + "    public void compute() {\n"
+                + "        Assert.assertEquals(new " + className + "().compute(3), new " + className
+                + "().compute(3));\n"
+                + "    }\n\n"
+                + "}\n";
+    }
+
+    private static String resourceContent(int resourceIndex) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            builder.append("key").append(i).append("=value ").append(i).append(" of resource ")
+            .append(resourceIndex).append('\n');
+        }
+        return builder.toString();
+    }
+
+    private String buildSource(int index, boolean tests) {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("package synthetic.build;\n\n");
+        builder.append("import org.jerkar.api.depmanagement.JkDependencies;\n");
+        builder.append("import org.jerkar.tool.JkProject;\n");
+        builder.append("import org.jerkar.tool.builtins.javabuild.JkJavaBuild;\n\n");
+        builder.append("public class ").append(buildClassName(index)).append(" extends JkJavaBuild {\n\n");
+        for (final int dependency : dependencies(index)) {
+            builder.append("    @JkProject(\"../").append(moduleName(dependency)).append("\")\n");
+            builder.append("    private ").append(buildClassName(dependency)).append(' ')
+            .append(moduleName(dependency)).append(";\n\n");
+        }
+        builder.append("    @Override\n");
+        builder.append("    protected JkDependencies dependencies() {\n");
+        builder.append("        return JkDependencies.builder()\n");
+        for (final int dependency : dependencies(index)) {
+            final String field = moduleName(dependency);
+            builder.append("                .on(").append(field).append(".asDependency(").append(field)
+            .append(".packer().jarFile())).scope(COMPILE)\n");
+        }
+        if (libs > 0) {
+            builder.append("                .on(\"").append(libModule(index % libs)).append("\").scope(COMPILE)\n");
+        }
+        if (tests) {
+            builder.append("                .on(\"").append(JUNIT).append("\").scope(TEST)\n");
+        }
+        builder.append("                .build();\n");
+        builder.append("    }\n\n");
+        builder.append("}\n");
+        return builder.toString();
+    }
+
+    private int[] dependencies(int index) {
+        final int first = Math.max(0, index - fanOut);
+        final int[] result = new int[index - first];
+        for (int i = first; i < index; i++) {
+            result[i - first] = i;
+        }
+        return result;
+    }
+
+    private static String buildClassName(int index) {
+        return "Module" + index + "Build";
+    }
+
+    private static String libModule(int index) {
+        return LIB_GROUP + ":lib" + index + ":" + LIB_VERSION;
+    }
+
+    private static void generateLib(File repo, int index) {
+        final String name = "lib" + index;
+        final File dir = new File(repo, LIB_GROUP + "/" + name + "/" + LIB_VERSION);
+        final File content = new File(dir, "content");
+        JkUtilsFile.writeString(new File(content, "synthetic/" + name + "/" + name + ".properties"),
+                resourceContent(index), false);
+        JkFileTree.of(content).zip().to(new File(dir, name + "-" + LIB_VERSION + ".jar"));
+        JkUtilsFile.deleteDir(content);
+        final String dependency = index == 0 ? "" : dependencyXml(LIB_GROUP, "lib" + (index - 1), LIB_VERSION);
+        JkUtilsFile.writeString(new File(dir, name + "-" + LIB_VERSION + ".pom"),
+                pom(LIB_GROUP, name, LIB_VERSION, dependency), false);
+    }
+
+    // Copies the JUnit and Hamcrest jars of the current classpath in the repository
+    private static boolean installJunit(File repo) {
+        final File junit = classpathEntry("org.junit.Test");
+        final File hamcrest = classpathEntry("org.hamcrest.Matcher");
+        if (junit == null || hamcrest == null) {
+            return false;
+        }
+        install(repo, "junit", "junit", "4.11", junit, dependencyXml("org.hamcrest", "hamcrest-core", "1.3"));
+        install(repo, "org.hamcrest", "hamcrest-core", "1.3", hamcrest, "");
+        return true;
+    }
+
+    private static void install(File repo, String group, String name, String version, File jar,
+            String dependencies) {
+        final File dir = new File(repo, group.replace('.', '/') + "/" + name + "/" + version);
+        JkUtilsFile.copyFile(jar, new File(dir, name + "-" + version + ".jar"));
+        JkUtilsFile.writeString(new File(dir, name + "-" + version + ".pom"),
+                pom(group, name, version, dependencies), false);
+    }
+
+    private static File classpathEntry(String className) {
+        try {
+            final Class<?> clazz = Class.forName(className);
+            return new File(clazz.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (final ClassNotFoundException e) {
+            return null;
+        } catch (final URISyntaxException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String dependencyXml(String group, String name, String version) {
+        return "    <dependency>\n      <groupId>" + group + "</groupId>\n      <artifactId>" + name
+                + "</artifactId>\n      <version>" + version + "</version>\n    </dependency>\n";
+    }
+
+    private static String pom(String group, String name, String version, String dependencies) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+                + "  <modelVersion>4.0.0</modelVersion>\n"
+                + "  <groupId>" + group + "</groupId>\n"
+                + "  <artifactId>" + name + "</artifactId>\n"
+                + "  <version>" + version + "</version>\n"
+                + "  <dependencies>\n" + dependencies + "  </dependencies>\n"
+                + "</project>\n";
+    }
+
+}
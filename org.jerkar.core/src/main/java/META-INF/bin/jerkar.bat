@@ -9,11 +9,18 @@ if not "%JAVA_HOME%" == "" set "JAVA_CMD=%JAVA_HOME%\bin\java"
 
 SET LOCAL_BUILD_DIR=
 if exist %cd%\build\boot set "LOCAL_BUILD_DIR=build\boot\*;"
-set "COMMAND="%JAVA_CMD%" %JERKAR_OPTS% -cp "%LOCAL_BUILD_DIR%%JERKAR_HOME%libs\ext\*;%JERKAR_HOME%org.jerkar.core-all.jar" org.jerkar.tool.Main %*"
+
+@rem Exit code 3 means that Jerkar asks to be restarted (build definition changed in watch mode)
+:run
+@rem Class data sharing options prepared by the previous run when launched with -cds
+SET JERKAR_CDS_OPTS=
+if exist %cd%\build\output\jerkar-cds.options set /p JERKAR_CDS_OPTS=<%cd%\build\output\jerkar-cds.options
+set "COMMAND="%JAVA_CMD%" %JERKAR_OPTS% %JERKAR_CDS_OPTS% -cp "%LOCAL_BUILD_DIR%%JERKAR_HOME%libs\ext\*;%JERKAR_HOME%org.jerkar.core-all.jar" org.jerkar.tool.Main %*"
 if not "%JERKAR_ECHO_CMD%" == "" (
 	@echo on
 	echo %COMMAND%
 	@echo off) 
 %COMMAND%
+if %ERRORLEVEL% == 3 goto run
 
 
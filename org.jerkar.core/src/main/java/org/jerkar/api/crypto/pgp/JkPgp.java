@@ -1,12 +1,18 @@
 package org.jerkar.api.crypto.pgp;
 
 import java.io.File;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 
 import org.jerkar.api.java.JkClassLoader;
 import org.jerkar.api.utils.JkUtilsAssert;
+import org.jerkar.api.utils.JkUtilsConcurrent;
 import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsIO;
+import org.jerkar.api.utils.JkUtilsObject;
 import org.jerkar.api.utils.JkUtilsReflect;
 import org.jerkar.api.utils.JkUtilsSystem;
 
@@ -17,6 +23,9 @@ import org.jerkar.api.utils.JkUtilsSystem;
  * or both. <br/>
  * Note that you need the secret ring for signing and the public ring for
  * verifying.
+ * <p>
+ * The secret key is read and unlocked once per instance, on first signature, then
+ * reused for every file signed by this instance.
  *
  * @author Jerome Angibaud
  */
@@ -45,6 +54,9 @@ public final class JkPgp implements Serializable {
 
     private final String password;
 
+    // Unlocked key, typed as Object since it belongs to the BouncyCastle class loader
+    private transient volatile Object signingKey;
+
     /**
      * Creates a {@link JkPgp} with the specified public and secret ring.
      */
@@ -109,37 +121,89 @@ public final class JkPgp implements Serializable {
     }
 
     void sign(File fileToSign, File output, String password) {
-        final char[] pass;
-        if (password == null) {
-            pass = new char[0];
-        } else {
-            pass = password.toCharArray();
-        }
-        JkUtilsAssert.isTrue(secRing != null,
-                "You must supply a secret ring file (as secring.gpg) to sign files");
-        JkUtilsReflect.invokeStaticMethod(PGPUTILS_CLASS, "sign", fileToSign, secRing, output,
-                pass, true);
+        final Object key = JkUtilsObject.equals(password, this.password) ? signingKey()
+                : unlockSigningKey(password);
+        JkUtilsReflect.invokeStaticMethod(PGPUTILS_CLASS, "signWithKey", fileToSign, key, output, true);
     }
 
     /**
      * Signs the specified files in a detached signature file which will have
-     * the same name of the signed file plus ".asc" suffix.
+     * the same name of the signed file plus ".asc" suffix. Files are signed
+     * concurrently.
      */
     public File[] sign(File... filesToSign) {
         final File[] result = new File[filesToSign.length];
+        final List<Runnable> signings = new LinkedList<Runnable>();
         int i = 0;
         for (final File file : filesToSign) {
             if (!file.exists()) {
                 continue;
             }
-            final File signatureFile = new File(file.getParent(), file.getName() + ".asc");
+            final File signatureFile = signatureFile(file);
             result[i] = signatureFile;
-            sign(file, signatureFile, password);
+            signings.add(new Runnable() {
+
+                @Override
+                public void run() {
+                    sign(file, signatureFile, password);
+                }
+            });
             i++;
         }
+        if (signings.size() == 1) {
+            signings.get(0).run();
+        } else if (!signings.isEmpty()) {
+            signingKey(); // unlock the key once, before signers are started
+            JkUtilsConcurrent.runAll("pgp-sign", signings, JkUtilsConcurrent.defaultParallelism());
+        }
+        return result;
+    }
+
+    /**
+     * Returns a stream signing the bytes written into it. The detached signature is written
+     * into the specified file when the stream is closed. This allows to sign a file while it
+     * is being written, without reading it a second time.
+     */
+    public OutputStream signingStream(File signatureFile) {
+        final OutputStream signatureOut = JkUtilsIO.outputStream(signatureFile, false);
+        return JkUtilsReflect.invokeStaticMethod(PGPUTILS_CLASS, "signingStream", signingKey(),
+                signatureOut, true);
+    }
+
+    /**
+     * Returns the detached signature file for the specified file, that is the file with the same
+     * name plus ".asc" suffix.
+     */
+    public static File signatureFile(File signedFile) {
+        return new File(signedFile.getParent(), signedFile.getName() + ".asc");
+    }
+
+    private Object signingKey() {
+        Object result = signingKey;
+        if (result == null) {
+            synchronized (this) {
+                result = signingKey;
+                if (result == null) {
+                    result = unlockSigningKey(password);
+                    signingKey = result;
+                }
+            }
+        }
         return result;
     }
 
+    private Object unlockSigningKey(String password) {
+        final char[] pass;
+        if (password == null) {
+            pass = new char[0];
+        } else {
+            pass = password.toCharArray();
+        }
+        JkUtilsAssert.isTrue(secRing != null,
+                "You must supply a secret ring file (as secring.gpg) to sign files");
+        return JkUtilsReflect.invokeStaticMethod(PGPUTILS_CLASS, "signingKey", secRing, pass);
+    }
+
     /**
      * Returns file that are created if a signature occurs on specified files.
      */
@@ -147,8 +211,7 @@ public final class JkPgp implements Serializable {
         final File[] result = new File[filesToSign.length];
         int i = 0;
         for (final File file : filesToSign) {
-            final File signatureFile = new File(file.getParent(), file.getName() + ".asc");
-            result[i] = signatureFile;
+            result[i] = signatureFile(file);
             i++;
         }
         return result;
@@ -2,7 +2,6 @@ package org.jerkar.api.crypto.pgp;
 
 import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -43,6 +42,8 @@ final class PgpUtils {
 
     private static final int HASH_ALGO = PGPUtil.SHA1;
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     public static boolean verify(File fileToVerify, File pubringFile, File signatureFile) {
         final InputStream streamToVerify = JkUtilsIO.inputStream(fileToVerify);
         final InputStream signatureStream = JkUtilsIO.inputStream(signatureFile);
@@ -92,9 +93,10 @@ final class PgpUtils {
 
         final PGPContentVerifierBuilderProvider builderProvider = new BcPGPContentVerifierBuilderProvider();
         signature.init(builderProvider, publicKey);
-        int character;
-        while ((character = bufferedStream.read()) >= 0) {
-            signature.update((byte) character);
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int count;
+        while ((count = bufferedStream.read(buffer)) >= 0) {
+            signature.update(buffer, 0, count);
         }
         return signature.verify();
     }
@@ -102,46 +104,47 @@ final class PgpUtils {
     public static void sign(File fileToSign, File secringFile, File signatureFile, char[] pass,
             boolean armor) {
         JkUtilsFile.assertAllExist(fileToSign, secringFile);
-        final InputStream toSign = JkUtilsIO.inputStream(fileToSign);
         final InputStream keyRing = JkUtilsIO.inputStream(secringFile);
-        final FileOutputStream out = JkUtilsIO.outputStream(signatureFile, false);
-        sign(toSign, keyRing, out, pass, armor);
-        JkUtilsIO.closeQuietly(toSign);
-        JkUtilsIO.closeQuietly(keyRing);
-        JkUtilsIO.closeQuietly(out);
+        final Object signingKey;
+        try {
+            signingKey = signingKey(keyRing, pass);
+        } finally {
+            JkUtilsIO.closeQuietly(keyRing);
+        }
+        signWithKey(fileToSign, signingKey, signatureFile, armor);
     }
 
     public static void sign(InputStream toSign, InputStream keyRing, OutputStream out, char[] pass,
             boolean armor) {
+        final OutputStream signingStream = signingStream(signingKey(keyRing, pass), out, armor);
+        JkUtilsIO.copy(toSign, signingStream);
+        JkUtilsIO.closeQuietly(toSign);
+        JkUtilsIO.closeOrFail(signingStream);
+    }
 
-        if (armor) {
-            out = new ArmoredOutputStream(out);
+    /**
+     * Reads the first signing key of the specified secret ring and unlocks it with the specified
+     * password. The returned object can then be used to sign any number of files, possibly
+     * concurrently. Its type is opaque as it can not be loaded outside the BouncyCastle class loader.
+     */
+    public static Object signingKey(File secringFile, char[] pass) {
+        JkUtilsFile.assertAllExist(secringFile);
+        final InputStream keyRing = JkUtilsIO.inputStream(secringFile);
+        try {
+            return signingKey(keyRing, pass);
+        } finally {
+            JkUtilsIO.closeQuietly(keyRing);
         }
+    }
+
+    private static SigningKey signingKey(InputStream keyRing, char[] pass) {
         final PGPSecretKey pgpSecretKey = readFirstSecretKey(keyRing);
+        final PGPDigestCalculatorProvider pgpDigestCalculatorProvider = new BcPGPDigestCalculatorProvider();
+        final PBESecretKeyDecryptor secretKeyDecryptor = new BcPBESecretKeyDecryptorBuilder(
+                pgpDigestCalculatorProvider).build(pass);
         try {
-
-            final PGPDigestCalculatorProvider pgpDigestCalculatorProvider = new BcPGPDigestCalculatorProvider();
-            final PBESecretKeyDecryptor secretKeyDecryptor = new BcPBESecretKeyDecryptorBuilder(
-                    pgpDigestCalculatorProvider).build(pass);
             final PGPPrivateKey pgpPrivKey = pgpSecretKey.extractPrivateKey(secretKeyDecryptor);
-
-            final int secretKeyAlgo = pgpSecretKey.getPublicKey().getAlgorithm();
-            final PGPContentSignerBuilder contentSignerBuilder = new BcPGPContentSignerBuilder(
-                    secretKeyAlgo, HASH_ALGO);
-            final PGPSignatureGenerator signatureGenerator = new PGPSignatureGenerator(
-                    contentSignerBuilder);
-            signatureGenerator.init(PGPSignature.BINARY_DOCUMENT, pgpPrivKey);
-            final BCPGOutputStream bcpgOut = new BCPGOutputStream(out);
-            final InputStream fileInputStream = new BufferedInputStream(toSign);
-            int ch;
-            while ((ch = fileInputStream.read()) >= 0) {
-                signatureGenerator.update((byte) ch);
-            }
-            fileInputStream.close();
-            signatureGenerator.generate().encode(bcpgOut);
-            out.close();
-        } catch (final IOException e) {
-            throw new RuntimeException(e);
+            return new SigningKey(pgpPrivKey, pgpSecretKey.getPublicKey().getAlgorithm());
         } catch (final PGPException e) {
             if (e.getMessage().equals("checksum mismatch at 0 of 20")) {
                 throw new IllegalStateException("Secret key password is probably wrong.", e);
@@ -150,6 +153,41 @@ final class PgpUtils {
         }
     }
 
+    /**
+     * Signs the specified file with a key obtained through {@link #signingKey(File, char[])}.
+     */
+    public static void signWithKey(File fileToSign, Object signingKey, File signatureFile, boolean armor) {
+        JkUtilsFile.assertAllExist(fileToSign);
+        final InputStream toSign = JkUtilsIO.inputStream(fileToSign);
+        final OutputStream signingStream = signingStream(signingKey,
+                JkUtilsIO.outputStream(signatureFile, false), armor);
+        try {
+            JkUtilsIO.copy(toSign, signingStream);
+        } finally {
+            JkUtilsIO.closeQuietly(toSign);
+        }
+        JkUtilsIO.closeOrFail(signingStream);
+    }
+
+    /**
+     * Returns a stream signing all the bytes written into it with a key obtained through
+     * {@link #signingKey(File, char[])}. The detached signature is written to the specified
+     * output when the returned stream is closed.
+     */
+    public static OutputStream signingStream(Object signingKey, OutputStream signatureOut, boolean armor) {
+        final SigningKey key = (SigningKey) signingKey;
+        final PGPContentSignerBuilder contentSignerBuilder = new BcPGPContentSignerBuilder(
+                key.algorithm, HASH_ALGO);
+        final PGPSignatureGenerator signatureGenerator = new PGPSignatureGenerator(
+                contentSignerBuilder);
+        try {
+            signatureGenerator.init(PGPSignature.BINARY_DOCUMENT, key.privateKey);
+        } catch (final PGPException e) {
+            throw new RuntimeException(e);
+        }
+        return new SigningOutputStream(signatureGenerator, signatureOut, armor);
+    }
+
     private static PGPSecretKey readFirstSecretKey(InputStream keyRingIs) {
         for (final PGPSecretKeyRing keyRing : extractSecrectKeyRings(keyRingIs)) {
             final Iterator<PGPSecretKey> keyIter = keyRing.getSecretKeys();
@@ -183,6 +221,66 @@ final class PgpUtils {
         return result;
     }
 
+    private static final class SigningKey {
+
+        private final PGPPrivateKey privateKey;
+
+        private final int algorithm;
+
+        SigningKey(PGPPrivateKey privateKey, int algorithm) {
+            this.privateKey = privateKey;
+            this.algorithm = algorithm;
+        }
+
+    }
+
+    private static final class SigningOutputStream extends OutputStream {
+
+        private final PGPSignatureGenerator signatureGenerator;
+
+        private final OutputStream signatureOut;
+
+        private final boolean armor;
+
+        private boolean closed;
+
+        SigningOutputStream(PGPSignatureGenerator signatureGenerator, OutputStream signatureOut,
+                boolean armor) {
+            this.signatureGenerator = signatureGenerator;
+            this.signatureOut = signatureOut;
+            this.armor = armor;
+        }
+
+        @Override
+        public void write(int b) {
+            signatureGenerator.update((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            signatureGenerator.update(bytes, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                // Closing an armored stream writes the armor footer but leaves the wrapped stream open
+                final OutputStream out = armor ? new ArmoredOutputStream(signatureOut) : signatureOut;
+                signatureGenerator.generate().encode(new BCPGOutputStream(out));
+                out.close();
+            } catch (final PGPException e) {
+                throw new RuntimeException(e);
+            } finally {
+                signatureOut.close();
+            }
+        }
+
+    }
+
     private static class InnerPGPObjectFactory {
 
         private final BCPGInputStream in;
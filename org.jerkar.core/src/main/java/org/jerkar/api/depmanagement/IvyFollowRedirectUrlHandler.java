@@ -3,6 +3,7 @@ package org.jerkar.api.depmanagement;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
@@ -75,6 +76,36 @@ class IvyFollowRedirectUrlHandler extends BasicURLHandler {
         }
     }
 
+    /**
+     * Same as {@link #upload(File, URL, CopyProgressListener)} but taking the content from memory.
+     */
+    void upload(byte[] content, URL dest) throws IOException {
+        if (!"http".equals(dest.getProtocol()) && !"https".equals(dest.getProtocol())) {
+            throw new UnsupportedOperationException("URL repository only support HTTP PUT at the moment");
+        }
+        IvyAuthenticator.install();
+        HttpURLConnection conn = null;
+        try {
+            final URL url = normalizeToURL(dest);
+            conn = (HttpURLConnection) url.openConnection();
+            conn.setDoOutput(true);
+            conn.setRequestMethod("PUT");
+            conn.setRequestProperty("User-Agent", getUserAgent());
+            conn.setRequestProperty("Content-type", "application/octet-stream");
+            conn.setRequestProperty("Content-length", Integer.toString(content.length));
+            conn.setInstanceFollowRedirects(true);
+            final OutputStream outputStream = conn.getOutputStream();
+            try {
+                outputStream.write(content);
+            } finally {
+                outputStream.close();
+            }
+            validatePutStatusCode(url, conn.getResponseCode(), conn.getResponseMessage());
+        } finally {
+            disconnect(conn);
+        }
+    }
+
     private boolean checkRedirect(HttpURLConnection con) throws IOException {
         final int status = con.getResponseCode();
         return status == HttpURLConnection.HTTP_MOVED_TEMP
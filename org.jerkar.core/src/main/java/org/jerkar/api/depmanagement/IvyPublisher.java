@@ -216,7 +216,8 @@ final class IvyPublisher implements InternalPublisher {
                 JkLog.startln("Publishing for repository " + resolver);
                 final CheckFileFlag checkFileFlag = CheckFileFlag.of(publishRepo);
                 final IvyPublisherForMaven ivyPublisherForMaven = new IvyPublisherForMaven(
-                        checkFileFlag, resolver, descriptorOutputDir, publishRepo.uniqueSnapshot());
+                        checkFileFlag, resolver, descriptorOutputDir, publishRepo.uniqueSnapshot(),
+                        publishRepo.uploadParallelism());
                 ivyPublisherForMaven.publish(moduleDescriptor, publication);
                 count++;
             }
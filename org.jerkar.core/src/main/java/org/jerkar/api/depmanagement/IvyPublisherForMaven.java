@@ -5,6 +5,12 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
@@ -12,7 +18,6 @@ import org.apache.ivy.core.module.id.ModuleId;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.plugins.parser.m2.PomModuleDescriptorWriter;
 import org.apache.ivy.plugins.parser.m2.PomWriterOptions;
-import org.apache.ivy.plugins.repository.Repository;
 import org.apache.ivy.plugins.repository.Resource;
 import org.apache.ivy.plugins.resolver.DependencyResolver;
 import org.apache.ivy.plugins.resolver.IBiblioResolver;
@@ -20,10 +25,11 @@ import org.apache.ivy.plugins.resolver.RepositoryResolver;
 import org.apache.ivy.util.ChecksumHelper;
 import org.jerkar.api.depmanagement.IvyPublisher.CheckFileFlag;
 import org.jerkar.api.depmanagement.JkMavenPublication.JkClassifiedArtifact;
-import org.jerkar.api.depmanagement.MavenMetadata.Versioning.Snapshot;
 import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsConcurrent;
 import org.jerkar.api.utils.JkUtilsFile;
 import org.jerkar.api.utils.JkUtilsIO;
+import org.jerkar.api.utils.JkUtilsIterable;
 import org.jerkar.api.utils.JkUtilsObject;
 import org.jerkar.api.utils.JkUtilsString;
 import org.jerkar.api.utils.JkUtilsThrowable;
@@ -32,9 +38,17 @@ import org.jerkar.api.utils.JkUtilsTime;
 /**
  * {@link IvyPublisher} delegates to this class for publishing to Maven
  * repositories.
+ * <p>
+ * Artifacts, their checksums and signatures are transferred concurrently, at most
+ * <code>uploadParallelism</code> files at once. The <code>maven-metadata.xml</code> files are
+ * updated only once all artifacts have been successfully uploaded.
  */
 final class IvyPublisherForMaven {
 
+    // Ivy checksum algorithm names to MessageDigest ones
+    private static final Map<String, String> DIGEST_ALGOS = JkUtilsIterable.mapOf("md5", "MD5", "sha1",
+            "SHA-1", "sha256", "SHA-256", "sha512", "SHA-512");
+
     private final RepositoryResolver resolver;
 
     private final CheckFileFlag checkFileFlag;
@@ -43,13 +57,19 @@ final class IvyPublisherForMaven {
 
     private final boolean uniqueSnapshot;
 
+    private final int uploadParallelism;
+
+    private final MavenRepoTransport transport;
+
     IvyPublisherForMaven(CheckFileFlag checkFileFlag, RepositoryResolver dependencyResolver,
-            File descriptorOutputDir, boolean uniqueSnapshot) {
+            File descriptorOutputDir, boolean uniqueSnapshot, int uploadParallelism) {
         super();
         this.resolver = dependencyResolver;
         this.descriptorOutputDir = descriptorOutputDir;
         this.checkFileFlag = checkFileFlag;
         this.uniqueSnapshot = uniqueSnapshot;
+        this.uploadParallelism = uploadParallelism;
+        this.transport = MavenRepoTransport.of(dependencyResolver.getRepository());
     }
 
     void publish(DefaultModuleDescriptor moduleDescriptor, JkMavenPublication publication) {
@@ -59,88 +79,76 @@ final class IvyPublisherForMaven {
         } catch (final IOException e) {
             throw new RuntimeException(e);
         }
-
-        // publish artifacts
         final JkVersionedModule versionedModule = IvyTranslations
                 .toJkVersionedModule(ivyModuleRevisionId);
-        final MavenMetadata returnedMetaData = publish(versionedModule, publication);
-
-        // publish pom
-        final File pomXml = makePom(moduleDescriptor, publication);
-        final String version;
-        if (versionedModule.version().isSnapshot() && this.uniqueSnapshot) {
-            final String path = snapshotMetadataPath(versionedModule);
-            final MavenMetadata mavenMetadata = JkUtilsObject.firstNonNull(loadMavenMedatata(path),
-                    returnedMetaData);
-            final Snapshot snap = mavenMetadata.currentSnapshot();
-            version = versionForUniqueSnapshot(versionedModule.version().name(), snap.timestamp,
-                    snap.buildNumber);
-            final String pomDest = destination(versionedModule, "pom", null, version);
-            putAll(pomXml, pomDest, true);
-            mavenMetadata.addSnapshotVersion("pom", null);
-            push(mavenMetadata, path);
-        } else {
-            version = versionedModule.version().name();
-            final String pomDest = destination(versionedModule, "pom", null, version);
-            putAll(pomXml, pomDest, true);
-        }
-        if (this.descriptorOutputDir == null) {
-            pomXml.delete();
-        }
-
-        // update maven-metadata
-        if (returnedMetaData != null) {
-            updateMetadata(ivyModuleRevisionId.getModuleId(), ivyModuleRevisionId.getRevision(),
-                    returnedMetaData.lastUpdateTimestamp());
-        }
-
-        commitPublication(resolver);
-    }
-
-    private MavenMetadata publish(JkVersionedModule versionedModule,
-            JkMavenPublication mavenPublication) {
-        if (!versionedModule.version().isSnapshot()) {
-            final String existing = checkNotExist(versionedModule, mavenPublication);
+        final boolean snapshot = versionedModule.version().isSnapshot();
+        if (!snapshot) {
+            final String existing = checkNotExist(versionedModule, publication);
             if (existing != null) {
                 throw new IllegalArgumentException("Artifact " + existing
                         + " already exists on repo.");
             }
         }
-        if (versionedModule.version().isSnapshot() && this.uniqueSnapshot) {
-            final String path = snapshotMetadataPath(versionedModule);
-            MavenMetadata mavenMetadata = loadMavenMedatata(path);
+        final File pomXml = makePom(moduleDescriptor, publication);
+        final List<Upload> uploads = new LinkedList<Upload>();
+        final MavenMetadata snapshotMetadata;
+        if (snapshot && this.uniqueSnapshot) {
             final String timestamp = JkUtilsTime.nowUtc("yyyyMMdd.HHmmss");
-            if (mavenMetadata == null) {
-                mavenMetadata = MavenMetadata.of(versionedModule, timestamp);
+            snapshotMetadata = JkUtilsObject.firstNonNull(
+                    loadMavenMedatata(snapshotMetadataPath(versionedModule)),
+                    MavenMetadata.of(versionedModule, timestamp));
+            snapshotMetadata.updateSnapshot(timestamp);
+            final String version = versionForUniqueSnapshot(versionedModule.version().name(), timestamp,
+                    snapshotMetadata.currentBuildNumber());
+            for (final File file : publication.mainArtifactFiles()) {
+                uploads.add(uniqueSnapshotUpload(versionedModule, null, file, version, snapshotMetadata));
             }
-            mavenMetadata.updateSnapshot(timestamp);
-            push(mavenMetadata, path);
-            final int buildNumber = mavenMetadata.currentBuildNumber();
-
-            final String versionUniqueSnapshot = versionForUniqueSnapshot(versionedModule.version()
-                    .name(), timestamp, buildNumber);
-
-            for (final File file : mavenPublication.mainArtifactFiles()) {
-                publishUniqueSnapshot(versionedModule, null, file, versionUniqueSnapshot,
-                        mavenMetadata);
+            for (final JkClassifiedArtifact classifiedArtifact : publication.classifiedArtifacts()) {
+                uploads.add(uniqueSnapshotUpload(versionedModule, classifiedArtifact.classifier(),
+                        classifiedArtifact.file(), version, snapshotMetadata));
             }
-            for (final JkClassifiedArtifact classifiedArtifact : mavenPublication
-                    .classifiedArtifacts()) {
-                publishUniqueSnapshot(versionedModule, classifiedArtifact.classifier(),
-                        classifiedArtifact.file(), versionUniqueSnapshot, mavenMetadata);
-            }
-            return mavenMetadata;
+            uploads.add(new Upload(pomXml, destination(versionedModule, "pom", null, version), true));
+            snapshotMetadata.addSnapshotVersion("pom", null);
         } else {
-            for (final File file : mavenPublication.mainArtifactFiles()) {
-                publishNormal(versionedModule, null, file);
+            snapshotMetadata = null;
+            for (final File file : publication.mainArtifactFiles()) {
+                uploads.add(new Upload(file, destination(versionedModule, extension(file), null), snapshot));
             }
-            for (final JkClassifiedArtifact classifiedArtifact : mavenPublication
-                    .classifiedArtifacts()) {
-                publishNormal(versionedModule, classifiedArtifact.classifier(),
-                        classifiedArtifact.file());
+            for (final JkClassifiedArtifact classifiedArtifact : publication.classifiedArtifacts()) {
+                uploads.add(new Upload(classifiedArtifact.file(), destination(versionedModule,
+                        extension(classifiedArtifact.file()), classifiedArtifact.classifier()), snapshot));
+            }
+            uploads.add(new Upload(pomXml, destination(versionedModule, "pom", null), true));
+        }
+        try {
+            putAll(uploads);
+        } finally {
+            if (this.descriptorOutputDir == null) {
+                pomXml.delete();
             }
-            return null;
         }
+
+        // update maven-metadata once all artifacts are there
+        if (snapshotMetadata != null) {
+            push(snapshotMetadata, snapshotMetadataPath(versionedModule));
+            updateMetadata(ivyModuleRevisionId.getModuleId(), ivyModuleRevisionId.getRevision(),
+                    snapshotMetadata.lastUpdateTimestamp());
+        }
+
+        commitPublication(resolver);
+    }
+
+    private static Upload uniqueSnapshotUpload(JkVersionedModule versionedModule, String classifier,
+            File source, String versionForUniqueSpshot, MavenMetadata mavenMetadata) {
+        final String extension = extension(source);
+        final String dest = destination(versionedModule, extension, classifier,
+                versionForUniqueSpshot);
+        mavenMetadata.addSnapshotVersion(extension, classifier);
+        return new Upload(source, dest, false);
+    }
+
+    private static String extension(File file) {
+        return JkUtilsString.substringAfterLast(file.getName(), ".");
     }
 
     private File makePom(ModuleDescriptor moduleDescriptor, JkMavenPublication publication) {
@@ -174,62 +182,43 @@ final class IvyPublisherForMaven {
         }
     }
 
+    // Returns the first artifact already present in the repository, checking them all concurrently
     private String checkNotExist(JkVersionedModule versionedModule,
             JkMavenPublication mavenPublication) {
+        final List<String> dests = new LinkedList<String>();
         if (!mavenPublication.mainArtifactFiles().isEmpty()) {
-            final String pomDest = destination(versionedModule, "pom", null);
-            if (existOnRepo(pomDest)) {
-                throw new IllegalArgumentException("The main artifact as already exist for "
-                        + versionedModule);
-            }
+            dests.add(destination(versionedModule, "pom", null));
             for (final File file : mavenPublication.mainArtifactFiles()) {
-                final String ext = JkUtilsString.substringAfterLast(file.getName(), ".");
-                final String dest = destination(versionedModule, ext, null);
-                if (existOnRepo(dest)) {
-                    return dest;
-                }
+                dests.add(destination(versionedModule, extension(file), null));
             }
         }
         for (final JkClassifiedArtifact classifiedArtifact : mavenPublication.classifiedArtifacts()) {
-            final String ext = JkUtilsString.substringAfterLast(
-                    classifiedArtifact.file().getName(), ".");
-            final String dest = destination(versionedModule, ext, classifiedArtifact.classifier());
-            if (existOnRepo(dest)) {
-                return dest;
-            }
+            dests.add(destination(versionedModule, extension(classifiedArtifact.file()),
+                    classifiedArtifact.classifier()));
         }
-        return null;
-    }
-
-    private boolean existOnRepo(String dest) {
-        try {
-            final String path = completePath(dest);
-            final Resource resource = resolver.getRepository().getResource(path);
-            return resource.exists();
-        } catch (final IOException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    private void publishUniqueSnapshot(JkVersionedModule versionedModule, String classifier,
-            File source, String versionForUniqueSpshot, MavenMetadata mavenMetadata) {
+        final List<Callable<Boolean>> checks = new ArrayList<Callable<Boolean>>(dests.size());
+        for (final String dest : dests) {
+            checks.add(new Callable<Boolean>() {
 
-        final String extension = JkUtilsString.substringAfterLast(source.getName(), ".");
-        final String dest = destination(versionedModule, extension, classifier,
-                versionForUniqueSpshot);
-        putAll(source, dest, false);
-        final String path = snapshotMetadataPath(versionedModule);
-        mavenMetadata.addSnapshotVersion(extension, classifier);
-        push(mavenMetadata, path);
-    }
-
-    private void publishNormal(JkVersionedModule versionedModule, String classifier, File source) {
+                @Override
+                public Boolean call() throws Exception {
+                    return transport.exists(completePath(dest));
+                }
 
-        final String extension = JkUtilsString.substringAfterLast(source.getName(), ".");
-        final String version = versionedModule.version().name();
-        final String dest = destination(versionedModule.withVersion(version), extension, classifier);
-        final boolean overwrite = versionedModule.version().isSnapshot();
-        putAll(source, dest, overwrite);
+            });
+        }
+        final List<Boolean> exists = JkUtilsConcurrent.invokeAll("maven-check", checks, uploadParallelism);
+        for (int i = 0; i < dests.size(); i++) {
+            if (!exists.get(i)) {
+                continue;
+            }
+            if (i == 0 && !mavenPublication.mainArtifactFiles().isEmpty()) {
+                throw new IllegalArgumentException("The main artifact as already exist for "
+                        + versionedModule);
+            }
+            return dests.get(i);
+        }
+        return null;
     }
 
     private static String destination(JkVersionedModule versionedModule, String ext,
@@ -280,7 +269,11 @@ final class IvyPublisherForMaven {
             throw new RuntimeException(e);
         }
         JkUtilsIO.closeQuietly(outputStream);
-        putAll(file, path, true);
+        try {
+            put(file, path, true, true);
+        } finally {
+            file.delete();
+        }
     }
 
     private static JkVersionedModule of(ModuleId moduleId, String version) {
@@ -316,8 +309,19 @@ final class IvyPublisherForMaven {
         }
     }
 
-    private void putAll(File source, String dest, boolean overwrite) {
-        putAll(source, dest, overwrite, true);
+    private void putAll(List<Upload> uploads) {
+        final List<Runnable> tasks = new ArrayList<Runnable>(uploads.size());
+        for (final Upload upload : uploads) {
+            tasks.add(new Runnable() {
+
+                @Override
+                public void run() {
+                    put(upload.source, upload.destination, upload.overwrite, true);
+                }
+
+            });
+        }
+        JkUtilsConcurrent.runAll("maven-publish", tasks, uploadParallelism);
     }
 
     private String completePath(String path) {
@@ -328,32 +332,50 @@ final class IvyPublisherForMaven {
         return path;
     }
 
-    private void putAll(File source, String destination, boolean overwrite, boolean signIfneeded) {
-        final String[] checksums = this.resolver.getChecksumAlgorithms();
-        final Repository repository = this.resolver.getRepository();
+    // Publishes the file along its checksums, kept in memory, and its signature if needed
+    private void put(File source, String destination, boolean overwrite, boolean signIfneeded) {
         try {
             final String dest = completePath(destination);
+            final Map<String, String> checksums = checksums(source);
+            final File signed = this.checkFileFlag.pgpSigner != null && signIfneeded ? checkFileFlag.pgpSigner
+                    .sign(source)[0] : null;
             JkLog.info("publishing to " + dest);
-            repository.put(null, source, dest, overwrite);
-            for (final String algo : checksums) {
-                final File temp = JkUtilsFile.tempFile("jk-checksum-", algo);
-                final String checkSum = ChecksumHelper.computeAsString(source, algo);
-                JkUtilsFile.writeString(temp, checkSum, false);
-                final String csDest = dest + "." + algo;
+            transport.put(source, dest, overwrite);
+            for (final Map.Entry<String, String> checksum : checksums.entrySet()) {
+                final String csDest = dest + "." + checksum.getKey();
                 JkLog.info("publishing to " + csDest);
-                repository.put(null, temp, csDest, overwrite);
-                temp.delete();
+                transport.put(checksum.getValue().getBytes("ASCII"), csDest, overwrite);
             }
-            if (this.checkFileFlag.pgpSigner != null && signIfneeded) {
-                final File signed = checkFileFlag.pgpSigner.sign(source)[0];
-                final String signedDest = destination + ".asc";
-                putAll(signed, signedDest, overwrite, false);
+            if (signed != null) {
+                put(signed, destination + ".asc", overwrite, false);
             }
         } catch (final IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    // Computes all checksums the resolver asks for in a single read of the file
+    private Map<String, String> checksums(File file) throws IOException {
+        final String[] algos = this.resolver.getChecksumAlgorithms();
+        final List<String> digestAlgos = new LinkedList<String>();
+        for (final String algo : algos) {
+            if (DIGEST_ALGOS.containsKey(algo)) {
+                digestAlgos.add(DIGEST_ALGOS.get(algo));
+            }
+        }
+        final Map<String, String> digests = JkUtilsFile.checksums(file,
+                digestAlgos.toArray(new String[digestAlgos.size()]));
+        final Map<String, String> result = new LinkedHashMap<String, String>();
+        for (final String algo : algos) {
+            if (DIGEST_ALGOS.containsKey(algo)) {
+                result.put(algo, digests.get(DIGEST_ALGOS.get(algo)));
+            } else {
+                result.put(algo, ChecksumHelper.computeAsString(file, algo));
+            }
+        }
+        return result;
+    }
+
     private String targetDir() {
         return this.descriptorOutputDir.getAbsolutePath();
     }
@@ -366,4 +388,20 @@ final class IvyPublisherForMaven {
         }
     }
 
+    private static final class Upload {
+
+        final File source;
+
+        final String destination;
+
+        final boolean overwrite;
+
+        Upload(File source, String destination, boolean overwrite) {
+            this.source = source;
+            this.destination = destination;
+            this.overwrite = overwrite;
+        }
+
+    }
+
 }
@@ -17,6 +17,7 @@ import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
 import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.DownloadStatus;
 import org.apache.ivy.core.report.ResolveReport;
 import org.apache.ivy.core.resolve.DownloadOptions;
 import org.apache.ivy.core.resolve.IvyNode;
@@ -29,6 +30,7 @@ import org.jerkar.api.system.JkLocator;
 import org.jerkar.api.system.JkLog;
 import org.jerkar.api.utils.JkUtilsIterable;
 import org.jerkar.api.utils.JkUtilsObject;
+import org.jerkar.api.utils.JkUtilsString;
 import org.jerkar.api.utils.JkUtilsThrowable;
 
 /**
@@ -194,8 +196,19 @@ final class IvyResolver implements InternalDepResolver {
             artifact = new DefaultArtifact(moduleRevisionId, null, dependency.moduleId().name(), typeAndExt,
                     typeAndExt, extra);
         }
-        final ArtifactDownloadReport report = ivy.getResolveEngine().download(artifact, new DownloadOptions());
-        return report.getLocalFile();
+        // Ivy context is thread bound so we need to push one when invoked from a worker thread
+        IvyContext.pushNewContext().setIvy(ivy);
+        try {
+            final ArtifactDownloadReport report = ivy.getResolveEngine().download(artifact, new DownloadOptions());
+            final String details = report.getDownloadDetails();
+            if (report.getDownloadStatus() == DownloadStatus.FAILED && !JkUtilsString.isBlank(details)
+                    && !ArtifactDownloadReport.MISSING_ARTIFACT.equals(details)) {
+                throw new IllegalStateException("Download of " + dependency + " failed : " + details);
+            }
+            return report.getLocalFile();
+        } finally {
+            IvyContext.popContext();
+        }
     }
 
     private static JkDependencyNode createTree(Iterable<IvyNode> nodes, JkVersionedModule rootVersionedModule,
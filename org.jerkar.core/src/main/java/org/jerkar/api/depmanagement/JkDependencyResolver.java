@@ -4,12 +4,17 @@ import static org.jerkar.api.utils.JkUtilsString.plurialize;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jerkar.api.depmanagement.JkDependency.JkFileDependency;
 import org.jerkar.api.file.JkPath;
 import org.jerkar.api.system.JkLog;
+import org.jerkar.api.system.JkProfiler;
 import org.jerkar.api.utils.JkUtilsIterable;
 
 /**
@@ -18,7 +23,8 @@ import org.jerkar.api.utils.JkUtilsIterable;
  * means that you must instantiate one for each dependency set you want to
  * resolve. <br/>
  * Each instance of <code>JkDependencyResolver</code> keep in cache resolution
- * setting so a resolution o a given scope is never computed twice.
+ * setting so a resolution o a given scope is never computed twice, until
+ * {@link #clearCachedResults()} is invoked.
  *
  * The result of the resolution depends on the parameters you have set on it.
  * See {@link JkResolutionParameters}
@@ -67,6 +73,16 @@ public final class JkDependencyResolver {
 
     private final JkRepos repos;
 
+    // Incremented each time cached resolution results of all resolvers become stale
+    private static final AtomicInteger CACHE_GENERATION = new AtomicInteger();
+
+    // Resolution results already computed by this resolver, keyed by resolved scopes
+    private final Map<Set<JkScope>, JkResolveResult> cachedResolveResults =
+            new HashMap<Set<JkScope>, JkResolveResult>();
+
+    // Value of CACHE_GENERATION when cachedResolveResults has been filled
+    private int cachedResolveResultsGeneration = CACHE_GENERATION.get();
+
     private JkDependencyResolver(InternalDepResolver internalResolver, JkDependencies dependencies,
             JkVersionedModule module, JkResolutionParameters resolutionParameters,
             JkVersionProvider transitiveVersionOverride, JkRepos repos) {
@@ -153,13 +169,40 @@ public final class JkDependencyResolver {
         return JkPath.of(result).withoutDuplicates();
     }
 
-    private JkResolveResult getResolveResult(JkVersionProvider transitiveVersionOverride, JkScope ... scopes) {
+    /**
+     * Makes all resolvers resolve again the scopes they have already resolved instead of reusing
+     * the cached results. This way, a new build cycle (as in watch mode) sees the latest
+     * versions of snapshot and changing dependencies.
+     */
+    public static void clearCachedResults() {
+        CACHE_GENERATION.incrementAndGet();
+    }
+
+    private synchronized JkResolveResult getResolveResult(JkVersionProvider transitiveVersionOverride,
+            JkScope ... scopes) {
+        final int generation = CACHE_GENERATION.get();
+        if (generation != cachedResolveResultsGeneration) {
+            cachedResolveResults.clear();
+            cachedResolveResultsGeneration = generation;
+        }
+        final Set<JkScope> key = JkUtilsIterable.setOf(scopes);
+        JkResolveResult resolveResult = cachedResolveResults.get(key);
+        if (resolveResult == null) {
+            resolveResult = doResolve(transitiveVersionOverride, scopes);
+            cachedResolveResults.put(key, resolveResult);
+        }
+        return resolveResult;
+    }
+
+    private JkResolveResult doResolve(JkVersionProvider transitiveVersionOverride, JkScope ... scopes) {
         JkLog.trace("Preparing to resolve dependencies for module " + module);
         JkLog.startln("Resolving dependencies with specified scopes " + Arrays.asList(scopes) );
         JkResolveResult resolveResult = internalResolver.resolve(module, dependencies.onlyModules(),
                 parameters, transitiveVersionOverride, scopes);
         final JkDependencyNode mergedNode = resolveResult.dependencyTree().mergeNonModules(dependencies, JkUtilsIterable.setOf(scopes));
         resolveResult = JkResolveResult.of(mergedNode, resolveResult.errorReport());
+        JkProfiler.count("modules", resolveResult.involvedModules().size());
+        JkProfiler.count("artifacts", resolveResult.localFiles().size());
         if (JkLog.verbose()) {
             JkLog.info(plurialize(resolveResult.involvedModules().size(), "module") + resolveResult.involvedModules());
             JkLog.info(plurialize(resolveResult.localFiles().size(), "artifact") + ".");
@@ -17,6 +17,9 @@ public final class JkPublishRepo implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    /** Default number of files transferred at once to a repository while publishing. */
+    public static final int DEFAULT_UPLOAD_PARALLELISM = 4;
+
     private final JkRepo jkRepo;
 
     private final JkPublishFilter filter;
@@ -28,6 +31,8 @@ public final class JkPublishRepo implements Serializable {
 
     private final boolean uniqueSnapshot;
 
+    private final int uploadParallelism;
+
     /**
      * Creates a {@link JkPublishRepo} for publishing on the specified {@link JkRepo} when
      * the specified {@link JkPublishRepo} agree. If the specified filter do not agree to publish
@@ -35,7 +40,8 @@ public final class JkPublishRepo implements Serializable {
      * will result in an no operation (doing nothing).
      */
     public static JkPublishRepo of(JkRepo jkRepo, JkPublishFilter filter) {
-        return new JkPublishRepo(jkRepo, filter, null, new HashSet<String>(), false);
+        return new JkPublishRepo(jkRepo, filter, null, new HashSet<String>(), false,
+                DEFAULT_UPLOAD_PARALLELISM);
     }
 
     /**
@@ -43,7 +49,7 @@ public final class JkPublishRepo implements Serializable {
      */
     public static JkPublishRepo of(JkRepo jkRepo) {
         return new JkPublishRepo(jkRepo, JkPublishFilter.ACCEPT_ALL, null, new HashSet<String>(),
-                false);
+                false, DEFAULT_UPLOAD_PARALLELISM);
     }
 
     /**
@@ -52,7 +58,7 @@ public final class JkPublishRepo implements Serializable {
      */
     public static JkPublishRepo ofSnapshot(JkRepo jkRepo) {
         return new JkPublishRepo(jkRepo, JkPublishFilter.ACCEPT_SNAPSHOT_ONLY, null,
-                new HashSet<String>(), false);
+                new HashSet<String>(), false, DEFAULT_UPLOAD_PARALLELISM);
     }
 
     /**
@@ -61,17 +67,18 @@ public final class JkPublishRepo implements Serializable {
      */
     public static JkPublishRepo ofRelease(JkRepo jkRepo) {
         return new JkPublishRepo(jkRepo, JkPublishFilter.ACCEPT_RELEASE_ONLY, null,
-                new HashSet<String>(), false);
+                new HashSet<String>(), false, DEFAULT_UPLOAD_PARALLELISM);
     }
 
     private JkPublishRepo(JkRepo jkRepo, JkPublishFilter filter, JkPgp requirePgpSign,
-            Set<String> digesters, boolean uniqueSnapshot) {
+            Set<String> digesters, boolean uniqueSnapshot, int uploadParallelism) {
         super();
         this.jkRepo = jkRepo;
         this.filter = filter;
         this.pgpSigner = requirePgpSign;
         this.checksumAlgorithms = Collections.unmodifiableSet(digesters);
         this.uniqueSnapshot = uniqueSnapshot;
+        this.uploadParallelism = uploadParallelism;
     }
 
     /**
@@ -116,13 +123,21 @@ public final class JkPublishRepo implements Serializable {
         return uniqueSnapshot;
     }
 
+    /**
+     * Returns the maximum number of files transferred at once to this repository while publishing.
+     */
+    public int uploadParallelism() {
+        return uploadParallelism;
+    }
+
     /**
      * Returns a {@link JkPublishRepo} identical to this one but with the specified Pgp signer.
      * All artifacts published on the returned repository will be automatically signed with the specified
      * Pgp signer, if this one is not <code>null<code>.
      */
     public JkPublishRepo withSigner(JkPgp signer) {
-        return new JkPublishRepo(jkRepo, filter, signer, checksumAlgorithms, uniqueSnapshot);
+        return new JkPublishRepo(jkRepo, filter, signer, checksumAlgorithms, uniqueSnapshot,
+                uploadParallelism);
     }
 
     /*
@@ -137,7 +152,7 @@ public final class JkPublishRepo implements Serializable {
     private JkPublishRepo andChecksums(String... algorithms) {
         final HashSet<String> set = new HashSet<String>(this.checksumAlgorithms);
         set.addAll(Arrays.asList(algorithms));
-        return new JkPublishRepo(jkRepo, filter, pgpSigner, set, uniqueSnapshot);
+        return new JkPublishRepo(jkRepo, filter, pgpSigner, set, uniqueSnapshot, uploadParallelism);
     }
 
     /**
@@ -188,7 +203,16 @@ public final class JkPublishRepo implements Serializable {
      */
     public JkPublishRepo withUniqueSnapshot(boolean uniqueSnapShot) {
         return new JkPublishRepo(jkRepo, filter, pgpSigner, this.checksumAlgorithms,
-                uniqueSnapShot);
+                uniqueSnapShot, uploadParallelism);
+    }
+
+    /**
+     * Returns a {@link JkPublishRepo} identical to this one but transferring at most the specified number
+     * of files at once while publishing. Use 1 for repositories that do not support concurrent uploads.
+     */
+    public JkPublishRepo withUploadParallelism(int uploadParallelism) {
+        return new JkPublishRepo(jkRepo, filter, pgpSigner, this.checksumAlgorithms, uniqueSnapshot,
+                uploadParallelism);
     }
 
-}
\ No newline at end of file
+}
@@ -147,6 +147,18 @@ public final class JkPublishRepos implements Iterable<JkPublishRepo>, Serializab
         return new JkPublishRepos(list);
     }
 
+    /**
+     * Returns a {@link JkPublishRepo} identical to this one but transferring at most the specified
+     * number of files at once to each repository while publishing.
+     */
+    public JkPublishRepos withUploadParallelism(int uploadParallelism) {
+        final List<JkPublishRepo> list = new LinkedList<JkPublishRepo>();
+        for (final JkPublishRepo publishRepo : this.publishRepos) {
+            list.add(publishRepo.withUploadParallelism(uploadParallelism));
+        }
+        return new JkPublishRepos(list);
+    }
+
     /**
      * Returns a {@link JkPublishRepo} identical to this one but with the additional specified publish repositories.
      */
@@ -22,7 +22,7 @@ public abstract class JkRepo implements Serializable {
     /**
      * URL of the Maven central repository.
      */
-    public static final URL MAVEN_CENTRAL_URL = toUrl("http://repo1.maven.org/maven2");
+    public static final URL MAVEN_CENTRAL_URL = toUrl("https://repo1.maven.org/maven2");
 
     /**
      * URL of the OSSRH repository for both deploying snapshot and download artifacts.
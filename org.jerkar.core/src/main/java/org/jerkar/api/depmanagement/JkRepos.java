@@ -1,13 +1,27 @@
 package org.jerkar.api.depmanagement;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsConcurrent;
 import org.jerkar.api.utils.JkUtilsIterable;
 
 /**
@@ -19,6 +33,12 @@ public final class JkRepos implements Iterable<JkRepo>, Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    // Milliseconds waited for a repository to answer before considering it is not reachable
+    private static final int REACHABILITY_TIMEOUT = 5000;
+
+    // Prevents two threads to download the same artifact at the same time in the repository cache
+    private static final ConcurrentMap<String, Object> FETCH_LOCKS = new ConcurrentHashMap<String, Object>();
+
     private InternalDepResolver ivyResolver;
 
     /**
@@ -211,7 +231,131 @@ public final class JkRepos implements Iterable<JkRepo>, Serializable {
         return get(JkModuleId.of(moduleGroup, moduleName), version);
     }
 
-    private InternalDepResolver ivyResolver() {
+    /**
+     * Retrieves the files embodying the specified external dependencies, downloading them concurrently
+     * using at most <code>maxConcurrentDownloads</code> threads. Dependencies not found in these repositories
+     * are remembered in the local repository cache so they are not looked up again at next invocations. Failed
+     * downloads and lookups made while no repository is reachable are only logged.<br/>
+     * The returned map contains an entry, keyed by the passed dependency instance, for each dependency found.
+     */
+    public Map<JkModuleDependency, File> get(Iterable<JkModuleDependency> moduleDependencies,
+            int maxConcurrentDownloads) {
+        final MissingArtifactCache missingArtifactCache = MissingArtifactCache.get();
+        final List<JkModuleDependency> toFetch = new ArrayList<JkModuleDependency>();
+        for (final JkModuleDependency moduleDependency : moduleDependencies) {
+            if (!missingArtifactCache.isKnownMissing(moduleDependency, this)) {
+                toFetch.add(moduleDependency);
+            }
+        }
+        if (toFetch.isEmpty()) {
+            return new HashMap<JkModuleDependency, File>();
+        }
+        final InternalDepResolver depResolver = ivyResolver();
+        final Set<JkModuleDependency> failed = Collections.synchronizedSet(new HashSet<JkModuleDependency>());
+        final List<Callable<File>> tasks = new ArrayList<Callable<File>>(toFetch.size());
+        for (final JkModuleDependency moduleDependency : toFetch) {
+            tasks.add(new Callable<File>() {
+
+                @Override
+                public File call() {
+                    try {
+                        return fetch(depResolver, moduleDependency);
+                    } catch (final RuntimeException e) {
+                        JkLog.warn("Can't fetch " + moduleDependency + " : " + e.getMessage());
+                        failed.add(moduleDependency);
+                        return null;
+                    }
+                }
+            });
+        }
+        JkLog.trace("Fetching " + toFetch.size() + " artifacts with " + maxConcurrentDownloads + " threads.");
+        final List<File> files = JkUtilsConcurrent.invokeAll("download", tasks, maxConcurrentDownloads);
+        final Map<JkModuleDependency, File> result = new HashMap<JkModuleDependency, File>();
+        final List<JkModuleDependency> missing = new LinkedList<JkModuleDependency>();
+        for (int i = 0; i < toFetch.size(); i++) {
+            final File file = files.get(i);
+            if (file != null && file.exists()) {
+                result.put(toFetch.get(i), file);
+            } else if (!failed.contains(toFetch.get(i))) {
+                missing.add(toFetch.get(i));
+            }
+        }
+        if (!missing.isEmpty() && !allReachable()) {
+            JkLog.warn("Some repositories are not reachable among " + this + " : " + missing.size()
+                    + " artifacts not found this time will be looked up again.");
+            return result;
+        }
+        for (final JkModuleDependency moduleDependency : missing) {
+            missingArtifactCache.markMissing(moduleDependency, this);
+        }
+        missingArtifactCache.save();
+        return result;
+    }
+
+    // Ivy reports artifacts as missing when repositories can not be reached, so a not found
+    // artifact is a definitive result only if every repository answers : an artifact missing
+    // from the reachable ones may be hosted by an unreachable one.
+    private boolean allReachable() {
+        for (final JkRepo repo : repos) {
+            if (!isReachable(repo.url())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isReachable(URL url) {
+        if ("file".equals(url.getProtocol())) {
+            return new File(url.getPath()).exists();
+        }
+        try {
+            final URLConnection connection = url.openConnection();
+            connection.setConnectTimeout(REACHABILITY_TIMEOUT);
+            connection.setReadTimeout(REACHABILITY_TIMEOUT);
+            if (connection instanceof HttpURLConnection) {
+                final HttpURLConnection httpConnection = (HttpURLConnection) connection;
+                httpConnection.setRequestMethod("HEAD");
+                final int code = httpConnection.getResponseCode();
+                httpConnection.disconnect();
+                return code < HttpURLConnection.HTTP_INTERNAL_ERROR;
+            }
+            connection.connect();
+            return true;
+        } catch (final IOException e) {
+            JkLog.trace("Repository " + url + " not reachable : " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Retrieves concurrently the artifacts having the specified classifier (as <code>sources</code> or
+     * <code>javadoc</code>) for the specified modules. The returned map contains an entry for each module
+     * publishing such an artifact. See {@link #get(Iterable, int)}.
+     */
+    public Map<JkVersionedModule, File> get(Iterable<JkVersionedModule> modules, String classifier,
+            int maxConcurrentDownloads) {
+        final Map<JkModuleDependency, JkVersionedModule> dependencies =
+                new HashMap<JkModuleDependency, JkVersionedModule>();
+        for (final JkVersionedModule module : modules) {
+            dependencies.put(JkModuleDependency.of(module).classifier(classifier), module);
+        }
+        final Map<JkVersionedModule, File> result = new HashMap<JkVersionedModule, File>();
+        for (final Map.Entry<JkModuleDependency, File> entry :
+                get(dependencies.keySet(), maxConcurrentDownloads).entrySet()) {
+            result.put(dependencies.get(entry.getKey()), entry.getValue());
+        }
+        return result;
+    }
+
+    private static File fetch(InternalDepResolver depResolver, JkModuleDependency moduleDependency) {
+        final String key = moduleDependency.toString() + ":" + moduleDependency.ext();
+        FETCH_LOCKS.putIfAbsent(key, new Object());
+        synchronized (FETCH_LOCKS.get(key)) {
+            return depResolver.get(moduleDependency);
+        }
+    }
+
+    private synchronized InternalDepResolver ivyResolver() {
         if (ivyResolver == null) {
             ivyResolver = InternalDepResolvers.ivy(this);
         }
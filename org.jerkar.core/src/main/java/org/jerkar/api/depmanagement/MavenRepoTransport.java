@@ -0,0 +1,167 @@
+package org.jerkar.api.depmanagement;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+
+import org.apache.ivy.plugins.repository.Repository;
+import org.apache.ivy.plugins.repository.file.FileRepository;
+import org.apache.ivy.plugins.repository.url.URLRepository;
+import org.apache.ivy.util.url.URLHandler;
+import org.apache.ivy.util.url.URLHandlerRegistry;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsIO;
+
+/**
+ * Transfers files to a repository, possibly from several threads at once. Ivy repositories keep the
+ * state of the current transfer in fields so they can not be used concurrently : file and http
+ * repositories are accessed directly, others go through the Ivy repository one transfer at a time.
+ */
+abstract class MavenRepoTransport {
+
+    static MavenRepoTransport of(Repository repository) {
+        if (repository instanceof FileRepository) {
+            return new FileTransport((FileRepository) repository);
+        }
+        final URLHandler urlHandler = URLHandlerRegistry.getDefault();
+        if (repository instanceof URLRepository && urlHandler instanceof IvyFollowRedirectUrlHandler) {
+            return new HttpTransport((IvyFollowRedirectUrlHandler) urlHandler);
+        }
+        return new IvyTransport(repository);
+    }
+
+    abstract boolean exists(String path) throws IOException;
+
+    abstract void put(File source, String path, boolean overwrite) throws IOException;
+
+    abstract void put(byte[] content, String path, boolean overwrite) throws IOException;
+
+    private static IOException alreadyExist(String path) {
+        return new IOException("destination file " + path + " exists and overwrite == false");
+    }
+
+    private static final class FileTransport extends MavenRepoTransport {
+
+        private final File baseDir;
+
+        FileTransport(FileRepository repository) {
+            this.baseDir = repository.getBaseDir();
+        }
+
+        @Override
+        boolean exists(String path) {
+            return file(path).exists();
+        }
+
+        @Override
+        void put(File source, String path, boolean overwrite) throws IOException {
+            final File target = checkedTarget(path, overwrite);
+            JkUtilsFile.copyFile(source, target);
+        }
+
+        @Override
+        void put(byte[] content, String path, boolean overwrite) throws IOException {
+            final File target = checkedTarget(path, overwrite);
+            final OutputStream outputStream = JkUtilsIO.outputStream(target, false);
+            try {
+                JkUtilsIO.copy(new ByteArrayInputStream(content), outputStream);
+            } finally {
+                JkUtilsIO.closeOrFail(outputStream);
+            }
+        }
+
+        private File checkedTarget(String path, boolean overwrite) throws IOException {
+            final File target = file(path);
+            if (!overwrite && target.exists()) {
+                throw alreadyExist(path);
+            }
+            target.getParentFile().mkdirs();
+            return target;
+        }
+
+        private File file(String path) {
+            final File file = new File(path);
+            if (file.isAbsolute() || baseDir == null) {
+                return file;
+            }
+            return new File(baseDir, path);
+        }
+
+    }
+
+    private static final class HttpTransport extends MavenRepoTransport {
+
+        private final IvyFollowRedirectUrlHandler urlHandler;
+
+        HttpTransport(IvyFollowRedirectUrlHandler urlHandler) {
+            this.urlHandler = urlHandler;
+        }
+
+        @Override
+        boolean exists(String path) throws IOException {
+            return urlHandler.isReachable(new URL(path));
+        }
+
+        @Override
+        void put(File source, String path, boolean overwrite) throws IOException {
+            final URL url = new URL(path);
+            if (!overwrite && urlHandler.isReachable(url)) {
+                throw alreadyExist(path);
+            }
+            urlHandler.upload(source, url, null);
+        }
+
+        @Override
+        void put(byte[] content, String path, boolean overwrite) throws IOException {
+            final URL url = new URL(path);
+            if (!overwrite && urlHandler.isReachable(url)) {
+                throw alreadyExist(path);
+            }
+            urlHandler.upload(content, url);
+        }
+
+    }
+
+    private static final class IvyTransport extends MavenRepoTransport {
+
+        private final Repository repository;
+
+        IvyTransport(Repository repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        boolean exists(String path) throws IOException {
+            synchronized (repository) {
+                return repository.getResource(path).exists();
+            }
+        }
+
+        @Override
+        void put(File source, String path, boolean overwrite) throws IOException {
+            synchronized (repository) {
+                repository.put(null, source, path, overwrite);
+            }
+        }
+
+        @Override
+        void put(byte[] content, String path, boolean overwrite) throws IOException {
+            final File temp = JkUtilsFile.tempFile("jk-publish-", ".tmp");
+            try {
+                final OutputStream outputStream = JkUtilsIO.outputStream(temp, false);
+                try {
+                    JkUtilsIO.copy(new ByteArrayInputStream(content), outputStream);
+                } finally {
+                    JkUtilsIO.closeOrFail(outputStream);
+                }
+                put(temp, path, overwrite);
+            } finally {
+                temp.delete();
+            }
+        }
+
+    }
+
+}
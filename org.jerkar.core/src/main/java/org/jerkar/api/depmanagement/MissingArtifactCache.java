@@ -0,0 +1,122 @@
+package org.jerkar.api.depmanagement;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.Properties;
+
+import org.jerkar.api.system.JkLocator;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsIO;
+
+/**
+ * Remembers, in the local repository cache, artifacts that have been looked up without success
+ * (as sources or javadoc for modules that do not publish them) so they are not fetched again
+ * at each build. Entries expire after one day.
+ * <p>
+ * The file is shared by all the JVMs using the same repository cache : it is saved under a file
+ * lock, merging the entries written by other JVMs since it has been read.
+ */
+final class MissingArtifactCache {
+
+    private static final long EXPIRATION_MILLIS = 24L * 60 * 60 * 1000;
+
+    private static final String FILE_NAME = "missing-artifacts.properties";
+
+    private static MissingArtifactCache instance;
+
+    private final File file;
+
+    private final Properties entries;
+
+    private boolean dirty;
+
+    MissingArtifactCache(File file) {
+        this.file = file;
+        this.entries = file.exists() ? JkUtilsFile.readPropertyFile(file) : new Properties();
+    }
+
+    static synchronized MissingArtifactCache get() {
+        if (instance == null) {
+            instance = new MissingArtifactCache(new File(JkLocator.jerkarRepositoryCache(), FILE_NAME));
+        }
+        return instance;
+    }
+
+    synchronized boolean isKnownMissing(JkModuleDependency dependency, JkRepos repos) {
+        final String value = entries.getProperty(key(dependency, repos));
+        if (value == null) {
+            return false;
+        }
+        return System.currentTimeMillis() - Long.parseLong(value) < EXPIRATION_MILLIS;
+    }
+
+    synchronized void markMissing(JkModuleDependency dependency, JkRepos repos) {
+        entries.setProperty(key(dependency, repos), Long.toString(System.currentTimeMillis()));
+        dirty = true;
+    }
+
+    synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        file.getParentFile().mkdirs();
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            final FileChannel channel = randomAccessFile.getChannel();
+            final FileLock lock = channel.lock();
+            try {
+                merge(read(channel));
+                final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                entries.store(outputStream, "Artifacts not found in repositories (value is lookup time)");
+                channel.truncate(0);
+                channel.write(ByteBuffer.wrap(outputStream.toByteArray()), 0);
+                dirty = false;
+            } finally {
+                lock.release();
+            }
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            JkUtilsIO.closeQuietly(randomAccessFile);
+        }
+    }
+
+    private static Properties read(FileChannel channel) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+            // Read until the buffer is full
+        }
+        final Properties result = new Properties();
+        result.load(new ByteArrayInputStream(buffer.array()));
+        return result;
+    }
+
+    // Keeps the latest lookup time of each entry and drops the expired ones
+    private void merge(Properties onDisk) {
+        for (final String key : onDisk.stringPropertyNames()) {
+            final String mine = entries.getProperty(key);
+            if (mine == null || Long.parseLong(mine) < Long.parseLong(onDisk.getProperty(key))) {
+                entries.setProperty(key, onDisk.getProperty(key));
+            }
+        }
+        final long now = System.currentTimeMillis();
+        for (final String key : entries.stringPropertyNames()) {
+            if (now - Long.parseLong(entries.getProperty(key)) >= EXPIRATION_MILLIS) {
+                entries.remove(key);
+            }
+        }
+    }
+
+    private static String key(JkModuleDependency dependency, JkRepos repos) {
+        final String ext = dependency.ext() == null ? "jar" : dependency.ext();
+        return dependency.toString() + ":" + ext + "@" + Integer.toHexString(repos.toString().hashCode());
+    }
+
+}
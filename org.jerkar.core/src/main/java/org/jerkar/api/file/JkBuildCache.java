@@ -0,0 +1,561 @@
+package org.jerkar.api.file;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jerkar.api.system.JkLocator;
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsAssert;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsIO;
+import org.jerkar.api.utils.JkUtilsString;
+
+/**
+ * A content addressed cache for the outputs of build steps (compilation, resource processing,
+ * archive creation, ...). A step computes a {@link JkCacheKey} from everything that may influence its
+ * result (content of input files, options, JDK version, ...) then asks the cache to restore its
+ * output. On a miss, the step runs normally and stores its output for the next builds.
+ * <p>
+ * Entries are verified against their recorded checksums when restored : corrupted entries are
+ * discarded. When the cache exceeds its maximum size, the least recently used entries are evicted.
+ * <p>
+ * Build steps use the cache returned by {@link #active()}, so nothing is cached unless a cache has
+ * been activated through {@link #activate(JkBuildCache)}.
+ * <p>
+ * A cache can be backed by a {@link JkRemoteBuildCache} (see {@link #withRemote(JkRemoteBuildCache, boolean, long)})
+ * so that entries produced on a machine can be reused on others. Local misses are then looked up in the
+ * remote cache and, if this build is trusted to push, newly stored entries are uploaded in background.
+ *
+ * @author Jerome Angibaud
+ */
+public final class JkBuildCache {
+
+    private static final String ENTRY_FILE_NAME = "entry.properties";
+
+    private static final String FILES_DIR_NAME = "files";
+
+    private static final String SIZE_PROPERTY = "@size";
+
+    private static final String FILE_PREFIX = "file:";
+
+    // Content hashes of input files, keyed by canonical path
+    private static final ConcurrentMap<String, FileHash> FILE_HASHES = new ConcurrentHashMap<String, FileHash>();
+
+    private static volatile JkBuildCache active;
+
+    private final File dir;
+
+    private final long maxSize;
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private final AtomicInteger misses = new AtomicInteger();
+
+    private final AtomicInteger stores = new AtomicInteger();
+
+    private final AtomicLong restoredBytes = new AtomicLong();
+
+    private final Set<String> usedKeys = new ConcurrentSkipListSet<String>();
+
+    private final RemoteSupport remote;
+
+    private JkBuildCache(File dir, long maxSize, RemoteSupport remote) {
+        this.dir = dir;
+        this.maxSize = maxSize;
+        this.remote = remote;
+    }
+
+    /**
+     * Creates a cache storing its entries in the specified directory and holding at most
+     * <code>maxSizeInBytes</code> bytes.
+     */
+    public static JkBuildCache of(File dir, long maxSizeInBytes) {
+        return new JkBuildCache(dir, maxSizeInBytes, null);
+    }
+
+    /**
+     * Creates a cache located in the Jerkar user directory.
+     *
+     * @see JkLocator#jerkarBuildCache()
+     */
+    public static JkBuildCache local(long maxSizeInBytes) {
+        return of(JkLocator.jerkarBuildCache(), maxSizeInBytes);
+    }
+
+    /**
+     * Returns a cache identical to this one but backed by the specified remote cache. Entries missing locally
+     * are fetched from the remote cache and, if <code>push</code> is <code>true</code>, entries stored locally
+     * are pushed to it. Only builds producing trustable outputs (typically CI builds) should push.
+     * <p>
+     * The build never waits more than <code>timeBudgetMillis</code> in total for the remote cache : once
+     * this budget is exhausted or if the remote cache fails, it is ignored for the rest of the build.
+     */
+    public JkBuildCache withRemote(JkRemoteBuildCache remoteCache, boolean push, long timeBudgetMillis) {
+        return new JkBuildCache(dir, maxSize, new RemoteSupport(remoteCache, push, timeBudgetMillis));
+    }
+
+    /**
+     * Starts fetching in background the remote entries used by the last build of the specified project
+     * that has pushed to the remote cache. Does nothing if this cache is not backed by a remote one.
+     */
+    public void prefetch(String projectName) {
+        if (remote != null) {
+            dir.mkdirs();
+            remote.prefetch(projectName, dir);
+        }
+    }
+
+    /**
+     * Pushes the list of entries used by this build under the specified project name, then waits for the
+     * pending transfers within the remaining time budget. Does nothing if this cache is not backed by a
+     * remote one.
+     */
+    public void finish(String projectName) {
+        if (remote != null) {
+            dir.mkdirs();
+            remote.finish(projectName, usedKeys, dir);
+        }
+    }
+
+    /**
+     * Sets the cache to be used by build steps. Specify <code>null</code> to disable caching.
+     */
+    public static void activate(JkBuildCache cache) {
+        active = cache;
+    }
+
+    /**
+     * Returns the cache to be used by build steps or <code>null</code> if caching is disabled.
+     */
+    public static JkBuildCache active() {
+        return active;
+    }
+
+    /**
+     * Creates a key for the specified build step. The key has to be completed with the inputs of the
+     * step.
+     */
+    public static JkCacheKey key(String stepName) {
+        return new JkCacheKey(stepName);
+    }
+
+    /**
+     * Copies the cached output associated to the specified key in the specified directory. Returns
+     * <code>false</code> if there is no valid entry for this key.
+     */
+    public boolean restore(JkCacheKey key, File outputDir) {
+        final Entry entry = validEntry(key);
+        if (entry == null) {
+            return false;
+        }
+        for (final String path : entry.files.keySet()) {
+            final File source = new File(entry.filesDir(), path);
+            JkUtilsFile.copyFile(source, new File(outputDir, path));
+            restoredBytes.addAndGet(source.length());
+        }
+        return true;
+    }
+
+    /**
+     * Restores a single file output, stored with {@link #storeFile(JkCacheKey, File)}, to the specified
+     * location. When the running JDK allows it, the file is hard linked to the cache entry instead of being
+     * copied. Returns <code>false</code> if there is no valid entry for this key.
+     */
+    public boolean restoreFile(JkCacheKey key, File file) {
+        final Entry entry = validEntry(key);
+        if (entry == null) {
+            return false;
+        }
+        final File source = new File(entry.filesDir(), file.getName());
+        JkUtilsFile.deleteIfExist(file);
+        if (!JkUtilsFile.hardLink(source, file)) {
+            JkUtilsFile.copyFile(source, file);
+        }
+        restoredBytes.addAndGet(source.length());
+        return true;
+    }
+
+    /**
+     * Stores the specified files, expressed relatively to <code>outputDir</code>, as the output associated
+     * to the specified key.
+     */
+    public void store(JkCacheKey key, File outputDir, Collection<String> relativePaths) {
+        final Map<String, File> files = new TreeMap<String, File>();
+        for (final String relativePath : relativePaths) {
+            final File file = new File(outputDir, relativePath);
+            if (file.isFile()) {
+                files.put(normalize(relativePath), file);
+            }
+        }
+        doStore(key, files);
+    }
+
+    /**
+     * Stores all the files of the specified directory as the output associated to the specified key.
+     */
+    public void store(JkCacheKey key, File outputDir) {
+        store(key, outputDir, JkFileTree.of(outputDir).relativePathes());
+    }
+
+    /**
+     * Stores the specified file as the output associated to the specified key.
+     */
+    public void storeFile(JkCacheKey key, File file) {
+        doStore(key, Collections.singletonMap(file.getName(), file));
+    }
+
+    /**
+     * Returns the number of successful restorations.
+     */
+    public int hitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups that did not find any valid entry.
+     */
+    public int missCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns a one line summary of the cache usage since it has been created.
+     */
+    public String stats() {
+        final String remoteStats = remote == null ? "" : " (" + remote.hitCount() + " from " + remote + ")";
+        return "Build cache : " + hits.get() + " hit(s)" + remoteStats + ", " + misses.get() + " miss(es), "
+                + stores.get() + " output(s) stored, " + restoredBytes.get() / 1024 + " Kb restored.";
+    }
+
+    /**
+     * Takes a snapshot of the files contained in the specified directory. Used along
+     * {@link #changedFiles(File, Map)} to determine which files a step has produced.
+     */
+    public static Map<String, Long> snapshot(File dir) {
+        final Map<String, Long> result = new HashMap<String, Long>();
+        if (!dir.exists()) {
+            return result;
+        }
+        final JkFileTree tree = JkFileTree.of(dir);
+        for (final File file : tree) {
+            result.put(tree.relativePath(file), stamp(file));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the relative paths of the files of the specified directory that have been created or
+     * modified since the specified snapshot has been taken.
+     */
+    public static List<String> changedFiles(File dir, Map<String, Long> snapshot) {
+        final List<String> result = new ArrayList<String>();
+        if (!dir.exists()) {
+            return result;
+        }
+        final JkFileTree tree = JkFileTree.of(dir);
+        for (final File file : tree) {
+            final String relativePath = tree.relativePath(file);
+            final Long previous = snapshot.get(relativePath);
+            if (previous == null || previous.longValue() != stamp(file)) {
+                result.add(relativePath);
+            }
+        }
+        return result;
+    }
+
+    private static long stamp(File file) {
+        return file.lastModified() * 31 + file.length();
+    }
+
+    private Entry validEntry(JkCacheKey key) {
+        final Entry entry = new Entry(new File(dir, key.hash()));
+        if (!entry.read() && (remote == null || !remote.fetch(key.hash(), entry.dir) || !entry.read())) {
+            misses.incrementAndGet();
+            return null;
+        }
+        for (final Map.Entry<String, String> file : entry.files.entrySet()) {
+            final File cachedFile = new File(entry.filesDir(), file.getKey());
+            if (!cachedFile.isFile() || !JkUtilsFile.checksum(cachedFile, "SHA-1").equals(file.getValue())) {
+                JkLog.warn("Build cache entry " + entry.dir.getName() + " is corrupted, discard it.");
+                JkUtilsFile.tryDeleteDir(entry.dir);
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+        entry.entryFile().setLastModified(System.currentTimeMillis());
+        usedKeys.add(key.hash());
+        hits.incrementAndGet();
+        return entry;
+    }
+
+    private void doStore(JkCacheKey key, Map<String, File> files) {
+        final File target = new File(dir, key.hash());
+        if (new File(target, ENTRY_FILE_NAME).exists()) {
+            usedKeys.add(key.hash());
+            return;
+        }
+        final File temp = new File(dir, "tmp-" + key.hash() + "-" + System.nanoTime());
+        temp.mkdirs();
+        final Properties properties = new Properties();
+        long size = 0;
+        for (final Map.Entry<String, File> file : files.entrySet()) {
+            final File copy = new File(temp, FILES_DIR_NAME + "/" + file.getKey());
+            JkUtilsFile.copyFile(file.getValue(), copy);
+            properties.setProperty(FILE_PREFIX + file.getKey(), JkUtilsFile.checksum(copy, "SHA-1"));
+            size += copy.length();
+        }
+        properties.setProperty(SIZE_PROPERTY, Long.toString(size));
+        writeProperties(properties, new File(temp, ENTRY_FILE_NAME));
+        if (!temp.renameTo(target)) {
+
+            // Stored concurrently by another build
+            JkUtilsFile.tryDeleteDir(temp);
+            return;
+        }
+        stores.incrementAndGet();
+        usedKeys.add(key.hash());
+        if (remote != null) {
+            remote.push(key.hash(), target);
+        }
+        evict();
+    }
+
+    private synchronized void evict() {
+        final File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        final List<Entry> entries = new ArrayList<Entry>();
+        long total = 0;
+        for (final File child : children) {
+            final Entry entry = new Entry(child);
+            if (entry.read()) {
+                entries.add(entry);
+                total += entry.size;
+            }
+        }
+        if (total <= maxSize) {
+            return;
+        }
+        Collections.sort(entries, new Comparator<Entry>() {
+
+            @Override
+            public int compare(Entry entry1, Entry entry2) {
+                final long time1 = entry1.entryFile().lastModified();
+                final long time2 = entry2.entryFile().lastModified();
+                return time1 < time2 ? -1 : (time1 == time2 ? 0 : 1);
+            }
+        });
+        for (final Entry entry : entries) {
+            if (total <= maxSize) {
+                break;
+            }
+            JkUtilsFile.tryDeleteDir(entry.dir);
+            total -= entry.size;
+        }
+    }
+
+    private static void writeProperties(Properties properties, File file) {
+        OutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(file);
+            properties.store(outputStream, null);
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            JkUtilsIO.closeQuietly(outputStream);
+        }
+    }
+
+    private static String normalize(String relativePath) {
+        return relativePath.replace(File.separatorChar, '/');
+    }
+
+    private static String contentHash(File file) {
+        final String path = JkUtilsFile.canonicalPath(file);
+        final FileHash cached = FILE_HASHES.get(path);
+        final long stamp = stamp(file);
+        if (cached != null && cached.stamp == stamp) {
+            return cached.hash;
+        }
+        final String hash = JkUtilsFile.checksum(file, "SHA-1");
+        FILE_HASHES.put(path, new FileHash(stamp, hash));
+        return hash;
+    }
+
+    private static final class FileHash {
+
+        final long stamp;
+
+        final String hash;
+
+        FileHash(long stamp, String hash) {
+            this.stamp = stamp;
+            this.hash = hash;
+        }
+
+    }
+
+    private static final class Entry {
+
+        final File dir;
+
+        final Map<String, String> files = new TreeMap<String, String>();
+
+        long size;
+
+        Entry(File dir) {
+            this.dir = dir;
+        }
+
+        File entryFile() {
+            return new File(dir, ENTRY_FILE_NAME);
+        }
+
+        File filesDir() {
+            return new File(dir, FILES_DIR_NAME);
+        }
+
+        boolean read() {
+            final File entryFile = entryFile();
+            if (!entryFile.isFile()) {
+                return false;
+            }
+            final Properties properties = JkUtilsFile.readPropertyFile(entryFile);
+            for (final String name : properties.stringPropertyNames()) {
+                if (name.startsWith(FILE_PREFIX)) {
+                    files.put(name.substring(FILE_PREFIX.length()), properties.getProperty(name));
+                }
+            }
+            size = Long.parseLong(properties.getProperty(SIZE_PROPERTY, "0"));
+            return true;
+        }
+
+    }
+
+    /**
+     * Identifies the output of a build step. The key is a digest of all the elements that have been
+     * added to it, so two keys are equal if the steps have been given identical inputs.
+     */
+    public static final class JkCacheKey {
+
+        private final MessageDigest digest;
+
+        private String hash;
+
+        private JkCacheKey(String stepName) {
+            try {
+                this.digest = MessageDigest.getInstance("SHA-1");
+            } catch (final NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+            and("step", stepName);
+        }
+
+        /**
+         * Adds the specified named value to this key.
+         */
+        public JkCacheKey and(String name, Object value) {
+            JkUtilsAssert.isTrue(hash == null, "Can't modify a key whose hash has been computed.");
+            digest.update((name + "=" + value + "\n").getBytes());
+            return this;
+        }
+
+        /**
+         * Adds the version and vendor of the running JDK to this key.
+         */
+        public JkCacheKey andJdk() {
+            return and("jdk", System.getProperty("java.version") + " " + System.getProperty("java.vendor"));
+        }
+
+        /**
+         * Adds the content of the specified files to this key. Files are identified by their path relative
+         * to the working directory if they lie under, so keys do not depend on where the project is checked out.
+         */
+        public JkCacheKey andFiles(String name, Iterable<File> files) {
+            final File workingDir = JkUtilsFile.workingDir();
+            for (final File file : files) {
+                final String path = JkUtilsFile.isAncestor(workingDir, file) ? JkUtilsFile.getRelativePath(
+                        workingDir, file) : file.getAbsolutePath();
+                and(name, normalize(path) + "#" + (file.isFile() ? contentHash(file) : "none"));
+            }
+            return this;
+        }
+
+        /**
+         * Adds the content of the specified file trees to this key. Files are identified by their path
+         * relative to the root of their tree.
+         */
+        public JkCacheKey andTrees(String name, JkFileTreeSet trees) {
+            for (final JkFileTree tree : trees.fileTrees()) {
+                if (!tree.exists()) {
+                    continue;
+                }
+                final List<String> entries = new ArrayList<String>();
+                for (final File file : tree) {
+                    entries.add(normalize(tree.relativePath(file)) + "#" + contentHash(file));
+                }
+                Collections.sort(entries);
+                for (final String entry : entries) {
+                    and(name, entry);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Adds a fingerprint of the specified classpath to this key. Archives are identified by their
+         * content and directories by the content of their files.
+         */
+        public JkCacheKey andClasspath(String name, Iterable<File> entries) {
+            for (final File entry : entries) {
+                if (entry.isDirectory()) {
+                    and(name, "dir");
+                    andTrees(name, JkFileTree.of(entry).asSet());
+                } else if (entry.isFile()) {
+                    and(name, contentHash(entry));
+                } else {
+                    and(name, "missing");
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Returns the digest of this key as an hexadecimal string. No element can be added to this key
+         * afterward.
+         */
+        public String hash() {
+            if (hash == null) {
+                hash = JkUtilsString.toHexString(digest.digest()).toLowerCase();
+            }
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return hash();
+        }
+
+    }
+
+}
@@ -0,0 +1,244 @@
+package org.jerkar.api.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.regex.Pattern;
+
+import org.jerkar.api.utils.JkUtilsConcurrent;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsIO;
+import org.jerkar.api.utils.JkUtilsString;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Minimal HTTP server storing {@link JkHttpBuildCache} entries as files in a directory. It is meant
+ * to share a build cache on a local network or to test remote caching without external service.
+ * <p>
+ * Anyone reaching the server can read entries but only requests bearing the push token can store
+ * some, so that untrusted builds can not poison the cache. By default the server only listens on
+ * the loopback interface : listening on other interfaces must be requested explicitly along a
+ * token shared with the trusted builds (see {@link JkHttpBuildCache#withPushToken(String)}).
+ * <p>
+ * The server can be started in process with {@link #start(int, File)} or in a separate JVM, for
+ * example using <code>JkJavaProcess.of().withClasspath(JkClasspath.current())
+ * .runClassSync(JkBuildCacheServer.class.getName(), "8765", "/path/to/cache/dir")</code>.
+ *
+ * @author Jerome Angibaud
+ */
+public final class JkBuildCacheServer {
+
+    private static final Pattern KEY_PATTERN = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]*");
+
+    private static final int THREAD_COUNT = 8;
+
+    private static final String BEARER = "Bearer ";
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final String pushToken;
+
+    private JkBuildCacheServer(HttpServer server, ExecutorService executor, String pushToken) {
+        this.server = server;
+        this.executor = executor;
+        this.pushToken = pushToken;
+    }
+
+    /**
+     * Starts a server listening on the loopback interface, on the specified port (0 to pick a free
+     * one), and storing entries in the specified directory. A random push token is generated.
+     */
+    public static JkBuildCacheServer start(int port, File dir) {
+        return start(loopback(), port, dir, randomToken());
+    }
+
+    /**
+     * Starts a server listening on the specified address and port, and storing entries in the
+     * specified directory. Only requests bearing the specified token can store entries.
+     */
+    public static JkBuildCacheServer start(InetAddress address, int port, File dir, String pushToken) {
+        if (JkUtilsString.isBlank(pushToken)) {
+            throw new IllegalArgumentException("A push token is required to start a build cache server.");
+        }
+        dir.mkdirs();
+        final HttpServer server;
+        try {
+            server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        } catch (final IOException e) {
+            throw new RuntimeException("Can't start build cache server on " + address + ":" + port, e);
+        }
+        final ExecutorService executor = JkUtilsConcurrent.newPool("build-cache-server", THREAD_COUNT);
+        server.createContext("/", new EntryHandler(dir, pushToken));
+        server.setExecutor(executor);
+        server.start();
+        return new JkBuildCacheServer(server, executor, pushToken);
+    }
+
+    /**
+     * Returns the token that requests storing entries must bear.
+     */
+    public String pushToken() {
+        return pushToken;
+    }
+
+    /**
+     * Returns the port this server is listening on.
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Returns the url to pass to {@link JkHttpBuildCache#of(String)} for reaching this server from the
+     * local host.
+     */
+    public String url() {
+        final InetAddress address = server.getAddress().getAddress();
+        final String host;
+        if (address.isAnyLocalAddress()) {
+            host = "localhost";
+        } else if (address instanceof Inet6Address) {
+            host = "[" + address.getHostAddress() + "]";
+        } else {
+            host = address.getHostAddress();
+        }
+        return "http://" + host + ":" + port() + "/";
+    }
+
+    /**
+     * Stops this server.
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Starts a server. Arguments are the port, the storage directory, the push token (generated
+     * when missing or blank) and the address to listen on (the loopback interface when missing).
+     */
+    public static void main(String[] args) throws InterruptedException, UnknownHostException {
+        final int port = args.length > 0 ? Integer.parseInt(args[0]) : 8765;
+        final File dir = new File(args.length > 1 ? args[1] : "build-cache");
+        final String token = args.length > 2 && !JkUtilsString.isBlank(args[2]) ? args[2] : randomToken();
+        final InetAddress address = args.length > 3 ? InetAddress.getByName(args[3]) : loopback();
+        final JkBuildCacheServer server = start(address, port, dir, token);
+        System.out.println("Build cache server listening on " + address.getHostAddress() + ":"
+                + server.port() + ", storing entries in " + dir.getAbsolutePath());
+        if (args.length <= 2 || JkUtilsString.isBlank(args[2])) {
+            System.out.println("Push token : " + token);
+        }
+        Thread.currentThread().join();
+    }
+
+    private static InetAddress loopback() {
+        try {
+            return InetAddress.getByName("127.0.0.1");
+        } catch (final UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String randomToken() {
+        final byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        final StringBuilder result = new StringBuilder();
+        for (final byte b : bytes) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+
+    private static class EntryHandler implements HttpHandler {
+
+        private final File dir;
+
+        private final byte[] pushToken;
+
+        EntryHandler(File dir, String pushToken) {
+            this.dir = dir;
+            this.pushToken = pushToken.getBytes();
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                final String key = exchange.getRequestURI().getPath().substring(1);
+                if (!KEY_PATTERN.matcher(key).matches()) {
+                    exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, -1);
+                } else if ("GET".equals(exchange.getRequestMethod())) {
+                    get(exchange, new File(dir, key));
+                } else if ("PUT".equals(exchange.getRequestMethod())) {
+                    if (!authorized(exchange)) {
+                        exchange.sendResponseHeaders(HttpURLConnection.HTTP_FORBIDDEN, -1);
+                        return;
+                    }
+                    put(exchange, new File(dir, key));
+                } else {
+                    exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+
+        // Compared in constant time so the token can not be guessed from response times
+        private boolean authorized(HttpExchange exchange) {
+            final String header = exchange.getRequestHeaders().getFirst("Authorization");
+            if (header == null || !header.startsWith(BEARER)) {
+                return false;
+            }
+            return MessageDigest.isEqual(pushToken, header.substring(BEARER.length()).getBytes());
+        }
+
+        private static void get(HttpExchange exchange, File file) throws IOException {
+            if (!file.isFile()) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, file.length());
+            final InputStream inputStream = JkUtilsIO.inputStream(file);
+            final OutputStream outputStream = exchange.getResponseBody();
+            try {
+                JkUtilsIO.copy(inputStream, outputStream);
+            } finally {
+                JkUtilsIO.closeQuietly(inputStream, outputStream);
+            }
+        }
+
+        // Written in a temp file first so readers never get a partial entry
+        private void put(HttpExchange exchange, File file) throws IOException {
+            final File temp = new File(dir, file.getName() + "-" + Thread.currentThread().getId() + ".part");
+            final InputStream inputStream = exchange.getRequestBody();
+            final OutputStream outputStream = JkUtilsIO.outputStream(temp, false);
+            try {
+                JkUtilsIO.copy(inputStream, outputStream);
+            } finally {
+                JkUtilsIO.closeQuietly(inputStream, outputStream);
+            }
+            JkUtilsFile.deleteIfExist(file);
+            if (!temp.renameTo(file)) {
+                JkUtilsFile.deleteIfExist(temp);
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_INTERNAL_ERROR, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_CREATED, -1);
+        }
+
+    }
+
+}
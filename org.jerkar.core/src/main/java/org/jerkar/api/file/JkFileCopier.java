@@ -0,0 +1,300 @@
+package org.jerkar.api.file;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsAssert;
+import org.jerkar.api.utils.JkUtilsConcurrent;
+import org.jerkar.api.utils.JkUtilsFile;
+
+/**
+ * Copies file trees to a target directory, running the copies on a bounded thread pool. By default,
+ * target files having the same size and last modification time than their source are left untouched,
+ * so copying again a tree that has not changed costs only a directory scan.
+ * <p>
+ * Optionally, files can be hard linked instead of copied (see {@link #withHardLink(boolean)}) and
+ * the target directory can be mirrored (see {@link #withMirror(boolean)}) : files of the target
+ * directory that do not come from the copied trees are deleted, so an exploded war directory, for
+ * example, can be synced incrementally with its sources.
+ *
+ * @author Jerome Angibaud
+ */
+public final class JkFileCopier {
+
+    /**
+     * Creates a copier skipping unchanged files, neither hard linking nor mirroring, and running as many
+     * copies in parallel as there are available processors.
+     */
+    public static JkFileCopier of() {
+        return new JkFileCopier(true, false, false, JkUtilsConcurrent.defaultParallelism(), null);
+    }
+
+    private final boolean skipUnchanged;
+
+    private final boolean hardLink;
+
+    private final boolean mirror;
+
+    private final int parallelism;
+
+    private final PrintStream reportStream;
+
+    private JkFileCopier(boolean skipUnchanged, boolean hardLink, boolean mirror, int parallelism,
+            PrintStream reportStream) {
+        this.skipUnchanged = skipUnchanged;
+        this.hardLink = hardLink;
+        this.mirror = mirror;
+        this.parallelism = parallelism;
+        this.reportStream = reportStream;
+    }
+
+    /**
+     * Returns a copier identical to this one but copying files even if the target file has the same size
+     * and last modification time than its source when the specified flag is <code>false</code>.
+     */
+    public JkFileCopier withSkipUnchanged(boolean skipUnchanged) {
+        return new JkFileCopier(skipUnchanged, hardLink, mirror, parallelism, reportStream);
+    }
+
+    /**
+     * Returns a copier identical to this one but hard linking target files to their source instead of
+     * copying them when the specified flag is <code>true</code>. Files are copied when a link can not be
+     * created, typically when source and target are not on the same file system.<br/>
+     * Beware that a linked file shares its content with its source : modifying one modifies the other.
+     */
+    public JkFileCopier withHardLink(boolean hardLink) {
+        return new JkFileCopier(skipUnchanged, hardLink, mirror, parallelism, reportStream);
+    }
+
+    /**
+     * Returns a copier identical to this one but deleting the files and folders of the target directory
+     * not coming from the copied trees when the specified flag is <code>true</code>.
+     */
+    public JkFileCopier withMirror(boolean mirror) {
+        return new JkFileCopier(skipUnchanged, hardLink, mirror, parallelism, reportStream);
+    }
+
+    /**
+     * Returns a copier identical to this one but running at most the specified number of copies in
+     * parallel.
+     */
+    public JkFileCopier withParallelism(int parallelism) {
+        JkUtilsAssert.isTrue(parallelism > 0, "Parallelism must be positive, was " + parallelism);
+        return new JkFileCopier(skipUnchanged, hardLink, mirror, parallelism, reportStream);
+    }
+
+    /**
+     * Returns a copier identical to this one but writing a line for each copied file in the specified
+     * stream. <code>null</code> means no report.
+     */
+    public JkFileCopier withReportStream(PrintStream reportStream) {
+        return new JkFileCopier(skipUnchanged, hardLink, mirror, parallelism, reportStream);
+    }
+
+    /**
+     * Copies the files of the specified tree in the specified directory, preserving their relative path.
+     * Returns the number of files the target directory has received from the tree, including the
+     * unchanged ones.
+     */
+    public int copy(JkFileTree fileTree, File targetDir) {
+        return copy(fileTree.asSet(), targetDir);
+    }
+
+    /**
+     * Copies the files of the specified tree set in the specified directory, preserving their relative
+     * path. When several trees contain a file at the same relative path, the file of the last tree wins.
+     * Returns the number of files the target directory has received from the trees, including the
+     * unchanged ones.
+     */
+    public int copy(JkFileTreeSet fileTreeSet, File targetDir) {
+        final Map<String, File> entries = new LinkedHashMap<String, File>();
+        for (final JkFileTree fileTree : fileTreeSet.fileTrees()) {
+            if (!fileTree.exists()) {
+                continue;
+            }
+            for (final File file : fileTree.files(true)) {
+                entries.put(fileTree.relativePath(file), file);
+            }
+        }
+        return copy(entries, targetDir);
+    }
+
+    /**
+     * Copies the specified files and folders in the specified directory. Keys are the path of the target
+     * files relative to the target directory. Folders are created empty, the files to put in them have to
+     * be part of the entries. Returns the number of files (not folders) the target directory has
+     * received, including the unchanged ones.
+     */
+    public int copy(Map<String, File> entries, File targetDir) {
+        if (targetDir.isFile()) {
+            throw new IllegalArgumentException(targetDir.getPath() + " is file. Should be directory");
+        }
+        targetDir.mkdirs();
+        final String targetPrefix = targetDir.getAbsolutePath() + File.separator;
+        final Set<String> keptPaths = new HashSet<String>();
+        final List<Runnable> tasks = new ArrayList<Runnable>(entries.size());
+        final AtomicInteger copied = new AtomicInteger();
+        for (final Map.Entry<String, File> entry : entries.entrySet()) {
+            final String relativePath = normalize(entry.getKey());
+            final File source = entry.getValue();
+            final File target = new File(targetDir, relativePath);
+            if (mirror && source.getAbsolutePath().startsWith(targetPrefix)) {
+                throw new IllegalArgumentException("Can not mirror " + targetDir.getPath()
+                        + " as it contains the source file " + source.getPath());
+            }
+            keptPaths.add(relativePath);
+
+            // Folders are created upfront so concurrent copies never race creating the same parent
+            if (source.isDirectory()) {
+                target.mkdirs();
+                addParents(relativePath, keptPaths);
+                continue;
+            }
+            target.getParentFile().mkdirs();
+            addParents(relativePath, keptPaths);
+            tasks.add(new Runnable() {
+
+                @Override
+                public void run() {
+                    if (copyFile(source, target)) {
+                        copied.incrementAndGet();
+                    }
+                }
+
+            });
+        }
+        int deleted = 0;
+        if (mirror) {
+            deleted = deleteExtraneous(targetDir, "", keptPaths);
+        }
+        JkUtilsConcurrent.runAll("file-copy", tasks, parallelism);
+        JkLog.trace(tasks.size() + " file(s) copied to " + targetDir.getPath() + " : " + copied.get()
+                + " written, " + (tasks.size() - copied.get()) + " unchanged, " + deleted + " deleted.");
+        return tasks.size();
+    }
+
+    /**
+     * Returns the entries to pass to {@link #copy(Map, File)} for copying the specified files directly in
+     * the folder located at the specified path relative to the target directory.
+     */
+    public static Map<String, File> entries(String relativeDir, Iterable<File> files) {
+        final Map<String, File> result = new LinkedHashMap<String, File>();
+        final String prefix = relativeDir.isEmpty() || relativeDir.endsWith("/") ? relativeDir : relativeDir + "/";
+        for (final File file : files) {
+            if (file.isFile()) {
+                result.put(prefix + file.getName(), file);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the entries to pass to {@link #copy(Map, File)} for copying the specified tree in the folder
+     * located at the specified path relative to the target directory.
+     */
+    public static Map<String, File> entries(String relativeDir, JkFileTree fileTree) {
+        final Map<String, File> result = new LinkedHashMap<String, File>();
+        if (!fileTree.exists()) {
+            return result;
+        }
+        final String prefix = relativeDir.isEmpty() || relativeDir.endsWith("/") ? relativeDir : relativeDir + "/";
+        for (final File file : fileTree.files(true)) {
+            result.put(prefix + normalize(fileTree.relativePath(file)), file);
+        }
+        return result;
+    }
+
+    // Returns false if the target was already up to date
+    private boolean copyFile(File source, File target) {
+        if (source.getAbsoluteFile().equals(target.getAbsoluteFile())) {
+            return false;
+        }
+        if (skipUnchanged && target.isFile() && target.length() == source.length()
+                && target.lastModified() == source.lastModified()) {
+            return false;
+        }
+        if (hardLink) {
+            JkUtilsFile.deleteIfExist(target);
+            if (JkUtilsFile.hardLink(source, target)) {
+                if (reportStream != null) {
+                    reportStream.println("Linking file " + source.getAbsolutePath() + " to "
+                            + target.getAbsolutePath());
+                }
+                return true;
+            }
+        }
+        JkUtilsFile.copyFile(source, target, reportStream);
+        target.setLastModified(source.lastModified());
+        return true;
+    }
+
+    private static int deleteExtraneous(File dir, String relativeDir, Set<String> keptPaths) {
+        final File[] children = dir.listFiles();
+        if (children == null) {
+            return 0;
+        }
+        int count = 0;
+        for (final File child : children) {
+            final String relativePath = relativeDir + child.getName();
+            if (keptPaths.contains(relativePath)) {
+                if (child.isDirectory()) {
+                    count += deleteExtraneous(child, relativePath + "/", keptPaths);
+                }
+                continue;
+            }
+            if (child.isDirectory()) {
+                JkUtilsFile.deleteDir(child);
+            } else {
+                JkUtilsFile.delete(child);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private static void addParents(String relativePath, Set<String> keptPaths) {
+        String path = relativePath;
+        int index = path.lastIndexOf('/');
+        while (index > 0) {
+            path = path.substring(0, index);
+            if (!keptPaths.add(path)) {
+                return;
+            }
+            index = path.lastIndexOf('/');
+        }
+    }
+
+    private static String normalize(String relativePath) {
+        String result = relativePath.replace(File.separatorChar, '/');
+        while (result.startsWith("/")) {
+            result = result.substring(1);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        final List<String> options = new LinkedList<String>();
+        options.add("parallelism=" + parallelism);
+        if (skipUnchanged) {
+            options.add("skipUnchanged");
+        }
+        if (hardLink) {
+            options.add("hardLink");
+        }
+        if (mirror) {
+            options.add("mirror");
+        }
+        return "JkFileCopier" + options;
+    }
+
+}
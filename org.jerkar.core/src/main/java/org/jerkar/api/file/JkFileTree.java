@@ -96,7 +96,8 @@ public final class JkFileTree implements Iterable<File> {
 
     /**
      * Copies files contained in this {@link JkFileTree} to the specified
-     * directory.
+     * directory. Files already present in the destination with the same size and
+     * last modification time are not copied again (see {@link JkFileCopier}).
      */
     public int copyTo(File destinationDir) {
         if (!destinationDir.exists()) {
@@ -104,8 +105,7 @@ public final class JkFileTree implements Iterable<File> {
         } else {
             JkUtilsFile.assertAllDir(destinationDir);
         }
-        return JkUtilsFile.copyDirContent(root, destinationDir, filter.toFileFilter(root), true,
-                JkLog.infoStreamIfVerbose());
+        return JkFileCopier.of().withReportStream(JkLog.infoStreamIfVerbose()).copy(this, destinationDir);
     }
 
     /**
@@ -149,7 +149,7 @@ public final class JkFileTree implements Iterable<File> {
             if (!dirToCopyContent.exists()) {
                 return this;
             }
-            JkUtilsFile.copyDirContent(dirToCopyContent, this.root, null, true);
+            JkFileCopier.of().copy(JkFileTree.of(dirToCopyContent), this.root);
         }
         return this;
     }
@@ -167,9 +167,8 @@ public final class JkFileTree implements Iterable<File> {
      */
     public JkFileTree importFiles(Iterable<File> files) {
         createIfNotExist();
-        for (final File file : files) {
-            JkUtilsFile.copyFileToDir(file, this.root, JkLog.infoStreamIfVerbose());
-        }
+        JkFileCopier.of().withReportStream(JkLog.infoStreamIfVerbose()).copy(JkFileCopier.entries("", files),
+                this.root);
         return this;
     }
 
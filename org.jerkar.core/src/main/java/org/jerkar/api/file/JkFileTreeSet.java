@@ -9,6 +9,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import org.jerkar.api.system.JkLog;
 import org.jerkar.api.utils.JkUtilsFile;
 import org.jerkar.api.utils.JkUtilsIterable;
 
@@ -112,13 +113,7 @@ public final class JkFileTreeSet implements Iterable<File> {
         } else {
             destinationDir.mkdirs();
         }
-        int count = 0;
-        for (final JkFileTree dir : jkFileTrees) {
-            if (dir.exists()) {
-                count += dir.copyTo(destinationDir);
-            }
-        }
-        return count;
+        return JkFileCopier.of().withReportStream(JkLog.infoStreamIfVerbose()).copy(this, destinationDir);
     }
 
     /**
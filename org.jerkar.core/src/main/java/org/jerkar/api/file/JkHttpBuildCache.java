@@ -0,0 +1,130 @@
+package org.jerkar.api.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import org.jerkar.api.utils.JkUtilsIO;
+
+/**
+ * A {@link JkRemoteBuildCache} accessed through plain HTTP : entries are fetched with <code>GET [url]/[key]</code>
+ * and pushed with <code>PUT [url]/[key]</code>. Any HTTP server accepting PUT requests (as a WebDAV folder or
+ * {@link JkBuildCacheServer}) can be used. Pushes bear the push token, if any, as a bearer
+ * <code>Authorization</code> header.
+ *
+ * @author Jerome Angibaud
+ */
+public final class JkHttpBuildCache implements JkRemoteBuildCache {
+
+    private static final int DEFAULT_TIMEOUT = 2000;
+
+    private final String url;
+
+    private final int timeout;
+
+    private final String pushToken;
+
+    private JkHttpBuildCache(String url, int timeout, String pushToken) {
+        this.url = url.endsWith("/") ? url : url + "/";
+        this.timeout = timeout;
+        this.pushToken = pushToken;
+    }
+
+    /**
+     * Creates a {@link JkHttpBuildCache} for the specified base url.
+     */
+    public static JkHttpBuildCache of(String url) {
+        return new JkHttpBuildCache(url, DEFAULT_TIMEOUT, null);
+    }
+
+    /**
+     * Returns a {@link JkHttpBuildCache} identical to this one but with the specified connect and read timeout
+     * in milliseconds.
+     */
+    public JkHttpBuildCache withTimeout(int millis) {
+        return new JkHttpBuildCache(url, millis, pushToken);
+    }
+
+    /**
+     * Returns a {@link JkHttpBuildCache} identical to this one but authenticating pushes with the
+     * specified token.
+     */
+    public JkHttpBuildCache withPushToken(String pushToken) {
+        return new JkHttpBuildCache(url, timeout, pushToken);
+    }
+
+    @Override
+    public boolean get(String key, File target) {
+        final HttpURLConnection connection = connection(key);
+        InputStream inputStream = null;
+        OutputStream outputStream = null;
+        try {
+            final int code = connection.getResponseCode();
+            if (code == HttpURLConnection.HTTP_NOT_FOUND) {
+                return false;
+            }
+            if (code != HttpURLConnection.HTTP_OK) {
+                throw new IllegalStateException("Can't get " + connection.getURL() + " : HTTP " + code);
+            }
+            inputStream = connection.getInputStream();
+            outputStream = JkUtilsIO.outputStream(target, false);
+            JkUtilsIO.copy(inputStream, outputStream);
+            return true;
+        } catch (final IOException e) {
+            throw new RuntimeException("Can't get " + connection.getURL(), e);
+        } finally {
+            JkUtilsIO.closeQuietly(inputStream, outputStream);
+            connection.disconnect();
+        }
+    }
+
+    @Override
+    public void put(String key, File archive) {
+        final HttpURLConnection connection = connection(key);
+        OutputStream outputStream = null;
+        InputStream inputStream = null;
+        try {
+            connection.setRequestMethod("PUT");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode((int) archive.length());
+            connection.setRequestProperty("Content-Type", "application/zip");
+            if (pushToken != null) {
+                connection.setRequestProperty("Authorization", "Bearer " + pushToken);
+            }
+            outputStream = connection.getOutputStream();
+            inputStream = JkUtilsIO.inputStream(archive);
+            JkUtilsIO.copy(inputStream, outputStream);
+            outputStream.close();
+            final int code = connection.getResponseCode();
+            if (code / 100 != 2) {
+                throw new IllegalStateException("Can't put " + connection.getURL() + " : HTTP " + code);
+            }
+        } catch (final IOException e) {
+            throw new RuntimeException("Can't put " + connection.getURL(), e);
+        } finally {
+            JkUtilsIO.closeQuietly(inputStream, outputStream);
+            connection.disconnect();
+        }
+    }
+
+    private HttpURLConnection connection(String key) {
+        try {
+            final HttpURLConnection connection = (HttpURLConnection) new URL(url + key).openConnection();
+            connection.setConnectTimeout(timeout);
+            connection.setReadTimeout(timeout);
+            connection.setUseCaches(false);
+            return connection;
+        } catch (final IOException e) {
+            throw new RuntimeException("Can't connect to " + url + key, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+
+}
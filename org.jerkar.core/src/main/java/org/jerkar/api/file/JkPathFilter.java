@@ -45,6 +45,11 @@ public abstract class JkPathFilter {
             return "Accept all";
         }
 
+        @Override
+        public boolean hasStableDescription() {
+            return true;
+        }
+
         @Override
         public JkPathFilter caseSensitive(boolean caseSensitive) {
             return this;
@@ -83,6 +88,14 @@ public abstract class JkPathFilter {
      */
     public abstract JkPathFilter caseSensitive(boolean caseSensitive);
 
+    /**
+     * Returns <code>true</code> if {@link #toString()} fully describes the paths accepted by this
+     * filter, the same way from a JVM to another, so it can be part of a cache key.
+     */
+    public boolean hasStableDescription() {
+        return false;
+    }
+
     /**
      * Creates an include filter including the specified and patterns.
      */
@@ -139,22 +152,27 @@ public abstract class JkPathFilter {
 
             @Override
             public JkPathFilter caseSensitive(boolean caseSensitive) {
-                return this.caseSensitive(caseSensitive);
+                return JkPathFilter.this.caseSensitive(caseSensitive).reverse();
             }
 
             @Override
             public List<String> getIncludePatterns() {
-                return this.getExcludePatterns();
+                return JkPathFilter.this.getExcludePatterns();
             }
 
             @Override
             public List<String> getExcludePatterns() {
-                return this.getIncludePatterns();
+                return JkPathFilter.this.getIncludePatterns();
             }
 
             @Override
             public String toString() {
-                return "Reverse of " + this;
+                return "Reverse of " + JkPathFilter.this;
+            }
+
+            @Override
+            public boolean hasStableDescription() {
+                return JkPathFilter.this.hasStableDescription();
             }
 
         };
@@ -214,7 +232,12 @@ public abstract class JkPathFilter {
 
         @Override
         public String toString() {
-            return "includes " + antPatterns;
+            return "includes " + antPatterns + (caseSensitive ? "" : " ignoring case");
+        }
+
+        @Override
+        public boolean hasStableDescription() {
+            return true;
         }
 
         @Override
@@ -249,7 +272,12 @@ public abstract class JkPathFilter {
 
         @Override
         public String toString() {
-            return "excludes " + antPatterns;
+            return "excludes " + antPatterns + (caseSensitive ? "" : " ignoring case");
+        }
+
+        @Override
+        public boolean hasStableDescription() {
+            return true;
         }
 
 
@@ -311,6 +339,11 @@ public abstract class JkPathFilter {
             return "{" + filter1 + " & " + filter2 + "}";
         }
 
+        @Override
+        public boolean hasStableDescription() {
+            return filter1.hasStableDescription() && filter2.hasStableDescription();
+        }
+
         @Override
         public JkPathFilter caseSensitive(boolean caseSensitive) {
             return new CompoundFilter(filter1.caseSensitive(caseSensitive), filter2.caseSensitive(caseSensitive));
@@ -0,0 +1,25 @@
+package org.jerkar.api.file;
+
+import java.io.File;
+
+/**
+ * Backend sharing {@link JkBuildCache} entries between machines. Entries are transferred as
+ * compressed archives identified by the hash of their key.
+ *
+ * @author Jerome Angibaud
+ * @see JkHttpBuildCache
+ */
+public interface JkRemoteBuildCache {
+
+    /**
+     * Downloads the archive stored under the specified key into the specified file. Returns
+     * <code>false</code> if the remote cache has no such entry.
+     */
+    boolean get(String key, File target);
+
+    /**
+     * Uploads the specified archive under the specified key.
+     */
+    void put(String key, File archive);
+
+}
@@ -2,6 +2,7 @@ package org.jerkar.api.file;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
@@ -165,9 +166,18 @@ public final class JkZipper {
      * Same as {@link #to(File)} but specifying a filter to exclude entries.
      */
     public JkCheckSumer to(File zipFile, JkPathFilter entryFilter) {
+        return to(zipFile, entryFilter, null);
+    }
+
+    /**
+     * Same as {@link #to(File, JkPathFilter)} but also writing the archive bytes to the specified
+     * stream while the archive is being written, as a signing or digesting stream. The specified
+     * stream is closed once the archive is complete.
+     */
+    public JkCheckSumer to(File zipFile, JkPathFilter entryFilter, OutputStream copy) {
         JkLog.start("Creating zip file : " + zipFile);
         final ZipOutputStream zos = JkUtilsZip.createZipOutputStream(zipFile,
-                this.jkCompressionLevel.level);
+                this.jkCompressionLevel.level, copy);
         zos.setMethod(this.jkCompressionMethod.method);
 
         // Adding files to archive
@@ -0,0 +1,283 @@
+package org.jerkar.api.file;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.ZipOutputStream;
+
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsConcurrent;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsIO;
+import org.jerkar.api.utils.JkUtilsString;
+import org.jerkar.api.utils.JkUtilsZip;
+
+/**
+ * Transfers {@link JkBuildCache} entries from/to a {@link JkRemoteBuildCache}. Transfers run on a
+ * small thread pool : the build only waits for the entries it needs, and never longer than the time
+ * budget. Once the budget is exhausted or the remote cache fails, it is not used anymore for the
+ * rest of the build, so a slow remote cache can not make the build slower than a local rebuild.
+ */
+final class RemoteSupport {
+
+    private static final int THREAD_COUNT = 4;
+
+    private static final String KEY_LIST_PREFIX = "keys-";
+
+    private final JkRemoteBuildCache remote;
+
+    private final boolean push;
+
+    private final long budgetMillis;
+
+    private final AtomicLong spentMillis = new AtomicLong();
+
+    private final AtomicBoolean disabled = new AtomicBoolean();
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private final ConcurrentMap<String, Future<Boolean>> fetches = new ConcurrentHashMap<String, Future<Boolean>>();
+
+    private final Queue<Future<?>> pushes = new ConcurrentLinkedQueue<Future<?>>();
+
+    private volatile ExecutorService executor;
+
+    RemoteSupport(JkRemoteBuildCache remote, boolean push, long budgetMillis) {
+        this.remote = remote;
+        this.push = push;
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * Fetches the specified entry, if not already being prefetched, and waits for it within the remaining
+     * budget. Returns <code>true</code> if the entry has been installed in the specified directory.
+     */
+    boolean fetch(String key, File entryDir) {
+        if (disabled.get()) {
+            return false;
+        }
+        final Future<Boolean> future = submitFetch(key, entryDir);
+        final long start = System.currentTimeMillis();
+        try {
+            final boolean result = future.get(remainingMillis(), TimeUnit.MILLISECONDS);
+            if (result) {
+                hits.incrementAndGet();
+            }
+            return result;
+        } catch (final TimeoutException e) {
+            disable("time budget of " + budgetMillis + " ms exhausted");
+            return false;
+        } catch (final Exception e) {
+            disable(e.getMessage());
+            return false;
+        } finally {
+            spentMillis.addAndGet(System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Fetches in background the entries used by the last pushed build of the specified project.
+     */
+    void prefetch(final String projectName, final File cacheDir) {
+        if (disabled.get()) {
+            return;
+        }
+        executor().submit(new Runnable() {
+
+            @Override
+            public void run() {
+                final File keyList = new File(cacheDir, "tmp-" + keyListName(projectName) + "-" + System.nanoTime());
+                try {
+                    if (!remote.get(keyListName(projectName), keyList)) {
+                        return;
+                    }
+                    for (final String key : JkUtilsFile.readLines(keyList)) {
+                        if (!JkUtilsString.isBlank(key) && !new File(cacheDir, key.trim()).exists()) {
+                            submitFetch(key.trim(), new File(cacheDir, key.trim()));
+                        }
+                    }
+                } catch (final RuntimeException e) {
+                    disable(e.getMessage());
+                } finally {
+                    JkUtilsFile.deleteIfExist(keyList);
+                }
+            }
+        });
+    }
+
+    /**
+     * Pushes in background the specified entry if this build is allowed to push.
+     */
+    void push(final String key, final File entryDir) {
+        if (!push || disabled.get()) {
+            return;
+        }
+        pushes.add(executor().submit(new Runnable() {
+
+            @Override
+            public void run() {
+                final File archive = new File(entryDir.getParentFile(), "tmp-" + key + "-" + System.nanoTime() + ".zip");
+                try {
+                    zip(entryDir, archive);
+                    remote.put(key, archive);
+                } catch (final RuntimeException e) {
+                    disable(e.getMessage());
+                } finally {
+                    JkUtilsFile.deleteIfExist(archive);
+                }
+            }
+        }));
+    }
+
+    /**
+     * Pushes the list of the keys used by this build, so next builds of the same project can prefetch them,
+     * then waits for pending pushes within the remaining budget.
+     */
+    void finish(final String projectName, final Collection<String> usedKeys, File cacheDir) {
+        if (push && !disabled.get() && !usedKeys.isEmpty()) {
+            final File keyList = new File(cacheDir, "tmp-" + keyListName(projectName) + "-" + System.nanoTime());
+            JkUtilsFile.writeString(keyList, JkUtilsString.join(usedKeys, "\n"), false);
+            pushes.add(executor().submit(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        remote.put(keyListName(projectName), keyList);
+                    } catch (final RuntimeException e) {
+                        disable(e.getMessage());
+                    } finally {
+                        JkUtilsFile.deleteIfExist(keyList);
+                    }
+                }
+            }));
+        }
+        final long start = System.currentTimeMillis();
+        try {
+            Future<?> future;
+            while ((future = pushes.poll()) != null) {
+                future.get(remainingMillis(), TimeUnit.MILLISECONDS);
+            }
+        } catch (final TimeoutException e) {
+            disable("time budget of " + budgetMillis + " ms exhausted, some entries have not been pushed");
+        } catch (final Exception e) {
+            disable(e.getMessage());
+        } finally {
+            spentMillis.addAndGet(System.currentTimeMillis() - start);
+            shutdown();
+        }
+    }
+
+    int hitCount() {
+        return hits.get();
+    }
+
+    @Override
+    public String toString() {
+        return remote.toString();
+    }
+
+    private Future<Boolean> submitFetch(final String key, final File entryDir) {
+        final Future<Boolean> existing = fetches.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        final Future<Boolean> future = executor().submit(new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() {
+                return download(key, entryDir);
+            }
+        });
+        final Future<Boolean> previous = fetches.putIfAbsent(key, future);
+        if (previous != null) {
+            future.cancel(true);
+            return previous;
+        }
+        return future;
+    }
+
+    // Entries are unzipped aside then renamed so a partially downloaded entry is never visible
+    private boolean download(String key, File entryDir) {
+        if (disabled.get()) {
+            return false;
+        }
+        final File parent = entryDir.getParentFile();
+        parent.mkdirs();
+        final File archive = new File(parent, "tmp-" + key + "-" + System.nanoTime() + ".zip");
+        final File temp = new File(parent, "tmp-" + key + "-" + System.nanoTime());
+        try {
+            if (!remote.get(key, archive)) {
+                return false;
+            }
+            JkUtilsZip.unzip(archive, temp);
+            return temp.renameTo(entryDir) || entryDir.exists();
+        } catch (final RuntimeException e) {
+            disable(e.getMessage());
+            return false;
+        } finally {
+            JkUtilsFile.deleteIfExist(archive);
+            if (temp.exists()) {
+                JkUtilsFile.tryDeleteDir(temp);
+            }
+        }
+    }
+
+    private static void zip(File dir, File archive) {
+        final ZipOutputStream zos = JkUtilsZip.createZipOutputStream(archive, Deflater.DEFAULT_COMPRESSION);
+        try {
+            for (final File child : dir.listFiles()) {
+                JkUtilsZip.addZipEntry(zos, child, dir);
+            }
+            JkUtilsIO.finish(zos);
+        } finally {
+            JkUtilsIO.closeQuietly(zos);
+        }
+    }
+
+    private long remainingMillis() {
+        return Math.max(0, budgetMillis - spentMillis.get());
+    }
+
+    private void disable(String reason) {
+        if (disabled.compareAndSet(false, true)) {
+            JkLog.warn("Remote build cache " + remote + " disabled for this build : " + reason);
+        }
+    }
+
+    // Threads are released between projects, a new pool is created if the cache is used again
+    private synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        fetches.clear();
+    }
+
+    private ExecutorService executor() {
+        if (executor == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    executor = JkUtilsConcurrent.newPool("remote-build-cache", THREAD_COUNT);
+                }
+            }
+        }
+        return executor;
+    }
+
+    private static String keyListName(String projectName) {
+        return KEY_LIST_PREFIX + projectName.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+}
@@ -0,0 +1,43 @@
+package org.jerkar.api.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.zip.ZipFile;
+
+import org.jerkar.api.utils.JkUtilsIO;
+
+/**
+ * Detects classpath entries declaring annotation processors, that javac discovers and runs without
+ * the compiled classes referencing them.
+ */
+final class AnnotationProcessors {
+
+    /** Service file declaring the annotation processors of a jar or class directory. */
+    static final String SERVICE_FILE = "META-INF/services/javax.annotation.processing.Processor";
+
+    private AnnotationProcessors() {
+        // Can not instantiate
+    }
+
+    /**
+     * Returns <code>true</code> if the specified jar or class directory declares annotation processors.
+     */
+    static boolean declaredIn(File jarOrDir) {
+        if (jarOrDir.isDirectory()) {
+            return new File(jarOrDir, SERVICE_FILE).isFile();
+        }
+        if (!jarOrDir.isFile()) {
+            return false;
+        }
+        ZipFile zipFile = null;
+        try {
+            zipFile = new ZipFile(jarOrDir);
+            return zipFile.getEntry(SERVICE_FILE) != null;
+        } catch (final IOException e) {
+            return false;
+        } finally {
+            JkUtilsIO.closeQuietly(zipFile);
+        }
+    }
+
+}
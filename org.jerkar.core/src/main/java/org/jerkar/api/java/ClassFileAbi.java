@@ -0,0 +1,212 @@
+package org.jerkar.api.java;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Extracts the part of a class file other classes can compile against : class, field and method
+ * signatures, constant values and annotations of non private members. Method bodies, private
+ * members, synthetic members and debug information are ignored, so the ABI of a class does not
+ * change when only its implementation does.
+ */
+final class ClassFileAbi {
+
+    private static final int ACC_PRIVATE = 0x0002;
+
+    private static final int ACC_SYNTHETIC = 0x1000;
+
+    // Flags that have no effect on client compilation : super, synchronized, native, strict
+    private static final int IGNORED_CLASS_FLAGS = 0x0020;
+
+    private static final int IGNORED_METHOD_FLAGS = 0x0020 | 0x0100 | 0x0800;
+
+    private final DataInputStream in;
+
+    private ConstantPool constants;
+
+    private ClassFileAbi(InputStream inputStream) {
+        this.in = new DataInputStream(inputStream);
+    }
+
+    /**
+     * Returns a textual description of the ABI of the specified class file, or <code>null</code> if
+     * the class is not visible from other classes (private, anonymous or local class).
+     */
+    static String read(InputStream inputStream) throws IOException {
+        return new ClassFileAbi(inputStream).read();
+    }
+
+    private String read() throws IOException {
+        if (in.readInt() != 0xCAFEBABE) {
+            throw new IOException("Not a class file");
+        }
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+        constants = ConstantPool.read(in);
+        final int access = in.readUnsignedShort() & ~IGNORED_CLASS_FLAGS;
+        final String name = className(in.readUnsignedShort());
+        final int superIndex = in.readUnsignedShort();
+        final String superName = superIndex == 0 ? "" : className(superIndex);
+        final List<String> interfaces = new ArrayList<String>();
+        final int interfaceCount = in.readUnsignedShort();
+        for (int i = 0; i < interfaceCount; i++) {
+            interfaces.add(className(in.readUnsignedShort()));
+        }
+        Collections.sort(interfaces);
+        final List<String> members = new ArrayList<String>();
+        readMembers(members, "field", 0);
+        readMembers(members, "method", IGNORED_METHOD_FLAGS);
+        Collections.sort(members);
+        final StringBuilder classAttributes = new StringBuilder();
+        final boolean visible = readAttributes(classAttributes, name);
+        if (!visible) {
+            return null;
+        }
+        final StringBuilder result = new StringBuilder();
+        result.append("class ").append(access).append(' ').append(name).append(" extends ").append(superName)
+                .append(" implements ").append(interfaces).append(classAttributes).append('\n');
+        for (final String member : members) {
+            result.append(member).append('\n');
+        }
+        return result.toString();
+    }
+
+    private void readMembers(List<String> result, String kind, int ignoredFlags) throws IOException {
+        final int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            final int access = in.readUnsignedShort();
+            final String name = utf8(in.readUnsignedShort());
+            final String descriptor = utf8(in.readUnsignedShort());
+            final StringBuilder attributes = new StringBuilder();
+            readAttributes(attributes, null);
+            if ((access & (ACC_PRIVATE | ACC_SYNTHETIC)) == 0) {
+                result.add(kind + " " + (access & ~ignoredFlags) + " " + name + " " + descriptor + attributes);
+            }
+        }
+    }
+
+    // Returns false if the inner class attribute tells that the class is not visible
+    private boolean readAttributes(StringBuilder result, String className) throws IOException {
+        boolean visible = true;
+        final int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            final String name = utf8(in.readUnsignedShort());
+            final int length = in.readInt();
+            if ("ConstantValue".equals(name)) {
+                result.append(" = ").append(constant(in.readUnsignedShort()));
+            } else if ("Signature".equals(name)) {
+                result.append(" signature ").append(utf8(in.readUnsignedShort()));
+            } else if ("Exceptions".equals(name)) {
+                final List<String> exceptions = new ArrayList<String>();
+                final int exceptionCount = in.readUnsignedShort();
+                for (int j = 0; j < exceptionCount; j++) {
+                    exceptions.add(className(in.readUnsignedShort()));
+                }
+                Collections.sort(exceptions);
+                result.append(" throws ").append(exceptions);
+            } else if ("RuntimeVisibleAnnotations".equals(name) || "RuntimeInvisibleAnnotations".equals(name)) {
+                result.append(' ').append(name).append(' ');
+                readAnnotations(result);
+            } else if ("RuntimeVisibleParameterAnnotations".equals(name)
+                    || "RuntimeInvisibleParameterAnnotations".equals(name)) {
+                result.append(' ').append(name);
+                final int parameterCount = in.readUnsignedByte();
+                for (int j = 0; j < parameterCount; j++) {
+                    result.append(" (");
+                    readAnnotations(result);
+                    result.append(')');
+                }
+            } else if ("AnnotationDefault".equals(name)) {
+                result.append(" default ");
+                readElementValue(result);
+            } else if ("InnerClasses".equals(name) && className != null) {
+                final int classCount = in.readUnsignedShort();
+                for (int j = 0; j < classCount; j++) {
+                    final int innerIndex = in.readUnsignedShort();
+                    final int outerIndex = in.readUnsignedShort();
+                    final int innerNameIndex = in.readUnsignedShort();
+                    final int innerAccess = in.readUnsignedShort();
+                    if (className.equals(className(innerIndex))) {
+                        visible = outerIndex != 0 && innerNameIndex != 0 && (innerAccess & ACC_PRIVATE) == 0;
+                        result.append(" inner ").append(innerAccess & ~IGNORED_CLASS_FLAGS);
+                    }
+                }
+            } else {
+                skip(length);
+            }
+        }
+        return visible;
+    }
+
+    private void readAnnotations(StringBuilder result) throws IOException {
+        final int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            readAnnotation(result);
+        }
+    }
+
+    private void readAnnotation(StringBuilder result) throws IOException {
+        result.append('@').append(utf8(in.readUnsignedShort())).append('(');
+        final int pairCount = in.readUnsignedShort();
+        for (int i = 0; i < pairCount; i++) {
+            result.append(utf8(in.readUnsignedShort())).append('=');
+            readElementValue(result);
+            result.append(',');
+        }
+        result.append(')');
+    }
+
+    private void readElementValue(StringBuilder result) throws IOException {
+        final char tag = (char) in.readUnsignedByte();
+        switch (tag) {
+        case 'e':
+            result.append(utf8(in.readUnsignedShort())).append('.').append(utf8(in.readUnsignedShort()));
+            break;
+        case 'c':
+            result.append(utf8(in.readUnsignedShort())).append(".class");
+            break;
+        case '@':
+            readAnnotation(result);
+            break;
+        case '[':
+            final int count = in.readUnsignedShort();
+            result.append('{');
+            for (int i = 0; i < count; i++) {
+                readElementValue(result);
+                result.append(',');
+            }
+            result.append('}');
+            break;
+        default:
+            result.append(tag).append(constant(in.readUnsignedShort()));
+        }
+    }
+
+    private void skip(int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            final int skipped = in.skipBytes(remaining);
+            if (skipped <= 0) {
+                throw new IOException("Unexpected end of class file");
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private String utf8(int index) {
+        return constants.utf8(index);
+    }
+
+    private String className(int index) {
+        return constants.indirectUtf8(index);
+    }
+
+    private String constant(int index) {
+        return constants.constant(index);
+    }
+
+}
@@ -0,0 +1,401 @@
+package org.jerkar.api.java;
+
+import java.io.Externalizable;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jerkar.api.utils.JkUtilsIO;
+
+/**
+ * Passes objects to a target class loader. Objects whose class is the same in
+ * the target class loader are passed as is. Objects of a class defined in both
+ * class loaders are copied field by field in an instance of the target class,
+ * collections, maps and arrays are rebuilt only if one of their elements has to
+ * be copied, and enum constants are mapped by name. Java serialization is used
+ * only for classes that define their own serialization or that differ between
+ * the two class loaders.
+ */
+final class ClassLoaderBridge {
+
+    private static final Constructor<?> OBJECT_CONSTRUCTOR = objectConstructor();
+
+    private static final Method SERIALIZATION_CONSTRUCTOR_FACTORY = serializationConstructorFactory();
+
+    private static final Object REFLECTION_FACTORY = reflectionFactory();
+
+    private static final List<String> SERIALIZATION_HOOKS = Arrays.asList("writeObject",
+            "readObject", "readObjectNoData", "writeReplace", "readResolve");
+
+    private static final Shape SERIALIZE = new Shape(null, null, null);
+
+    private final ClassLoader target;
+
+    private final ConcurrentMap<Class<?>, Shape> shapes = new ConcurrentHashMap<Class<?>, Shape>();
+
+    ClassLoaderBridge(ClassLoader target) {
+        this.target = target;
+    }
+
+    /**
+     * Returns an object equivalent to the specified one but made of classes
+     * from the target class loader.
+     */
+    Object transfer(Object object) {
+        return transfer(object, new IdentityHashMap<Object, Object>());
+    }
+
+    private Object transfer(Object object, Map<Object, Object> copies) {
+        if (object == null) {
+            return null;
+        }
+        final Object copy = copies.get(object);
+        if (copy != null) {
+            return copy;
+        }
+        final Class<?> clazz = object.getClass();
+        if (clazz.isArray()) {
+            return transferArray(object, copies);
+        }
+        if (object instanceof Enum<?>) {
+            return transferEnum((Enum<?>) object);
+        }
+        if (clazz.getClassLoader() == null) { // Class from JDK
+            if (object instanceof Collection<?>) {
+                return transferCollection(object, copies);
+            }
+            if (object instanceof Map<?, ?>) {
+                return transferMap(object, copies);
+            }
+            return object;
+        }
+        final Class<?> targetClass = targetClass(clazz);
+        if (targetClass.equals(clazz)) {
+            return object;
+        }
+        final Shape shape = shape(clazz, targetClass);
+        if (shape == SERIALIZE) {
+            return serializedCopy(object, copies);
+        }
+        final Object result = shape.newInstance();
+        copies.put(object, result);
+        for (int i = 0; i < shape.fromFields.length; i++) {
+            final Object value = transfer(get(shape.fromFields[i], object), copies);
+            set(shape.toFields[i], result, value);
+        }
+        return result;
+    }
+
+    private Object transferArray(Object array, Map<Object, Object> copies) {
+        final Class<?> componentType = array.getClass().getComponentType();
+        if (componentType.isPrimitive()) {
+            return array;
+        }
+        final Object[] source = (Object[]) array;
+        final Class<?> targetComponentType = targetClass(componentType);
+        Object[] result = null;
+        if (!targetComponentType.equals(componentType)) {
+            result = (Object[]) Array.newInstance(targetComponentType, source.length);
+        }
+        copies.put(array, result == null ? array : result);
+        for (int i = 0; i < source.length; i++) {
+            final Object item = transfer(source[i], copies);
+            if (result == null && item != source[i]) {
+                result = (Object[]) Array.newInstance(componentType, source.length);
+                System.arraycopy(source, 0, result, 0, i);
+                copies.put(array, result);
+            }
+            if (result != null) {
+                result[i] = item;
+            }
+        }
+        return result == null ? array : result;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Object transferEnum(Enum<?> constant) {
+        final Class<?> enumClass = constant.getDeclaringClass();
+        if (enumClass.getClassLoader() == null) {
+            return constant;
+        }
+        final Class targetClass = targetClass(enumClass);
+        if (targetClass.equals(enumClass)) {
+            return constant;
+        }
+        return Enum.valueOf(targetClass, constant.name());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object transferCollection(Object object, Map<Object, Object> copies) {
+        final Collection<Object> collection = (Collection<Object>) object;
+        copies.put(collection, collection);
+        final List<Object> items = new ArrayList<Object>(collection.size());
+        boolean changed = false;
+        for (final Object item : collection) {
+            final Object transferred = transfer(item, copies);
+            changed = changed || transferred != item;
+            items.add(transferred);
+        }
+        if (!changed) {
+            return collection;
+        }
+        // Sorted containers can't be refilled safely as their comparator may come from the other class loader
+        if (collection instanceof SortedSet<?>) {
+            return serializedCopy(collection, copies);
+        }
+        Collection<Object> result = (Collection<Object>) newInstanceOrNull(collection.getClass());
+        if (result == null) {
+            if (collection instanceof Set<?>) {
+                result = new LinkedHashSet<Object>();
+            } else if (collection instanceof List<?>) {
+                result = new ArrayList<Object>(items.size());
+            } else {
+                result = new LinkedList<Object>();
+            }
+        }
+        result.addAll(items);
+        copies.put(collection, result);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object transferMap(Object object, Map<Object, Object> copies) {
+        final Map<Object, Object> map = (Map<Object, Object>) object;
+        copies.put(map, map);
+        final List<Object> keysAndValues = new ArrayList<Object>(map.size() * 2);
+        boolean changed = false;
+        for (final Map.Entry<Object, Object> entry : map.entrySet()) {
+            final Object key = transfer(entry.getKey(), copies);
+            final Object value = transfer(entry.getValue(), copies);
+            changed = changed || key != entry.getKey() || value != entry.getValue();
+            keysAndValues.add(key);
+            keysAndValues.add(value);
+        }
+        if (!changed) {
+            return map;
+        }
+        if (map instanceof SortedMap<?, ?>) {
+            return serializedCopy(map, copies);
+        }
+        Map<Object, Object> result = (Map<Object, Object>) newInstanceOrNull(map.getClass());
+        if (result == null) {
+            result = new LinkedHashMap<Object, Object>();
+        }
+        for (int i = 0; i < keysAndValues.size(); i += 2) {
+            result.put(keysAndValues.get(i), keysAndValues.get(i + 1));
+        }
+        copies.put(map, result);
+        return result;
+    }
+
+    private Object serializedCopy(Object object, Map<Object, Object> copies) {
+        final Object result = JkUtilsIO.cloneBySerialization(object, target);
+        copies.put(object, result);
+        return result;
+    }
+
+    private Class<?> targetClass(Class<?> clazz) {
+        if (clazz.getClassLoader() == null) {
+            return clazz;
+        }
+        try {
+            return Class.forName(clazz.getName(), false, target);
+        } catch (final ClassNotFoundException e) {
+            throw new IllegalStateException("Class " + clazz.getName()
+                    + " is not visible from class loader " + target, e);
+        }
+    }
+
+    private Shape shape(Class<?> from, Class<?> to) {
+        Shape shape = shapes.get(from);
+        if (shape == null) {
+            shape = computeShape(from, to);
+            shapes.put(from, shape);
+        }
+        return shape;
+    }
+
+    private static Shape computeShape(Class<?> from, Class<?> to) {
+        if (!Serializable.class.isAssignableFrom(from)
+                || Externalizable.class.isAssignableFrom(from) || SERIALIZATION_CONSTRUCTOR_FACTORY == null) {
+            return SERIALIZE;
+        }
+        final List<Field> fromFields = new ArrayList<Field>();
+        final List<Field> toFields = new ArrayList<Field>();
+        Class<?> fromLevel = from;
+        Class<?> toLevel = to;
+        while (!fromLevel.equals(Object.class)) {
+            if (fromLevel.getClassLoader() == null || toLevel == null || fromLevel.equals(toLevel)
+                    || !fromLevel.getName().equals(toLevel.getName())
+                    || hasSerializationHook(fromLevel)) {
+                return SERIALIZE;
+            }
+            final List<Field> fromLevelFields = copiedFields(fromLevel);
+            final List<Field> toLevelFields = copiedFields(toLevel);
+            if (fromLevelFields.size() != toLevelFields.size()) {
+                return SERIALIZE;
+            }
+            for (int i = 0; i < fromLevelFields.size(); i++) {
+                final Field fromField = fromLevelFields.get(i);
+                final Field toField = toLevelFields.get(i);
+                if (!fromField.getName().equals(toField.getName())
+                        || !fromField.getType().getName().equals(toField.getType().getName())) {
+                    return SERIALIZE;
+                }
+                try {
+                    fromField.setAccessible(true);
+                    toField.setAccessible(true);
+                } catch (final SecurityException e) {
+                    return SERIALIZE;
+                }
+                fromFields.add(fromField);
+                toFields.add(toField);
+            }
+            fromLevel = fromLevel.getSuperclass();
+            toLevel = toLevel.getSuperclass();
+        }
+        if (!Object.class.equals(toLevel)) {
+            return SERIALIZE;
+        }
+        final Constructor<?> constructor;
+        try {
+            constructor = (Constructor<?>) SERIALIZATION_CONSTRUCTOR_FACTORY.invoke(REFLECTION_FACTORY,
+                    to, OBJECT_CONSTRUCTOR);
+        } catch (final Exception e) {
+            return SERIALIZE;
+        }
+        if (constructor == null) {
+            return SERIALIZE;
+        }
+        constructor.setAccessible(true);
+        return new Shape(constructor, fromFields.toArray(new Field[0]), toFields.toArray(new Field[0]));
+    }
+
+    private static boolean hasSerializationHook(Class<?> clazz) {
+        for (final Method method : clazz.getDeclaredMethods()) {
+            if (!Modifier.isStatic(method.getModifiers())
+                    && SERIALIZATION_HOOKS.contains(method.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Fields handled by serialization, sorted by name to match both sides
+    private static List<Field> copiedFields(Class<?> clazz) {
+        final List<Field> result = new ArrayList<Field>();
+        for (final Field field : clazz.getDeclaredFields()) {
+            final int modifiers = field.getModifiers();
+            if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                result.add(field);
+            }
+        }
+        Collections.sort(result, new Comparator<Field>() {
+
+            @Override
+            public int compare(Field field1, Field field2) {
+                return field1.getName().compareTo(field2.getName());
+            }
+        });
+        return result;
+    }
+
+    private static Object newInstanceOrNull(Class<?> clazz) {
+        if (!Modifier.isPublic(clazz.getModifiers())) {
+            return null;
+        }
+        try {
+            return clazz.getConstructor().newInstance();
+        } catch (final Exception e) {
+            return null;
+        }
+    }
+
+    private static Object get(Field field, Object object) {
+        try {
+            return field.get(object);
+        } catch (final IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void set(Field field, Object object, Object value) {
+        try {
+            field.set(object, value);
+        } catch (final IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Constructor<?> objectConstructor() {
+        try {
+            return Object.class.getDeclaredConstructor();
+        } catch (final NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Instances are created the way serialization does, without invoking constructors of the copied class
+    private static Method serializationConstructorFactory() {
+        try {
+            final Class<?> factoryClass = Class.forName("sun.reflect.ReflectionFactory");
+            return factoryClass.getMethod("newConstructorForSerialization", Class.class,
+                    Constructor.class);
+        } catch (final Exception e) {
+            return null;
+        }
+    }
+
+    private static Object reflectionFactory() {
+        try {
+            return Class.forName("sun.reflect.ReflectionFactory").getMethod("getReflectionFactory")
+                    .invoke(null);
+        } catch (final Exception e) {
+            return null;
+        }
+    }
+
+    private static final class Shape {
+
+        private final Constructor<?> constructor;
+
+        private final Field[] fromFields;
+
+        private final Field[] toFields;
+
+        Shape(Constructor<?> constructor, Field[] fromFields, Field[] toFields) {
+            this.constructor = constructor;
+            this.fromFields = fromFields;
+            this.toFields = toFields;
+        }
+
+        Object newInstance() {
+            try {
+                return constructor.newInstance();
+            } catch (final Exception e) {
+                throw new IllegalStateException("Can't instantiate " + constructor.getDeclaringClass(), e);
+            }
+        }
+
+    }
+
+}
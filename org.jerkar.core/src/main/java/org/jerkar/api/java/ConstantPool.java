@@ -0,0 +1,124 @@
+package org.jerkar.api.java;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Constant pool of a class file, read from a stream positioned just after the class file version.
+ * Only the constants needed for reasoning about signatures and references are kept : UTF-8 strings,
+ * numeric values and indexes of class, string and method type constants.
+ */
+final class ConstantPool {
+
+    static final int UTF8 = 1;
+
+    static final int CLASS = 7;
+
+    static final int STRING = 8;
+
+    static final int METHOD_TYPE = 16;
+
+    private static final Pattern DESCRIPTOR_TYPE = Pattern.compile("L([^;<>()\\[.]+)[;<]");
+
+    private final Object[] constants;
+
+    private final int[] tags;
+
+    private ConstantPool(Object[] constants, int[] tags) {
+        this.constants = constants;
+        this.tags = tags;
+    }
+
+    static ConstantPool read(DataInputStream in) throws IOException {
+        final int count = in.readUnsignedShort();
+        final Object[] constants = new Object[count];
+        final int[] tags = new int[count];
+        for (int i = 1; i < count; i++) {
+            final int tag = in.readUnsignedByte();
+            tags[i] = tag;
+            switch (tag) {
+            case UTF8:
+                constants[i] = in.readUTF();
+                break;
+            case 3:
+                constants[i] = in.readInt();
+                break;
+            case 4:
+                constants[i] = in.readFloat();
+                break;
+            case 5:
+                constants[i] = in.readLong();
+                i++;
+                break;
+            case 6:
+                constants[i] = in.readDouble();
+                i++;
+                break;
+            case CLASS:
+            case STRING:
+            case METHOD_TYPE:
+            case 19:
+            case 20:
+                constants[i] = in.readUnsignedShort();
+                break;
+            case 15:
+                in.readUnsignedByte();
+                in.readUnsignedShort();
+                break;
+            case 9:
+            case 10:
+            case 11:
+            case 12:
+            case 17:
+            case 18:
+                in.readUnsignedShort();
+                in.readUnsignedShort();
+                break;
+            default:
+                throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+        return new ConstantPool(constants, tags);
+    }
+
+    int size() {
+        return tags.length;
+    }
+
+    int tag(int index) {
+        return tags[index];
+    }
+
+    String utf8(int index) {
+        return (String) constants[index];
+    }
+
+    /**
+     * Returns the UTF-8 value a class, string or method type constant points to.
+     */
+    String indirectUtf8(int index) {
+        return utf8((Integer) constants[index]);
+    }
+
+    /**
+     * Adds the names, as <code>com/mycompany/MyClass</code>, of the classes appearing in the specified
+     * descriptor or signature to the specified collection.
+     */
+    static void addDescriptorTypes(String descriptor, Collection<String> result) {
+        final Matcher matcher = DESCRIPTOR_TYPE.matcher(descriptor);
+        while (matcher.find()) {
+            result.add(matcher.group(1));
+        }
+    }
+
+    String constant(int index) {
+        if (tags[index] == STRING) {
+            return '"' + indirectUtf8(index) + '"';
+        }
+        return String.valueOf(constants[index]);
+    }
+
+}
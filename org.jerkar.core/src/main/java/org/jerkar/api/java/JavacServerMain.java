@@ -0,0 +1,235 @@
+package org.jerkar.api.java;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/*
+ * Main class of the compile server launched by JkJavacServer on the JDK compiling the sources. It only
+ * relies on the JDK so it can run on any JDK from Java 6.
+ *
+ * The server reads a secret token on its standard input, listens on a local port printed on its
+ * standard output, then serves each connection presenting the token in its own thread. A request is
+ * the token, the javac options and the source paths. The response is a sequence of OUTPUT and
+ * DIAGNOSTIC messages ended by a RESULT message. The server exits when its standard input is closed,
+ * that is when the Jerkar JVM shuts the server down or dies.
+ */
+final class JavacServerMain {
+
+    static final int OUTPUT = 1;
+
+    static final int DIAGNOSTIC = 2;
+
+    static final int RESULT = 3;
+
+    private static final String ENCODING = "UTF-8";
+
+    private JavacServerMain() {
+        // Can not instantiate
+    }
+
+    public static void main(String[] args) throws IOException {
+        final BufferedReader stdin = new BufferedReader(new InputStreamReader(System.in, ENCODING));
+        final String token = stdin.readLine();
+        final ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        System.out.println(serverSocket.getLocalPort());
+        System.out.flush();
+        final Thread watchdog = new Thread("javac-server-watchdog") {
+
+            @Override
+            public void run() {
+                try {
+                    while (stdin.read() != -1) {
+                        // Nothing is expected after the token
+                    }
+                } catch (final IOException e) {
+                    // Parent is gone
+                }
+                System.exit(0);
+            }
+
+        };
+        watchdog.setDaemon(true);
+        watchdog.start();
+        while (true) {
+            final Socket socket = serverSocket.accept();
+            final Thread thread = new Thread("javac-server-request") {
+
+                @Override
+                public void run() {
+                    try {
+                        serve(socket, token);
+                    } catch (final IOException e) {
+                        // Client is gone, nothing to answer
+                    } finally {
+                        closeQuietly(socket);
+                    }
+                }
+
+            };
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private static void serve(Socket socket, String token) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        if (!token.equals(readString(in))) {
+            return;
+        }
+        final List<String> options = readStrings(in);
+        final List<String> sourcePaths = readStrings(in);
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            sendOutput(out, "No compiler available in " + System.getProperty("java.home") + "\n");
+            sendResult(out, false);
+            return;
+        }
+        final StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+        boolean result;
+        try {
+            final List<File> sources = new ArrayList<File>();
+            for (final String path : sourcePaths) {
+                sources.add(new File(path));
+            }
+            result = compiler.getTask(new MessageWriter(out), fileManager, new DiagnosticSender(out), options,
+                    null, fileManager.getJavaFileObjectsFromFiles(sources)).call();
+        } catch (final RuntimeException e) {
+            final StringWriter stackTrace = new StringWriter();
+            e.printStackTrace(new PrintWriter(stackTrace));
+            sendOutput(out, stackTrace.toString());
+            result = false;
+        } finally {
+            fileManager.close();
+        }
+        sendResult(out, result);
+    }
+
+    private static void sendOutput(DataOutputStream out, String text) throws IOException {
+        synchronized (out) {
+            out.writeByte(OUTPUT);
+            writeString(out, text);
+        }
+    }
+
+    private static void sendResult(DataOutputStream out, boolean result) throws IOException {
+        synchronized (out) {
+            out.writeByte(RESULT);
+            out.writeBoolean(result);
+            out.flush();
+        }
+    }
+
+    static void writeString(DataOutputStream out, String string) throws IOException {
+        final byte[] bytes = (string == null ? "" : string).getBytes(ENCODING);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, ENCODING);
+    }
+
+    static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (final String string : strings) {
+            writeString(out, string);
+        }
+    }
+
+    static List<String> readStrings(DataInputStream in) throws IOException {
+        final int size = in.readInt();
+        final List<String> result = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(readString(in));
+        }
+        return result;
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (final IOException e) {
+            // Nothing to do
+        }
+    }
+
+    // Text written by the compiler besides diagnostics
+    private static final class MessageWriter extends Writer {
+
+        private final DataOutputStream out;
+
+        MessageWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            sendOutput(out, new String(cbuf, off, len));
+        }
+
+        @Override
+        public void flush() {
+            // Messages are sent as soon as written
+        }
+
+        @Override
+        public void close() {
+            // The socket is closed by the server
+        }
+
+    }
+
+    private static final class DiagnosticSender implements DiagnosticListener<JavaFileObject> {
+
+        private final DataOutputStream out;
+
+        DiagnosticSender(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void report(Diagnostic<? extends JavaFileObject> diagnostic) {
+            try {
+                synchronized (out) {
+                    out.writeByte(DIAGNOSTIC);
+                    writeString(out, diagnostic.getKind().name());
+                    writeString(out, diagnostic.getSource() == null ? "" : diagnostic.getSource().getName());
+                    out.writeLong(diagnostic.getLineNumber());
+                    out.writeLong(diagnostic.getColumnNumber());
+                    writeString(out, diagnostic.getCode());
+                    writeString(out, diagnostic.getMessage(Locale.getDefault()));
+                    writeString(out, diagnostic.toString());
+                }
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+    }
+
+}
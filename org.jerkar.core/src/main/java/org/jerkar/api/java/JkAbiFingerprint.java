@@ -0,0 +1,236 @@
+package org.jerkar.api.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.jerkar.api.file.JkFileTree;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsIO;
+import org.jerkar.api.utils.JkUtilsString;
+
+/**
+ * Computes a fingerprint of the ABI (Application Binary Interface) of a jar or a class directory,
+ * that is of everything a client can compile against : non private classes, fields and methods
+ * signatures, constant values and annotations. The fingerprint does not change when only method
+ * bodies or private members change, so compiling against the new jar would produce the same result.
+ * <p>
+ * Resources are fingerprinted by their content, as annotation processors may read them. Jars and
+ * directories declaring annotation processors are fingerprinted by their whole content, as changing
+ * a processor implementation changes the generated code.
+ * <p>
+ * The fingerprint of a jar can be stored next to it (see {@link #writeNextTo(File)}), so it is not
+ * recomputed by projects depending on this jar.
+ *
+ * @author Jerome Angibaud
+ */
+public final class JkAbiFingerprint {
+
+    private static final String FILE_SUFFIX = ".abi";
+
+    // Changes when the way fingerprints are computed changes, so stored ones are not reused
+    private static final String VERSION = "2";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // Fingerprints of jars and class files, keyed by path
+    private static final ConcurrentMap<String, Fingerprint> CACHE = new ConcurrentHashMap<String, Fingerprint>();
+
+    private JkAbiFingerprint() {
+        // Can not instantiate
+    }
+
+    /**
+     * Returns the ABI fingerprint of the specified jar or class directory. Returns <code>"missing"</code>
+     * if the file does not exist and the content hash for files that are not jars.
+     */
+    public static String of(File jarOrDir) {
+        if (jarOrDir.isDirectory()) {
+            return ofDir(jarOrDir);
+        }
+        if (!jarOrDir.isFile()) {
+            return "missing";
+        }
+        final String path = jarOrDir.getAbsolutePath();
+        final long stamp = stamp(jarOrDir);
+        final Fingerprint cached = CACHE.get(path);
+        if (cached != null && cached.stamp == stamp) {
+            return cached.hash;
+        }
+        String hash = readNextTo(jarOrDir, stamp);
+        if (hash == null) {
+            hash = ofJar(jarOrDir);
+        }
+        CACHE.put(path, new Fingerprint(stamp, hash));
+        return hash;
+    }
+
+    /**
+     * Returns the file where is stored the fingerprint of the specified jar.
+     */
+    public static File fileOf(File jar) {
+        return new File(jar.getPath() + FILE_SUFFIX);
+    }
+
+    /**
+     * Computes the fingerprint of the specified jar and stores it next to it.
+     */
+    public static void writeNextTo(File jar) {
+        final String hash = of(jar);
+        JkUtilsFile.writeString(fileOf(jar), hash + " " + stamp(jar) + " " + VERSION, false);
+    }
+
+    private static String readNextTo(File jar, long stamp) {
+        final File file = fileOf(jar);
+        if (!file.isFile()) {
+            return null;
+        }
+        final String[] items = JkUtilsString.split(JkUtilsFile.read(file).trim(), " ");
+        if (items.length != 3 || !items[1].equals(Long.toString(stamp)) || !items[2].equals(VERSION)) {
+            return null;
+        }
+        return items[0];
+    }
+
+    private static String ofJar(File jar) {
+        final Map<String, String> classes = new TreeMap<String, String>();
+        ZipFile zipFile = null;
+        try {
+            zipFile = new ZipFile(jar);
+            if (zipFile.getEntry(AnnotationProcessors.SERVICE_FILE) != null) {
+                return JkUtilsFile.checksum(jar, "SHA-1");
+            }
+            final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            boolean hasClass = false;
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                final boolean classEntry = entry.getName().endsWith(".class");
+                hasClass = hasClass || classEntry;
+                final InputStream inputStream = zipFile.getInputStream(entry);
+                try {
+                    final String abi = classEntry ? ClassFileAbi.read(inputStream) : contentHash(inputStream);
+                    if (abi != null) {
+                        classes.put(entry.getName(), abi);
+                    }
+                } finally {
+                    JkUtilsIO.closeQuietly(inputStream);
+                }
+            }
+            if (!hasClass) {
+                return JkUtilsFile.checksum(jar, "SHA-1");
+            }
+        } catch (final IOException e) {
+
+            // Not a readable archive : only its exact content can be trusted
+            return JkUtilsFile.checksum(jar, "SHA-1");
+        } finally {
+            JkUtilsIO.closeQuietly(zipFile);
+        }
+        return digest(classes);
+    }
+
+    private static String ofDir(File dir) {
+        final boolean processors = AnnotationProcessors.declaredIn(dir);
+        final Map<String, String> classes = new TreeMap<String, String>();
+        final JkFileTree tree = JkFileTree.of(dir);
+        for (final File file : tree) {
+            final String abi = !processors && file.getName().endsWith(".class") ? ofClassFile(file)
+                    : ofResource(file);
+            if (abi != null) {
+                classes.put(tree.relativePath(file).replace(File.separatorChar, '/'), abi);
+            }
+        }
+        return digest(classes);
+    }
+
+    private static String ofResource(File file) {
+        final String path = file.getAbsolutePath();
+        final long stamp = stamp(file);
+        final Fingerprint cached = CACHE.get(path);
+        if (cached != null && cached.stamp == stamp) {
+            return cached.hash;
+        }
+        final String hash = JkUtilsFile.checksum(file, "SHA-1");
+        CACHE.put(path, new Fingerprint(stamp, hash));
+        return hash;
+    }
+
+    private static String contentHash(InputStream inputStream) throws IOException {
+        final MessageDigest digest = sha1();
+        final byte[] buffer = new byte[8192];
+        int read = inputStream.read(buffer);
+        while (read >= 0) {
+            digest.update(buffer, 0, read);
+            read = inputStream.read(buffer);
+        }
+        return JkUtilsString.toHexString(digest.digest()).toLowerCase();
+    }
+
+    private static String ofClassFile(File file) {
+        final String path = file.getAbsolutePath();
+        final long stamp = stamp(file);
+        final Fingerprint cached = CACHE.get(path);
+        if (cached != null && cached.stamp == stamp) {
+            return cached.hash;
+        }
+        final InputStream inputStream = JkUtilsIO.inputStream(file);
+        String abi;
+        try {
+            abi = ClassFileAbi.read(inputStream);
+        } catch (final IOException e) {
+            abi = JkUtilsFile.checksum(file, "SHA-1");
+        } finally {
+            JkUtilsIO.closeQuietly(inputStream);
+        }
+        CACHE.put(path, new Fingerprint(stamp, abi));
+        return abi;
+    }
+
+    private static String digest(Map<String, String> classes) {
+        final MessageDigest digest = sha1();
+        for (final Map.Entry<String, String> entry : classes.entrySet()) {
+            digest.update(entry.getKey().getBytes(UTF8));
+            digest.update(entry.getValue().getBytes(UTF8));
+        }
+        return JkUtilsString.toHexString(digest.digest()).toLowerCase();
+    }
+
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static long stamp(File file) {
+        return file.lastModified() * 31 + file.length();
+    }
+
+    private static final class Fingerprint {
+
+        final long stamp;
+
+        final String hash;
+
+        Fingerprint(long stamp, String hash) {
+            this.stamp = stamp;
+            this.hash = hash;
+        }
+
+    }
+
+}
@@ -0,0 +1,232 @@
+package org.jerkar.api.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.jerkar.api.system.JkLocator;
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsIO;
+import org.jerkar.api.utils.JkUtilsIO.StreamGobbler;
+import org.jerkar.api.utils.JkUtilsJdk;
+import org.jerkar.api.utils.JkUtilsString;
+
+/**
+ * Manages AppCDS (Application Class Data Sharing) archives to speed up the startup of Java processes.
+ * An archive contains the pre-parsed classes of a classpath : a JVM launched with this archive does
+ * not have to load these classes from jars.
+ * <p>
+ * An archive is specific to a classpath and to a JDK. The first process launched with a given classpath
+ * is a training run recording the classes it loads (see {@link #jvmOptions()}), then the archive is dumped
+ * from this list (see {@link #afterRun()}) and used by subsequent launches. Archives are stored in the
+ * Jerkar user cache and named after a fingerprint of the classpath jars, so an archive is no longer used
+ * as soon as a jar changes. Archives unused for 30 days are deleted.
+ * <p>
+ * The JVM can only archive classes coming from jars and requires the archived jars to be the first
+ * entries of the classpath : only the leading jars of the classpath are considered.
+ * <p>
+ * {@link JkJavaProcess} uses class data sharing when it has been activated through {@link #activate(boolean)}.
+ *
+ * @author Jerome Angibaud
+ */
+public final class JkClassDataSharing {
+
+    private static final int MIN_JDK_VERSION = 11;
+
+    private static final long UNUSED_ARCHIVE_RETENTION = 30L * 24 * 60 * 60 * 1000;
+
+    private static volatile boolean active;
+
+    /**
+     * Activates or disactivates class data sharing for the {@link JkJavaProcess} launched from now.
+     */
+    public static void activate(boolean activate) {
+        active = activate;
+    }
+
+    /**
+     * Returns <code>true</code> if class data sharing has been activated.
+     */
+    public static boolean active() {
+        return active;
+    }
+
+    /**
+     * Returns <code>true</code> if the java executable located in the specified directory supports
+     * application class data sharing. Only the running JDK can be checked, so other JDKs are considered
+     * as not supporting it.
+     */
+    public static boolean isSupported(File javaDir) {
+        if (JkUtilsJdk.runningMajorVersion() < MIN_JDK_VERSION) {
+            return false;
+        }
+        final File runningJavaDir = new File(System.getProperty("java.home"), "bin");
+        return JkUtilsFile.canonicalFile(runningJavaDir).equals(JkUtilsFile.canonicalFile(javaDir));
+    }
+
+    /**
+     * Creates a {@link JkClassDataSharing} for launching the specified java executable with the specified
+     * classpath. The name is used for naming the archive.
+     */
+    public static JkClassDataSharing of(String name, File javaDir, Iterable<File> classpath) {
+        final List<File> jars = new LinkedList<File>();
+        for (final File file : classpath) {
+            if (!file.isFile() || !file.getName().toLowerCase().endsWith(".jar")) {
+                break;
+            }
+            jars.add(file);
+        }
+        final String fileName = fileName(name) + "-" + fingerprint(jars);
+        return new JkClassDataSharing(javaDir, jars, new File(JkLocator.jerkarClassDataCache(),
+                fileName + ".jsa"), new File(JkLocator.jerkarClassDataCache(), fileName + ".classlist"));
+    }
+
+    private final File javaDir;
+
+    private final List<File> jars;
+
+    private final File archive;
+
+    private final File classList;
+
+    private JkClassDataSharing(File javaDir, List<File> jars, File archive, File classList) {
+        this.javaDir = javaDir;
+        this.jars = jars;
+        this.archive = archive;
+        this.classList = classList;
+    }
+
+    /**
+     * Returns <code>false</code> if the classpath does not start with a jar, so there is nothing to archive.
+     */
+    public boolean isApplicable() {
+        return !jars.isEmpty();
+    }
+
+    /**
+     * Returns the archive file for this classpath. It may not exist yet.
+     */
+    public File archive() {
+        return archive;
+    }
+
+    /**
+     * Returns the file where the training run records the classes it loads.
+     */
+    public File classList() {
+        return classList;
+    }
+
+    /**
+     * Returns the JVM options to pass to the launched process : the archive to use if it exists, otherwise
+     * the options to record the loaded classes, making this launch a training run.
+     */
+    public List<String> jvmOptions() {
+        final List<String> result = new LinkedList<String>();
+        if (!isApplicable()) {
+            return result;
+        }
+        if (archive.exists()) {
+
+            // Last modification time tells when the archive has been used for the last time
+            archive.setLastModified(System.currentTimeMillis());
+            result.add("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+            result.add("-Xshare:auto");
+        } else if (!classList.exists()) {
+            result.add("-XX:DumpLoadedClassList=" + classList.getAbsolutePath());
+        }
+        return result;
+    }
+
+    /**
+     * To be invoked once a process launched with {@link #jvmOptions()} has successfully terminated. If it
+     * was a training run, the archive is dumped out of the recorded classes and the archives unused for
+     * a long time are deleted.
+     */
+    public void afterRun() {
+        if (isApplicable() && !archive.exists() && classList.exists()) {
+            dump();
+        }
+    }
+
+    /**
+     * Dumps the archive out of the class list recorded by the training run. Returns <code>false</code> if
+     * the JVM failed to create it.
+     */
+    public boolean dump() {
+        JkLog.start("Creating class data sharing archive " + archive.getName());
+        final File temp = new File(archive.getPath() + "." + System.nanoTime() + ".tmp");
+        final List<String> command = new LinkedList<String>();
+        command.add(new File(javaDir, "java").getAbsolutePath());
+        command.add("-Xshare:dump");
+        command.add("-XX:SharedClassListFile=" + classList.getAbsolutePath());
+        command.add("-XX:SharedArchiveFile=" + temp.getAbsolutePath());
+        command.add("-cp");
+        command.add(JkClasspath.of(jars).toString());
+        final int exitValue;
+        try {
+            final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            final OutputStream outputStream = JkLog.verbose() ? JkLog.infoStream() : JkUtilsIO.nopOuputStream();
+            final StreamGobbler gobbler = JkUtilsIO.newStreamGobbler(process.getInputStream(), outputStream);
+            exitValue = process.waitFor();
+            gobbler.stop();
+        } catch (final IOException e) {
+            JkLog.warn("Can not launch " + command.get(0) + " : " + e.getMessage());
+            JkLog.done();
+            return false;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            JkUtilsFile.deleteIfExist(temp);
+            JkLog.done();
+            return false;
+        }
+        JkUtilsFile.deleteIfExist(classList);
+        if (exitValue != 0 || !temp.exists() || !temp.renameTo(archive)) {
+            JkLog.warn("Class data sharing archive " + archive.getName() + " could not be created.");
+            JkUtilsFile.deleteIfExist(temp);
+            JkLog.done();
+            return false;
+        }
+        deleteUnusedArchives();
+        JkLog.done();
+        return true;
+    }
+
+    // Archives of previous classpath versions are never used again
+    private void deleteUnusedArchives() {
+        final File[] files = archive.getParentFile().listFiles();
+        if (files == null) {
+            return;
+        }
+        final long limit = System.currentTimeMillis() - UNUSED_ARCHIVE_RETENTION;
+        for (final File file : files) {
+            if (file.lastModified() < limit) {
+                JkUtilsFile.deleteIfExist(file);
+            }
+        }
+    }
+
+    private static String fileName(String name) {
+        return name.replaceAll("[^A-Za-z0-9_.]", "_");
+    }
+
+    private static String fingerprint(List<File> jars) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        digest.update((System.getProperty("java.home") + System.getProperty("java.vm.version")).getBytes());
+        for (final File jar : jars) {
+            digest.update((jar.getAbsolutePath() + "#" + jar.lastModified() + "#" + jar.length()).getBytes());
+        }
+        return JkUtilsString.toHexString(digest.digest()).substring(0, 16).toLowerCase();
+    }
+
+}
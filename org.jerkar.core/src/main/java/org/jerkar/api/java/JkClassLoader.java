@@ -11,7 +11,6 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -20,6 +19,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -86,8 +87,18 @@ public final class JkClassLoader {
 
     private final URLClassLoader delegate;
 
+    // Passes arguments from the current class loader to this one
+    private final ClassLoaderBridge argumentBridge;
+
+    // Passes results from this class loader to the current one
+    private final ClassLoaderBridge resultBridge;
+
+    private final ConcurrentMap<List<Object>, Method> staticMethods = new ConcurrentHashMap<List<Object>, Method>();
+
     private JkClassLoader(URLClassLoader delegate) {
         this.delegate = delegate;
+        this.argumentBridge = new ClassLoaderBridge(delegate);
+        this.resultBridge = new ClassLoaderBridge(JkClassLoader.class.getClassLoader());
     }
 
     /**
@@ -179,7 +190,9 @@ public final class JkClassLoader {
                         + entry.getClass().getName());
             }
         }
-        return parent().child(this.childClasspath().and(files));
+        // The parent may not be a URLClassLoader, as the application class loader on JDK 9+
+        return new JkClassLoader(new URLClassLoader(toUrl(this.childClasspath().and(files)),
+                this.delegate.getParent()));
     }
 
     /**
@@ -562,9 +575,12 @@ public final class JkClassLoader {
      * Invokes a static method on the specified class using the provided
      * arguments. <br/>
      * If the argument classes are the same on the current class loader and this
-     * one then arguments are passed as is, otherwise arguments are serialized
-     * in the current class loader and deserialized in this class loader in
-     * order to be compliant with it. <br/>
+     * one then arguments are passed as is, otherwise arguments are copied into
+     * instances of the classes of this class loader in order to be compliant
+     * with it. Java serialization is used only for classes that define their
+     * own serialization or that differ between the two class loaders. <br/>
+     * The resolved method is cached for the next invocations having the same
+     * argument types. <br/>
      * The current thread context class loader is switched to this for the
      * method execution. <br/>
      * It is then turned back to the former one when the execution is done.
@@ -576,24 +592,22 @@ public final class JkClassLoader {
             args = new Object[0];
         }
         final Class<?> clazz = this.load(className);
-        final Object[] effectiveArgs = new Object[args.length];
-        for (int i = 0; i < args.length; i++) {
-            effectiveArgs[i] = traverseClassLoader(args[i], this);
-        }
+        final Object[] effectiveArgs = (Object[]) argumentBridge.transfer(args);
+        final Method method = staticMethod(clazz, methodName, effectiveArgs);
         final ClassLoader currentClassLoader = Thread.currentThread().getContextClassLoader();
         Thread.currentThread().setContextClassLoader(delegate);
-        offsetLog();
+        final Class<?> targetLogClass = offsetLog();
         try {
-            final Object returned = JkUtilsReflect.invokeStaticMethod(clazz, methodName,
-                    effectiveArgs);
+            final Object returned = JkUtilsReflect.invoke(null, method, effectiveArgs);
             final T result;
             if (serializeResult) {
-                result = (T) traverseClassLoader(returned, JkClassLoader.current());
+                result = (T) resultBridge.transfer(returned);
             } else {
                 result = (T) returned;
             }
             return result;
         } finally {
+            flushLog(targetLogClass);
             Thread.currentThread().setContextClassLoader(currentClassLoader);
         }
     }
@@ -601,10 +615,7 @@ public final class JkClassLoader {
     /**
      * Invokes an instance method on the specified object using the specified
      * arguments. <br/>
-     * If the argument classes are the same on the current class loader and this
-     * one then arguments are passed as is, otherwise arguments are serialized
-     * in the current class loader and deserialized in this class loader in
-     * order to be compliant with it. <br/>
+     * Arguments are passed as for {@link #invokeStaticMethod(boolean, String, String, Object...)}. <br/>
      * The current thread context class loader is switched to this for the
      * method execution. <br/>
      * It is then turned back to the former one when the execution is done.
@@ -615,19 +626,16 @@ public final class JkClassLoader {
         if (args == null) {
             args = new Object[0];
         }
-        final Object[] effectiveArgs = new Object[args.length];
-        for (int i = 0; i < args.length; i++) {
-            effectiveArgs[i] = traverseClassLoader(args[i], this);
-        }
+        final Object[] effectiveArgs = (Object[]) argumentBridge.transfer(args);
         final ClassLoader currentClassLoader = Thread.currentThread().getContextClassLoader();
         Thread.currentThread().setContextClassLoader(delegate);
-        offsetLog();
+        final Class<?> targetLogClass = offsetLog();
         try {
 
             final Object returned = JkUtilsReflect.invoke(object, method, effectiveArgs);
             final T result;
             if (serializeResult) {
-                result = (T) traverseClassLoader(returned, JkClassLoader.current());
+                result = (T) resultBridge.transfer(returned);
             } else {
                 result = (T) returned;
             }
@@ -635,6 +643,7 @@ public final class JkClassLoader {
         } catch (final IllegalArgumentException e) {
             throw new RuntimeException(e);
         } finally {
+            flushLog(targetLogClass);
             Thread.currentThread().setContextClassLoader(currentClassLoader);
         }
     }
@@ -695,40 +704,43 @@ public final class JkClassLoader {
         return this;
     }
 
-    private void offsetLog() {
+    // Returns the JkLog class of this classloader if it differs from the current one
+    private Class<?> offsetLog() {
         if (this.isDefined(JkLog.class.getName())) {
             final int offset = JkLog.offset();
             final Class<?> toClass = this.load(JkLog.class.getName());
             JkUtilsReflect.invokeStaticMethod(toClass, "offset", offset);
             JkUtilsReflect.invokeStaticMethod(toClass, "verbose", JkLog.verbose());
             JkUtilsReflect.invokeStaticMethod(toClass, "silent", JkLog.silent());
+            if (!toClass.equals(JkLog.class)) {
+
+                // Each JkLog class has its own writer so we must keep them ordered
+                JkLog.flush();
+                return toClass;
+            }
         }
+        return null;
     }
 
-    private static Object traverseClassLoader(Object object, JkClassLoader to) {
-        if (object == null) {
-            return null;
-        }
-        final Class<?> clazz = object.getClass();
-        final String className;
-        if (clazz.isArray()) {
-            className = object.getClass().getComponentType().getName();
-        } else {
-            className = object.getClass().getName();
+    private static void flushLog(Class<?> logClass) {
+        if (logClass != null) {
+            JkUtilsReflect.invokeStaticMethod(logClass, "flush");
         }
+    }
 
-        final JkClassLoader from = JkClassLoader.of(object.getClass());
-        final Class<?> toClass = to.load(className);
-        final boolean container = Collection.class.isAssignableFrom(clazz)
-                || Map.class.isAssignableFrom(clazz);
-        if (from.delegate == null && !container) { // Class from JDK
-            return object;
+    // Resolving a method among candidates is costly compared to invoking it
+    private Method staticMethod(Class<?> clazz, String methodName, Object[] args) {
+        final Class<?>[] types = new Class<?>[args.length];
+        for (int i = 0; i < args.length; i++) {
+            types[i] = args[i] == null ? null : args[i].getClass();
         }
-        if (toClass.equals(object.getClass()) && !container) {
-            return object;
+        final List<Object> key = Arrays.<Object> asList(clazz, methodName, Arrays.asList(types));
+        Method method = staticMethods.get(key);
+        if (method == null) {
+            method = JkUtilsReflect.findMethodCompatibleWith(clazz, true, methodName, types);
+            staticMethods.put(key, method);
         }
-
-        return JkUtilsIO.cloneBySerialization(object, to.classloader());
+        return method;
     }
 
     // Class loader that keep all the find classes in a given set
@@ -752,7 +764,7 @@ public final class JkClassLoader {
     /**
      * Creates an instance from the specified class in this classloader and
      * callable from the current class loader. Arguments ans result are
-     * serialized (if needed) so we keep compatibility between classes.
+     * copied (if needed) so we keep compatibility between classes.
      */
     @SuppressWarnings("unchecked")
     public <T> T transClassloaderProxy(Class<T> interfaze, String className,
@@ -771,10 +783,16 @@ public final class JkClassLoader {
 
         private final Object target;
 
+        private final ConcurrentMap<Method, Method> targetMethods = new ConcurrentHashMap<Method, Method>();
+
         @Override
         public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-            final Method targetMethod = JkUtilsReflect.methodWithSameNameAndArgType(method,
-                    target.getClass());
+            Method targetMethod = targetMethods.get(method);
+            if (targetMethod == null) {
+                targetMethod = JkUtilsReflect.methodWithSameNameAndArgType(method,
+                        target.getClass());
+                targetMethods.put(method, targetMethod);
+            }
             return invokeInstanceMethod(true, target, targetMethod, args);
 
         }
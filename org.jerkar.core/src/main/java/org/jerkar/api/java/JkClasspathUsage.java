@@ -0,0 +1,348 @@
+package org.jerkar.api.java;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.jerkar.api.file.JkFileTree;
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsIO;
+import org.jerkar.api.utils.JkUtilsString;
+import org.jerkar.api.utils.JkUtilsZip;
+
+/**
+ * Tells which entries of a classpath are actually used by some compiled classes. An entry is used
+ * if it defines a class referenced by the compiled classes, or a supertype of such a class as the
+ * compiler needs the whole type hierarchy of the types it resolves. References are read from the
+ * constant pool of the class files, so classes only loaded by reflection are not seen : the
+ * result fits compilation classpaths but can not tell which libraries are needed at runtime.
+ * <p>
+ * Entries declaring annotation processors are always considered as used, as the compiler runs
+ * them without the compiled classes referencing them.
+ * <p>
+ * The used entries can be stored in a file along a digest of the classpath, so builds can compile
+ * against the used entries only as long as the classpath does not change.
+ *
+ * @author Jerome Angibaud
+ */
+public final class JkClasspathUsage {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // Classes defined by jars along their direct supertypes, keyed by path
+    private static final ConcurrentMap<String, Index> INDEXES = new ConcurrentHashMap<String, Index>();
+
+    private final List<File> classpath;
+
+    private final Set<File> usedEntries;
+
+    private final Set<String> missingClasses;
+
+    private JkClasspathUsage(List<File> classpath, Set<File> usedEntries, Set<String> missingClasses) {
+        this.classpath = classpath;
+        this.usedEntries = usedEntries;
+        this.missingClasses = missingClasses;
+    }
+
+    /**
+     * Computes which entries of the specified classpath are used by the classes contained in the
+     * specified class directories or jars.
+     */
+    public static JkClasspathUsage of(Iterable<File> classDirsOrJars, Iterable<File> classpath) {
+        final List<File> entries = new ArrayList<File>();
+        for (final File entry : classpath) {
+            entries.add(entry);
+        }
+        final Set<String> ownClasses = new HashSet<String>();
+        final Set<String> referenced = new HashSet<String>();
+        for (final File classes : classDirsOrJars) {
+            final Index index = index(classes, true);
+            ownClasses.addAll(index.supertypes.keySet());
+            referenced.addAll(index.references);
+        }
+        final Set<File> used = new HashSet<File>();
+        final List<Index> indexes = new ArrayList<Index>(entries.size());
+        for (final File entry : entries) {
+            final Index index = index(entry, false);
+            if (index.processors) {
+                used.add(entry);
+            }
+            indexes.add(index);
+        }
+
+        // Resolve each referenced class on the first entry defining it, then its supertypes
+        final Set<String> missing = new HashSet<String>();
+        final Set<String> visited = new HashSet<String>(ownClasses);
+        final LinkedList<String> toVisit = new LinkedList<String>(referenced);
+        while (!toVisit.isEmpty()) {
+            final String className = toVisit.removeFirst();
+            if (!visited.add(className)) {
+                continue;
+            }
+            boolean found = false;
+            for (int i = 0; i < indexes.size(); i++) {
+                final List<String> supertypes = indexes.get(i).supertypes.get(className);
+                if (supertypes != null) {
+                    used.add(entries.get(i));
+                    toVisit.addAll(supertypes);
+                    found = true;
+                    break;
+                }
+            }
+            if (!found && !isPlatformClass(className)) {
+                missing.add(className);
+            }
+        }
+        return new JkClasspathUsage(Collections.unmodifiableList(entries), used,
+                Collections.unmodifiableSet(missing));
+    }
+
+    /**
+     * Returns the entries of the classpath used by the analysed classes, in classpath order.
+     */
+    public List<File> usedEntries() {
+        final List<File> result = new LinkedList<File>();
+        for (final File entry : classpath) {
+            if (usedEntries.contains(entry)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the entries of the classpath that are not used by the analysed classes, in classpath
+     * order.
+     */
+    public List<File> unusedEntries() {
+        final List<File> result = new LinkedList<File>();
+        for (final File entry : classpath) {
+            if (!usedEntries.contains(entry)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns <code>true</code> if the specified classpath entry is used by the analysed classes.
+     */
+    public boolean isUsed(File entry) {
+        return usedEntries.contains(entry);
+    }
+
+    /**
+     * Returns the names, as <code>com/mycompany/MyClass</code>, of the classes referenced by the
+     * analysed classes but found neither in the classpath nor in the Java platform.
+     */
+    public Set<String> missingClasses() {
+        return missingClasses;
+    }
+
+    /**
+     * Stores the used entries in the specified file along a digest of the classpath.
+     *
+     * @see #usedEntriesStoredIn(File, Iterable)
+     */
+    public void store(File file) {
+        final StringBuilder builder = new StringBuilder(digest(classpath)).append('\n');
+        for (final File entry : usedEntries()) {
+            builder.append(entry.getAbsolutePath()).append('\n');
+        }
+        file.getParentFile().mkdirs();
+        JkUtilsFile.writeString(file, builder.toString(), false);
+    }
+
+    /**
+     * Returns the used entries stored in the specified file, in classpath order, or
+     * <code>null</code> if the file does not exist or has been stored for a classpath whose entries
+     * or entry contents differ from the specified one.
+     */
+    public static List<File> usedEntriesStoredIn(File file, Iterable<File> classpath) {
+        if (!file.isFile()) {
+            return null;
+        }
+        final List<String> lines = JkUtilsFile.readLines(file);
+        if (lines.isEmpty() || !lines.get(0).equals(digest(classpath))) {
+            return null;
+        }
+        final Set<String> paths = new HashSet<String>(lines.subList(1, lines.size()));
+        final List<File> result = new LinkedList<File>();
+        for (final File entry : classpath) {
+            if (paths.contains(entry.getAbsolutePath())) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return usedEntries.size() + " used entries out of " + classpath.size();
+    }
+
+    private static String digest(Iterable<File> classpath) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        for (final File entry : classpath) {
+            digest.update(entry.getAbsolutePath().getBytes(UTF8));
+            digest.update(Long.toString(stamp(entry)).getBytes(UTF8));
+        }
+        return JkUtilsString.toHexString(digest.digest()).toLowerCase();
+    }
+
+    // Directory content is not summarized in a stamp : only their path takes part of the digest
+    private static long stamp(File file) {
+        return file.isFile() ? file.lastModified() * 31 + file.length() : 0;
+    }
+
+    private static boolean isPlatformClass(String className) {
+        try {
+            Class.forName(className.replace('/', '.'), false, ClassLoader.getSystemClassLoader()
+                    .getParent());
+            return true;
+        } catch (final ClassNotFoundException e) {
+            return false;
+        } catch (final LinkageError e) {
+            return false;
+        }
+    }
+
+    private static Index index(File entry, boolean withReferences) {
+        if (entry.isDirectory()) {
+            final Index index = new Index(0);
+            index.processors = AnnotationProcessors.declaredIn(entry);
+            final JkFileTree tree = JkFileTree.of(entry).include("**/*.class");
+            for (final File file : tree) {
+                final InputStream inputStream = JkUtilsIO.inputStream(file);
+                try {
+                    index.read(inputStream, file.getPath(), withReferences);
+                } finally {
+                    JkUtilsIO.closeQuietly(inputStream);
+                }
+            }
+            return index;
+        }
+        if (!entry.isFile()) {
+            return new Index(0);
+        }
+        final String path = entry.getAbsolutePath();
+        final long stamp = stamp(entry);
+        final Index cached = INDEXES.get(path);
+        if (cached != null && cached.stamp == stamp && (!withReferences || cached.references != null)) {
+            return cached;
+        }
+        final Index index = new Index(stamp);
+        final ZipFile zipFile;
+        try {
+            zipFile = new ZipFile(entry);
+        } catch (final IOException e) {
+            return index; // Not an archive : it can not contain classes
+        }
+        try {
+            for (final ZipEntry zipEntry : JkUtilsZip.zipEntries(zipFile)) {
+                if (zipEntry.getName().equals(AnnotationProcessors.SERVICE_FILE)) {
+                    index.processors = true;
+                }
+                if (zipEntry.getName().endsWith(".class") && !zipEntry.getName().startsWith("META-INF/")) {
+                    final InputStream inputStream = JkUtilsIO.inputStream(zipFile, zipEntry);
+                    try {
+                        index.read(inputStream, entry.getName() + "!" + zipEntry.getName(), withReferences);
+                    } finally {
+                        JkUtilsIO.closeQuietly(inputStream);
+                    }
+                }
+            }
+        } finally {
+            JkUtilsIO.closeQuietly(zipFile);
+        }
+        if (!withReferences) {
+            index.references = null;
+        }
+        INDEXES.put(path, index);
+        return index;
+    }
+
+    private static final class Index {
+
+        final long stamp;
+
+        // Direct supertypes of the defined classes, keyed by class name
+        final Map<String, List<String>> supertypes = new HashMap<String, List<String>>();
+
+        Set<String> references = new LinkedHashSet<String>();
+
+        boolean processors;
+
+        Index(long stamp) {
+            this.stamp = stamp;
+        }
+
+        void read(InputStream inputStream, String name, boolean withReferences) {
+            try {
+                final DataInputStream in = new DataInputStream(inputStream);
+                if (in.readInt() != 0xCAFEBABE) {
+                    return;
+                }
+                in.readUnsignedShort();
+                in.readUnsignedShort();
+                final ConstantPool constants = ConstantPool.read(in);
+                in.readUnsignedShort();
+                final String className = constants.indirectUtf8(in.readUnsignedShort());
+                final List<String> classSupertypes = new ArrayList<String>(2);
+                final int superIndex = in.readUnsignedShort();
+                if (superIndex != 0) {
+                    classSupertypes.add(constants.indirectUtf8(superIndex));
+                }
+                final int interfaceCount = in.readUnsignedShort();
+                for (int i = 0; i < interfaceCount; i++) {
+                    classSupertypes.add(constants.indirectUtf8(in.readUnsignedShort()));
+                }
+                supertypes.put(className, classSupertypes);
+                if (withReferences) {
+                    addReferences(constants);
+                }
+            } catch (final IOException e) {
+                JkLog.warn("Can not read " + name + " : " + e.getMessage());
+            }
+        }
+
+        // Class names are found in class constants, and within descriptors and signatures
+        private void addReferences(ConstantPool constants) {
+            for (int i = 1; i < constants.size(); i++) {
+                if (constants.tag(i) == ConstantPool.CLASS) {
+                    final String name = constants.indirectUtf8(i);
+                    if (!name.startsWith("[")) {
+                        references.add(name);
+                    }
+                } else if (constants.tag(i) == ConstantPool.UTF8) {
+                    ConstantPool.addDescriptorTypes(constants.utf8(i), references);
+                }
+            }
+        }
+
+    }
+
+}
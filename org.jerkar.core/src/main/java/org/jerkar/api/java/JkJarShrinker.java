@@ -0,0 +1,313 @@
+package org.jerkar.api.java;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Attributes.Name;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.jerkar.api.file.JkPathFilter;
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsIO;
+import org.jerkar.api.utils.JkUtilsString;
+import org.jerkar.api.utils.JkUtilsZip;
+import org.jerkar.api.utils.JkUtilsZip.JkZipEntryFilter;
+
+/**
+ * Removes from a jar the classes and resources that can not be reached from its entry points, typically
+ * to make fat jars smaller and faster to open. Entry points are the classes mentioned in the manifest
+ * (<code>Main-Class</code>, agent classes), the service providers declared in <code>META-INF/services</code>
+ * and the entries matching the keep filters. Reachable classes are found by walking the class references
+ * of their bytecode.
+ * <p>
+ * Classes loaded through reflection can only be found when their name appears as a string literal in a
+ * reachable class. Other classes loaded by reflection must be declared using {@link #andKeep(JkPathFilter)},
+ * for example <code>andKeep(JkPathFilter.include("com/mycompany/plugins/**"))</code>.
+ * <p>
+ * Resources are kept when they are located in the package of a reachable class, under
+ * <code>META-INF</code>, at the root of the jar, when their name appears in a string literal of a reachable
+ * class, or when they match a keep filter.
+ *
+ * @author Jerome Angibaud
+ */
+public final class JkJarShrinker {
+
+    private static final Name[] ENTRY_POINT_ATTRIBUTES = new Name[] { Name.MAIN_CLASS,
+        new Name("Premain-Class"), new Name("Agent-Class"), new Name("Launcher-Agent-Class") };
+
+    private static final String SERVICES = "META-INF/services/";
+
+    private static final String VERSIONS = "META-INF/versions/";
+
+    private static final Pattern QUALIFIED_NAME = Pattern.compile("[\\w$]+(\\.[\\w$]+)+");
+
+    /**
+     * Creates a shrinker keeping only the entries reachable from the entry points of the jar.
+     */
+    public static JkJarShrinker of() {
+        return new JkJarShrinker(Collections.<JkPathFilter> emptyList());
+    }
+
+    private final List<JkPathFilter> keeps;
+
+    private JkJarShrinker(List<JkPathFilter> keeps) {
+        this.keeps = keeps;
+    }
+
+    /**
+     * Returns a shrinker identical to this one but also keeping the entries accepted by the specified
+     * filter, along with the classes they reach. Filters are applied on entry names as
+     * <code>com/mycompany/MyClass.class</code>.
+     */
+    public JkJarShrinker andKeep(JkPathFilter keep) {
+        final List<JkPathFilter> list = new ArrayList<JkPathFilter>(this.keeps);
+        list.add(keep);
+        return new JkJarShrinker(Collections.unmodifiableList(list));
+    }
+
+    /**
+     * Returns a shrinker identical to this one but also keeping the entries matching the specified
+     * Ant patterns.
+     */
+    public JkJarShrinker andKeep(String... antPatterns) {
+        return andKeep(JkPathFilter.include(antPatterns));
+    }
+
+    /**
+     * Returns the names of the entries of the specified jar to keep.
+     */
+    public Set<String> keptEntries(File jar) {
+        final ZipFile zipFile = JkUtilsZip.zipFile(jar);
+        try {
+            return keptEntries(zipFile);
+        } finally {
+            JkUtilsIO.closeQuietly(zipFile);
+        }
+    }
+
+    /**
+     * Removes the unreachable entries from the specified jar. The jar is replaced by a new file so
+     * links to the original file are not affected.
+     */
+    public void shrink(File jar) {
+        JkLog.start("Shrinking " + jar.getName());
+        final long originalSize = jar.length();
+        final File temp = new File(jar.getPath() + ".shrinking");
+        final ZipFile zipFile = JkUtilsZip.zipFile(jar);
+        final int entryCount;
+        final Set<String> kept;
+        try {
+            entryCount = zipFile.size();
+            kept = keptEntries(zipFile);
+            final ZipOutputStream outputStream = JkUtilsZip.createZipOutputStream(temp, Deflater.DEFAULT_COMPRESSION);
+            try {
+                JkUtilsZip.mergeZip(outputStream, zipFile, new JkZipEntryFilter() {
+
+                    @Override
+                    public boolean accept(String entryName) {
+                        return kept.contains(entryName);
+                    }
+
+                }, false);
+            } finally {
+                JkUtilsIO.closeOrFail(outputStream);
+            }
+        } finally {
+            JkUtilsIO.closeQuietly(zipFile);
+        }
+        JkUtilsFile.delete(jar);
+        if (!temp.renameTo(jar)) {
+            JkUtilsFile.copyFile(temp, jar);
+            JkUtilsFile.delete(temp);
+        }
+        JkLog.info("Kept " + kept.size() + " entries out of " + entryCount + ", size reduced from "
+                + kiloBytes(originalSize) + " to " + kiloBytes(jar.length()) + ".");
+        JkLog.done();
+    }
+
+    private Set<String> keptEntries(ZipFile zipFile) {
+        final Map<String, String> classEntries = new HashMap<String, String>();
+        final List<String> resources = new LinkedList<String>();
+        for (final ZipEntry entry : JkUtilsZip.zipEntries(zipFile)) {
+            final String name = entry.getName();
+            if (entry.isDirectory()) {
+                continue;
+            }
+            if (name.endsWith(".class") && !name.startsWith(VERSIONS)) {
+                classEntries.put(JkUtilsString.substringBeforeLast(name, "."), name);
+            } else {
+                resources.add(name);
+            }
+        }
+
+        // Walk the class references from the entry points
+        final Set<String> reachable = new HashSet<String>();
+        final Set<String> literals = new HashSet<String>();
+        final LinkedList<String> toVisit = new LinkedList<String>(entryPoints(zipFile, classEntries.values()));
+        while (!toVisit.isEmpty()) {
+            final String className = toVisit.removeFirst();
+            if (!classEntries.containsKey(className) || !reachable.add(className)) {
+                continue;
+            }
+            final List<String> constants = utf8Constants(zipFile, classEntries.get(className));
+            literals.addAll(constants);
+            for (final String constant : constants) {
+                toVisit.addAll(referencedClasses(constant));
+            }
+        }
+
+        final Set<String> result = new HashSet<String>();
+        final Set<String> packages = new HashSet<String>();
+        for (final String className : reachable) {
+            result.add(classEntries.get(className));
+            packages.add(packageOf(className));
+        }
+        for (final String resource : resources) {
+            if (isKeptResource(resource, packages, literals, reachable)) {
+                result.add(resource);
+            }
+        }
+        return result;
+    }
+
+    private List<String> entryPoints(ZipFile zipFile, Iterable<String> classEntries) {
+        final List<String> result = new LinkedList<String>();
+        final ZipEntry manifestEntry = zipFile.getEntry(JkManifest.PATH);
+        if (manifestEntry != null) {
+            final InputStream inputStream = JkUtilsIO.inputStream(zipFile, manifestEntry);
+            try {
+                final JkManifest manifest = JkManifest.of(inputStream);
+                for (final Name name : ENTRY_POINT_ATTRIBUTES) {
+                    final String className = manifest.mainAttribute(name);
+                    if (className != null) {
+                        result.add(className.trim().replace('.', '/'));
+                    }
+                }
+            } finally {
+                JkUtilsIO.closeQuietly(inputStream);
+            }
+        }
+        for (final ZipEntry entry : JkUtilsZip.zipEntries(zipFile)) {
+            if (entry.getName().startsWith(SERVICES) && !entry.isDirectory()) {
+                final InputStream inputStream = JkUtilsIO.inputStream(zipFile, entry);
+                try {
+                    for (final String line : JkUtilsIO.readAsLines(inputStream)) {
+                        final String provider = JkUtilsString.substringBeforeFirst(line + "#", "#").trim();
+                        if (!provider.isEmpty()) {
+                            result.add(provider.replace('.', '/'));
+                        }
+                    }
+                } finally {
+                    JkUtilsIO.closeQuietly(inputStream);
+                }
+            }
+        }
+        for (final String classEntry : classEntries) {
+            if (isKept(classEntry)) {
+                result.add(JkUtilsString.substringBeforeLast(classEntry, "."));
+            }
+        }
+        return result;
+    }
+
+    private boolean isKeptResource(String resource, Set<String> packages, Set<String> literals,
+            Set<String> reachable) {
+        if (isKept(resource) || !resource.contains("/")) {
+            return true;
+        }
+        if (resource.startsWith(VERSIONS)) {
+
+            // Multi-release class files follow their base class
+            final String path = JkUtilsString.substringAfterFirst(resource.substring(VERSIONS.length()), "/");
+            if (path.endsWith(".class")) {
+                return reachable.contains(JkUtilsString.substringBeforeLast(path, "."));
+            }
+            return true;
+        }
+        if (resource.startsWith("META-INF/") || packages.contains(packageOf(resource))) {
+            return true;
+        }
+        final String fileName = JkUtilsString.substringAfterLast(resource, "/");
+        for (final String literal : literals) {
+            if (literal.endsWith(fileName) && (resource.endsWith(literal) || literal.endsWith(resource))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isKept(String entryName) {
+        for (final JkPathFilter keep : keeps) {
+            if (keep.accept(entryName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> utf8Constants(ZipFile zipFile, String entryName) {
+        final InputStream inputStream = JkUtilsIO.inputStream(zipFile, zipFile.getEntry(entryName));
+        try {
+            final DataInputStream in = new DataInputStream(inputStream);
+            if (in.readInt() != 0xCAFEBABE) {
+                return Collections.emptyList();
+            }
+            in.readUnsignedShort();
+            in.readUnsignedShort();
+            final ConstantPool constants = ConstantPool.read(in);
+            final List<String> result = new LinkedList<String>();
+            for (int i = 1; i < constants.size(); i++) {
+                if (constants.tag(i) == ConstantPool.UTF8) {
+                    result.add(constants.utf8(i));
+                }
+            }
+            return result;
+        } catch (final IOException e) {
+            JkLog.warn("Can not read " + entryName + " : " + e.getMessage());
+            return Collections.emptyList();
+        } finally {
+            JkUtilsIO.closeQuietly(inputStream);
+        }
+    }
+
+    // Class names are found as is in class constants, within descriptors and signatures, or in
+    // dotted form in string literals used for reflection
+    private static List<String> referencedClasses(String constant) {
+        final List<String> result = new LinkedList<String>();
+        result.add(constant);
+        ConstantPool.addDescriptorTypes(constant, result);
+        if (QUALIFIED_NAME.matcher(constant).matches()) {
+            result.add(constant.replace('.', '/'));
+        }
+        return result;
+    }
+
+    private static String packageOf(String path) {
+        return path.contains("/") ? JkUtilsString.substringBeforeLast(path, "/") : "";
+    }
+
+    private static String kiloBytes(long size) {
+        return (size / 1024) + " Kb";
+    }
+
+    @Override
+    public String toString() {
+        return "keep " + Arrays.toString(keeps.toArray());
+    }
+
+}
@@ -2,25 +2,30 @@ package org.jerkar.api.java;
 
 import java.io.File;
 import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import javax.tools.Diagnostic;
 import javax.tools.DiagnosticListener;
 import javax.tools.JavaCompiler;
-import javax.tools.JavaCompiler.CompilationTask;
 import javax.tools.JavaFileObject;
-import javax.tools.StandardJavaFileManager;
-import javax.tools.ToolProvider;
 
+import org.jerkar.api.file.JkBuildCache;
+import org.jerkar.api.file.JkBuildCache.JkCacheKey;
 import org.jerkar.api.file.JkFileTree;
 import org.jerkar.api.file.JkPathFilter;
 import org.jerkar.api.system.JkLog;
 import org.jerkar.api.system.JkProcess;
+import org.jerkar.api.system.JkProfiler;
+import org.jerkar.api.utils.JkUtilsFile;
 import org.jerkar.api.utils.JkUtilsString;
 
 /**
@@ -47,6 +52,17 @@ public final class JkJavaCompiler {
     /** Stands for Java version 8 */
     public static final String V8 = "8";
 
+    // Options whose value is a path, fingerprinted by content in build cache keys
+    private static final List<String> PATH_OPTIONS = Arrays.asList("-cp", "-classpath", "-processorpath",
+            "-sourcepath", "-bootclasspath", "-extdirs");
+
+    // Compilation only depends on the ABI of these entries, not on their whole content
+    private static final List<String> ABI_PATH_OPTIONS = Arrays.asList("-cp", "-classpath");
+
+    private static final String FINGERPRINT_SUFFIX = ".fingerprint";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
     /** Filter to retain only source files */
     public static final JkPathFilter JAVA_SOURCE_ONLY_FILTER = JkPathFilter.include("**/*.java");
 
@@ -82,17 +98,17 @@ public final class JkJavaCompiler {
 
     private String versionCache;
 
-    private final JavaCompiler compiler;
+    private final JkJavaCompilerSession session;
 
     private JkJavaCompiler(List<String> options, List<File> javaSourceFiles, boolean failOnError,
-            JkProcess fork, String versionCache, JavaCompiler compiler) {
+            JkProcess fork, String versionCache, JkJavaCompilerSession session) {
         super();
         this.options = options;
         this.javaSourceFiles = javaSourceFiles;
         this.failOnError = failOnError;
         this.fork = fork;
         this.versionCache = versionCache;
-        this.compiler = compiler;
+        this.session = session;
     }
 
     /**
@@ -101,7 +117,7 @@ public final class JkJavaCompiler {
      * a compilation error will throw a {@link IllegalStateException}.
      */
     public JkJavaCompiler failOnError(boolean fail) {
-        return new JkJavaCompiler(options, javaSourceFiles, fail, fork, versionCache, compiler);
+        return new JkJavaCompiler(options, javaSourceFiles, fail, fork, versionCache, session);
     }
 
     /**
@@ -116,7 +132,7 @@ public final class JkJavaCompiler {
     public JkJavaCompiler andOptions(String... options) {
         final List<String> newOptions = new LinkedList<String>(this.options);
         newOptions.addAll(Arrays.asList(options));
-        return new JkJavaCompiler(newOptions, javaSourceFiles, failOnError, fork, versionCache, compiler);
+        return new JkJavaCompiler(newOptions, javaSourceFiles, failOnError, fork, versionCache, session);
     }
 
     /**
@@ -128,7 +144,7 @@ public final class JkJavaCompiler {
     public JkJavaCompiler withOptions(String... options) {
         final List<String> newOptions = new LinkedList<String>(this.options);
         newOptions.addAll(Arrays.asList(options));
-        return new JkJavaCompiler(newOptions, javaSourceFiles, failOnError, fork, versionCache, compiler);
+        return new JkJavaCompiler(newOptions, javaSourceFiles, failOnError, fork, versionCache, session);
     }
 
     /**
@@ -148,7 +164,7 @@ public final class JkJavaCompiler {
         newOptions.add("-d");
         newOptions.add(outputDir.getAbsolutePath());
         return new JkJavaCompiler(newOptions, new ArrayList<File>(this.javaSourceFiles), failOnError,
-                fork, versionCache, compiler);
+                fork, versionCache, session);
     }
 
     private File getOutputDir() {
@@ -243,7 +259,7 @@ public final class JkJavaCompiler {
      */
     public JkJavaCompiler fork(String... parameters) {
         return new JkJavaCompiler(new LinkedList<String>(options), javaSourceFiles, failOnError,
-                JkProcess.ofJavaTool("javac", parameters), versionCache, compiler);
+                JkProcess.ofJavaTool("javac", parameters), versionCache, session);
     }
 
     /**
@@ -253,10 +269,10 @@ public final class JkJavaCompiler {
     public JkJavaCompiler fork(boolean fork, String... parameters) {
         if (fork) {
             return new JkJavaCompiler(new LinkedList<String>(options), javaSourceFiles,
-                    failOnError, JkProcess.ofJavaTool("javac", parameters), versionCache, compiler);
+                    failOnError, JkProcess.ofJavaTool("javac", parameters), versionCache, session);
         } else {
             return new JkJavaCompiler(new LinkedList<String>(options), javaSourceFiles,
-                    failOnError, null, versionCache, compiler);
+                    failOnError, null, versionCache, session);
         }
 
     }
@@ -271,7 +287,7 @@ public final class JkJavaCompiler {
      */
     public JkJavaCompiler forkOnCompiler(String executable, String... parameters) {
         return new JkJavaCompiler(new LinkedList<String>(options), javaSourceFiles, failOnError,
-                JkProcess.of(executable, parameters), versionCache, compiler);
+                JkProcess.of(executable, parameters), versionCache, session);
     }
 
     /**
@@ -285,7 +301,34 @@ public final class JkJavaCompiler {
                 newSources.add(file);
             }
         }
-        return new JkJavaCompiler(options, newSources, failOnError, fork, versionCache, compiler);
+        return new JkJavaCompiler(options, newSources, failOnError, fork, versionCache, session);
+    }
+
+    /**
+     * Creates a copy of this {@link JkJavaCompiler} compiling only the specified source files. The
+     * output directory is added in head of the classpath so these sources can refer to the classes
+     * previously compiled from the other sources.
+     */
+    public JkJavaCompiler recompiling(Iterable<File> files) {
+        final List<String> newOptions = new LinkedList<String>(this.options);
+        final String outputDir = getOutputDir().getAbsolutePath();
+        int index = newOptions.indexOf("-cp");
+        if (index < 0) {
+            index = newOptions.indexOf("-classpath");
+        }
+        if (index >= 0 && index + 1 < newOptions.size()) {
+            newOptions.set(index + 1, outputDir + File.pathSeparator + newOptions.get(index + 1));
+        } else {
+            newOptions.add("-cp");
+            newOptions.add(outputDir);
+        }
+        final List<File> newSources = new LinkedList<File>();
+        for (final File file : files) {
+            if (file.getName().toLowerCase().endsWith(".java")) {
+                newSources.add(file);
+            }
+        }
+        return new JkJavaCompiler(newOptions, newSources, failOnError, fork, versionCache, session);
     }
 
     /**
@@ -301,12 +344,28 @@ public final class JkJavaCompiler {
      * previous fork options that may have been set.
      */
     public JkJavaCompiler withCompiler(JavaCompiler compiler) {
+        return withSession(JkJavaCompilerSession.of(compiler));
+    }
+
+    /**
+     * Creates a copy of this {@link JkJavaCompiler} but compiling within the specified session, so the
+     * jars opened for a compilation are reused by the next ones of the session. When no session is
+     * specified, the {@link JkJavaCompilerSession#shared()} one is used. This method disables any
+     * previous fork options that may have been set.
+     */
+    public JkJavaCompiler withSession(JkJavaCompilerSession session) {
         // turn off forking
-        return new JkJavaCompiler(options, javaSourceFiles, failOnError, null, versionCache, compiler);
+        return new JkJavaCompiler(options, javaSourceFiles, failOnError, null, versionCache, session);
     }
 
     /**
      * Actually compile the source files to the output directory.
+     * <p>
+     * Compilation is skipped when the sources, options and classpath ABI are the same as for the
+     * previous compilation in the output directory, and its class files have not been deleted or
+     * modified since. The fingerprint of the previous compilation is stored next to the output
+     * directory : a build cleaning the output directory and its parent always recompiles, unless
+     * the build cache can restore the outputs.
      *
      * @return <code>false</code> if a compilation error occurred.
      *
@@ -316,30 +375,46 @@ public final class JkJavaCompiler {
     @SuppressWarnings("unchecked")
     public boolean compile() {
         this.getOutputDir().mkdirs();
-        final JavaCompiler compiler = this.compiler != null ? this.compiler : getDefaultOrFail();
-        final StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null,
-                null);
+        final JkJavaCompilerSession session = session();
         String message = "Compiling " + javaSourceFiles.size() + " source files";
         if (JkLog.verbose()) {
             message = message + " using options : " + JkUtilsString
                     .join(options, " ");
         }
         JkLog.startln(message);
+        JkProfiler.count("source files", javaSourceFiles.size());
         if (javaSourceFiles.isEmpty()) {
             JkLog.warn("No source to compile");
             JkLog.done();
             return true;
         }
+        final JkBuildCache cache = JkBuildCache.active();
+        final JkCacheKey cacheKey = cacheKey(session.compiler());
+        final File fingerprintFile = new File(getOutputDir().getPath() + FINGERPRINT_SUFFIX);
+        if (isUpToDate(fingerprintFile, cacheKey.hash())) {
+            JkLog.done("Sources and classpath ABI unchanged since last compilation, skip");
+            return true;
+        }
+        JkUtilsFile.deleteIfExist(fingerprintFile);
+        if (cache != null && cache.restore(cacheKey, getOutputDir())) {
+            writeFingerprint(fingerprintFile, cacheKey.hash());
+            JkLog.done("Restored from build cache");
+            return true;
+        }
+        final Map<String, Long> outputSnapshot = cache == null ? null : JkBuildCache.snapshot(getOutputDir());
         final boolean result;
         if (this.fork == null) {
-            final Iterable<? extends JavaFileObject> javaFileObjects = fileManager
-                    .getJavaFileObjectsFromFiles(this.javaSourceFiles);
-            final CompilationTask task = compiler.getTask(new PrintWriter(JkLog.warnStream()),
-                    null, new JkDiagnosticListener(), options, null, javaFileObjects);
-            result = task.call();
+            result = session.compile(options, javaSourceFiles, new PrintWriter(JkLog.warnStream()),
+                    new JkDiagnosticListener());
         } else {
             result = runOnFork();
         }
+        if (result && cache != null) {
+            cache.store(cacheKey, getOutputDir(), JkBuildCache.changedFiles(getOutputDir(), outputSnapshot));
+        }
+        if (result) {
+            writeFingerprint(fingerprintFile, cacheKey.hash());
+        }
         JkLog.done();
         if (!result) {
             if (failOnError) {
@@ -350,7 +425,111 @@ public final class JkJavaCompiler {
         return true;
     }
 
+    /**
+     * Same as {@link #compile()} but the classes are compiled in memory, without touching the output
+     * directory, and defined in a class loader child of the specified one. Neither the build cache nor
+     * the compile avoidance apply here.
+     *
+     * @return <code>null</code> if a compilation error occurred and the 'failOnError' flag is off.
+     */
+    public ClassLoader compileInMemory(ClassLoader parent) {
+        if (this.fork != null) {
+            throw new IllegalStateException("Compilation in memory can not run in a forked process.");
+        }
+        JkLog.startln("Compiling " + javaSourceFiles.size() + " source files in memory");
+        final Map<String, byte[]> classes = session().compileInMemory(options, javaSourceFiles,
+                new PrintWriter(JkLog.warnStream()), new JkDiagnosticListener());
+        JkLog.done();
+        if (classes == null) {
+            if (failOnError) {
+                throw new IllegalStateException("Compilation failed.");
+            }
+            return null;
+        }
+        return new InMemoryClassLoader(parent, classes);
+    }
+
+    private JkJavaCompilerSession session() {
+        return session != null ? session : JkJavaCompilerSession.shared();
+    }
+
+    // Compilation is avoided if the class files of the output directory have been produced from the same
+    // inputs and are unchanged since
+    private boolean isUpToDate(File fingerprintFile, String inputHash) {
+        if (!fingerprintFile.isFile()) {
+            return false;
+        }
+        final List<String> lines = JkUtilsFile.readLines(fingerprintFile);
+        if (lines.size() != 2 || !lines.get(0).equals(inputHash)) {
+            return false;
+        }
+        final String outputHash = classFilesHash();
+        return outputHash != null && lines.get(1).equals(outputHash);
+    }
+
+    private void writeFingerprint(File fingerprintFile, String inputHash) {
+        final String outputHash = classFilesHash();
+        if (outputHash != null) {
+            JkUtilsFile.writeString(fingerprintFile, inputHash + "\n" + outputHash, false);
+        }
+    }
+
+    // Hash of the path, size and modification time of the class files, or null if there is none
+    private String classFilesHash() {
+        final JkFileTree tree = JkFileTree.of(getOutputDir()).include("**/*.class");
+        final Map<String, String> stamps = new TreeMap<String, String>();
+        for (final File file : tree) {
+            stamps.put(tree.relativePath(file).replace(File.separatorChar, '/'),
+                    file.length() + ":" + file.lastModified());
+        }
+        if (stamps.isEmpty()) {
+            return null;
+        }
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        for (final Map.Entry<String, String> entry : stamps.entrySet()) {
+            digest.update((entry.getKey() + '=' + entry.getValue() + '\n').getBytes(UTF8));
+        }
+        return JkUtilsString.toHexString(digest.digest()).toLowerCase();
+    }
+
+    // The output directory is not part of the key so the same output can be restored anywhere
+    private JkCacheKey cacheKey(JavaCompiler compiler) {
+        final JkCacheKey key = JkBuildCache.key("javac").andJdk()
+                .and("compiler", fork != null ? "fork " + fork : compiler.getClass().getName());
+        for (int i = 0; i < options.size(); i++) {
+            final String option = options.get(i);
+            if ("-d".equals(option)) {
+                i++;
+            } else if (PATH_OPTIONS.contains(option) && i + 1 < options.size()) {
+                final List<File> entries = new LinkedList<File>();
+                for (final String path : JkUtilsString.split(options.get(++i), File.pathSeparator)) {
+                    entries.add(new File(path));
+                }
+                if (ABI_PATH_OPTIONS.contains(option)) {
+                    for (final File entry : entries) {
+                        key.and(option, JkAbiFingerprint.of(entry));
+                    }
+                } else {
+                    key.andClasspath(option, entries);
+                }
+            } else {
+                key.and("option", option);
+            }
+        }
+        return key.andFiles("source", javaSourceFiles);
+    }
+
     private boolean runOnFork() {
+        final File serverBinDir = compileServerBinDir();
+        if (serverBinDir != null) {
+            return JkJavacServer.of(serverBinDir).compile(options, javaSourceFiles,
+                    new PrintWriter(JkLog.warnStream()), new JkDiagnosticListener());
+        }
         final List<String> sourcePaths = new LinkedList<String>();
         for (final File file : javaSourceFiles) {
             sourcePaths.add(file.getAbsolutePath());
@@ -360,12 +539,18 @@ public final class JkJavaCompiler {
         return (result == 0);
     }
 
-    private static JavaCompiler getDefaultOrFail() {
-        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-        if (compiler == null) {
-            throw new IllegalStateException("This platform does not provide compiler. Try another JDK or use JkJavaCompiler.andCompiler(JavaCompiler)");
+    // Only plain javac of a JDK can be replaced by a compile server
+    private File compileServerBinDir() {
+        if (!JkJavacServer.active() || !fork.parameters().isEmpty() || fork.workingDir() != null) {
+            return null;
         }
-        return compiler;
+        final File javac = new File(fork.command());
+        final String name = javac.getName();
+        if (!name.equals("javac") && !name.equals("javac.exe")) {
+            return null;
+        }
+        final File binDir = javac.getAbsoluteFile().getParentFile();
+        return JkJavacServer.isSupported(binDir) ? binDir : null;
     }
 
     static String currentJdkSourceVersion() {
@@ -423,17 +608,37 @@ public final class JkJavaCompiler {
         JkLog.info("Current JDK does not match with source version (" + versionCache + "). Will use JDK "
                 + path);
         final JkProcess process = JkProcess.of(cmd);
-        return new JkJavaCompiler(options, javaSourceFiles, failOnError, process, versionCache, compiler);
+        return new JkJavaCompiler(options, javaSourceFiles, failOnError, process, versionCache, session);
+    }
+
+    private static final class InMemoryClassLoader extends ClassLoader {
+
+        private final Map<String, byte[]> classes;
+
+        InMemoryClassLoader(ClassLoader parent, Map<String, byte[]> classes) {
+            super(parent);
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            final byte[] bytes = classes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
     }
 
-    @SuppressWarnings("rawtypes")
-    private static class JkDiagnosticListener implements DiagnosticListener {
+    private static class JkDiagnosticListener implements DiagnosticListener<JavaFileObject> {
 
         @Override
-        public void report(Diagnostic diagnostic) {
+        public void report(Diagnostic<? extends JavaFileObject> diagnostic) {
             if (!diagnostic.getKind().equals(Diagnostic.Kind.ERROR)) {
                 JkLog.info(diagnostic.toString());
             } else {
+                JkLog.flush();
                 System.out.println(diagnostic);
             }
 
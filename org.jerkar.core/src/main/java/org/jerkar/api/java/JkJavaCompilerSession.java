@@ -0,0 +1,231 @@
+package org.jerkar.api.java;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.DiagnosticListener;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.jerkar.api.utils.JkUtilsString;
+
+/**
+ * An in-process Java compiler along with the file managers it uses. A file manager opens the jars of
+ * the classpath once and keeps them open, so successive compilations sharing jars - as production then
+ * test compilation of a same project - do not read them again.
+ * <p>
+ * A jar modified or deleted after being opened is detected at the next compilation : the file managers
+ * are then recreated. Use {@link #close()} to release the open jars.
+ * <p>
+ * Compilations run one at a time within a session.
+ *
+ * @author Jerome Angibaud
+ */
+public final class JkJavaCompilerSession {
+
+    // Options whose value is a path of jars or directories read by the file manager
+    private static final List<String> PATH_OPTIONS = Arrays.asList("-cp", "-classpath", "-processorpath",
+            "-sourcepath", "-bootclasspath");
+
+    // Locations set from options, reset before each compilation as the file manager keeps them
+    private static final StandardLocation[] LOCATIONS = new StandardLocation[] { StandardLocation.CLASS_PATH,
+        StandardLocation.SOURCE_PATH, StandardLocation.ANNOTATION_PROCESSOR_PATH, StandardLocation.CLASS_OUTPUT,
+        StandardLocation.SOURCE_OUTPUT, StandardLocation.PLATFORM_CLASS_PATH };
+
+    private static JkJavaCompilerSession shared;
+
+    /**
+     * Returns the session on the compiler of the running JDK, shared by the {@link JkJavaCompiler}s not
+     * specifying any.
+     */
+    public static synchronized JkJavaCompilerSession shared() {
+        if (shared == null) {
+            shared = new JkJavaCompilerSession(null);
+        }
+        return shared;
+    }
+
+    /**
+     * Creates a session on the specified compiler.
+     */
+    public static JkJavaCompilerSession of(JavaCompiler compiler) {
+        return new JkJavaCompilerSession(compiler);
+    }
+
+    private JavaCompiler compiler;
+
+    // File managers are created with a given encoding so there is one per encoding
+    private final Map<String, StandardJavaFileManager> fileManagers = new HashMap<String, StandardJavaFileManager>();
+
+    private final Map<File, String> openedArchiveStamps = new HashMap<File, String>();
+
+    private JkJavaCompilerSession(JavaCompiler compiler) {
+        this.compiler = compiler;
+    }
+
+    /**
+     * Returns the compiler of this session.
+     */
+    public synchronized JavaCompiler compiler() {
+        if (compiler == null) {
+            compiler = ToolProvider.getSystemJavaCompiler();
+            if (compiler == null) {
+                throw new IllegalStateException("This platform does not provide compiler. Try another JDK or use JkJavaCompiler.andCompiler(JavaCompiler)");
+            }
+        }
+        return compiler;
+    }
+
+    /**
+     * Compiles the specified source files with the specified options, the same as javac command line
+     * options. Returns <code>false</code> if a compilation error occurred.
+     */
+    public synchronized boolean compile(List<String> options, Iterable<File> sources, Writer out,
+            DiagnosticListener<? super JavaFileObject> diagnosticListener) {
+        final StandardJavaFileManager fileManager = fileManager(options);
+        return compiler().getTask(out, fileManager, diagnosticListener, options, null,
+                fileManager.getJavaFileObjectsFromFiles(sources)).call();
+    }
+
+    /**
+     * Same as {@link #compile(List, Iterable, Writer, DiagnosticListener)} but the compiled classes are
+     * kept in memory instead of being written in the output directory. Returns the bytecode of the
+     * compiled classes by class name, or <code>null</code> if a compilation error occurred.
+     */
+    public synchronized Map<String, byte[]> compileInMemory(List<String> options, Iterable<File> sources,
+            Writer out, DiagnosticListener<? super JavaFileObject> diagnosticListener) {
+        final List<String> effectiveOptions = new LinkedList<String>(options);
+        final int index = effectiveOptions.indexOf("-d");
+        if (index >= 0) {
+            effectiveOptions.remove(index);
+            effectiveOptions.remove(index);
+        }
+        final StandardJavaFileManager fileManager = fileManager(effectiveOptions);
+        final InMemoryFileManager inMemoryFileManager = new InMemoryFileManager(fileManager);
+        final boolean result = compiler().getTask(out, inMemoryFileManager, diagnosticListener, effectiveOptions,
+                null, fileManager.getJavaFileObjectsFromFiles(sources)).call();
+        if (!result) {
+            return null;
+        }
+        final Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+        for (final Map.Entry<String, ByteArrayOutputStream> entry : inMemoryFileManager.outputs.entrySet()) {
+            classes.put(entry.getKey(), entry.getValue().toByteArray());
+        }
+        return classes;
+    }
+
+    /**
+     * Closes the file managers of this session, releasing the open jars. The session can still be used
+     * afterward : file managers are then created again.
+     */
+    public synchronized void close() {
+        for (final StandardJavaFileManager fileManager : fileManagers.values()) {
+            try {
+                fileManager.close();
+            } catch (final IOException e) {
+                // Nothing to release anymore
+            }
+        }
+        fileManagers.clear();
+        openedArchiveStamps.clear();
+    }
+
+    private StandardJavaFileManager fileManager(List<String> options) {
+        final List<File> archives = archives(options);
+        for (final File archive : archives) {
+            final String stamp = openedArchiveStamps.get(archive);
+            if (stamp != null && !stamp.equals(stamp(archive))) {
+                close();
+                break;
+            }
+        }
+        for (final File archive : archives) {
+            openedArchiveStamps.put(archive, stamp(archive));
+        }
+        final int encodingIndex = options.indexOf("-encoding");
+        final String encoding = encodingIndex >= 0 && encodingIndex + 1 < options.size()
+                ? options.get(encodingIndex + 1) : "";
+        StandardJavaFileManager fileManager = fileManagers.get(encoding);
+        if (fileManager == null) {
+            final Charset charset = encoding.isEmpty() ? null : Charset.forName(encoding);
+            fileManager = compiler().getStandardFileManager(null, null, charset);
+            fileManagers.put(encoding, fileManager);
+        }
+        for (final StandardLocation location : LOCATIONS) {
+            try {
+                fileManager.setLocation(location, null);
+            } catch (final IOException e) {
+                throw new IllegalStateException("Can not reset location " + location, e);
+            }
+        }
+        return fileManager;
+    }
+
+    private static List<File> archives(List<String> options) {
+        final List<File> result = new LinkedList<File>();
+        for (int i = 0; i < options.size() - 1; i++) {
+            if (PATH_OPTIONS.contains(options.get(i))) {
+                for (final String path : JkUtilsString.split(options.get(++i), File.pathSeparator)) {
+                    final File file = new File(path);
+                    if (file.isFile()) {
+                        result.add(file);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String stamp(File file) {
+        return file.lastModified() + "#" + file.length();
+    }
+
+    private static final class InMemoryFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+
+        private final Map<String, ByteArrayOutputStream> outputs = new LinkedHashMap<String, ByteArrayOutputStream>();
+
+        InMemoryFileManager(JavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, final String className, Kind kind,
+                FileObject sibling) throws IOException {
+            if (kind != Kind.CLASS) {
+                return super.getJavaFileForOutput(location, className, kind, sibling);
+            }
+            final URI uri = URI.create("memory:///" + className.replace('.', '/') + kind.extension);
+            return new SimpleJavaFileObject(uri, kind) {
+
+                @Override
+                public OutputStream openOutputStream() {
+                    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                    outputs.put(className, outputStream);
+                    return outputStream;
+                }
+
+            };
+        }
+
+    }
+
+}
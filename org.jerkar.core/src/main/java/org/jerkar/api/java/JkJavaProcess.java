@@ -11,9 +11,9 @@ import java.util.List;
 import java.util.Map;
 
 import org.jerkar.api.system.JkLog;
+import org.jerkar.api.system.JkProcess;
+import org.jerkar.api.system.JkProcessResult;
 import org.jerkar.api.utils.JkUtilsAssert;
-import org.jerkar.api.utils.JkUtilsIO;
-import org.jerkar.api.utils.JkUtilsIO.StreamGobbler;
 import org.jerkar.api.utils.JkUtilsString;
 import org.jerkar.api.utils.JkUtilsSystem;
 
@@ -201,16 +201,6 @@ public final class JkJavaProcess {
         return withClasspath(this.classpath.and(files));
     }
 
-    private ProcessBuilder processBuilder(List<String> command, Map<String, String> env) {
-        final ProcessBuilder builder = new ProcessBuilder(command);
-        builder.redirectErrorStream(true);
-        builder.environment().putAll(env);
-        if (this.workingDir != null) {
-            builder.directory(workingDir);
-        }
-        return builder;
-    }
-
     private String runningJavaCommand() {
         return this.javaDir.getAbsolutePath() + File.separator + "java";
     }
@@ -229,50 +219,75 @@ public final class JkJavaProcess {
         runClassOrJarSync(mainClassName, null, arguments);
     }
 
+    /**
+     * Returns the process running the specified class, the class having to be on this classpath. The returned
+     * process can be started asynchronously, run concurrently with other ones or have its output captured.
+     */
+    public JkProcess processForClass(String mainClassName, String... arguments) {
+        return process(mainClassName, null, null, arguments);
+    }
+
     private void runClassOrJarSync(String mainClassName, File jar, String... arguments) {
         JkUtilsAssert.isTrue(jar != null || mainClassName != null,
                 "main class name and jar can't be both null while launching a Java process, please set at least one of them.");
+        final JkClassDataSharing classDataSharing = classDataSharing(mainClassName, jar);
+        final JkProcess process = process(mainClassName, jar, classDataSharing, arguments);
+        final String execPart = jar != null ? jar.getPath() + (mainClassName == null ? "" : " " + mainClassName)
+                : " " + mainClassName;
+        JkLog.startln("Starting java program : " + execPart);
+        final List<String> command = new LinkedList<String>();
+        command.add(process.command());
+        command.addAll(process.parameters());
+        JkLog.info(command, JkLog.verbose() ? -1 : 120);
+        final JkProcessResult result = process.start().waitFor();
+        if (result.exitCode() != 0) {
+            throw new IllegalStateException("Process terminated in error : exit value = " + result.exitCode()
+                    + ".");
+        }
+        if (classDataSharing != null) {
+            classDataSharing.afterRun();
+        }
+        JkLog.done();
+    }
+
+    private JkProcess process(String mainClassName, File jar, JkClassDataSharing classDataSharing,
+            String... arguments) {
         final List<String> command = new LinkedList<String>();
         final OptionAndEnv optionAndEnv = optionsAndEnv();
-        command.add(runningJavaCommand());
+        if (classDataSharing != null) {
+            command.addAll(classDataSharing.jvmOptions());
+        }
         command.addAll(optionAndEnv.options);
-        String execPart = "";
         if (jar != null) {
             if (!jar.exists()) {
                 throw new IllegalStateException("Executable jar " + jar.getAbsolutePath() + " not found.");
             }
             command.add("-jar");
             command.add(jar.getPath());
-            execPart = execPart + jar.getPath();
         }
         if (mainClassName != null) {
             command.add(mainClassName);
-            execPart = execPart + " " + mainClassName;
         }
-
         command.addAll(Arrays.asList(arguments));
-        JkLog.startln("Starting java program : " + execPart);
-        JkLog.info(command, JkLog.verbose() ? -1 : 120);
-        final int result;
-        try {
-            final Process process = processBuilder(command, optionAndEnv.env).start();
-
-            final StreamGobbler outputStreamGobbler = JkUtilsIO.newStreamGobbler(
-                    process.getInputStream(), JkLog.infoStream());
-            final StreamGobbler errorStreamGobbler = JkUtilsIO.newStreamGobbler(
-                    process.getErrorStream(), JkLog.warnStream());
-            process.waitFor();
-            outputStreamGobbler.stop();
-            errorStreamGobbler.stop();
-            result = process.exitValue();
-        } catch (final Exception e) {
-            throw new RuntimeException(e);
+        JkProcess result = JkProcess.of(runningJavaCommand(), command.toArray(new String[0]))
+                .withWorkingDir(workingDir);
+        final Map<String, String> env = new HashMap<String, String>(environment);
+        env.putAll(optionAndEnv.env);
+        for (final Map.Entry<String, String> entry : env.entrySet()) {
+            result = result.andEnv(entry.getKey(), entry.getValue());
         }
-        if (result != 0) {
-            throw new IllegalStateException("Process terminated in error : exit value = " + result
-                    + ".");
+        return result;
+    }
+
+    // Returns null if class data sharing is not active or not supported by the launched JVM
+    private JkClassDataSharing classDataSharing(String mainClassName, File jar) {
+        if (!JkClassDataSharing.active() || !JkClassDataSharing.isSupported(javaDir)) {
+            return null;
         }
-        JkLog.done();
+        if (jar != null) {
+            return JkClassDataSharing.of(jar.getName(), javaDir, JkClasspath.of(jar));
+        }
+        return JkClassDataSharing.of(mainClassName, javaDir, classpath);
     }
 
     private OptionAndEnv optionsAndEnv() {
@@ -0,0 +1,366 @@
+package org.jerkar.api.java;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaFileObject;
+
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsIO;
+import org.jerkar.api.utils.JkUtilsIO.StreamGobbler;
+import org.jerkar.api.utils.JkUtilsString;
+import org.jerkar.api.utils.JkUtilsSystem;
+
+/**
+ * A long-lived JVM compiling sources with the compiler of a given JDK. Compiling for a JDK other than
+ * the running one normally spawns a new javac process per compilation, paying each time for the JVM
+ * startup and a cold compiler. A server is started on first use, then reused by all the compilations
+ * targeting the same JDK until {@link #shutdownAll()} is invoked or Jerkar exits.
+ * <p>
+ * {@link JkJavaCompiler} compiles through servers instead of forking javac when servers have been
+ * activated through {@link #activate(boolean)}.
+ *
+ * @author Jerome Angibaud
+ */
+public final class JkJavacServer {
+
+    private static final Map<File, JkJavacServer> SERVERS = new HashMap<File, JkJavacServer>();
+
+    private static volatile boolean active;
+
+    private static boolean shutdownHookRegistered;
+
+    /**
+     * Activates or disactivates the use of compile servers for the forked compilations started from now.
+     */
+    public static void activate(boolean activate) {
+        active = activate;
+    }
+
+    /**
+     * Returns <code>true</code> if compile servers have been activated.
+     */
+    public static boolean active() {
+        return active;
+    }
+
+    /**
+     * Returns the server compiling with the javac executable located in the specified directory. The
+     * server process is started at the first compilation.
+     */
+    public static synchronized JkJavacServer of(File javaBinDir) {
+        JkJavacServer server = SERVERS.get(javaBinDir);
+        if (server == null) {
+            server = new JkJavacServer(javaBinDir);
+            SERVERS.put(javaBinDir, server);
+        }
+        if (!shutdownHookRegistered) {
+            Runtime.getRuntime().addShutdownHook(new Thread("javac-server-shutdown") {
+
+                @Override
+                public void run() {
+                    shutdownAll();
+                }
+
+            });
+            shutdownHookRegistered = true;
+        }
+        return server;
+    }
+
+    /**
+     * Returns <code>true</code> if a server can run on the java executable located in the specified
+     * directory.
+     */
+    public static boolean isSupported(File javaBinDir) {
+        return javaExecutable(javaBinDir).exists();
+    }
+
+    /**
+     * Stops all the running servers.
+     */
+    public static synchronized void shutdownAll() {
+        for (final JkJavacServer server : SERVERS.values()) {
+            server.stop();
+        }
+        SERVERS.clear();
+    }
+
+    private final File javaBinDir;
+
+    private Process process;
+
+    private OutputStream processInput;
+
+    private StreamGobbler outputGobbler;
+
+    private StreamGobbler errorGobbler;
+
+    private int port;
+
+    private String token;
+
+    private JkJavacServer(File javaBinDir) {
+        this.javaBinDir = javaBinDir;
+    }
+
+    /**
+     * Compiles the specified source files with the specified options, the same as javac command line
+     * options. Compiler messages are written in the specified writer and diagnostics are reported to the
+     * specified listener, as for an in-process compilation. Returns <code>false</code> if a compilation
+     * error occurred.
+     *
+     * @throws IllegalStateException if the server can not be started or reached.
+     */
+    public boolean compile(List<String> options, Iterable<File> sources, Writer out,
+            DiagnosticListener<? super JavaFileObject> diagnosticListener) {
+        final List<String> sourcePaths = new LinkedList<String>();
+        for (final File source : sources) {
+            sourcePaths.add(source.getAbsolutePath());
+        }
+        final int serverPort;
+        final String serverToken;
+        synchronized (this) {
+            ensureStarted();
+            serverPort = port;
+            serverToken = token;
+        }
+        Socket socket = null;
+        try {
+            socket = new Socket("127.0.0.1", serverPort);
+            final DataOutputStream request = new DataOutputStream(new BufferedOutputStream(
+                    socket.getOutputStream()));
+            JavacServerMain.writeString(request, serverToken);
+            JavacServerMain.writeStrings(request, options);
+            JavacServerMain.writeStrings(request, sourcePaths);
+            request.flush();
+            final DataInputStream response = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            while (true) {
+                final int type = response.readByte();
+                if (type == JavacServerMain.OUTPUT) {
+                    out.write(JavacServerMain.readString(response));
+                    out.flush();
+                } else if (type == JavacServerMain.DIAGNOSTIC) {
+                    diagnosticListener.report(new RemoteDiagnostic(response));
+                } else if (type == JavacServerMain.RESULT) {
+                    return response.readBoolean();
+                } else {
+                    throw new IOException("Unexpected message type " + type);
+                }
+            }
+        } catch (final IOException e) {
+            synchronized (this) {
+                stop();
+            }
+            throw new IllegalStateException("Compile server " + javaBinDir.getPath() + " failed : " + e.getMessage(),
+                    e);
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+
+    private void ensureStarted() {
+        if (process != null) {
+            try {
+                process.exitValue();
+                JkLog.warn("Compile server " + javaBinDir.getPath() + " has stopped, restarting it.");
+                stop();
+            } catch (final IllegalThreadStateException e) {
+                return;
+            }
+        }
+        JkLog.startln("Starting compile server on " + javaBinDir.getPath());
+        final List<String> command = new LinkedList<String>();
+        command.add(javaExecutable(javaBinDir).getAbsolutePath());
+        command.add("-cp");
+        command.add(serverClasspath().getAbsolutePath());
+        command.add(JavacServerMain.class.getName());
+        try {
+            process = new ProcessBuilder(command).start();
+            token = newToken();
+            processInput = process.getOutputStream();
+            processInput.write((token + "\n").getBytes("UTF-8"));
+            processInput.flush();
+            final String line = readLine(process.getInputStream());
+            if (!line.trim().matches("\\d+")) {
+                throw new IOException("Unexpected server answer : " + line);
+            }
+            port = Integer.parseInt(line.trim());
+            outputGobbler = JkUtilsIO.newStreamGobbler(process.getInputStream(), JkLog.infoStream());
+            errorGobbler = JkUtilsIO.newStreamGobbler(process.getErrorStream(), JkLog.warnStream());
+        } catch (final IOException e) {
+            stop();
+            JkLog.done();
+            throw new IllegalStateException("Can not start compile server with " + command.get(0) + " : "
+                    + e.getMessage(), e);
+        }
+        JkLog.done();
+    }
+
+    private void stop() {
+        if (process == null) {
+            return;
+        }
+
+        // Closing its input makes the server exit by itself
+        JkUtilsIO.closeQuietly(processInput);
+        try {
+            process.waitFor();
+        } catch (final InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+        }
+        if (outputGobbler != null) {
+            outputGobbler.stop();
+            errorGobbler.stop();
+        }
+        process = null;
+        processInput = null;
+        outputGobbler = null;
+        errorGobbler = null;
+    }
+
+    // Reads without buffering so the following output is left to the gobbler
+    private static String readLine(InputStream inputStream) throws IOException {
+        final StringBuilder result = new StringBuilder();
+        int c = inputStream.read();
+        while (c != -1 && c != '\n') {
+            result.append((char) c);
+            c = inputStream.read();
+        }
+        return result.toString();
+    }
+
+    // Socket is not Closeable on Java 6
+    private static void closeQuietly(Socket socket) {
+        if (socket == null) {
+            return;
+        }
+        try {
+            socket.close();
+        } catch (final IOException e) {
+            // Nothing to do
+        }
+    }
+
+    private static File javaExecutable(File javaBinDir) {
+        return new File(javaBinDir, JkUtilsSystem.IS_WINDOWS ? "java.exe" : "java");
+    }
+
+    // The server only needs its own class, which is in the Jerkar jar or class directory
+    private static File serverClasspath() {
+        try {
+            return new File(JavacServerMain.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (final URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String newToken() {
+        final byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        return JkUtilsString.toHexString(bytes);
+    }
+
+    @Override
+    public String toString() {
+        return "Compile server on " + javaBinDir.getPath() + (process == null ? " (stopped)" : " (port " + port + ")");
+    }
+
+    private static final class RemoteDiagnostic implements Diagnostic<JavaFileObject> {
+
+        private final Kind kind;
+
+        private final String source;
+
+        private final long line;
+
+        private final long column;
+
+        private final String code;
+
+        private final String message;
+
+        private final String text;
+
+        RemoteDiagnostic(DataInputStream in) throws IOException {
+            this.kind = Kind.valueOf(JavacServerMain.readString(in));
+            this.source = JavacServerMain.readString(in);
+            this.line = in.readLong();
+            this.column = in.readLong();
+            this.code = JavacServerMain.readString(in);
+            this.message = JavacServerMain.readString(in);
+            this.text = JavacServerMain.readString(in);
+        }
+
+        @Override
+        public Kind getKind() {
+            return kind;
+        }
+
+        // The source file object only lives in the server
+        @Override
+        public JavaFileObject getSource() {
+            return null;
+        }
+
+        @Override
+        public long getPosition() {
+            return NOPOS;
+        }
+
+        @Override
+        public long getStartPosition() {
+            return NOPOS;
+        }
+
+        @Override
+        public long getEndPosition() {
+            return NOPOS;
+        }
+
+        @Override
+        public long getLineNumber() {
+            return line;
+        }
+
+        @Override
+        public long getColumnNumber() {
+            return column;
+        }
+
+        @Override
+        public String getCode() {
+            return code;
+        }
+
+        @Override
+        public String getMessage(Locale locale) {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return text.isEmpty() ? source + ":" + line + ": " + message : text;
+        }
+
+    }
+
+}
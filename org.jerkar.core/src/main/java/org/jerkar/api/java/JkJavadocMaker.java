@@ -8,6 +8,8 @@ import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.jerkar.api.file.JkBuildCache;
+import org.jerkar.api.file.JkBuildCache.JkCacheKey;
 import org.jerkar.api.file.JkFileTree;
 import org.jerkar.api.file.JkFileTreeSet;
 import org.jerkar.api.file.JkPath;
@@ -89,6 +91,15 @@ public final class JkJavadocMaker {
      */
     public void process() {
         JkLog.startln("Generating javadoc");
+        final JkBuildCache cache = JkBuildCache.active();
+        final JkCacheKey cacheKey = cache == null ? null : cacheKey();
+        if (cache != null && cache.restore(cacheKey, outputDir)) {
+            if (zipFile != null) {
+                JkFileTree.of(outputDir).zip().to(zipFile);
+            }
+            JkLog.done("Restored from build cache");
+            return;
+        }
         final String[] args = toArguments(outputDir);
         final PrintStream warn;
         final PrintStream error;
@@ -100,12 +111,25 @@ public final class JkJavadocMaker {
             error = JkUtilsIO.nopPrintStream();
         }
         execute(doclet, JkLog.infoStream(), warn, error, args);
+        if (outputDir.exists() && cache != null) {
+            cache.store(cacheKey, outputDir);
+        }
         if (outputDir.exists() && zipFile != null) {
             JkFileTree.of(outputDir).zip().to(zipFile);
         }
         JkLog.done();
     }
 
+    private JkCacheKey cacheKey() {
+        final JkCacheKey key = JkBuildCache.key("javadoc").andJdk()
+                .and("doclet", doclet == null ? null : doclet.getName()).and("args", extraArgs)
+                .andTrees("source", srcDirs);
+        if (classpath != null) {
+            key.andClasspath("classpath", classpath);
+        }
+        return key;
+    }
+
     private String[] toArguments(File outputDir) {
         final List<String> list = new LinkedList<String>();
         list.add("-sourcepath");
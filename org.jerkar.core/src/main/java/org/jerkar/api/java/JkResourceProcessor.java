@@ -4,16 +4,20 @@ import java.io.File;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.jerkar.api.file.JkBuildCache;
+import org.jerkar.api.file.JkBuildCache.JkCacheKey;
 import org.jerkar.api.file.JkFileTree;
 import org.jerkar.api.file.JkFileTreeSet;
 import org.jerkar.api.file.JkPathFilter;
 import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsConcurrent;
 import org.jerkar.api.utils.JkUtilsFile;
 import org.jerkar.api.utils.JkUtilsIterable;
 
@@ -24,6 +28,8 @@ import org.jerkar.api.utils.JkUtilsIterable;
  * values.<br/>
  * The processor is constructed using a list of <code>JkDirSets</code> and for
  * each of them, we can associate a map of token to replace.<br/>
+ * Files are processed in parallel. Files without token to replace are copied as is and target files
+ * already having the expected content are left untouched, so their timestamp does not change.
  * 
  * @author Jerome Angibaud
  */
@@ -62,21 +68,90 @@ public final class JkResourceProcessor {
      */
     public void generateTo(File outputDir) {
         JkLog.startln("Coping resource files to " + outputDir.getPath());
-        final Set<File> files = new HashSet<File>();
+        final JkBuildCache cache = JkBuildCache.active();
+        final JkCacheKey cacheKey = cache == null ? null : cacheKey();
+        if (cache != null && cache.restore(cacheKey, outputDir)) {
+            JkLog.done("Restored from build cache");
+            return;
+        }
+
+        // When several trees contain the same path, the last one wins
+        final Map<String, Runnable> tasks = new LinkedHashMap<String, Runnable>();
+        final AtomicInteger written = new AtomicInteger();
         for (final JkFileTree resourceTree : this.resourceTrees.fileTrees()) {
             if (!resourceTree.root().exists()) {
                 continue;
             }
             for (final File file : resourceTree) {
+                final String relativePath = resourceTree.relativePath(file);
+                tasks.put(relativePath, processTask(file, new File(outputDir, relativePath), relativePath, written));
+            }
+        }
+        JkUtilsConcurrent.runAll("resources", new LinkedList<Runnable>(tasks.values()),
+                JkUtilsConcurrent.defaultParallelism());
+        if (cache != null) {
+            cache.store(cacheKey, outputDir, tasks.keySet());
+        }
+        JkLog.done(tasks.size() + " file(s) processed, " + (tasks.size() - written.get()) + " already up to date.");
+    }
+
+    // Task copying the specified file, replacing tokens, unless the target file is already up to date
+    private Runnable processTask(final File file, final File out, final String relativePath,
+            final AtomicInteger written) {
+        return new Runnable() {
+
+            @Override
+            public void run() {
+                final Map<String, String> data = JkInterpolator.interpolateData(relativePath, interpolators);
+                if (JkUtilsFile.copyFileReplacingTokensIfChanged(file, out, data, JkLog.infoStreamIfVerbose())) {
+                    written.incrementAndGet();
+                }
+            }
+
+        };
+    }
+
+    /**
+     * Same as {@link #generateTo(File)} but only processes the resources among the specified files,
+     * the other ones being considered as up to date in the output directory. Resources that have been
+     * deleted are removed from the output directory.
+     */
+    public void generateTo(File outputDir, Collection<File> changedFiles) {
+        final Map<String, Runnable> tasks = new LinkedHashMap<String, Runnable>();
+        final AtomicInteger written = new AtomicInteger();
+        for (final JkFileTree resourceTree : this.resourceTrees.fileTrees()) {
+            for (final File file : changedFiles) {
+                if (!resourceTree.contains(file)) {
+                    continue;
+                }
                 final String relativePath = resourceTree.relativePath(file);
                 final File out = new File(outputDir, relativePath);
-                final Map<String, String> data = JkInterpolator.interpolateData(relativePath,
-                        interpolators);
-                JkUtilsFile.copyFileReplacingTokens(file, out, data, JkLog.infoStreamIfVerbose());
-                files.add(JkUtilsFile.canonicalFile(file));
+                if (file.isFile()) {
+                    tasks.put(relativePath, processTask(file, out, relativePath, written));
+                } else {
+                    JkUtilsFile.deleteIfExist(out);
+                }
+            }
+        }
+        JkUtilsConcurrent.runAll("resources", new LinkedList<Runnable>(tasks.values()),
+                JkUtilsConcurrent.defaultParallelism());
+        JkLog.info(tasks.size() + " changed resource file(s) processed to " + outputDir.getPath());
+    }
+
+    private JkCacheKey cacheKey() {
+        final JkCacheKey key = JkBuildCache.key("resources").andTrees("resource", resourceTrees);
+        for (final JkFileTree resourceTree : this.resourceTrees.fileTrees()) {
+            if (!resourceTree.root().exists()) {
+                continue;
+            }
+            for (final String relativePath : resourceTree.relativePathes()) {
+                final Map<String, String> data = JkInterpolator.interpolateData(relativePath, interpolators);
+                if (!data.isEmpty()) {
+                    key.and(relativePath, new TreeMap<String, String>(data));
+                }
             }
         }
-        JkLog.done(files.size() + " file(s) copied.");
+        return key;
     }
 
     /**
@@ -7,6 +7,7 @@ import org.jerkar.api.java.JkJavaCompiler;
 import org.jerkar.api.java.JkJavadocMaker;
 import org.jerkar.api.java.JkResourceProcessor;
 import org.jerkar.api.java.junit.JkUnit;
+import org.jerkar.api.system.JkTaskGraph;
 import org.jerkar.api.utils.JkUtilsFile;
 
 import java.io.File;
@@ -42,6 +43,8 @@ public class JkJavaProject  {
 
     private JkJavadocMaker javadocMaker;
 
+    private int lifecycleThreads = 1;
+
     private JkJavaProject(JkJavaProjectStructure structure) {
         this.structure = structure;
         this.javaDeps = JkJavaProjectDepResolver.of();
@@ -57,6 +60,15 @@ public class JkJavaProject  {
         return this;
     }
 
+    /**
+     * Sets the max number of threads running concurrently the independent steps of #doPack. 1, the
+     * default, runs the steps in sequence.
+     */
+    public JkJavaProject setLifecycleThreads(int lifecycleThreads) {
+        this.lifecycleThreads = lifecycleThreads;
+        return this;
+    }
+
 
     // ---------------------------- views -------------------------
 
@@ -68,6 +80,10 @@ public class JkJavaProject  {
         return javaDeps;
     }
 
+    public int lifecycleThreads() {
+        return lifecycleThreads;
+    }
+
     public String artifactName() {
         if (explicitArtifactName != null) {
             return explicitArtifactName;
@@ -186,10 +202,26 @@ public class JkJavaProject  {
     }
 
 
+    /**
+     * Cleans, compiles, tests and packs. The sources jar is produced while compiling and testing.
+     */
     public void doPack() {
         clean();
-        compile();
-        test();
-        pack();
+        final JkTaskGraph lifecycle = JkTaskGraph.of("lifecycle").and("compile", new Runnable() {
+
+            @Override
+            public void run() {
+                compile();
+            }
+
+        }).and("test", new Runnable() {
+
+            @Override
+            public void run() {
+                test();
+            }
+
+        }, "compile");
+        packager.addTasksTo(lifecycle, "test").run(lifecycleThreads);
     }
 }
@@ -3,8 +3,10 @@ package org.jerkar.api.java.build;
 import org.jerkar.api.crypto.pgp.JkPgp;
 import org.jerkar.api.file.JkFileTreeSet;
 import org.jerkar.api.file.JkPathFilter;
+import org.jerkar.api.java.JkAbiFingerprint;
 import org.jerkar.api.java.JkManifest;
 import org.jerkar.api.system.JkLog;
+import org.jerkar.api.system.JkTaskGraph;
 import org.jerkar.api.utils.JkUtilsFile;
 import org.jerkar.api.utils.JkUtilsString;
 import org.jerkar.tool.builtins.javabuild.JkJavaBuild;
@@ -121,42 +123,89 @@ public class JkJavaProjectPackager implements Cloneable {
      * Produces all the artifact files.
      */
     public void pack() {
-        if (manifest != null && !manifest.isEmpty()) {
-            manifest.writeToStandardLocation(project.structure().classDir());
-        }
-        if (doJar && !JkUtilsFile.isEmpty(project.structure().classDir(), false)) {
-            JkFileTreeSet.of(project.structure().classDir()).and(extraFilesInJar)
-                    .zip().to(jarFile())
-                    .md5If(checkSums.contains("MD5"))
-                    .sha1If(checkSums.contains("SHA-1"));
-        }
-        final JkFileTreeSet sourceAndResources = project.structure().sources().and(project.structure().resources());
-        if (doSources && sourceAndResources.countFiles(false) > 0) {
-            project.structure().sources().and(project.structure().resources()).and(extraFilesInJar).zip().to(jarSourceFile());
-        }
-        if (doTest) {
-            JkFileTreeSet.of(project.structure().testClassDir()).and(extraFilesInJar).zip().to(jarTestFile());
-        }
-        if (doTest && doSources && !project.structure().testSources().files(false).isEmpty()) {
-            project.structure().testSources().and(project.structure().testResources()).and(extraFilesInJar).zip().to(jarTestSourceFile());
-        }
-        if (doFatJar) {
-            JkFileTreeSet.of(project.structure().classDir()).and(extraFilesInJar)
-                    .zip().merge(project.depResolver().resolver().get(JkJavaBuild.RUNTIME))
-                    .to(fatJarFile(), fatJarEntryFilter).md5If(checkSums.contains("MD5"))
-                    .sha1If(checkSums.contains("SHA-1"));
-        }
-        if (pgp != null) {
-            pgp.sign(jarFile(), jarSourceFile(), jarTestFile(), jarTestSourceFile(), fatJarFile(),
-                    javadocFile());
-            JkLog.done();
-        }
+        addTasksTo(JkTaskGraph.of("pack")).run(project.lifecycleThreads());
+    }
+
+    /**
+     * Adds the steps producing the artifact files to the specified graph. Steps producing binaries
+     * start once the specified tasks are done.
+     */
+    JkTaskGraph addTasksTo(JkTaskGraph graph, String... tested) {
+        return graph.and("sources-jar", new Runnable() {
+
+            @Override
+            public void run() {
+                final JkFileTreeSet sourceAndResources = project.structure().sources().and(project.structure().resources());
+                if (doSources && sourceAndResources.countFiles(false) > 0) {
+                    project.structure().sources().and(project.structure().resources()).and(extraFilesInJar).zip().to(jarSourceFile());
+                }
+            }
+
+        }).and("manifest", new Runnable() {
+
+            @Override
+            public void run() {
+                if (manifest != null && !manifest.isEmpty()) {
+                    manifest.writeToStandardLocation(project.structure().classDir());
+                }
+            }
+
+        }, tested).and("jar", new Runnable() {
+
+            @Override
+            public void run() {
+                if (doJar && !JkUtilsFile.isEmpty(project.structure().classDir(), false)) {
+                    JkFileTreeSet.of(project.structure().classDir()).and(extraFilesInJar)
+                            .zip().to(jarFile())
+                            .md5If(checkSums.contains("MD5"))
+                            .sha1If(checkSums.contains("SHA-1"));
+                    JkAbiFingerprint.writeNextTo(jarFile());
+                }
+            }
+
+        }, "manifest").and("test-jars", new Runnable() {
+
+            @Override
+            public void run() {
+                if (doTest) {
+                    JkFileTreeSet.of(project.structure().testClassDir()).and(extraFilesInJar).zip().to(jarTestFile());
+                }
+                if (doTest && doSources && !project.structure().testSources().files(false).isEmpty()) {
+                    project.structure().testSources().and(project.structure().testResources()).and(extraFilesInJar).zip().to(jarTestSourceFile());
+                }
+            }
+
+        }, tested).and("fat-jar", new Runnable() {
+
+            @Override
+            public void run() {
+                if (doFatJar) {
+                    JkFileTreeSet.of(project.structure().classDir()).and(extraFilesInJar)
+                            .zip().merge(project.depResolver().resolver().get(JkJavaBuild.RUNTIME))
+                            .to(fatJarFile(), fatJarEntryFilter).md5If(checkSums.contains("MD5"))
+                            .sha1If(checkSums.contains("SHA-1"));
+                }
+            }
+
+        }, "manifest").and("sign", new Runnable() {
+
+            @Override
+            public void run() {
+                if (pgp != null) {
+                    pgp.sign(jarFile(), jarSourceFile(), jarTestFile(), jarTestSourceFile(), fatJarFile(),
+                            javadocFile());
+                    JkLog.done();
+                }
+            }
+
+        }, "sources-jar", "jar", "test-jars", "fat-jar");
     }
 
     public void deleteArtifacts() {
         JkUtilsFile.deleteIfExist(jarFile());
         JkUtilsFile.deleteIfExist(new File(jarFile().getAbsolutePath() + ".sha1"));
         JkUtilsFile.deleteIfExist(new File(jarFile().getAbsolutePath() + ".md5"));
+        JkUtilsFile.deleteIfExist(JkAbiFingerprint.fileOf(jarFile()));
         JkUtilsFile.deleteIfExist(jarSourceFile());
         JkUtilsFile.deleteIfExist(jarTestFile());
         JkUtilsFile.deleteIfExist(jarTestSourceFile());
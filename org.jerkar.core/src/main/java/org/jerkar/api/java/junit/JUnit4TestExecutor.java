@@ -12,8 +12,13 @@ import org.jerkar.api.java.junit.JkUnit.JunitReportDetail;
 import org.jerkar.api.system.JkLog;
 import org.jerkar.api.utils.JkUtilsIO;
 import org.jerkar.api.utils.JkUtilsTime;
-import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
 import org.junit.runner.Result;
+import org.junit.runner.Runner;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runner.notification.StoppedByUserException;
 
 /**
  * Class to run test in a separate process.
@@ -30,24 +35,28 @@ class JUnit4TestExecutor {
         final boolean printEachTestInConsole = Boolean.parseBoolean(args[1]);
         final JunitReportDetail reportDetail = JunitReportDetail.valueOf(args[2]);
         final File reportDir = new File(args[3]);
-        final Class<?>[] classes = toClassArray(Arrays.copyOfRange(args, 4, args.length));
+        final int maxFailures = Integer.parseInt(args[4]);
+        final Class<?>[] classes = toClassArray(Arrays.copyOfRange(args, 5, args.length));
         final JkTestSuiteResult result = launchInProcess(classes, printEachTestInConsole,
-                reportDetail, reportDir, false);
+                reportDetail, reportDir, maxFailures, false);
         JkUtilsIO.serialize(result, resultFile);
     }
 
-    private static JkTestSuiteResult launchInProcess(Class<?>[] classes,
+    static JkTestSuiteResult launchInProcess(Class<?>[] classes,
             boolean printEachTestOnConsole, JunitReportDetail reportDetail, File reportDir,
-            boolean restoreSystemOut) {
-        final JUnitCore jUnitCore = new JUnitCore();
+            int maxFailures, boolean restoreSystemOut) {
+        final RunNotifier notifier = new RunNotifier();
 
         if (reportDetail.equals(JunitReportDetail.FULL)) {
-            jUnitCore.addListener(new JUnitReportListener(reportDir));
+            notifier.addListener(new JUnitReportListener(reportDir));
+        }
+        if (maxFailures > 0) {
+            notifier.addListener(new FailFastListener(notifier, maxFailures));
         }
         final PrintStream out = System.out;
         final PrintStream err = System.err;
         if (printEachTestOnConsole) {
-            jUnitCore.addListener(new JUnitConsoleListener());
+            notifier.addListener(new JUnitConsoleListener());
         } else if (!JkLog.verbose()) {
             System.setErr(JkUtilsIO.nopPrintStream());
             System.setOut(JkUtilsIO.nopPrintStream());
@@ -55,9 +64,10 @@ class JUnit4TestExecutor {
 
         final Properties properties = (Properties) System.getProperties().clone();
         final long start = System.nanoTime();
-        final Result result;
+        final Result result = new Result();
+        final boolean aborted;
         try {
-            result = jUnitCore.run(classes);
+            aborted = run(Request.classes(classes).getRunner(), notifier, result);
         } finally {
             if (restoreSystemOut) {
                 System.setErr(err);
@@ -65,7 +75,24 @@ class JUnit4TestExecutor {
             }
         }
         final long durationInMillis = JkUtilsTime.durationInMillis(start);
-        return JkTestSuiteResult.fromJunit4Result(properties, "all", result, durationInMillis);
+        return JkTestSuiteResult.fromJunit4Result(properties, "all", result, durationInMillis,
+                aborted);
+    }
+
+    // Same as JUnitCore#run but reporting the tests run until a listener asks to stop. Returns
+    // true if the run has been stopped while some tests had not started yet.
+    private static boolean run(Runner runner, RunNotifier notifier, Result result) {
+        notifier.addFirstListener(result.createListener());
+        notifier.fireTestRunStarted(runner.getDescription());
+        boolean stopped = false;
+        try {
+            runner.run(notifier);
+        } catch (final StoppedByUserException e) {
+            // Thrown when a test is about to start after the fail fast listener asked to stop
+            stopped = true;
+        }
+        notifier.fireTestRunFinished(result);
+        return stopped;
     }
 
     private static Class<?>[] toClassArray(String[] classNames) {
@@ -81,4 +108,27 @@ class JUnit4TestExecutor {
         return classes.toArray(new Class[0]);
     }
 
+    private static class FailFastListener extends RunListener {
+
+        private final RunNotifier notifier;
+
+        private final int maxFailures;
+
+        private int failureCount;
+
+        FailFastListener(RunNotifier notifier, int maxFailures) {
+            this.notifier = notifier;
+            this.maxFailures = maxFailures;
+        }
+
+        @Override
+        public void testFailure(Failure failure) throws Exception {
+            failureCount++;
+            if (failureCount >= maxFailures) {
+                notifier.pleaseStop();
+            }
+        }
+
+    }
+
 }
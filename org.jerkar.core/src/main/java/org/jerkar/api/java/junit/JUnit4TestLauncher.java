@@ -19,18 +19,19 @@ class JUnit4TestLauncher {
     @SuppressWarnings("rawtypes")
     public static JkTestSuiteResult launchInFork(JkJavaProcess jkJavaProcess,
             boolean printEachTestOnConsole, JunitReportDetail reportDetail,
-            Iterable<Class> classes, File reportDir) {
+            Iterable<Class> classes, File reportDir, int maxFailures) {
         final List<String> args = new LinkedList<String>();
         final File file = JkUtilsFile.tempFile("testResult-", ".ser");
         args.add("\"" + file.getAbsolutePath() + "\"");
         args.add(Boolean.toString(printEachTestOnConsole));
         args.add(reportDetail.name());
         args.add("\"" + reportDir.getAbsolutePath() + "\"");
+        args.add(Integer.toString(maxFailures));
         for (final Class<?> clazz : classes) {
             args.add(clazz.getName());
         }
-        final JkJavaProcess process;
-        process = jkJavaProcess.andClasspath(JkClasspath.of(JkLocator.jerkarJarFile()));
+        // Classpath order is kept as is : class data sharing only archives the jars already leading it
+        final JkJavaProcess process = jkJavaProcess.andClasspath(JkClasspath.of(JkLocator.jerkarJarFile()));
         process.runClassSync(JUnit4TestExecutor.class.getName(), args.toArray(new String[0]));
         return (JkTestSuiteResult) JkUtilsIO.deserialize(file);
     }
@@ -41,7 +42,7 @@ class JUnit4TestLauncher {
      *            Non-empty <code>Iterable</code>.
      */
     public static JkTestSuiteResult launchInClassLoader(Iterable<Class> classes, boolean verbose,
-            JunitReportDetail reportDetail, File reportDir) {
+            JunitReportDetail reportDetail, File reportDir, int maxFailures) {
         final JkClassLoader classloader = JkClassLoader.of(classes.iterator().next());
         final Class[] classArray = JkUtilsIterable.arrayOf(classes, Class.class);
         classloader.addEntry(JkLocator.jerkarJarFile());
@@ -53,8 +54,11 @@ class JUnit4TestLauncher {
         // initialise JkLog for the launcher classloader
         classloader.invokeStaticMethod(false, JkLog.class.getName(), "beginOfLine");
 
+        // Tests write directly to the console, so pending logs are written before they start
+        JkLog.flush();
+
         return classloader.invokeStaticMethod(true, JUnit4TestExecutor.class.getName(),
-                "launchInProcess", classArray, verbose, reportDetail, reportDir, true);
+                "launchInProcess", classArray, verbose, reportDetail, reportDir, maxFailures, true);
     }
 
 }
@@ -24,6 +24,7 @@ public class JkTestSuiteResult implements Serializable {
     private final int ignoreCount;
     private final long durationInMilis;
     private final Properties systemProperties;
+    private final boolean aborted;
 
     /**
      * Constructs a test suite execution result according specified information.
@@ -31,12 +32,24 @@ public class JkTestSuiteResult implements Serializable {
     JkTestSuiteResult(Properties properties, String suiteName, int totaltestCount,
             int ignoreCount, Iterable<? extends TestCaseResult> testCaseResult,
             long durationInMillis) {
+        this(properties, suiteName, totaltestCount, ignoreCount, testCaseResult, durationInMillis,
+                false);
+    }
+
+    /**
+     * Constructs a test suite execution result according specified information, mentioning if
+     * the run has been stopped before all tests ran.
+     */
+    JkTestSuiteResult(Properties properties, String suiteName, int totaltestCount,
+            int ignoreCount, Iterable<? extends TestCaseResult> testCaseResult,
+            long durationInMillis, boolean aborted) {
         this.systemProperties = properties;
         this.suiteName = suiteName;
         this.runCount = totaltestCount;
         this.ignoreCount = ignoreCount;
         this.testCaseResults = JkUtilsIterable.listOf(testCaseResult);
         this.durationInMilis = durationInMillis;
+        this.aborted = aborted;
     }
 
     @SuppressWarnings("unchecked")
@@ -66,6 +79,14 @@ public class JkTestSuiteResult implements Serializable {
         return runCount;
     }
 
+    /**
+     * Returns <code>true</code> if the run has been stopped, as too many tests failed, while some
+     * tests had not run yet.
+     */
+    public boolean isAborted() {
+        return aborted;
+    }
+
     /**
      * Returns how many test has been ignored.
      */
@@ -353,7 +374,7 @@ public class JkTestSuiteResult implements Serializable {
     }
 
     static JkTestSuiteResult fromJunit4Result(Properties properties, String suiteName,
-            Object result, long durationInMillis) {
+            Object result, long durationInMillis, boolean aborted) {
         final Integer runCount = JkUtilsReflect.invoke(result, "getRunCount");
         final Integer ignoreCount = JkUtilsReflect.invoke(result, "getIgnoreCount");
         final List<Object> junitFailures = JkUtilsReflect.invoke(result, "getFailures");
@@ -363,7 +384,7 @@ public class JkTestSuiteResult implements Serializable {
             failures.add(fromJunit4Failure(junitFailure));
         }
         return new JkTestSuiteResult(properties, suiteName, runCount, ignoreCount, failures,
-                durationInMillis);
+                durationInMillis, aborted);
 
     }
 
@@ -3,8 +3,10 @@ package org.jerkar.api.java.junit;
 import java.io.File;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -21,6 +23,7 @@ import org.jerkar.api.java.JkClassLoader;
 import org.jerkar.api.java.JkClasspath;
 import org.jerkar.api.java.JkJavaProcess;
 import org.jerkar.api.system.JkLog;
+import org.jerkar.api.system.JkProfiler;
 import org.jerkar.api.utils.JkUtilsIterable;
 import org.jerkar.api.utils.JkUtilsReflect;
 import org.jerkar.api.utils.JkUtilsString;
@@ -59,6 +62,8 @@ public final class JkUnit {
 
     private static final String JUNIT3_TEST_RESULT_CLASS_NAME = "junit.framework.TestResult";
 
+    private static final String JUNIT3_TEST_LISTENER_CLASS_NAME = "junit.framework.TestListener";
+
     /**
      * A interface to implement to enhance test execution. It can be used for test coverage tool for example.
      */
@@ -87,9 +92,16 @@ public final class JkUnit {
 
     private final boolean printOutputOnConsole;
 
+    private final TestShards shards;
+
+    private final TestRunHistory runHistory;
+
+    private final int maxFailures;
+
     private JkUnit(JkClasspath classpath, JunitReportDetail reportDetail, File reportDir,
             JkJavaProcess fork, List<Runnable> runnables, JkFileTreeSet testClasses,
-            boolean crashOnFailed, boolean printOutputOnConsole) {
+            boolean crashOnFailed, boolean printOutputOnConsole, TestShards shards,
+            TestRunHistory runHistory, int maxFailures) {
         this.classpath = classpath;
         this.reportDetail = reportDetail;
         this.reportDir = reportDir;
@@ -98,14 +110,18 @@ public final class JkUnit {
         this.classesToTest = testClasses;
         this.breakOnFailure = crashOnFailed;
         this.printOutputOnConsole = printOutputOnConsole;
+        this.shards = shards;
+        this.runHistory = runHistory;
+        this.maxFailures = maxFailures;
     }
 
     @SuppressWarnings("unchecked")
     private JkUnit(JkClasspath classpath, JunitReportDetail reportDetail, File reportDir,
             JkJavaProcess fork, JkFileTreeSet testClasses, boolean crashOnFailed,
-            boolean printOutputOnConsole) {
+            boolean printOutputOnConsole, TestShards shards, TestRunHistory runHistory,
+            int maxFailures) {
         this(classpath, reportDetail, reportDir, fork, Collections.EMPTY_LIST, testClasses,
-                crashOnFailed, printOutputOnConsole);
+                crashOnFailed, printOutputOnConsole, shards, runHistory, maxFailures);
     }
 
     /**
@@ -113,7 +129,7 @@ public final class JkUnit {
      */
     public static JkUnit ofFork(JkJavaProcess jkJavaProcess) {
         return new JkUnit(null, JunitReportDetail.NONE, null, jkJavaProcess, JkFileTreeSet.empty(),
-                true, true);
+                true, true, null, null, 0);
     }
 
     /**
@@ -135,7 +151,7 @@ public final class JkUnit {
      */
     public static JkUnit of(JkClasspath classpath) {
         return new JkUnit(classpath, JunitReportDetail.NONE, null, null, JkFileTreeSet.empty(),
-                true, true);
+                true, true, null, null, 0);
     }
 
     /**
@@ -143,7 +159,8 @@ public final class JkUnit {
      */
     public JkUnit withReport(JunitReportDetail reportDetail) {
         return new JkUnit(this.classpath, reportDetail, reportDir, this.forkedProcess,
-                classesToTest, this.breakOnFailure, this.printOutputOnConsole);
+                classesToTest, this.breakOnFailure, this.printOutputOnConsole, this.shards,
+                this.runHistory, this.maxFailures);
     }
 
     /**
@@ -151,7 +168,8 @@ public final class JkUnit {
      */
     public JkUnit withBreakOnFailure(boolean crashOnFailure) {
         return new JkUnit(this.classpath, reportDetail, reportDir, this.forkedProcess,
-                classesToTest, this.breakOnFailure, this.printOutputOnConsole);
+                classesToTest, crashOnFailure, this.printOutputOnConsole, this.shards,
+                this.runHistory, this.maxFailures);
     }
 
     /**
@@ -159,7 +177,8 @@ public final class JkUnit {
      */
     public JkUnit withReportDir(File reportDir) {
         return new JkUnit(this.classpath, reportDetail, reportDir, this.forkedProcess,
-                classesToTest, this.breakOnFailure, this.printOutputOnConsole);
+                classesToTest, this.breakOnFailure, this.printOutputOnConsole, this.shards,
+                this.runHistory, this.maxFailures);
     }
 
     /**
@@ -168,7 +187,8 @@ public final class JkUnit {
     public JkUnit forkKeepingSameClassPath(JkJavaProcess process) {
         final JkJavaProcess fork = process.withClasspath(jkClasspath());
         return new JkUnit(null, reportDetail, reportDir, fork, this.classesToTest,
-                this.breakOnFailure, this.printOutputOnConsole);
+                this.breakOnFailure, this.printOutputOnConsole, this.shards, this.runHistory,
+                this.maxFailures);
     }
 
     /**
@@ -178,7 +198,8 @@ public final class JkUnit {
         final List<Runnable> list = new LinkedList<Runnable>(this.postActions);
         list.add(runnable);
         return new JkUnit(classpath, reportDetail, reportDir, forkedProcess, list,
-                this.classesToTest, this.breakOnFailure, this.printOutputOnConsole);
+                this.classesToTest, this.breakOnFailure, this.printOutputOnConsole, this.shards,
+                this.runHistory, this.maxFailures);
     }
 
     /**
@@ -208,8 +229,9 @@ public final class JkUnit {
     public JkUnit forked(JkJavaProcess process, boolean appendClasspath) {
         final JkJavaProcess effectiveProcess = appendClasspath ? process
                 .andClasspath(this.classpath) : process;
-                return new JkUnit(null, reportDetail, reportDir, effectiveProcess, this.classesToTest,
-                        this.breakOnFailure, this.printOutputOnConsole);
+                return new JkUnit(null, reportDetail, reportDir, effectiveProcess,
+                        this.classesToTest, this.breakOnFailure, this.printOutputOnConsole,
+                        this.shards, this.runHistory, this.maxFailures);
     }
 
     /**
@@ -223,7 +245,8 @@ public final class JkUnit {
         }
         if (!fork && forked()) {
             return new JkUnit(forkedProcess.classpath(), reportDetail, reportDir, null,
-                    this.classesToTest, this.breakOnFailure, this.printOutputOnConsole);
+                    this.classesToTest, this.breakOnFailure, this.printOutputOnConsole, this.shards,
+                    this.runHistory, this.maxFailures);
         }
         return this;
     }
@@ -242,7 +265,8 @@ public final class JkUnit {
      */
     public JkUnit withClassesToTest(JkFileTreeSet classesToTest) {
         return new JkUnit(this.classpath, reportDetail, reportDir, forkedProcess, classesToTest,
-                this.breakOnFailure, this.printOutputOnConsole);
+                this.breakOnFailure, this.printOutputOnConsole, this.shards, this.runHistory,
+                this.maxFailures);
     }
 
     /**
@@ -250,7 +274,8 @@ public final class JkUnit {
      */
     public JkUnit withOutputOnConsole(boolean outputOnConsole) {
         return new JkUnit(this.classpath, reportDetail, reportDir, forkedProcess, classesToTest,
-                this.breakOnFailure, outputOnConsole);
+                this.breakOnFailure, outputOnConsole, this.shards, this.runHistory,
+                this.maxFailures);
     }
 
     /**
@@ -258,7 +283,8 @@ public final class JkUnit {
      */
     public JkUnit withClassesToTest(JkFileTree classesToTest) {
         return new JkUnit(this.classpath, reportDetail, reportDir, forkedProcess,
-                JkFileTreeSet.of(classesToTest), this.breakOnFailure, this.printOutputOnConsole);
+                JkFileTreeSet.of(classesToTest), this.breakOnFailure, this.printOutputOnConsole,
+                this.shards, this.runHistory, this.maxFailures);
     }
 
     /**
@@ -266,7 +292,68 @@ public final class JkUnit {
      */
     public JkUnit withClassesToTest(File... classDirs) {
         return new JkUnit(this.classpath, reportDetail, reportDir, forkedProcess,
-                JkFileTreeSet.of(classDirs), this.breakOnFailure, this.printOutputOnConsole);
+                JkFileTreeSet.of(classDirs), this.breakOnFailure, this.printOutputOnConsole,
+                this.shards, this.runHistory, this.maxFailures);
+    }
+
+    /**
+     * Returns a copy of this launcher running only one of the specified number of shards, so the
+     * tests can be spread over several machines. Shard index starts at 1. Test classes are
+     * distributed so that shards last about the same time according the durations found in the
+     * full reports of a previous run located in the specified directory. Without such history,
+     * as when the directory is <code>null</code>, classes are distributed according a hash of
+     * their name. Every machine gets a distinct subset as long as they all read the same history.
+     *
+     * @see #mergeReports(Iterable, File)
+     */
+    public JkUnit withShard(int index, int count, File historyDir) {
+        return new JkUnit(classpath, reportDetail, reportDir, forkedProcess, postActions,
+                classesToTest, breakOnFailure, printOutputOnConsole,
+                new TestShards(index, count, historyDir), this.runHistory, this.maxFailures);
+    }
+
+    /**
+     * Same as {@link #withShard(int, int, File)} but specifying the shard as <code>3/8</code>,
+     * meaning the third of 8 shards. An empty or <code>null</code> specification runs all tests.
+     */
+    public JkUnit withShard(String shardSpec, File historyDir) {
+        final TestShards testShards = JkUtilsString.isBlank(shardSpec) ? null : TestShards.parse(
+                shardSpec, historyDir);
+        return new JkUnit(classpath, reportDetail, reportDir, forkedProcess, postActions,
+                classesToTest, breakOnFailure, printOutputOnConsole, testShards, this.runHistory,
+                this.maxFailures);
+    }
+
+    /**
+     * Returns a copy of this launcher running first the test classes that failed at the previous
+     * run, then the ones compiled since, so broken builds are reported sooner. The failed classes
+     * are recorded in the specified file after each run. <code>null</code> keeps the detection
+     * order.
+     */
+    public JkUnit withFailedFirst(File historyFile) {
+        final TestRunHistory history = historyFile == null ? null : new TestRunHistory(historyFile);
+        return new JkUnit(classpath, reportDetail, reportDir, forkedProcess, postActions,
+                classesToTest, breakOnFailure, printOutputOnConsole, shards, history, maxFailures);
+    }
+
+    /**
+     * Returns a copy of this launcher aborting the run, in process or in the forked JVM, as soon as
+     * the specified number of tests have failed. Reports are still written for the tests that
+     * have run. Applies to JUnit 3 runs as well. <code>0</code> means no limit.
+     */
+    public JkUnit withMaxFailures(int maxFailures) {
+        return new JkUnit(classpath, reportDetail, reportDir, forkedProcess, postActions,
+                classesToTest, breakOnFailure, printOutputOnConsole, shards, runHistory, maxFailures);
+    }
+
+    /**
+     * Merges the reports produced by each shard in the specified directories into the specified
+     * directory. Reports of suites run by a single shard are copied, the others are summed.
+     * Reports are read in each specified directory or, if it contains none, in its
+     * <code>junit</code> subdirectory, so test report directories of builds can be passed as is.
+     */
+    public static void mergeReports(Iterable<File> shardReportDirs, File targetDir) {
+        TestShards.merge(shardReportDirs, targetDir);
     }
 
     /**
@@ -309,7 +396,14 @@ public final class JkUnit {
      */
     @SuppressWarnings({ "rawtypes", "unchecked" })
     public JkTestSuiteResult run() {
-        final Collection<Class> classes = getClassesToTest();
+        Collection<Class> classes = getClassesToTest();
+        if (shards != null) {
+            classes = shards.select(classes);
+            JkLog.info("Run shard " + shards + " : " + classes.size() + " test classes.");
+        }
+        if (runHistory != null) {
+            classes = runHistory.order(classes, classesToTest);
+        }
         final String name = getSuiteName(classes);
 
         if (!classes.iterator().hasNext()) {
@@ -326,28 +420,46 @@ public final class JkUnit {
             if (this.forkedProcess != null) {
                 JkLog.startln("Run JUnit tests in forked mode");
                 result = JUnit4TestLauncher.launchInFork(forkedProcess, printOutputOnConsole,
-                        reportDetail, classes, reportDir);
+                        reportDetail, classes, reportDir, maxFailures);
             } else {
                 JkLog.startln("Run JUnit tests");
                 result = JUnit4TestLauncher.launchInClassLoader(classes, printOutputOnConsole,
-                        reportDetail, reportDir);
+                        reportDetail, reportDir, maxFailures);
             }
         } else if (classLoader.isDefined(JUNIT3_RUNNER_CLASS_NAME)) {
             JkLog.startln("Run JUnit tests");
             final Object suite = createJunit3TestSuite(classLoader, classes);
             final Class testResultClass = classLoader.load(JUNIT3_TEST_RESULT_CLASS_NAME);
             final Object testResult = JkUtilsReflect.newInstance(testResultClass);
+            if (maxFailures > 0) {
+                addJunit3FailFastListener(classLoader, testResult, maxFailures);
+            }
             final Method runMethod = JkUtilsReflect.getMethod(suite.getClass(), "run",
                     testResultClass);
             final Properties properties = (Properties) System.getProperties().clone();
             JkUtilsReflect.invoke(suite, runMethod, testResult);
             final long end = System.nanoTime();
             final long duration = (end - start) / 1000000;
-            result = fromJunit3Result(properties, name, testResult, duration);
+            final boolean stopped = JkUtilsReflect.<Boolean> invoke(testResult, "shouldStop");
+            final int runCount = JkUtilsReflect.<Integer> invoke(testResult, "runCount");
+            final int testCount = JkUtilsReflect.<Integer> invoke(suite, "countTestCases");
+            result = fromJunit3Result(properties, name, testResult, duration,
+                    stopped && runCount < testCount);
         } else {
             throw new IllegalStateException("No Junit found on test classpath.");
         }
 
+        if (runHistory != null) {
+            runHistory.record(result, !result.isAborted());
+        }
+        if (reportDetail.equals(JunitReportDetail.BASIC)) {
+            TestReportBuilder.of(result).writeToFileSystem(reportDir);
+        }
+        if (result.isAborted()) {
+            JkLog.warn("Test run aborted after " + maxFailures + " failures : some tests have not run.");
+        }
+        JkProfiler.count("tests", result.runCount());
+        JkProfiler.count("test failures", result.failureCount());
         if (result.failureCount() > 0) {
             if (breakOnFailure) {
                 JkLog.error(result.toStrings(JkLog.verbose()));
@@ -361,9 +473,6 @@ public final class JkUnit {
         if (!JkLog.verbose() && result.failureCount() > 0) {
             JkLog.info("Launch Jerkar in verbose mode to display failure stack traces in console.");
         }
-        if (reportDetail.equals(JunitReportDetail.BASIC)) {
-            TestReportBuilder.of(result).writeToFileSystem(reportDir);
-        }
         for (final Runnable runnable : this.postActions) {
             runnable.run(); // NOSONAR
         }
@@ -450,8 +559,42 @@ public final class JkUnit {
         }
     }
 
+    // Stops the JUnit 3 run, as JUnit 4 fail fast listener does, once maxFailures tests have failed
+    private static void addJunit3FailFastListener(JkClassLoader classLoader,
+            final Object testResult, final int maxFailures) {
+        final Class<?> listenerClass = classLoader.load(JUNIT3_TEST_LISTENER_CLASS_NAME);
+        final InvocationHandler handler = new InvocationHandler() {
+
+            private int failureCount;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                final String methodName = method.getName();
+                if (methodName.equals("addError") || methodName.equals("addFailure")) {
+                    failureCount++;
+                    if (failureCount >= maxFailures) {
+                        JkUtilsReflect.invoke(testResult, "stop");
+                    }
+                } else if (methodName.equals("equals")) {
+                    return proxy == args[0];
+                } else if (methodName.equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                } else if (methodName.equals("toString")) {
+                    return "JUnit 3 fail fast listener";
+                }
+                return null;
+            }
+
+        };
+        final Object listener = Proxy.newProxyInstance(listenerClass.getClassLoader(),
+                new Class[] { listenerClass }, handler);
+        final Method addListener = JkUtilsReflect.getMethod(testResult.getClass(), "addListener",
+                listenerClass);
+        JkUtilsReflect.invoke(testResult, addListener, listener);
+    }
+
     private static JkTestSuiteResult fromJunit3Result(Properties properties, String suiteName,
-            Object result, long durationInMillis) {
+            Object result, long durationInMillis, boolean aborted) {
         final Integer runCount = JkUtilsReflect.invoke(result, "runCount");
         final Integer ignoreCount = 0;
         final Enumeration<Object> junitFailures = JkUtilsReflect.invoke(result, "failures");
@@ -466,7 +609,7 @@ public final class JkUnit {
             failures.add(JkTestSuiteResult.fromJunit3Failure(junitError));
         }
         return new JkTestSuiteResult(properties, suiteName, runCount, ignoreCount, failures,
-                durationInMillis);
+                durationInMillis, aborted);
 
     }
 
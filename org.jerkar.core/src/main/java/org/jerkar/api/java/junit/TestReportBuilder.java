@@ -46,13 +46,19 @@ final class TestReportBuilder {
     }
 
     private void writeTxtFile(File txtFile) {
+        writeTxtFile(txtFile, result.suiteName(), result.runCount(), result.assertErrorCount(),
+                result.errorCount(), result.ignoreCount(), result.durationInMillis() / 1000f);
+    }
+
+    static void writeTxtFile(File txtFile, String suiteName, int runCount, int failureCount,
+            int errorCount, int skipCount, float durationInSecond) {
         final StringBuilder builder = new StringBuilder(TEXT_HEAD).append("\n")
-                .append("Test set: ").append(result.suiteName()).append("\n").append(TEXT_HEAD)
-                .append("\n").append("Tests run: ").append(result.runCount()).append(", ")
-                .append("Failures: ").append(result.assertErrorCount()).append(", ")
-                .append("Errors: ").append(result.errorCount()).append(", ").append("Skipped: ")
-                .append(result.ignoreCount()).append(", ").append("Time elapsed: ")
-                .append(result.durationInMillis() / 1000f).append(" sec");
+                .append("Test set: ").append(suiteName).append("\n").append(TEXT_HEAD)
+                .append("\n").append("Tests run: ").append(runCount).append(", ")
+                .append("Failures: ").append(failureCount).append(", ")
+                .append("Errors: ").append(errorCount).append(", ").append("Skipped: ")
+                .append(skipCount).append(", ").append("Time elapsed: ")
+                .append(durationInSecond).append(" sec");
         JkUtilsFile.writeString(txtFile, builder.toString(), false);
     }
 
@@ -109,8 +115,8 @@ final class TestReportBuilder {
                         : "error";
                 writer.writeCharacters("\n    ");
                 writer.writeStartElement(errorFailure);
-                writer.writeAttribute("message",
-                        JkUtilsString.escapeHtml(failure.getExceptionDescription().getMessage()));
+                final String message = failure.getExceptionDescription().getMessage();
+                writer.writeAttribute("message", message == null ? "" : JkUtilsString.escapeHtml(message));
                 writer.writeAttribute("type", failure.getExceptionDescription().getClassName());
                 final StringBuilder stringBuilder = new StringBuilder();
                 for (final String line : failure.getExceptionDescription().stackTracesAsStrings()) {
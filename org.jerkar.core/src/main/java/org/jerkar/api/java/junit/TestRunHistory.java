@@ -0,0 +1,103 @@
+package org.jerkar.api.java.junit;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import org.jerkar.api.file.JkFileTree;
+import org.jerkar.api.file.JkFileTreeSet;
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsString;
+
+/**
+ * Records the test classes failing at a run so the next run can execute them first, followed by
+ * the test classes compiled since the previous run.
+ */
+final class TestRunHistory {
+
+    private final File file;
+
+    TestRunHistory(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the specified classes ordered so that the classes that failed at the previous run
+     * come first, then the ones whose class file is newer than the previous run. Other classes
+     * keep their relative order.
+     */
+    @SuppressWarnings("rawtypes")
+    List<Class> order(Collection<Class> classes, JkFileTreeSet classRoots) {
+        final List<Class> result = new LinkedList<Class>(classes);
+        if (!file.isFile()) {
+            return result;
+        }
+        final Set<String> failed = failedClassNames();
+        final long lastRun = file.lastModified();
+        final List<Class> failing = new LinkedList<Class>();
+        final List<Class> changed = new LinkedList<Class>();
+        final List<Class> others = new LinkedList<Class>();
+        for (final Class<?> clazz : classes) {
+            if (failed.contains(clazz.getName())) {
+                failing.add(clazz);
+            } else if (classFileModified(clazz, classRoots) > lastRun) {
+                changed.add(clazz);
+            } else {
+                others.add(clazz);
+            }
+        }
+        if (!failing.isEmpty() || !changed.isEmpty()) {
+            JkLog.info("Run first " + failing.size() + " test classes failed at previous run and "
+                    + changed.size() + " changed since.");
+        }
+        result.clear();
+        result.addAll(failing);
+        result.addAll(changed);
+        result.addAll(others);
+        return result;
+    }
+
+    /**
+     * Records the classes having failed tests in the specified result. If the run is not complete,
+     * classes recorded as failing previously are kept as they may not have run.
+     */
+    void record(JkTestSuiteResult result, boolean complete) {
+        final Set<String> failed = new LinkedHashSet<String>();
+        for (final JkTestSuiteResult.TestCaseFailure failure : result.failures()) {
+            failed.add(failure.getClassName());
+        }
+        if (!complete) {
+            failed.addAll(failedClassNames());
+        }
+        file.getParentFile().mkdirs();
+        JkUtilsFile.writeString(file, JkUtilsString.join(failed, "\n"), false);
+    }
+
+    private Set<String> failedClassNames() {
+        final Set<String> result = new LinkedHashSet<String>();
+        if (file.isFile()) {
+            for (final String line : JkUtilsFile.readLines(file)) {
+                if (!line.trim().isEmpty()) {
+                    result.add(line.trim());
+                }
+            }
+        }
+        return result;
+    }
+
+    private static long classFileModified(Class<?> clazz, JkFileTreeSet classRoots) {
+        final String path = clazz.getName().replace('.', '/') + ".class";
+        for (final JkFileTree tree : classRoots.fileTrees()) {
+            final File classFile = new File(tree.root(), path);
+            if (classFile.exists()) {
+                return classFile.lastModified();
+            }
+        }
+        return 0;
+    }
+
+}
@@ -0,0 +1,251 @@
+package org.jerkar.api.java.junit;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.jerkar.api.utils.JkUtilsIO;
+import org.jerkar.api.utils.JkUtilsXml;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Splits test classes in shards meant to run on distinct machines. Every machine computes the same
+ * partition provided it detects the same classes and reads the same history : classes are spread
+ * so that shards last about the same time according the durations found in previous full reports,
+ * or according a stable hash of their name when no duration is known.
+ */
+final class TestShards {
+
+    private static final String REPORT_PREFIX = "TEST-";
+
+    private static final String REPORT_SUFFIX = ".xml";
+
+    private static final String[] COUNT_ATTRIBUTES = { "tests", "failures", "errors", "skipped" };
+
+    private final int index;
+
+    private final int count;
+
+    private final File historyDir;
+
+    TestShards(int index, int count, File historyDir) {
+        if (count < 1 || index < 1 || index > count) {
+            throw new IllegalArgumentException("Shard " + index + "/" + count
+                    + " is not valid : index must be between 1 and the shard count.");
+        }
+        this.index = index;
+        this.count = count;
+        this.historyDir = historyDir;
+    }
+
+    /**
+     * Parses a shard specification as <code>3/8</code>, meaning the third of 8 shards.
+     */
+    static TestShards parse(String spec, File historyDir) {
+        final String[] items = spec.trim().split("/");
+        try {
+            if (items.length == 2) {
+                return new TestShards(Integer.parseInt(items[0].trim()),
+                        Integer.parseInt(items[1].trim()), historyDir);
+            }
+        } catch (final NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Shard '" + spec
+                + "' is not valid : expecting index/count as 3/8.");
+    }
+
+    /**
+     * Returns the classes belonging to this shard, in the specified order. Durations are read in
+     * the history directory of this object. When none has been set, classes are spread according
+     * the hash of their name, as local reports may differ from a machine to another.
+     */
+    @SuppressWarnings("rawtypes")
+    List<Class> select(Collection<Class> classes) {
+        final List<String> names = new ArrayList<String>(classes.size());
+        for (final Class<?> clazz : classes) {
+            names.add(clazz.getName());
+        }
+        final Map<String, Float> durations = historyDir != null ? durationsIn(historyDir)
+                : Collections.<String, Float> emptyMap();
+        final Map<String, Integer> shards = assign(names, count, durations);
+        final List<Class> result = new LinkedList<Class>();
+        for (final Class<?> clazz : classes) {
+            if (shards.get(clazz.getName()) == index - 1) {
+                result.add(clazz);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Assigns each of the specified class names to a shard index, from 0 to count - 1. Longest
+     * classes are assigned first to the least loaded shard. Classes missing from the history are
+     * assumed to last the mean of the known durations.
+     */
+    static Map<String, Integer> assign(List<String> classNames, int count, Map<String, Float> durations) {
+        final Map<String, Integer> result = new HashMap<String, Integer>();
+        float total = 0;
+        int known = 0;
+        for (final String name : classNames) {
+            if (durations.containsKey(name)) {
+                total += durations.get(name);
+                known++;
+            }
+        }
+        if (known == 0) {
+            for (final String name : classNames) {
+                result.put(name, (name.hashCode() & Integer.MAX_VALUE) % count);
+            }
+            return result;
+        }
+        final Map<String, Float> estimates = new HashMap<String, Float>();
+        for (final String name : classNames) {
+            final Float duration = durations.get(name);
+            estimates.put(name, duration != null ? duration : total / known);
+        }
+        final List<String> sorted = new ArrayList<String>(estimates.keySet());
+        Collections.sort(sorted, new Comparator<String>() {
+
+            @Override
+            public int compare(String name1, String name2) {
+                final int result = estimates.get(name2).compareTo(estimates.get(name1));
+                return result != 0 ? result : name1.compareTo(name2);
+            }
+
+        });
+        final float[] loads = new float[count];
+        for (final String name : sorted) {
+            int lightest = 0;
+            for (int i = 1; i < count; i++) {
+                if (loads[i] < loads[lightest]) {
+                    lightest = i;
+                }
+            }
+            loads[lightest] += estimates.get(name);
+            result.put(name, lightest);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the duration in seconds of the test suites reported in the specified directory. Full
+     * reports contain one suite per test class, named after the class.
+     */
+    static Map<String, Float> durationsIn(File reportDir) {
+        final Map<String, Float> result = new HashMap<String, Float>();
+        for (final File file : reportFiles(reportDir)) {
+            final Element suite;
+            try {
+                suite = JkUtilsXml.documentFrom(file).getDocumentElement();
+            } catch (final RuntimeException e) {
+                continue; // Partially written report
+            }
+            try {
+                result.put(suite.getAttribute("name"), Float.parseFloat(suite.getAttribute("time")));
+            } catch (final NumberFormatException e) {
+                // No usable duration
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Merges the reports found in the specified directories into the target directory. Suites
+     * reported by a single shard are copied while the ones reported by several shards, as the
+     * suites of basic reports, are merged into a suite summing them.
+     */
+    static void merge(Iterable<File> reportDirs, File targetDir) {
+        final Map<String, List<File>> filesByName = new TreeMap<String, List<File>>();
+        for (final File dir : reportDirs) {
+            for (final File file : reportFiles(dir)) {
+                List<File> files = filesByName.get(file.getName());
+                if (files == null) {
+                    files = new LinkedList<File>();
+                    filesByName.put(file.getName(), files);
+                }
+                files.add(file);
+            }
+        }
+        targetDir.mkdirs();
+        for (final Map.Entry<String, List<File>> entry : filesByName.entrySet()) {
+            final List<File> files = entry.getValue();
+            final Document document = JkUtilsXml.documentFrom(files.get(0));
+            final Element suite = document.getDocumentElement();
+            for (final File file : files.subList(1, files.size())) {
+                final Element other = JkUtilsXml.documentFrom(file).getDocumentElement();
+                for (final String attribute : COUNT_ATTRIBUTES) {
+                    suite.setAttribute(attribute, Integer.toString(intAttribute(suite, attribute)
+                            + intAttribute(other, attribute)));
+                }
+                suite.setAttribute("time", Float.toString(floatAttribute(suite, "time")
+                        + floatAttribute(other, "time")));
+                for (final Element testCase : JkUtilsXml.directChildren(other, "testcase")) {
+                    final Node imported = document.importNode(testCase, true);
+                    suite.appendChild(imported);
+                }
+            }
+            final OutputStream outputStream = JkUtilsIO.outputStream(new File(targetDir, entry.getKey()),
+                    false);
+            try {
+                JkUtilsXml.output(document, outputStream);
+            } finally {
+                JkUtilsIO.closeQuietly(outputStream);
+            }
+            final String suiteName = suite.getAttribute("name");
+            TestReportBuilder.writeTxtFile(new File(targetDir, suiteName + ".txt"), suiteName,
+                    intAttribute(suite, "tests"), intAttribute(suite, "failures"),
+                    intAttribute(suite, "errors"), intAttribute(suite, "skipped"),
+                    floatAttribute(suite, "time"));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+
+    // Builds write their reports in the junit subdirectory of their test report directory
+    private static List<File> reportFiles(File reportDir) {
+        final List<File> result = reportFilesIn(reportDir);
+        return result.isEmpty() && reportDir != null ? reportFilesIn(new File(reportDir, "junit")) : result;
+    }
+
+    private static List<File> reportFilesIn(File reportDir) {
+        final List<File> result = new LinkedList<File>();
+        if (reportDir == null || !reportDir.isDirectory()) {
+            return result;
+        }
+        final File[] files = reportDir.listFiles();
+        Arrays.sort(files);
+        for (final File file : files) {
+            if (file.isFile() && file.getName().startsWith(REPORT_PREFIX)
+                    && file.getName().endsWith(REPORT_SUFFIX)) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
+    private static int intAttribute(Element element, String name) {
+        final String value = element.getAttribute(name);
+        return value.isEmpty() ? 0 : Integer.parseInt(value);
+    }
+
+    private static float floatAttribute(Element element, String name) {
+        final String value = element.getAttribute(name);
+        return value.isEmpty() ? 0 : Float.parseFloat(value);
+    }
+
+}
@@ -0,0 +1,71 @@
+package org.jerkar.api.system;
+
+import java.io.OutputStream;
+
+/**
+ * Output stream keeping only the last bytes written into it, in a ring buffer of fixed size.
+ */
+final class BoundedCapture extends OutputStream {
+
+    private final byte[] buffer;
+
+    private long count;
+
+    BoundedCapture(int size) {
+        this.buffer = new byte[size];
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        if (buffer.length > 0) {
+            buffer[(int) (count % buffer.length)] = (byte) b;
+        }
+        count++;
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) {
+        if (buffer.length == 0) {
+            count += length;
+            return;
+        }
+
+        // Only the last bytes of a chunk larger than the buffer can be kept
+        final int skipped = Math.max(0, length - buffer.length);
+        count += skipped;
+        int index = offset + skipped;
+        int remaining = length - skipped;
+        while (remaining > 0) {
+            final int position = (int) (count % buffer.length);
+            final int chunk = Math.min(remaining, buffer.length - position);
+            System.arraycopy(bytes, index, buffer, position, chunk);
+            count += chunk;
+            index += chunk;
+            remaining -= chunk;
+        }
+    }
+
+    /**
+     * Returns the total number of bytes written into this stream.
+     */
+    synchronized long count() {
+        return count;
+    }
+
+    /**
+     * Returns the kept bytes, oldest first.
+     */
+    synchronized byte[] bytes() {
+        final int size = (int) Math.min(count, buffer.length);
+        final byte[] result = new byte[size];
+        if (size == 0) {
+            return result;
+        }
+        final int start = (int) ((count - size) % buffer.length);
+        final int firstChunk = Math.min(size, buffer.length - start);
+        System.arraycopy(buffer, start, result, 0, firstChunk);
+        System.arraycopy(buffer, 0, result, firstChunk, size - firstChunk);
+        return result;
+    }
+
+}
@@ -83,6 +83,26 @@ public final class JkLocator {
         return result;
     }
 
+    /**
+     * Returns the location of the build cache, where outputs of build steps are stored to be reused
+     * by subsequent builds.
+     */
+    public static File jerkarBuildCache() {
+        final File result = new File(jerkarUserHome(), "cache/build");
+        result.mkdirs();
+        return result;
+    }
+
+    /**
+     * Returns the location where are stored the class data sharing archives of Jerkar and of the Java
+     * processes it forks.
+     */
+    public static File jerkarClassDataCache() {
+        final File result = new File(jerkarUserHome(), "cache/cds");
+        result.mkdirs();
+        return result;
+    }
+
     /**
      * Returns the location of the artifact repository cache.
      */
@@ -1,5 +1,6 @@
 package org.jerkar.api.system;
 
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.Arrays;
 import java.util.LinkedList;
@@ -10,26 +11,44 @@ import org.jerkar.api.utils.JkUtilsTime;
 /**
  * Logger shared globally on the classloader. It provides time tracking method
  * and indentation feature accounting for task/subtask execution.
+ * <p>
+ * Nesting and timers are scoped to the current thread : threads started from a logging thread
+ * inherit its indentation, so concurrent tasks can log safely. Output is written asynchronously by a
+ * single writer thread, line by line, so lines logged by distinct threads never get mixed. Use
+ * {@link #flush()} to wait for all logs being actually written.
+ * <p>
+ * When {@link JkProfiler} is enabled, each task delimited by a <code>start</code> and a <code>done</code>
+ * is recorded as a span.
  *
  * @author Jerome Angibaud
  */
 public final class JkLog {
 
-    private static final String INDENT = "|  ";
+    private static final LogSink SINK = new LogSink(System.out, System.err);
 
-    private static final String TAB = "  ";
+    private static final InheritableThreadLocal<LogContext> CONTEXT = new InheritableThreadLocal<LogContext>() {
 
-    private static final ThreadLocal<LinkedList<Long>> START_TIMES = new ThreadLocal<LinkedList<Long>>();
+        @Override
+        protected LogContext initialValue() {
+            return new LogContext(0, 0);
+        }
 
-    private static OffsetStream infoWriter = new OffsetStream(System.out);
+        @Override
+        protected LogContext childValue(LogContext parentValue) {
+            return new LogContext(parentValue.offsetLevel, parentValue.tabLevel, parentValue.currentSpan());
+        }
 
-    private static OffsetStream errorWriter = new OffsetStream(System.err);
+    };
 
-    private static OffsetStream warnWriter = new OffsetStream(System.err);
+    private static final PrintStream infoWriter = new ContextStream(LogSink.OUT);
 
-    private static boolean silent;
+    private static final PrintStream errorWriter = new ContextStream(LogSink.ERR);
 
-    private static boolean verbose;
+    private static final PrintStream warnWriter = new ContextStream(LogSink.ERR);
+
+    private static volatile boolean silent;
+
+    private static volatile boolean verbose;
 
     /**
      * Set the silent mode to the specified mode.
@@ -74,8 +93,9 @@ public final class JkLog {
             return;
         }
         infoWriter.print(message + " ... ");
+        CONTEXT.get().flushPendingLine(SINK, LogSink.OUT);
         incOffset();
-        startTimer();
+        startTimer(message);
     }
 
     /**
@@ -93,16 +113,13 @@ public final class JkLog {
         return null;
     }
 
-    private static void startTimer() {
+    private static void startTimer(String message) {
         if (silent) {
             return;
         }
-        LinkedList<Long> times = START_TIMES.get();
-        if (times == null) {
-            times = new LinkedList<Long>();
-            START_TIMES.set(times);
-        }
-        times.push(System.nanoTime());
+        final LogContext context = CONTEXT.get();
+        context.spans.push(JkProfiler.isEnabled() ? JkProfiler.open(message, context.currentSpan()) : null);
+        context.startTimes.push(System.nanoTime());
     }
 
     /**
@@ -126,7 +143,7 @@ public final class JkLog {
         }
         infoUnderlined(message);
         incOffset();
-        startTimer();
+        startTimer(message);
     }
 
     /**
@@ -138,7 +155,7 @@ public final class JkLog {
         }
         infoHeaded(message);
         incOffset();
-        startTimer();
+        startTimer(message);
     }
 
     /**
@@ -173,9 +190,7 @@ public final class JkLog {
 
     // This method is called by reflection when changing classloader
     static void beginOfLine() {
-        infoWriter.beginOfLine = true;
-        warnWriter.beginOfLine = true;
-        errorWriter.beginOfLine = true;
+        SINK.beginOfLine();
     }
 
     private static void doneMessage(String message) {
@@ -183,13 +198,18 @@ public final class JkLog {
             return;
         }
         decOffset();
-        final LinkedList<Long> times = START_TIMES.get();
-        if (times == null || times.isEmpty()) {
+        final LogContext context = CONTEXT.get();
+        final LinkedList<Long> times = context.startTimes;
+        if (times.isEmpty()) {
             throw new IllegalStateException(
                     "This 'done' do no match to any 'start'. "
                             + "Please, use 'done' only to mention that the previous 'start' activity is done.");
         }
         final long start = times.poll();
+        final JkProfiler.Span span = context.spans.poll();
+        if (span != null) {
+            JkProfiler.close(span);
+        }
         infoWriter.println(" \\ " + message + " in " + JkUtilsTime.durationInSeconds(start)
         + " seconds.");
 
@@ -348,16 +368,43 @@ public final class JkLog {
         return errorWriter;
     }
 
+    /**
+     * Retains all the logs subsequently emitted by the current thread until {@link #stopBuffering()}
+     * is invoked. This way, the output of a task running concurrently with others is displayed as a
+     * whole, once the task is over.
+     */
+    public static void startBuffering() {
+        CONTEXT.get().startBuffering();
+    }
+
+    /**
+     * Emits at once the logs retained since {@link #startBuffering()} has been invoked on the current
+     * thread, and stops retaining them. Does nothing if the current thread is not buffering.
+     */
+    public static void stopBuffering() {
+        CONTEXT.get().stopBuffering(SINK);
+    }
+
+    /**
+     * Waits until all the logs emitted so far, including the uncompleted line of the current thread,
+     * have been written on the console. This should be invoked prior writing directly to
+     * <code>System.out</code> or <code>System.err</code>.
+     */
+    public static void flush() {
+        CONTEXT.get().flushPendingLines(SINK);
+        SINK.flush();
+    }
+
+    static LogContext context() {
+        return CONTEXT.get();
+    }
+
     private static void decOffset() {
-        infoWriter.dec();
-        warnWriter.dec();
-        errorWriter.dec();
+        CONTEXT.get().dec();
     }
 
     private static void incOffset() {
-        infoWriter.inc();
-        warnWriter.inc();
-        errorWriter.inc();
+        CONTEXT.get().inc();
     }
 
     /**
@@ -365,91 +412,66 @@ public final class JkLog {
      * <code>delta</code> characters to right.
      */
     public static void delta(int delta) {
-        infoWriter.tabLevel += delta;
-        errorWriter.tabLevel += delta;
-        warnWriter.tabLevel += delta;
+        CONTEXT.get().tabLevel += delta;
     }
 
     /**
      * Returns the current left margin size in character.
      */
     public static int offset() {
-        return infoWriter.offsetLevel;
+        return CONTEXT.get().offsetLevel;
     }
 
     static void offset(int offset) {
-        infoWriter.offsetLevel = offset;
-        errorWriter.offsetLevel = offset;
-        warnWriter.offsetLevel = offset;
+        CONTEXT.get().offsetLevel = offset;
     }
 
-    private static class OffsetStream extends PrintStream {
-
-        private static final String SEPARATOR = System.getProperty("line.separator");
-
-        private int offsetLevel;
-
-        private int tabLevel;
+    /*
+     * Print stream routing what is written to the log context of the current thread.
+     */
+    /**
+     * Returns a stream logging at info level on behalf of the current thread, meant to be written by
+     * another thread : lines are indented as the current thread logs now and are retained along its output
+     * while it is buffering. Flushing the stream writes the uncompleted line, if any.
+     */
+    static OutputStream infoStreamOfCurrentThread() {
+        final LogContext context = new LogContext(CONTEXT.get());
+        return new OutputStream() {
 
-        private boolean beginOfLine;
+            @Override
+            public void write(int b) {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
 
-        public OffsetStream(PrintStream delegate) {
-            super(delegate);
-        }
+            @Override
+            public void write(byte[] bytes, int off, int len) {
+                context.write(SINK, LogSink.OUT, bytes, off, len);
+            }
 
-        @Override
-        public void println(String s) {
-            super.println(s);
-            beginOfLine = true;
-        }
+            @Override
+            public void flush() {
+                context.flushPendingLines(SINK);
+            }
 
-        @Override
-        public void println() {
-            super.println();
-            beginOfLine = true;
-        }
+        };
+    }
 
-        @Override
-        public void print(String s) {
-            super.print(s);
-            beginOfLine = s.endsWith(SEPARATOR);
-        }
+    private static class ContextStream extends PrintStream {
 
-        @Override
-        public void write(byte[] cbuf, int off, int len) {
-            final byte[] filler = getFiller().getBytes();
-            final int lenght = filler.length;
-            if (lenght > 0 && beginOfLine) {
-                super.write(filler, 0, lenght);
-            }
-            super.write(cbuf, off, len);
-        }
+        public ContextStream(final int channel) {
+            super(new OutputStream() {
 
-        private String getFiller() {
-            if (offsetLevel == 0 && tabLevel == 0) {
-                return "";
-            }
-            if (offsetLevel == 1 && tabLevel == 0) {
-                return INDENT;
-            }
-            final StringBuilder result = new StringBuilder();
-            for (int i = 0; i < offsetLevel; i++) {
-                result.append(INDENT);
-            }
-            for (int i = 0; i < tabLevel; i++) {
-                result.append(TAB);
-            }
-            return result.toString();
-        }
+                @Override
+                public void write(int b) {
+                    write(new byte[] {(byte) b}, 0, 1);
+                }
 
-        public void inc() {
-            offsetLevel++;
-        }
+                @Override
+                public void write(byte[] bytes, int off, int len) {
+                    CONTEXT.get().write(SINK, channel, bytes, off, len);
+                }
 
-        public void dec() {
-            if (offsetLevel > 0) {
-                offsetLevel--;
-            }
+            });
         }
 
     }
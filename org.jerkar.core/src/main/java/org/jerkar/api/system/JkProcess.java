@@ -1,14 +1,18 @@
 package org.jerkar.api.system;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
-import org.jerkar.api.utils.JkUtilsIO;
-import org.jerkar.api.utils.JkUtilsIO.StreamGobbler;
+import org.jerkar.api.utils.JkUtilsConcurrent;
 import org.jerkar.api.utils.JkUtilsString;
 import org.jerkar.api.utils.JkUtilsSystem;
 
@@ -36,6 +40,9 @@ import org.jerkar.api.utils.JkUtilsSystem;
  * </pre>
  * 
  * .
+ * <p>
+ * The output of the process is copied to the log as is, without decoding it, and can also be captured
+ * to be read from the {@link JkProcessResult} returned by {@link #execute()}.
  * 
  * @author Jerome Angibaud
  */
@@ -51,11 +58,24 @@ public final class JkProcess implements Runnable {
 
     private final boolean failOnError;
 
-    private JkProcess(String command, List<String> parameters, File workingDir, boolean failOnError) {
+    private final Map<String, String> environment;
+
+    private final long timeoutMillis;
+
+    private final int outputCaptureSize;
+
+    private final boolean logOutput;
+
+    private JkProcess(String command, List<String> parameters, File workingDir, boolean failOnError,
+            Map<String, String> environment, long timeoutMillis, int outputCaptureSize, boolean logOutput) {
         this.command = command;
         this.parameters = parameters;
         this.workingDir = workingDir;
         this.failOnError = failOnError;
+        this.environment = environment;
+        this.timeoutMillis = timeoutMillis;
+        this.outputCaptureSize = outputCaptureSize;
+        this.logOutput = logOutput;
     }
 
     /**
@@ -63,7 +83,8 @@ public final class JkProcess implements Runnable {
      * parameters.
      */
     public static JkProcess of(String command, String... parameters) {
-        return new JkProcess(command, Arrays.asList(parameters), null, false);
+        return new JkProcess(command, Arrays.asList(parameters), null, false,
+                Collections.<String, String> emptyMap(), 0, 0, true);
     }
 
     /**
@@ -73,7 +94,7 @@ public final class JkProcess implements Runnable {
     public static JkProcess ofWinOrUx(String windowsCommand, String unixCommand,
             String... parameters) {
         final String cmd = JkUtilsSystem.IS_WINDOWS ? windowsCommand : unixCommand;
-        return new JkProcess(cmd, Arrays.asList(parameters), null, false);
+        return of(cmd, parameters);
     }
 
     /**
@@ -131,7 +152,8 @@ public final class JkProcess implements Runnable {
     public JkProcess andParameters(Collection<String> parameters) {
         final List<String> list = new ArrayList<String>(this.parameters);
         list.addAll(parameters);
-        return new JkProcess(command, list, workingDir, failOnError);
+        return new JkProcess(command, list, workingDir, failOnError, environment, timeoutMillis,
+                outputCaptureSize, logOutput);
     }
 
     /**
@@ -141,7 +163,8 @@ public final class JkProcess implements Runnable {
      * by the specified ones (not adding).
      */
     public JkProcess withParameters(String... parameters) {
-        return new JkProcess(command, Arrays.asList(parameters), workingDir, failOnError);
+        return new JkProcess(command, Arrays.asList(parameters), workingDir, failOnError, environment,
+                timeoutMillis, outputCaptureSize, logOutput);
     }
 
     /**
@@ -160,7 +183,8 @@ public final class JkProcess implements Runnable {
      * specified directory as the working directory.
      */
     public JkProcess withWorkingDir(File workingDir) {
-        return new JkProcess(command, parameters, workingDir, failOnError);
+        return new JkProcess(command, parameters, workingDir, failOnError, environment, timeoutMillis,
+                outputCaptureSize, logOutput);
     }
 
     /**
@@ -171,7 +195,45 @@ public final class JkProcess implements Runnable {
      * throw a {@link IllegalStateException}.
      */
     public JkProcess failOnError(boolean fail) {
-        return new JkProcess(command, parameters, workingDir, fail);
+        return new JkProcess(command, parameters, workingDir, fail, environment, timeoutMillis,
+                outputCaptureSize, logOutput);
+    }
+
+    /**
+     * Returns a <code>JkProcess</code> identical to this one but with the specified environment
+     * variable added to the ones inherited from the current process.
+     */
+    public JkProcess andEnv(String name, String value) {
+        final Map<String, String> map = new HashMap<String, String>(environment);
+        map.put(name, value);
+        return new JkProcess(command, parameters, workingDir, failOnError, Collections.unmodifiableMap(map),
+                timeoutMillis, outputCaptureSize, logOutput);
+    }
+
+    /**
+     * Returns a <code>JkProcess</code> identical to this one but killed if it does not exit within
+     * the specified time. 0 means no timeout.
+     */
+    public JkProcess withTimeout(long millis) {
+        return new JkProcess(command, parameters, workingDir, failOnError, environment, millis,
+                outputCaptureSize, logOutput);
+    }
+
+    /**
+     * Returns a <code>JkProcess</code> identical to this one but keeping the last
+     * <code>maxBytes</code> bytes of its output in the {@link JkProcessResult}. 0 means no capture.
+     */
+    public JkProcess withOutputCapture(int maxBytes) {
+        return new JkProcess(command, parameters, workingDir, failOnError, environment, timeoutMillis,
+                maxBytes, logOutput);
+    }
+
+    /**
+     * Returns a <code>JkProcess</code> identical to this one but copying or not its output to the log.
+     */
+    public JkProcess withLogOutput(boolean logOutput) {
+        return new JkProcess(command, parameters, workingDir, failOnError, environment, timeoutMillis,
+                outputCaptureSize, logOutput);
     }
 
     /**
@@ -189,45 +251,73 @@ public final class JkProcess implements Runnable {
      * current output.
      */
     public int runSync() {
-        final List<String> commands = new LinkedList<String>();
-        commands.add(this.command);
-        for (String param : parameters) {
-           // if (param.contains(" ")) {
-           //     commands.add("\""+ param + "\"");
-            //} else {
-                commands.add(param);
-            //}
-        }
-        JkLog.startln("Starting program : " + commands.toString());
-        final int result;
-        try {
-            final ProcessBuilder processBuilder = processBuilder(commands);
-            if (workingDir != null) {
-                processBuilder.directory(this.workingDir);
-            }
-            final Process process = processBuilder.start();
-            final StreamGobbler outputStreamGobbler = JkUtilsIO.newStreamGobbler(
-                    process.getInputStream(), JkLog.infoStream());
-            final StreamGobbler errorStreamGobbler = JkUtilsIO.newStreamGobbler(
-                    process.getErrorStream(), JkLog.warnStream());
-            process.waitFor();
-            outputStreamGobbler.stop();
-            errorStreamGobbler.stop();
-            result = process.exitValue();
-            if (result != 0 && failOnError) {
-                throw new IllegalStateException("The process has returned with error code "
-                        + result);
+        return execute().exitCode();
+    }
+
+    /**
+     * Same as {@link #runSync()} but returning the exit code along timings and captured output.
+     */
+    public JkProcessResult execute() {
+        JkLog.startln("Starting program : " + commandLine().toString());
+        final JkProcessResult result = start().waitFor();
+        if (!result.isSuccess() && failOnError) {
+            if (result.isTimedOut()) {
+                throw new IllegalStateException("The process has been killed after a timeout of "
+                        + timeoutMillis + " ms");
             }
-        } catch (final Exception e) {
-            throw new RuntimeException(e);
+            throw new IllegalStateException("The process has returned with error code "
+                    + result.exitCode());
         }
-        JkLog.done(" process exit with return code : " + result);
+        JkLog.done(" process exit with return code : " + result.exitCode());
         return result;
     }
 
+    /**
+     * Starts this process and returns immediately. The returned handle allows to wait for the process
+     * result or to cancel it.
+     */
+    public JkProcessHandle start() {
+        final List<String> commands = commandLine();
+        final Process process;
+        try {
+            process = processBuilder(commands).start();
+        } catch (final IOException e) {
+            throw new RuntimeException("Can not start process " + commands, e);
+        }
+        return new JkProcessHandle(toString(), process, logOutput ? JkLog.infoStreamOfCurrentThread() : null,
+                outputCaptureSize, timeoutMillis);
+    }
+
+    /**
+     * Runs the specified processes, at most <code>maxConcurrentProcesses</code> at once, and returns their
+     * results in the same order. The output of processes running concurrently may interleave in the log
+     * so you may prefer to capture it instead.
+     */
+    public static List<JkProcessResult> executeAll(Iterable<JkProcess> processes, int maxConcurrentProcesses) {
+        final List<Callable<JkProcessResult>> tasks = new ArrayList<Callable<JkProcessResult>>();
+        for (final JkProcess process : processes) {
+            tasks.add(new Callable<JkProcessResult>() {
+
+                @Override
+                public JkProcessResult call() {
+                    return process.execute();
+                }
+            });
+        }
+        return JkUtilsConcurrent.invokeAll("process", tasks, maxConcurrentProcesses);
+    }
+
+    private List<String> commandLine() {
+        final List<String> commands = new LinkedList<String>();
+        commands.add(this.command);
+        commands.addAll(parameters);
+        return commands;
+    }
+
     private ProcessBuilder processBuilder(List<String> command) {
         final ProcessBuilder builder = new ProcessBuilder(command);
         builder.redirectErrorStream(true);
+        builder.environment().putAll(environment);
         if (this.workingDir != null) {
             builder.directory(workingDir);
         }
@@ -255,6 +345,20 @@ public final class JkProcess implements Runnable {
         this.runSync();
     }
 
+    /**
+     * Returns the command launched by this process.
+     */
+    public String command() {
+        return command;
+    }
+
+    /**
+     * Returns the parameters passed to the command.
+     */
+    public List<String> parameters() {
+        return Collections.unmodifiableList(parameters);
+    }
+
     /**
      * Returns the working directory of this process.
      */
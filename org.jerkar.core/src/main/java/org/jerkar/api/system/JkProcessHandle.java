@@ -0,0 +1,163 @@
+package org.jerkar.api.system;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.jerkar.api.utils.JkUtilsConcurrent;
+import org.jerkar.api.utils.JkUtilsIO;
+
+/**
+ * A process started through {@link JkProcess#start()}. The output of the process is copied by a
+ * thread of a pool shared by all processes, so launching processes does not create threads once
+ * the pool is warm. The output is logged as if the thread having started the process did.
+ *
+ * @author Jerome Angibaud
+ */
+public final class JkProcessHandle {
+
+    // Reading process output blocks so each running process holds one thread, threads are reused afterward
+    private static final ExecutorService OUTPUT_PUMPS = JkUtilsConcurrent.newCachedPool("process-output");
+
+    private static final ScheduledExecutorService TIMEOUTS = JkUtilsConcurrent.newScheduler("process-timeout");
+
+    private final String command;
+
+    private final Process process;
+
+    private final long startTime;
+
+    private final long startNanos;
+
+    private final BoundedCapture capture;
+
+    private final Future<?> pump;
+
+    private final ScheduledFuture<?> timeout;
+
+    private volatile boolean timedOut;
+
+    private volatile boolean cancelled;
+
+    private JkProcessResult result;
+
+    JkProcessHandle(String command, Process process, OutputStream log, int captureSize, long timeoutMillis) {
+        this.command = command;
+        this.process = process;
+        this.startTime = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+        this.capture = new BoundedCapture(captureSize);
+        this.pump = OUTPUT_PUMPS.submit(new Pump(process.getInputStream(), log, capture));
+        if (timeoutMillis > 0) {
+            this.timeout = TIMEOUTS.schedule(new Runnable() {
+
+                @Override
+                public void run() {
+                    timedOut = true;
+                    JkProcessHandle.this.process.destroy();
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.timeout = null;
+        }
+    }
+
+    /**
+     * Kills the process. {@link #waitFor()} then returns a result flagged as cancelled.
+     */
+    public void cancel() {
+        cancelled = true;
+        process.destroy();
+    }
+
+    /**
+     * Returns <code>true</code> if the process has not exited yet.
+     */
+    public boolean isRunning() {
+        try {
+            process.exitValue();
+            return false;
+        } catch (final IllegalThreadStateException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Waits for the process to exit and its output to be fully read, then returns its result.
+     */
+    public synchronized JkProcessResult waitFor() {
+        if (result != null) {
+            return result;
+        }
+        final int exitCode;
+        try {
+            exitCode = process.waitFor();
+        } catch (final InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        JkUtilsConcurrent.get(pump);
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+        final long durationMillis = (System.nanoTime() - startNanos) / 1000000;
+        result = new JkProcessResult(command, exitCode, startTime, durationMillis, timedOut,
+                cancelled && !timedOut, capture.bytes(), capture.count());
+        return result;
+    }
+
+    private static final class Pump implements Runnable {
+
+        private final InputStream in;
+
+        private final OutputStream log;
+
+        private final OutputStream capture;
+
+        Pump(InputStream in, OutputStream log, OutputStream capture) {
+            this.in = in;
+            this.log = log;
+            this.capture = capture;
+        }
+
+        // Copies bytes as they come, without decoding lines
+        @Override
+        public void run() {
+            final byte[] buffer = new byte[8192];
+            try {
+                int count;
+                while ((count = in.read(buffer)) != -1) {
+                    if (log != null) {
+                        log.write(buffer, 0, count);
+                    }
+                    capture.write(buffer, 0, count);
+                }
+            } catch (final IOException e) {
+                // The pipe is closed when the process is destroyed : the output just ends here
+            } finally {
+                JkUtilsIO.closeQuietly(in);
+                flushLog();
+            }
+        }
+
+        // The last line of the output may not be terminated
+        private void flushLog() {
+            if (log == null) {
+                return;
+            }
+            try {
+                log.flush();
+            } catch (final IOException e) {
+                // Log streams do not throw
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,124 @@
+package org.jerkar.api.system;
+
+/**
+ * Outcome of an external process run by {@link JkProcess} : exit code, timings and, when
+ * capture is requested, the last bytes written by the process on its standard and error output.
+ *
+ * @author Jerome Angibaud
+ */
+public final class JkProcessResult {
+
+    private final String command;
+
+    private final int exitCode;
+
+    private final long startTime;
+
+    private final long durationMillis;
+
+    private final boolean timedOut;
+
+    private final boolean cancelled;
+
+    private final byte[] output;
+
+    private final long outputSize;
+
+    JkProcessResult(String command, int exitCode, long startTime, long durationMillis, boolean timedOut,
+            boolean cancelled, byte[] output, long outputSize) {
+        this.command = command;
+        this.exitCode = exitCode;
+        this.startTime = startTime;
+        this.durationMillis = durationMillis;
+        this.timedOut = timedOut;
+        this.cancelled = cancelled;
+        this.output = output;
+        this.outputSize = outputSize;
+    }
+
+    /**
+     * Returns the command line of the process.
+     */
+    public String command() {
+        return command;
+    }
+
+    /**
+     * Returns the exit code of the process.
+     */
+    public int exitCode() {
+        return exitCode;
+    }
+
+    /**
+     * Returns <code>true</code> if the process has exited with 0 code, without being cancelled nor timed out.
+     */
+    public boolean isSuccess() {
+        return exitCode == 0 && !timedOut && !cancelled;
+    }
+
+    /**
+     * Returns the time the process has been started at, in milliseconds since epoch.
+     */
+    public long startTime() {
+        return startTime;
+    }
+
+    /**
+     * Returns the time elapsed between process start and the end of its output.
+     */
+    public long durationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * Returns <code>true</code> if the process has been killed for exceeding its timeout.
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Returns <code>true</code> if the process has been killed through {@link JkProcessHandle#cancel()}.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns the captured output decoded with the platform charset. This is empty if output capture
+     * was not requested, see {@link JkProcess#withOutputCapture(int)}.
+     */
+    public String output() {
+        return new String(output);
+    }
+
+    /**
+     * Returns the captured output as raw bytes.
+     */
+    public byte[] outputBytes() {
+        return output.clone();
+    }
+
+    /**
+     * Returns the number of bytes the process has written on its output, captured or not.
+     */
+    public long outputSize() {
+        return outputSize;
+    }
+
+    /**
+     * Returns <code>true</code> if the captured output lacks the beginning of the process output
+     * because it exceeded the capture size.
+     */
+    public boolean isOutputTruncated() {
+        return outputSize > output.length;
+    }
+
+    @Override
+    public String toString() {
+        return command + " : exit code " + exitCode + (timedOut ? " (timed out)" : "")
+                + (cancelled ? " (cancelled)" : "") + " in " + durationMillis + " ms";
+    }
+
+}
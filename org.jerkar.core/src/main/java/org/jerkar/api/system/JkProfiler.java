@@ -0,0 +1,317 @@
+package org.jerkar.api.system;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jerkar.api.utils.JkUtilsFile;
+
+/**
+ * Records the tasks logged through {@link JkLog#start(String)}/{@link JkLog#done()} as timed spans in
+ * order to see where build time goes. Each span knows its name, its parent span, the thread it ran
+ * on, its start time and duration. Counters (as the number of compiled files) can be attached to
+ * the running span using {@link #count(String, long)}.
+ * <p>
+ * Profiling is disabled by default. When disabled nothing is recorded.
+ * <p>
+ * Spans are recorded for the whole JVM. To export only the spans of a part of it (as the build of a
+ * single project), take a {@link #mark()} before it starts and pass it to the export methods.
+ *
+ * @author Jerome Angibaud
+ */
+public final class JkProfiler {
+
+    private static volatile boolean enabled;
+
+    private static final AtomicLong ID_SEQUENCE = new AtomicLong();
+
+    private static final Queue<Span> SPANS = new ConcurrentLinkedQueue<Span>();
+
+    private JkProfiler() {
+        // prevent instantiation
+    }
+
+    /**
+     * Starts recording spans.
+     */
+    public static void enable() {
+        enabled = true;
+    }
+
+    /**
+     * Stops recording spans. Spans recorded so far are kept.
+     */
+    public static void disable() {
+        enabled = false;
+    }
+
+    /**
+     * Returns <code>true</code> if spans are currently recorded.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Forgets all the spans recorded so far.
+     */
+    public static void reset() {
+        SPANS.clear();
+    }
+
+    /**
+     * Adds the specified amount to the named counter of the span currently running on this thread.
+     * Does nothing if profiling is disabled or no span is running.
+     */
+    public static void count(String counterName, long amount) {
+        if (!enabled) {
+            return;
+        }
+        final Span span = JkLog.context().currentSpan();
+        if (span != null) {
+            span.add(counterName, amount);
+        }
+    }
+
+    /**
+     * Returns a mark standing for the current time : spans started after this call are said to be
+     * recorded since this mark.
+     */
+    public static long mark() {
+        return ID_SEQUENCE.get();
+    }
+
+    /**
+     * Returns <code>true</code> if at least one span has been recorded.
+     */
+    public static boolean hasSpans() {
+        return hasSpans(0);
+    }
+
+    /**
+     * Returns <code>true</code> if at least one span has been recorded since the specified mark.
+     */
+    public static boolean hasSpans(long mark) {
+        for (final Span span : SPANS) {
+            if (span.id > mark) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the recorded spans in the specified file using the Chrome trace event format. The file
+     * can be loaded in <code>chrome://tracing</code> or any compatible viewer.
+     */
+    public static void writeChromeTrace(File file) {
+        writeChromeTrace(file, 0);
+    }
+
+    /**
+     * Same as {@link #writeChromeTrace(File)} but writing only the spans recorded since the
+     * specified mark.
+     */
+    public static void writeChromeTrace(File file, long mark) {
+        final List<Span> spans = sortedSpans(mark);
+        final long origin = spans.isEmpty() ? 0 : spans.get(0).startNanos;
+        final StringBuilder builder = new StringBuilder();
+        builder.append("{\"traceEvents\":[\n");
+        final Map<Long, String> threads = new LinkedHashMap<Long, String>();
+        boolean first = true;
+        for (final Span span : spans) {
+            threads.put(span.threadId, span.threadName);
+            if (!first) {
+                builder.append(",\n");
+            }
+            first = false;
+            builder.append("{\"name\":").append(json(span.name))
+            .append(",\"cat\":\"jerkar\",\"ph\":\"X\",\"pid\":1,\"tid\":").append(span.threadId)
+            .append(",\"ts\":").append((span.startNanos - origin) / 1000)
+            .append(",\"dur\":").append(span.durationNanos() / 1000)
+            .append(",\"args\":{\"id\":").append(span.id).append(",\"parent\":").append(span.parentId);
+            for (final Map.Entry<String, Long> counter : span.counters().entrySet()) {
+                builder.append(",").append(json(counter.getKey())).append(":").append(counter.getValue());
+            }
+            builder.append("}}");
+        }
+        for (final Map.Entry<Long, String> thread : threads.entrySet()) {
+            builder.append(",\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":").append(thread.getKey())
+            .append(",\"args\":{\"name\":").append(json(thread.getValue())).append("}}");
+        }
+        builder.append("\n]}\n");
+        JkUtilsFile.writeString(file, builder.toString(), false);
+    }
+
+    /**
+     * Writes the recorded spans in the specified file as a flat CSV table, one span per row. Beside the
+     * duration of each span, the <i>self</i> column gives the time not spent in child spans running on the
+     * same thread.
+     */
+    public static void writeCsv(File file) {
+        writeCsv(file, 0);
+    }
+
+    /**
+     * Same as {@link #writeCsv(File)} but writing only the spans recorded since the specified mark.
+     */
+    public static void writeCsv(File file, long mark) {
+        final List<Span> spans = sortedSpans(mark);
+        final long origin = spans.isEmpty() ? 0 : spans.get(0).startNanos;
+        final Map<Long, Long> childDurations = new HashMap<Long, Long>();
+        final Map<Long, Span> spansById = new HashMap<Long, Span>();
+        for (final Span span : spans) {
+            spansById.put(span.id, span);
+        }
+        final Set<String> counterNames = new LinkedHashSet<String>();
+        for (final Span span : spans) {
+            counterNames.addAll(span.counters().keySet());
+            final Span parent = spansById.get(span.parentId);
+            if (parent != null && parent.threadId == span.threadId) {
+                final Long current = childDurations.get(parent.id);
+                childDurations.put(parent.id, (current == null ? 0 : current) + span.durationNanos());
+            }
+        }
+        final StringBuilder builder = new StringBuilder();
+        builder.append("id,parent,name,thread,start (ms),duration (ms),self (ms)");
+        for (final String counterName : counterNames) {
+            builder.append(",").append(csv(counterName));
+        }
+        builder.append("\n");
+        for (final Span span : spans) {
+            final Long children = childDurations.get(span.id);
+            final long self = span.durationNanos() - (children == null ? 0 : children);
+            builder.append(span.id).append(",").append(span.parentId).append(",").append(csv(span.name))
+            .append(",").append(csv(span.threadName))
+            .append(",").append(millis(span.startNanos - origin))
+            .append(",").append(millis(span.durationNanos()))
+            .append(",").append(millis(self));
+            final Map<String, Long> counters = span.counters();
+            for (final String counterName : counterNames) {
+                final Long value = counters.get(counterName);
+                builder.append(",").append(value == null ? "" : value.toString());
+            }
+            builder.append("\n");
+        }
+        JkUtilsFile.writeString(file, builder.toString(), false);
+    }
+
+    static Span open(String name, Span parent) {
+        final Thread thread = Thread.currentThread();
+        return new Span(ID_SEQUENCE.incrementAndGet(), parent == null ? 0 : parent.id, name.trim(),
+                thread.getId(), thread.getName());
+    }
+
+    static void close(Span span) {
+        span.endNanos = System.nanoTime();
+        SPANS.add(span);
+    }
+
+    private static List<Span> sortedSpans(long mark) {
+        final List<Span> result = new ArrayList<Span>();
+        for (final Span span : SPANS) {
+            if (span.id > mark) {
+                result.add(span);
+            }
+        }
+        Collections.sort(result, new Comparator<Span>() {
+
+            @Override
+            public int compare(Span span1, Span span2) {
+                if (span1.startNanos == span2.startNanos) {
+                    return span1.id < span2.id ? -1 : (span1.id == span2.id ? 0 : 1);
+                }
+                return span1.startNanos < span2.startNanos ? -1 : 1;
+            }
+        });
+        return result;
+    }
+
+    private static String millis(long nanos) {
+        return Long.toString(nanos / 1000000);
+    }
+
+    private static String json(String value) {
+        final StringBuilder builder = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * A timed task.
+     */
+    static final class Span {
+
+        final long id;
+
+        final long parentId;
+
+        final String name;
+
+        final long threadId;
+
+        final String threadName;
+
+        final long startNanos = System.nanoTime();
+
+        volatile long endNanos;
+
+        private Map<String, Long> counters;
+
+        Span(long id, long parentId, String name, long threadId, String threadName) {
+            this.id = id;
+            this.parentId = parentId;
+            this.name = name;
+            this.threadId = threadId;
+            this.threadName = threadName;
+        }
+
+        // Child threads may count on the span of their parent thread
+        synchronized void add(String counterName, long amount) {
+            if (counters == null) {
+                counters = new LinkedHashMap<String, Long>();
+            }
+            final Long current = counters.get(counterName);
+            counters.put(counterName, (current == null ? 0 : current) + amount);
+        }
+
+        synchronized Map<String, Long> counters() {
+            if (counters == null) {
+                return Collections.emptyMap();
+            }
+            return new LinkedHashMap<String, Long>(counters);
+        }
+
+        long durationNanos() {
+            return endNanos - startNanos;
+        }
+
+    }
+
+}
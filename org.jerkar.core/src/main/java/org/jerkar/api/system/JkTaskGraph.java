@@ -0,0 +1,179 @@
+package org.jerkar.api.system;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.jerkar.api.utils.JkUtilsConcurrent;
+
+/**
+ * A set of named tasks, each declaring the tasks it depends on, run so that independent tasks
+ * overlap on a bounded pool of threads. A task starts once all the tasks it depends on are
+ * done. As dependencies must be declared before the tasks depending on them, the graph is
+ * acyclic and running tasks in declaration order is always valid : this is what happens when a
+ * single thread is allowed.
+ * <p>
+ * When tasks run concurrently, the logs of each task are retained and displayed as a whole once
+ * the task is over, so logs of distinct tasks are never mixed. If a task fails, no other task is
+ * started, the running ones are waited for and the failure is rethrown.
+ *
+ * @author Jerome Angibaud
+ */
+public final class JkTaskGraph {
+
+    private final String name;
+
+    private final Map<String, Task> tasks;
+
+    private JkTaskGraph(String name, Map<String, Task> tasks) {
+        this.name = name;
+        this.tasks = tasks;
+    }
+
+    /**
+     * Creates an empty graph. The name is used to name the threads running the tasks.
+     */
+    public static JkTaskGraph of(String name) {
+        return new JkTaskGraph(name, new LinkedHashMap<String, Task>());
+    }
+
+    /**
+     * Returns a graph made of the tasks of this one plus the specified one, starting only once the
+     * specified tasks are done. The tasks depended on must have been added beforehand.
+     */
+    public JkTaskGraph and(String taskName, Runnable runnable, String... dependencies) {
+        if (tasks.containsKey(taskName)) {
+            throw new IllegalArgumentException("Task " + taskName + " is already declared in " + name + ".");
+        }
+        for (final String dependency : dependencies) {
+            if (!tasks.containsKey(dependency)) {
+                throw new IllegalArgumentException("Task " + taskName + " depends on " + dependency
+                        + " that is not declared beforehand in " + name + ".");
+            }
+        }
+        final Map<String, Task> map = new LinkedHashMap<String, Task>(tasks);
+        map.put(taskName, new Task(taskName, runnable, Arrays.asList(dependencies)));
+        return new JkTaskGraph(name, map);
+    }
+
+    /**
+     * Returns the names of the tasks of this graph, in declaration order.
+     */
+    public Set<String> taskNames() {
+        return Collections.unmodifiableSet(tasks.keySet());
+    }
+
+    /**
+     * Runs the tasks on at most the specified number of threads. With a single thread, tasks run
+     * in the current thread in declaration order.
+     */
+    public void run(int maxThreads) {
+        if (maxThreads <= 1 || tasks.size() <= 1) {
+            for (final Task task : tasks.values()) {
+                task.runnable.run();
+            }
+            return;
+        }
+        final ExecutorService executorService = JkUtilsConcurrent.newPool(name,
+                Math.min(maxThreads, tasks.size()));
+        try {
+            run(new ExecutorCompletionService<String>(executorService));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private void run(CompletionService<String> completionService) {
+        final Set<String> done = new HashSet<String>();
+        final Set<String> submitted = new HashSet<String>();
+        int running = submitReady(completionService, done, submitted);
+        RuntimeException exception = null;
+        Error error = null;
+        while (running > 0) {
+            final Future<String> future;
+            try {
+                future = completionService.take();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            running--;
+            try {
+                done.add(JkUtilsConcurrent.get(future));
+            } catch (final RuntimeException e) {
+                exception = exception == null ? e : exception;
+            } catch (final Error e) {
+                error = error == null ? e : error;
+            }
+            if (exception == null && error == null) {
+                running += submitReady(completionService, done, submitted);
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    // Submits the tasks whose dependencies are all done, in declaration order
+    private int submitReady(CompletionService<String> completionService, Set<String> done,
+            Set<String> submitted) {
+        int count = 0;
+        for (final Task task : tasks.values()) {
+            if (!submitted.contains(task.name) && done.containsAll(task.dependencies)) {
+                completionService.submit(task);
+                submitted.add(task.name);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        final Map<String, List<String>> result = new LinkedHashMap<String, List<String>>();
+        for (final Task task : tasks.values()) {
+            result.put(task.name, task.dependencies);
+        }
+        return name + result;
+    }
+
+    private static final class Task implements Callable<String> {
+
+        private final String name;
+
+        private final Runnable runnable;
+
+        private final List<String> dependencies;
+
+        Task(String name, Runnable runnable, List<String> dependencies) {
+            this.name = name;
+            this.runnable = runnable;
+            this.dependencies = dependencies;
+        }
+
+        @Override
+        public String call() {
+            JkLog.startBuffering();
+            try {
+                runnable.run();
+                return name;
+            } finally {
+                JkLog.stopBuffering();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,181 @@
+package org.jerkar.api.system;
+
+import java.io.ByteArrayOutputStream;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Log state of a single thread : nesting level, timers and profiling spans of started tasks and lines being written.
+ * Instances are only accessed by their owner thread, except the retained output that forwarding contexts
+ * (see {@link #LogContext(LogContext)}) append to from other threads.
+ */
+final class LogContext {
+
+    private static final String INDENT = "|  ";
+
+    private static final String TAB = "  ";
+
+    private static final int PRECOMPUTED_LEVELS = 16;
+
+    // Prefixes indexed by [offsetLevel][tabLevel]
+    private static final byte[][][] PREFIXES = new byte[PRECOMPUTED_LEVELS][PRECOMPUTED_LEVELS][];
+
+    static {
+        for (int offset = 0; offset < PRECOMPUTED_LEVELS; offset++) {
+            for (int tab = 0; tab < PRECOMPUTED_LEVELS; tab++) {
+                PREFIXES[offset][tab] = computePrefix(offset, tab);
+            }
+        }
+    }
+
+    int offsetLevel;
+
+    int tabLevel;
+
+    final LinkedList<Long> startTimes = new LinkedList<Long>();
+
+    // Same depth than startTimes, elements are null when profiling is disabled
+    final LinkedList<JkProfiler.Span> spans = new LinkedList<JkProfiler.Span>();
+
+    // Span running in the thread that started this one, if any
+    private final JkProfiler.Span inheritedSpan;
+
+    // Context receiving the lines written in this one, or null if lines go directly to the sink
+    private final LogContext target;
+
+    private final ByteArrayOutputStream[] pendingLines = new ByteArrayOutputStream[] {
+            new ByteArrayOutputStream(), new ByteArrayOutputStream() };
+
+    // Not null while this context retains its output
+    private List<LogSink.Chunk> buffer;
+
+    LogContext(int offsetLevel, int tabLevel) {
+        this(offsetLevel, tabLevel, null);
+    }
+
+    LogContext(int offsetLevel, int tabLevel, JkProfiler.Span inheritedSpan) {
+        this(offsetLevel, tabLevel, inheritedSpan, null);
+    }
+
+    /**
+     * Creates a context for another thread writing on behalf of the specified one : lines get the current
+     * indentation of the specified context and are retained along its output while it is buffering.
+     */
+    LogContext(LogContext target) {
+        this(target.offsetLevel, target.tabLevel, target.currentSpan(), target);
+    }
+
+    private LogContext(int offsetLevel, int tabLevel, JkProfiler.Span inheritedSpan, LogContext target) {
+        this.offsetLevel = offsetLevel;
+        this.tabLevel = tabLevel;
+        this.inheritedSpan = inheritedSpan;
+        this.target = target;
+    }
+
+    /** Returns the innermost span running on this thread. */
+    JkProfiler.Span currentSpan() {
+        for (final JkProfiler.Span span : spans) {
+            if (span != null) {
+                return span;
+            }
+        }
+        return inheritedSpan;
+    }
+
+    /**
+     * Appends bytes to the specified channel. Each completed line is submitted to the sink, the
+     * remaining bytes are kept until the line is completed or {@link #flushPendingLine(LogSink, int)} is invoked.
+     */
+    void write(LogSink sink, int channel, byte[] bytes, int offset, int length) {
+        final ByteArrayOutputStream pendingLine = pendingLines[channel];
+        final int end = offset + length;
+        int lineStart = offset;
+        for (int i = offset; i < end; i++) {
+            if (bytes[i] == '\n') {
+                pendingLine.write(bytes, lineStart, i + 1 - lineStart);
+                emit(sink, channel, true);
+                lineStart = i + 1;
+            }
+        }
+        if (lineStart < end) {
+            pendingLine.write(bytes, lineStart, end - lineStart);
+        }
+    }
+
+    /** Submits the uncompleted line of the specified channel, if any. */
+    void flushPendingLine(LogSink sink, int channel) {
+        if (pendingLines[channel].size() > 0) {
+            emit(sink, channel, false);
+        }
+    }
+
+    void flushPendingLines(LogSink sink) {
+        flushPendingLine(sink, LogSink.OUT);
+        flushPendingLine(sink, LogSink.ERR);
+    }
+
+    synchronized void startBuffering() {
+        if (buffer == null) {
+            buffer = new LinkedList<LogSink.Chunk>();
+        }
+    }
+
+    synchronized void stopBuffering(LogSink sink) {
+        if (buffer == null) {
+            return;
+        }
+        flushPendingLines(sink);
+        final List<LogSink.Chunk> chunks = buffer;
+        buffer = null;
+        sink.submit(chunks);
+    }
+
+    void inc() {
+        offsetLevel++;
+    }
+
+    void dec() {
+        if (offsetLevel > 0) {
+            offsetLevel--;
+        }
+    }
+
+    private void emit(LogSink sink, int channel, boolean endOfLine) {
+        final ByteArrayOutputStream pendingLine = pendingLines[channel];
+        final LogSink.Chunk chunk = new LogSink.Chunk(this, channel, prefix(), pendingLine.toByteArray(),
+                endOfLine);
+        pendingLine.reset();
+        if (target != null) {
+            target.submit(sink, chunk);
+        } else {
+            submit(sink, chunk);
+        }
+    }
+
+    private synchronized void submit(LogSink sink, LogSink.Chunk chunk) {
+        if (buffer != null) {
+            buffer.add(chunk);
+        } else {
+            sink.submit(chunk);
+        }
+    }
+
+    private byte[] prefix() {
+        if (offsetLevel < PRECOMPUTED_LEVELS && tabLevel >= 0 && tabLevel < PRECOMPUTED_LEVELS) {
+            return PREFIXES[offsetLevel][tabLevel];
+        }
+        return computePrefix(offsetLevel, tabLevel);
+    }
+
+    private static byte[] computePrefix(int offsetLevel, int tabLevel) {
+        final StringBuilder result = new StringBuilder();
+        for (int i = 0; i < offsetLevel; i++) {
+            result.append(INDENT);
+        }
+        for (int i = 0; i < tabLevel; i++) {
+            result.append(TAB);
+        }
+        return result.toString().getBytes();
+    }
+
+}
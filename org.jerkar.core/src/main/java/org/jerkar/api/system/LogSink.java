@@ -0,0 +1,162 @@
+package org.jerkar.api.system;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Single writer for all the log output of this classloader. Threads never write directly to the
+ * console : they submit {@link Chunk}s that are written asynchronously, in submission order, by a
+ * dedicated daemon thread. A chunk is either a complete line or the beginning of a line (as the
+ * message of {@link JkLog#start(String)}). When a chunk does not continue the line left open by the
+ * previous one, the open line is terminated first so lines coming from different threads never get mixed.
+ */
+final class LogSink {
+
+    static final int OUT = 0;
+
+    static final int ERR = 1;
+
+    private static final byte[] LINE_SEPARATOR = System.getProperty("line.separator").getBytes();
+
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<Object>();
+
+    private final PrintStream[] streams;
+
+    // Accessed by the writer thread only
+    private Object openLineOwner;
+
+    private int openLineChannel;
+
+    LogSink(PrintStream out, PrintStream err) {
+        this.streams = new PrintStream[] {out, err};
+        final Thread thread = new Thread(new Writer(), "jerkar-log-writer");
+        thread.setDaemon(true);
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                flush();
+            }
+        }));
+    }
+
+    void submit(Chunk chunk) {
+        queue.add(chunk);
+    }
+
+    /** Submits the specified chunks so they are written contiguously. */
+    void submit(List<Chunk> chunks) {
+        if (!chunks.isEmpty()) {
+            queue.add(new ArrayList<Chunk>(chunks));
+        }
+    }
+
+    /** Forgets about the line left open so the next chunk starts with its prefix. */
+    void beginOfLine() {
+        queue.add(Marker.BEGIN_OF_LINE);
+    }
+
+    /** Blocks until all the chunks submitted so far have been written. */
+    void flush() {
+        final CountDownLatch latch = new CountDownLatch(1);
+        queue.add(latch);
+        try {
+            latch.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void handle(Object item) {
+        if (item instanceof Chunk) {
+            write((Chunk) item);
+        } else if (item instanceof List) {
+            for (final Chunk chunk : (List<Chunk>) item) {
+                write(chunk);
+            }
+        } else if (item == Marker.BEGIN_OF_LINE) {
+            openLineOwner = null;
+        } else if (item instanceof CountDownLatch) {
+            streams[OUT].flush();
+            streams[ERR].flush();
+            ((CountDownLatch) item).countDown();
+        }
+    }
+
+    private void write(Chunk chunk) {
+        if (openLineOwner != null && (openLineOwner != chunk.owner || openLineChannel != chunk.channel)) {
+            streams[openLineChannel].write(LINE_SEPARATOR, 0, LINE_SEPARATOR.length);
+            openLineOwner = null;
+        }
+        final PrintStream stream = streams[chunk.channel];
+        if (openLineOwner == null && chunk.prefix.length > 0) {
+            stream.write(chunk.prefix, 0, chunk.prefix.length);
+        }
+        stream.write(chunk.content, 0, chunk.content.length);
+        if (chunk.endOfLine) {
+            openLineOwner = null;
+        } else {
+            openLineOwner = chunk.owner;
+            openLineChannel = chunk.channel;
+        }
+    }
+
+    private class Writer implements Runnable {
+
+        @Override
+        public void run() {
+            final List<Object> items = new ArrayList<Object>();
+            while (true) {
+                try {
+                    items.add(queue.take());
+                } catch (final InterruptedException e) {
+                    return;
+                }
+                queue.drainTo(items);
+                for (final Object item : items) {
+                    handle(item);
+                }
+                items.clear();
+                streams[OUT].flush();
+                streams[ERR].flush();
+            }
+        }
+
+    }
+
+    private enum Marker {
+        BEGIN_OF_LINE
+    }
+
+    /**
+     * A piece of log output, ready to be written.
+     */
+    static final class Chunk {
+
+        final Object owner;
+
+        final int channel;
+
+        final byte[] prefix;
+
+        final byte[] content;
+
+        final boolean endOfLine;
+
+        Chunk(Object owner, int channel, byte[] prefix, byte[] content, boolean endOfLine) {
+            this.owner = owner;
+            this.channel = channel;
+            this.prefix = prefix;
+            this.content = content;
+            this.endOfLine = endOfLine;
+        }
+
+    }
+
+}
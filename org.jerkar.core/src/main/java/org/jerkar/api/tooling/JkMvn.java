@@ -92,7 +92,8 @@ public final class JkMvn implements Runnable {
     }
 
     /**
-     * Reads the dependencies of this Maven project
+     * Reads the dependencies of this Maven project. This launches Maven, {@link JkPomResolver} gets
+     * the declared dependencies much faster without requiring Maven.
      */
     public JkDependencies readDependencies() {
         final File file = JkUtilsFile.tempFile("dependency", ".txt");
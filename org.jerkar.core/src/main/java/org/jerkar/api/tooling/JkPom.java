@@ -15,7 +15,7 @@ import org.w3c.dom.Element;
 
 /**
  * Wraps a POM file (Ideally an effective POM file) and provides convenient methods to extract
- * information jump.
+ * information jump. Effective POMs can be computed natively using {@link JkPomResolver}.
  *
  * @author Jerome Angibaud
  */
@@ -36,6 +36,10 @@ public final class JkPom {
         return new JkPom(document);
     }
 
+    static JkPom of(Document document) {
+        return new JkPom(document);
+    }
+
     private Element dependenciesElement() {
         return JkUtilsXml.directChild(projectEl(), "dependencies");
     }
@@ -0,0 +1,254 @@
+package org.jerkar.api.tooling;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jerkar.api.depmanagement.JkModuleDependency;
+import org.jerkar.api.depmanagement.JkRepo;
+import org.jerkar.api.depmanagement.JkRepos;
+import org.jerkar.api.depmanagement.JkVersionedModule;
+import org.jerkar.api.utils.JkUtilsConcurrent;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsObject;
+
+/**
+ * Computes effective POMs natively, without launching Maven. The effective POM of a project
+ * combines its parent POM chain, the profiles activated by the JDK version or by properties,
+ * the dependency management imported from BOMs and interpolates property expressions. The
+ * dependencies of the returned {@link JkPom} have their version, scope and exclusions completed
+ * from the dependency management.
+ * <p>
+ * Parent and imported POMs are looked up next to the project files (following the parent
+ * <code>relativePath</code>) then in the repositories of this resolver. Parsed POMs
+ * are cached in the resolver so computing effective POMs of modules sharing parents or BOMs is
+ * fast. A resolver can be used from several threads at once.
+ * <p>
+ * Profiles activated by OS or file conditions, plugins and build sections are not taken in account.
+ *
+ * @author Jerome Angibaud
+ */
+public final class JkPomResolver {
+
+    /**
+     * Creates a resolver fetching parent and imported POMs in the specified repositories.
+     */
+    public static JkPomResolver of(JkRepos repos) {
+        return new JkPomResolver(repos, Collections.<String, String> emptyMap(),
+                System.getProperty("java.version"), new ConcurrentHashMap<String, PomModel>());
+    }
+
+    private final JkRepos repos;
+
+    private final Map<String, String> properties;
+
+    private final String jdkVersion;
+
+    private final Map<String, String> activationProperties;
+
+    // Parsed POMs keyed by file path or coordinates, independent of the resolution context
+    private final ConcurrentMap<String, PomModel> parsedPoms;
+
+    // POMs merged with their parents and active profiles, keyed as parsed POMs
+    private final ConcurrentMap<String, PomModel> assembledPoms = new ConcurrentHashMap<String, PomModel>();
+
+    // Effective POMs of imported BOMs, keyed by coordinates
+    private final ConcurrentMap<String, PomModel> effectiveBoms = new ConcurrentHashMap<String, PomModel>();
+
+    private JkPomResolver(JkRepos repos, Map<String, String> properties, String jdkVersion,
+            ConcurrentMap<String, PomModel> parsedPoms) {
+        this.repos = repos;
+        this.properties = properties;
+        this.jdkVersion = jdkVersion;
+        this.parsedPoms = parsedPoms;
+        this.activationProperties = new HashMap<String, String>();
+        for (final String name : System.getProperties().stringPropertyNames()) {
+            activationProperties.put(name, System.getProperty(name));
+        }
+        activationProperties.putAll(properties);
+    }
+
+    /**
+     * Returns a resolver identical to this one but using the specified properties to interpolate POMs and
+     * to activate profiles, as <code>-D</code> options does on Maven command line.
+     */
+    public JkPomResolver withProperties(Map<String, String> properties) {
+        return new JkPomResolver(repos, Collections.unmodifiableMap(new HashMap<String, String>(properties)),
+                jdkVersion, parsedPoms);
+    }
+
+    /**
+     * Returns a resolver identical to this one but activating profiles according the specified JDK version
+     * instead of the running one.
+     */
+    public JkPomResolver withJdkVersion(String jdkVersion) {
+        return new JkPomResolver(repos, properties, jdkVersion, parsedPoms);
+    }
+
+    /**
+     * Returns the effective POM of the specified POM file.
+     */
+    public JkPom effectivePom(File pomFile) {
+        JkUtilsFile.assertAllExist(pomFile);
+        return JkPom.of(effectiveModel(parsed(pomFile), new HashSet<String>()).toDocument());
+    }
+
+    /**
+     * Returns the effective POM of the specified module, fetched from the repositories of this resolver.
+     */
+    public JkPom effectivePom(JkVersionedModule versionedModule) {
+        final PomModel model = parsed(versionedModule.moduleId().group(), versionedModule.moduleId().name(),
+                versionedModule.version().name());
+        return JkPom.of(effectiveModel(model, new HashSet<String>()).toDocument());
+    }
+
+    /**
+     * Returns the effective POMs of the specified POM files, computing them concurrently with at most
+     * the specified number of threads. The returned map is ordered as the specified files.
+     */
+    public Map<File, JkPom> effectivePoms(Iterable<File> pomFiles, int maxThreads) {
+        final List<File> files = new ArrayList<File>();
+        final List<Callable<JkPom>> tasks = new ArrayList<Callable<JkPom>>();
+        for (final File pomFile : pomFiles) {
+            files.add(pomFile);
+            tasks.add(new Callable<JkPom>() {
+
+                @Override
+                public JkPom call() {
+                    return effectivePom(pomFile);
+                }
+            });
+        }
+        final List<JkPom> poms = JkUtilsConcurrent.invokeAll("pom-resolve", tasks, maxThreads);
+        final Map<File, JkPom> result = new LinkedHashMap<File, JkPom>();
+        for (int i = 0; i < files.size(); i++) {
+            result.put(files.get(i), poms.get(i));
+        }
+        return result;
+    }
+
+    private PomModel effectiveModel(PomModel model, Set<String> importing) {
+        final PomModel result = assembled(model, new HashSet<String>()).copy();
+        result.interpolate(properties);
+        importBoms(result, importing);
+        result.applyManagement();
+        return result;
+    }
+
+    // Replaces the BOM imports of the dependency management by the dependency management of the BOMs
+    private void importBoms(PomModel model, Set<String> importing) {
+        final List<PomModel.Dep> imports = new ArrayList<PomModel.Dep>();
+        for (final PomModel.Dep dep : model.managedDependencies) {
+            if (dep.isImport()) {
+                imports.add(dep);
+            }
+        }
+        model.managedDependencies.removeAll(imports);
+        for (final PomModel.Dep bomImport : imports) {
+            final String coordinates = bomImport.groupId + ":" + bomImport.artifactId + ":" + bomImport.version;
+            PomModel bom = effectiveBoms.get(coordinates);
+            if (bom == null) {
+                if (!importing.add(coordinates)) {
+                    throw new IllegalStateException("Cyclic BOM import of " + coordinates);
+                }
+                bom = effectiveModel(parsed(bomImport.groupId, bomImport.artifactId, bomImport.version),
+                        importing);
+                importing.remove(coordinates);
+                effectiveBoms.putIfAbsent(coordinates, bom);
+            }
+            for (final PomModel.Dep managed : bom.managedDependencies) {
+                if (PomModel.find(model.managedDependencies, managed.key()) == null) {
+                    model.managedDependencies.add(managed.copy());
+                }
+            }
+        }
+    }
+
+    // Returns the model merged with its parents and active profiles, not interpolated
+    private PomModel assembled(PomModel model, Set<String> children) {
+        final String key = model.file == null ? model.coordinates() : JkUtilsFile.canonicalPath(model.file);
+        final PomModel cached = assembledPoms.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (!children.add(key)) {
+            throw new IllegalStateException("Cyclic parent declaration for " + model.coordinates());
+        }
+        final PomModel result = model.copy();
+        result.injectActiveProfiles(jdkVersion, activationProperties);
+        if (model.hasParent()) {
+            result.inheritFrom(assembled(parent(model), children));
+        }
+        final PomModel previous = assembledPoms.putIfAbsent(key, result);
+        return previous == null ? result : previous;
+    }
+
+    private PomModel parent(PomModel model) {
+        if (model.file != null && model.parentRelativePath != null) {
+            File parentFile = new File(model.file.getAbsoluteFile().getParentFile(), model.parentRelativePath);
+            if (parentFile.isDirectory()) {
+                parentFile = new File(parentFile, "pom.xml");
+            }
+            if (parentFile.isFile()) {
+                final PomModel candidate = parsed(parentFile);
+                if (model.parentArtifactId.equals(candidate.artifactId)
+                        && JkUtilsObject.equals(model.parentGroupId, candidate.effectiveGroupId())
+                        && JkUtilsObject.equals(model.parentVersion, candidate.effectiveVersion())) {
+                    return candidate;
+                }
+            }
+        }
+        return parsed(model.parentGroupId, model.parentArtifactId, model.parentVersion);
+    }
+
+    private PomModel parsed(File pomFile) {
+        final String key = JkUtilsFile.canonicalPath(pomFile);
+        PomModel result = parsedPoms.get(key);
+        if (result == null) {
+            result = PomModel.of(pomFile);
+            parsedPoms.putIfAbsent(key, result);
+        }
+        return result;
+    }
+
+    private PomModel parsed(String groupId, String artifactId, String version) {
+        final String key = groupId + ":" + artifactId + ":" + version;
+        PomModel result = parsedPoms.get(key);
+        if (result == null) {
+            final File pomFile = pomFile(groupId, artifactId, version);
+            if (pomFile == null || !pomFile.exists()) {
+                throw new IllegalStateException("POM " + key + " not found in " + repos);
+            }
+
+            // Models fetched from repositories are identified by their coordinates, not their file
+            result = PomModel.of(pomFile);
+            result.file = null;
+            parsedPoms.putIfAbsent(key, result);
+        }
+        return result;
+    }
+
+    // POMs of file system Maven repositories are read in place, others are downloaded through the repositories
+    private File pomFile(String groupId, String artifactId, String version) {
+        for (final JkRepo repo : repos) {
+            if (repo instanceof JkRepo.JkMavenRepository && "file".equals(repo.url().getProtocol())) {
+                final File candidate = new File(JkUtilsFile.fromUrl(repo.url()), groupId.replace('.', '/') + "/"
+                        + artifactId + "/" + version + "/" + artifactId + "-" + version + ".pom");
+                if (candidate.exists()) {
+                    return candidate;
+                }
+            }
+        }
+        return repos.get(JkModuleDependency.of(groupId, artifactId, version).ext("pom"));
+    }
+
+}
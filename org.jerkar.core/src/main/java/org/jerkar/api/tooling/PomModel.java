@@ -0,0 +1,630 @@
+package org.jerkar.api.tooling;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.jerkar.api.utils.JkUtilsString;
+import org.jerkar.api.utils.JkUtilsXml;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Mutable model of the parts of a POM needed to compute an effective POM : coordinates, parent,
+ * properties, dependencies, dependency management, repositories and profiles. Instances are
+ * copied before being altered so parsed models can be cached and shared between threads.
+ *
+ * @author Jerome Angibaud
+ */
+final class PomModel {
+
+    private static final int MAX_INTERPOLATION_DEPTH = 10;
+
+    File file;
+
+    String groupId;
+
+    String artifactId;
+
+    String version;
+
+    String packaging;
+
+    String parentGroupId;
+
+    String parentArtifactId;
+
+    String parentVersion;
+
+    String parentRelativePath;
+
+    final Map<String, String> properties = new LinkedHashMap<String, String>();
+
+    final List<Dep> dependencies = new LinkedList<Dep>();
+
+    final List<Dep> managedDependencies = new LinkedList<Dep>();
+
+    final List<String> repositories = new LinkedList<String>();
+
+    final List<Profile> profiles = new LinkedList<Profile>();
+
+    static PomModel of(File pomFile) {
+        return of(JkUtilsXml.documentFrom(pomFile), pomFile);
+    }
+
+    static PomModel of(Document document, File file) {
+        final PomModel result = new PomModel();
+        final Element projectEl = document.getDocumentElement();
+        result.file = file;
+        result.groupId = text(projectEl, "groupId");
+        result.artifactId = text(projectEl, "artifactId");
+        result.version = text(projectEl, "version");
+        result.packaging = text(projectEl, "packaging");
+        final Element parentEl = JkUtilsXml.directChild(projectEl, "parent");
+        if (parentEl != null) {
+            result.parentGroupId = text(parentEl, "groupId");
+            result.parentArtifactId = text(parentEl, "artifactId");
+            result.parentVersion = text(parentEl, "version");
+            result.parentRelativePath = text(parentEl, "relativePath");
+            if (JkUtilsXml.directChild(parentEl, "relativePath") == null) {
+                result.parentRelativePath = "../pom.xml";
+            }
+        }
+        result.readContent(projectEl);
+        final Element profilesEl = JkUtilsXml.directChild(projectEl, "profiles");
+        if (profilesEl != null) {
+            for (final Element profileEl : JkUtilsXml.directChildren(profilesEl, "profile")) {
+                result.profiles.add(Profile.of(profileEl));
+            }
+        }
+        return result;
+    }
+
+    // Reads the elements that can be declared both at project and profile level
+    private void readContent(Element parentEl) {
+        final Element propertiesEl = JkUtilsXml.directChild(parentEl, "properties");
+        if (propertiesEl != null) {
+            for (final Element propertyEl : children(propertiesEl)) {
+                properties.put(propertyEl.getTagName(), propertyEl.getTextContent().trim());
+            }
+        }
+        dependencies.addAll(deps(JkUtilsXml.directChild(parentEl, "dependencies")));
+        final Element managementEl = JkUtilsXml.directChild(parentEl, "dependencyManagement");
+        if (managementEl != null) {
+            managedDependencies.addAll(deps(JkUtilsXml.directChild(managementEl, "dependencies")));
+        }
+        final Element repositoriesEl = JkUtilsXml.directChild(parentEl, "repositories");
+        if (repositoriesEl != null) {
+            for (final Element repositoryEl : JkUtilsXml.directChildren(repositoriesEl, "repository")) {
+                final String url = text(repositoryEl, "url");
+                if (url != null) {
+                    repositories.add(url);
+                }
+            }
+        }
+    }
+
+    boolean hasParent() {
+        return parentArtifactId != null;
+    }
+
+    String effectiveGroupId() {
+        return groupId != null ? groupId : parentGroupId;
+    }
+
+    String effectiveVersion() {
+        return version != null ? version : parentVersion;
+    }
+
+    String coordinates() {
+        return effectiveGroupId() + ":" + artifactId + ":" + effectiveVersion();
+    }
+
+    PomModel copy() {
+        final PomModel result = new PomModel();
+        result.file = file;
+        result.groupId = groupId;
+        result.artifactId = artifactId;
+        result.version = version;
+        result.packaging = packaging;
+        result.parentGroupId = parentGroupId;
+        result.parentArtifactId = parentArtifactId;
+        result.parentVersion = parentVersion;
+        result.parentRelativePath = parentRelativePath;
+        result.properties.putAll(properties);
+        for (final Dep dep : dependencies) {
+            result.dependencies.add(dep.copy());
+        }
+        for (final Dep dep : managedDependencies) {
+            result.managedDependencies.add(dep.copy());
+        }
+        result.repositories.addAll(repositories);
+        result.profiles.addAll(profiles);
+        return result;
+    }
+
+    /**
+     * Merges the content of the profiles of this model activated in the specified context. As Maven
+     * does, profiles active by default are activated only if no other profile of this POM is.
+     */
+    void injectActiveProfiles(String jdkVersion, Map<String, String> activationProperties) {
+        final List<Profile> actives = new LinkedList<Profile>();
+        for (final Profile profile : profiles) {
+            if (profile.isActive(jdkVersion, activationProperties)) {
+                actives.add(profile);
+            }
+        }
+        if (actives.isEmpty()) {
+            for (final Profile profile : profiles) {
+                if (profile.activeByDefault) {
+                    actives.add(profile);
+                }
+            }
+        }
+        for (final Profile profile : actives) {
+            properties.putAll(profile.content.properties);
+            merge(dependencies, profile.content.dependencies, true);
+            merge(managedDependencies, profile.content.managedDependencies, true);
+            addAllAbsent(repositories, profile.content.repositories);
+        }
+        profiles.clear();
+    }
+
+    /**
+     * Makes this model inherit from the specified parent model, child declarations taking
+     * precedence over parent ones.
+     */
+    void inheritFrom(PomModel parent) {
+        if (groupId == null) {
+            groupId = parent.groupId;
+        }
+        if (version == null) {
+            version = parent.version;
+        }
+        final Map<String, String> mergedProperties = new LinkedHashMap<String, String>(parent.properties);
+        mergedProperties.putAll(properties);
+        properties.clear();
+        properties.putAll(mergedProperties);
+        final List<Dep> mergedDependencies = copies(parent.dependencies);
+        merge(mergedDependencies, dependencies, true);
+        dependencies.clear();
+        dependencies.addAll(mergedDependencies);
+        merge(managedDependencies, copies(parent.managedDependencies), false);
+        addAllAbsent(repositories, parent.repositories);
+    }
+
+    /**
+     * Replaces the <code>${...}</code> expressions of this model using the specified user
+     * properties first, then the project coordinates, the model properties, environment variables
+     * and system properties.
+     */
+    void interpolate(Map<String, String> userProperties) {
+        final Map<String, String> values = new LinkedHashMap<String, String>();
+        values.putAll(properties);
+        putProjectValue(values, "groupId", groupId);
+        putProjectValue(values, "artifactId", artifactId);
+        putProjectValue(values, "version", version);
+        putProjectValue(values, "packaging", packaging == null ? "jar" : packaging);
+        putProjectValue(values, "parent.groupId", parentGroupId);
+        putProjectValue(values, "parent.artifactId", parentArtifactId);
+        putProjectValue(values, "parent.version", parentVersion);
+        if (file != null) {
+            putProjectValue(values, "basedir", file.getAbsoluteFile().getParent());
+        }
+        values.putAll(userProperties);
+        groupId = interpolate(groupId, values, 0);
+        artifactId = interpolate(artifactId, values, 0);
+        version = interpolate(version, values, 0);
+        for (final Map.Entry<String, String> entry : properties.entrySet()) {
+            entry.setValue(interpolate(entry.getValue(), values, 0));
+        }
+        for (final Dep dep : dependencies) {
+            dep.interpolate(values);
+        }
+        for (final Dep dep : managedDependencies) {
+            dep.interpolate(values);
+        }
+        for (int i = 0; i < repositories.size(); i++) {
+            repositories.set(i, interpolate(repositories.get(i), values, 0));
+        }
+    }
+
+    /**
+     * Completes the dependencies of this model with the version, scope and exclusions
+     * declared in its dependency management.
+     */
+    void applyManagement() {
+        for (final Dep dep : dependencies) {
+            final Dep managed = find(managedDependencies, dep.key());
+            if (managed == null) {
+                continue;
+            }
+            if (dep.version == null) {
+                dep.version = managed.version;
+            }
+            if (dep.scope == null) {
+                dep.scope = managed.scope;
+            }
+            if (dep.exclusions.isEmpty()) {
+                dep.exclusions.addAll(managed.exclusions);
+            }
+        }
+    }
+
+    /**
+     * Creates a POM document holding the content of this model.
+     */
+    Document toDocument() {
+        final Document document = JkUtilsXml.createDocument();
+        final Element projectEl = document.createElement("project");
+        document.appendChild(projectEl);
+        addText(projectEl, "modelVersion", "4.0.0");
+        addText(projectEl, "groupId", groupId);
+        addText(projectEl, "artifactId", artifactId);
+        addText(projectEl, "version", version);
+        addText(projectEl, "packaging", packaging);
+        if (!properties.isEmpty()) {
+            final Element propertiesEl = add(projectEl, "properties");
+            for (final Map.Entry<String, String> entry : properties.entrySet()) {
+                addText(propertiesEl, entry.getKey(), entry.getValue());
+            }
+        }
+        if (!managedDependencies.isEmpty()) {
+            final Element dependenciesEl = add(add(projectEl, "dependencyManagement"), "dependencies");
+            for (final Dep dep : managedDependencies) {
+                dep.appendTo(dependenciesEl);
+            }
+        }
+        if (!dependencies.isEmpty()) {
+            final Element dependenciesEl = add(projectEl, "dependencies");
+            for (final Dep dep : dependencies) {
+                dep.appendTo(dependenciesEl);
+            }
+        }
+        if (!repositories.isEmpty()) {
+            final Element repositoriesEl = add(projectEl, "repositories");
+            for (final String url : repositories) {
+                addText(add(repositoriesEl, "repository"), "url", url);
+            }
+        }
+        return document;
+    }
+
+    static Dep find(List<Dep> deps, String key) {
+        for (final Dep dep : deps) {
+            if (dep.key().equals(key)) {
+                return dep;
+            }
+        }
+        return null;
+    }
+
+    // Adds the specified dependencies to the target, replacing the ones having the same key if override is true
+    private static void merge(List<Dep> target, List<Dep> deps, boolean override) {
+        for (final Dep dep : deps) {
+            final Dep existing = find(target, dep.key());
+            if (existing == null) {
+                target.add(dep.copy());
+            } else if (override) {
+                target.set(target.indexOf(existing), dep.copy());
+            }
+        }
+    }
+
+    private static List<Dep> copies(List<Dep> deps) {
+        final List<Dep> result = new LinkedList<Dep>();
+        for (final Dep dep : deps) {
+            result.add(dep.copy());
+        }
+        return result;
+    }
+
+    private static void addAllAbsent(List<String> target, List<String> items) {
+        for (final String item : items) {
+            if (!target.contains(item)) {
+                target.add(item);
+            }
+        }
+    }
+
+    private static void putProjectValue(Map<String, String> values, String name, String value) {
+        if (value != null) {
+            values.put("project." + name, value);
+            values.put("pom." + name, value);
+        }
+    }
+
+    static String interpolate(String value, Map<String, String> values, int depth) {
+        if (value == null || !value.contains("${") || depth > MAX_INTERPOLATION_DEPTH) {
+            return value;
+        }
+        final StringBuilder result = new StringBuilder();
+        int index = 0;
+        while (index < value.length()) {
+            final int start = value.indexOf("${", index);
+            final int end = start < 0 ? -1 : value.indexOf('}', start);
+            if (end < 0) {
+                result.append(value.substring(index));
+                break;
+            }
+            result.append(value.substring(index, start));
+            final String name = value.substring(start + 2, end);
+            final String replacement = lookup(name, values);
+            if (replacement == null) {
+                result.append(value.substring(start, end + 1));
+            } else {
+                result.append(interpolate(replacement, values, depth + 1));
+            }
+            index = end + 1;
+        }
+        return result.toString();
+    }
+
+    private static String lookup(String name, Map<String, String> values) {
+        final String result = values.get(name);
+        if (result != null) {
+            return result;
+        }
+        if (name.startsWith("env.")) {
+            return System.getenv(name.substring("env.".length()));
+        }
+        return System.getProperty(name);
+    }
+
+    private static List<Dep> deps(Element dependenciesEl) {
+        final List<Dep> result = new LinkedList<Dep>();
+        if (dependenciesEl == null) {
+            return result;
+        }
+        for (final Element dependencyEl : JkUtilsXml.directChildren(dependenciesEl, "dependency")) {
+            result.add(Dep.of(dependencyEl));
+        }
+        return result;
+    }
+
+    private static List<Element> children(Element parent) {
+        final List<Element> result = new LinkedList<Element>();
+        for (int i = 0; i < parent.getChildNodes().getLength(); i++) {
+            if (parent.getChildNodes().item(i) instanceof Element) {
+                result.add((Element) parent.getChildNodes().item(i));
+            }
+        }
+        return result;
+    }
+
+    private static String text(Element parent, String childName) {
+        final String result = JkUtilsXml.directChildText(parent, childName);
+        return result == null ? null : result.trim();
+    }
+
+    private static Element add(Element parent, String name) {
+        final Element result = parent.getOwnerDocument().createElement(name);
+        parent.appendChild(result);
+        return result;
+    }
+
+    private static void addText(Element parent, String name, String text) {
+        if (text != null) {
+            add(parent, name).setTextContent(text);
+        }
+    }
+
+    /**
+     * A dependency declaration, either in the <code>dependencies</code> or the
+     * <code>dependencyManagement</code> section.
+     */
+    static final class Dep {
+
+        String groupId;
+
+        String artifactId;
+
+        String version;
+
+        String type;
+
+        String classifier;
+
+        String scope;
+
+        String optional;
+
+        final List<String[]> exclusions = new LinkedList<String[]>();
+
+        static Dep of(Element dependencyEl) {
+            final Dep result = new Dep();
+            result.groupId = text(dependencyEl, "groupId");
+            result.artifactId = text(dependencyEl, "artifactId");
+            result.version = text(dependencyEl, "version");
+            result.type = text(dependencyEl, "type");
+            result.classifier = text(dependencyEl, "classifier");
+            result.scope = text(dependencyEl, "scope");
+            result.optional = text(dependencyEl, "optional");
+            final Element exclusionsEl = JkUtilsXml.directChild(dependencyEl, "exclusions");
+            if (exclusionsEl != null) {
+                for (final Element exclusionEl : JkUtilsXml.directChildren(exclusionsEl, "exclusion")) {
+                    result.exclusions.add(new String[] { text(exclusionEl, "groupId"),
+                            text(exclusionEl, "artifactId") });
+                }
+            }
+            return result;
+        }
+
+        String key() {
+            return groupId + ":" + artifactId + ":" + (type == null ? "jar" : type) + ":"
+                    + (classifier == null ? "" : classifier);
+        }
+
+        boolean isImport() {
+            return "import".equals(scope) && "pom".equals(type);
+        }
+
+        Dep copy() {
+            final Dep result = new Dep();
+            result.groupId = groupId;
+            result.artifactId = artifactId;
+            result.version = version;
+            result.type = type;
+            result.classifier = classifier;
+            result.scope = scope;
+            result.optional = optional;
+            for (final String[] exclusion : exclusions) {
+                result.exclusions.add(exclusion.clone());
+            }
+            return result;
+        }
+
+        private void interpolate(Map<String, String> values) {
+            groupId = PomModel.interpolate(groupId, values, 0);
+            artifactId = PomModel.interpolate(artifactId, values, 0);
+            version = PomModel.interpolate(version, values, 0);
+            type = PomModel.interpolate(type, values, 0);
+            classifier = PomModel.interpolate(classifier, values, 0);
+            scope = PomModel.interpolate(scope, values, 0);
+            for (final String[] exclusion : exclusions) {
+                exclusion[0] = PomModel.interpolate(exclusion[0], values, 0);
+                exclusion[1] = PomModel.interpolate(exclusion[1], values, 0);
+            }
+        }
+
+        private void appendTo(Element dependenciesEl) {
+            final Element dependencyEl = add(dependenciesEl, "dependency");
+            addText(dependencyEl, "groupId", groupId);
+            addText(dependencyEl, "artifactId", artifactId);
+            addText(dependencyEl, "version", version);
+            addText(dependencyEl, "type", type);
+            addText(dependencyEl, "classifier", classifier);
+            addText(dependencyEl, "scope", scope);
+            addText(dependencyEl, "optional", optional);
+            if (!exclusions.isEmpty()) {
+                final Element exclusionsEl = add(dependencyEl, "exclusions");
+                for (final String[] exclusion : exclusions) {
+                    final Element exclusionEl = add(exclusionsEl, "exclusion");
+                    addText(exclusionEl, "groupId", exclusion[0]);
+                    addText(exclusionEl, "artifactId", exclusion[1]);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * A profile along its activation conditions. Conditions on OS or files are not supported : profiles
+     * declaring them are activated only by default.
+     */
+    static final class Profile {
+
+        String id;
+
+        boolean activeByDefault;
+
+        String jdk;
+
+        String propertyName;
+
+        String propertyValue;
+
+        boolean unsupportedActivation;
+
+        final PomModel content = new PomModel();
+
+        static Profile of(Element profileEl) {
+            final Profile result = new Profile();
+            result.id = text(profileEl, "id");
+            final Element activationEl = JkUtilsXml.directChild(profileEl, "activation");
+            if (activationEl != null) {
+                result.activeByDefault = "true".equals(text(activationEl, "activeByDefault"));
+                result.jdk = text(activationEl, "jdk");
+                final Element propertyEl = JkUtilsXml.directChild(activationEl, "property");
+                if (propertyEl != null) {
+                    result.propertyName = text(propertyEl, "name");
+                    result.propertyValue = text(propertyEl, "value");
+                }
+                result.unsupportedActivation = JkUtilsXml.directChild(activationEl, "os") != null
+                        || JkUtilsXml.directChild(activationEl, "file") != null;
+            }
+            result.content.readContent(profileEl);
+            return result;
+        }
+
+        boolean isActive(String jdkVersion, Map<String, String> activationProperties) {
+            if (unsupportedActivation || (jdk == null && propertyName == null)) {
+                return false;
+            }
+            if (jdk != null && !jdkMatches(jdk, jdkVersion)) {
+                return false;
+            }
+            if (propertyName != null && !propertyMatches(activationProperties)) {
+                return false;
+            }
+            return true;
+        }
+
+        private boolean propertyMatches(Map<String, String> activationProperties) {
+            if (propertyName.startsWith("!")) {
+                return !activationProperties.containsKey(propertyName.substring(1));
+            }
+            final String value = activationProperties.get(propertyName);
+            if (propertyValue == null) {
+                return value != null;
+            }
+            if (propertyValue.startsWith("!")) {
+                return !propertyValue.substring(1).equals(value);
+            }
+            return propertyValue.equals(value);
+        }
+
+        static boolean jdkMatches(String spec, String jdkVersion) {
+            if (spec.startsWith("!")) {
+                return !jdkMatches(spec.substring(1), jdkVersion);
+            }
+            if (!spec.startsWith("[") && !spec.startsWith("(")) {
+                return jdkVersion.startsWith(spec);
+            }
+            final boolean lowerInclusive = spec.startsWith("[");
+            final boolean upperInclusive = spec.endsWith("]");
+            final String[] bounds = spec.substring(1, spec.length() - 1).split(",", -1);
+            final String lower = bounds[0].trim();
+            final String upper = bounds.length > 1 ? bounds[1].trim() : lower;
+            if (!JkUtilsString.isBlank(lower)) {
+                final int comparison = compareVersions(jdkVersion, lower);
+                if (comparison < 0 || (comparison == 0 && !lowerInclusive)) {
+                    return false;
+                }
+            }
+            if (!JkUtilsString.isBlank(upper)) {
+                final int comparison = compareVersions(jdkVersion, upper);
+                if (comparison > 0 || (comparison == 0 && !upperInclusive)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Compares the numeric parts of the specified versions, missing parts being considered as 0
+        private static int compareVersions(String version1, String version2) {
+            final String[] parts1 = version1.split("[._\\-]");
+            final String[] parts2 = version2.split("[._\\-]");
+            for (int i = 0; i < Math.max(parts1.length, parts2.length); i++) {
+                final int part1 = i < parts1.length ? number(parts1[i]) : 0;
+                final int part2 = i < parts2.length ? number(parts2[i]) : 0;
+                if (part1 != part2) {
+                    return part1 < part2 ? -1 : 1;
+                }
+            }
+            return 0;
+        }
+
+        private static int number(String part) {
+            try {
+                return Integer.parseInt(part);
+            } catch (final NumberFormatException e) {
+                return 0;
+            }
+        }
+
+    }
+
+}
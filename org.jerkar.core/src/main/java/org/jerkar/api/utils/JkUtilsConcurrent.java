@@ -0,0 +1,142 @@
+package org.jerkar.api.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Utility class to run tasks concurrently on bounded thread pools.
+ *
+ * @author Jerome Angibaud
+ */
+public final class JkUtilsConcurrent {
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private JkUtilsConcurrent() {
+        // prevent instantiation
+    }
+
+    /**
+     * Returns the default number of threads to use for CPU bound tasks, that is the number
+     * of available processors.
+     */
+    public static int defaultParallelism() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Creates an executor service running at most the specified number of threads. Threads are daemons
+     * so the pool does not prevent the JVM from exiting if it is not shut down.
+     */
+    public static ExecutorService newPool(String name, int maxThreads) {
+        JkUtilsAssert.isTrue(maxThreads > 0, "Thread count must be positive, was " + maxThreads);
+        return Executors.newFixedThreadPool(maxThreads, new NamedThreadFactory(name));
+    }
+
+    /**
+     * Creates an executor service creating threads on demand and reusing idle ones, suited for tasks
+     * spending most of their time blocked on I/O. Threads are daemons.
+     */
+    public static ExecutorService newCachedPool(String name) {
+        return Executors.newCachedThreadPool(new NamedThreadFactory(name));
+    }
+
+    /**
+     * Creates a single daemon thread scheduler.
+     */
+    public static ScheduledExecutorService newScheduler(String name) {
+        return Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory(name));
+    }
+
+    /**
+     * Runs the specified tasks on a pool of at most <code>maxThreads</code> threads and returns their results
+     * in the same order than the tasks. When there is a single task or <code>maxThreads</code> is 1, tasks
+     * run in the current thread.<br/>
+     * If a task fails, the remaining ones are cancelled and the failure is rethrown as an unchecked exception.
+     */
+    public static <T> List<T> invokeAll(String name, List<? extends Callable<T>> tasks, int maxThreads) {
+        final List<T> result = new ArrayList<T>(tasks.size());
+        if (tasks.size() <= 1 || maxThreads <= 1) {
+            for (final Callable<T> task : tasks) {
+                try {
+                    result.add(task.call());
+                } catch (final Exception e) {
+                    throw JkUtilsThrowable.unchecked(e);
+                }
+            }
+            return result;
+        }
+        final ExecutorService executorService = newPool(name, Math.min(maxThreads, tasks.size()));
+        final List<Future<T>> futures = new LinkedList<Future<T>>();
+        try {
+            for (final Callable<T> task : tasks) {
+                futures.add(executorService.submit(task));
+            }
+            for (final Future<T> future : futures) {
+                result.add(get(future));
+            }
+            return result;
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Same as {@link #invokeAll(String, List, int)} but for tasks that does not return any result.
+     */
+    public static void runAll(String name, List<? extends Runnable> tasks, int maxThreads) {
+        final List<Callable<Object>> callables = new ArrayList<Callable<Object>>(tasks.size());
+        for (final Runnable runnable : tasks) {
+            callables.add(Executors.callable(runnable));
+        }
+        invokeAll(name, callables, maxThreads);
+    }
+
+    /**
+     * Waits for the specified future to complete and returns its result. Failures are rethrown
+     * as unchecked exceptions.
+     */
+    public static <T> T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw JkUtilsThrowable.unchecked((Exception) cause);
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        NamedThreadFactory(String name) {
+            this.prefix = "jerkar-" + name + "-" + POOL_COUNT.incrementAndGet() + "-";
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
@@ -1,13 +1,17 @@
 package org.jerkar.api.utils;
 
 import java.io.*;
+import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.channels.FileChannel;
 import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -253,28 +257,64 @@ public final class JkUtilsFile {
         if (from.isDirectory()) {
             throw new IllegalArgumentException(from.getPath() + " is a directory. Should be a file.");
         }
+        FileInputStream in = null;
+        FileOutputStream out = null;
         try {
-            final InputStream in = new FileInputStream(from);
+            in = new FileInputStream(from);
             if (!toFile.getParentFile().exists()) {
                 toFile.getParentFile().mkdirs();
             }
-            if (!toFile.exists()) {
-                toFile.createNewFile();
-            }
-            final OutputStream out = new FileOutputStream(toFile);
-
-            final byte[] buf = new byte[1024];
-            int len;
-            while ((len = in.read(buf)) > 0) {
-                out.write(buf, 0, len);
+            out = new FileOutputStream(toFile);
+
+            // Let the OS copy the bytes without passing them through the JVM heap
+            final FileChannel inChannel = in.getChannel();
+            final long size = inChannel.size();
+            long position = 0;
+            while (position < size) {
+                position += inChannel.transferTo(position, size - position, out.getChannel());
             }
-            in.close();
-            out.close();
         } catch (final IOException e) {
             throw new RuntimeException(
                     "IO exception occured while copying file " + from.getPath() + " to " + toFile.getPath(), e);
+        } finally {
+            JkUtilsIO.closeQuietly(in, out);
+        }
+
+    }
+
+    /**
+     * Same as {@link #copyFile(File, File, PrintStream)} but does nothing if the target file has the same size
+     * and last modification time than the source one. The copy gets the last modification time of the source
+     * file. Returns <code>false</code> if the copy has been skipped.
+     */
+    public static boolean copyFileIfChanged(File from, File toFile, PrintStream reportStream) {
+        if (toFile.isFile() && toFile.length() == from.length() && toFile.lastModified() == from.lastModified()) {
+            return false;
         }
+        copyFile(from, toFile, reportStream);
+        toFile.setLastModified(from.lastModified());
+        return true;
+    }
+
+    /**
+     * Creates a hard link to the specified existing file. Returns <code>false</code> if the link can not be
+     * created, for example when running on Java 6, when the file system does not support hard links or
+     * when both files are not on the same file system.
+     */
+    public static boolean hardLink(File existing, File link) {
 
+        // Files.createLink is only available since Java 7, so it is invoked reflectively
+        try {
+            final Class<?> filesClass = Class.forName("java.nio.file.Files");
+            final Class<?> pathClass = Class.forName("java.nio.file.Path");
+            final Method toPath = File.class.getMethod("toPath");
+            final Method createLink = filesClass.getMethod("createLink", pathClass, pathClass);
+            link.getParentFile().mkdirs();
+            createLink.invoke(null, toPath.invoke(link), toPath.invoke(existing));
+            return true;
+        } catch (final Exception e) {
+            return false;
+        }
     }
 
     /**
@@ -524,6 +564,36 @@ public final class JkUtilsFile {
         }
     }
 
+    /**
+     * Returns the checksums of a specified file for each of the specified algorithms (as "SHA-1" or
+     * "MD5"), keyed by algorithm. The file is read only once whatever the number of algorithms.
+     */
+    public static Map<String, String> checksums(File file, String... algorithms) {
+        final InputStream is = JkUtilsIO.inputStream(file);
+        try {
+            final MessageDigest[] digests = new MessageDigest[algorithms.length];
+            for (int i = 0; i < algorithms.length; i++) {
+                digests[i] = MessageDigest.getInstance(algorithms[i]);
+            }
+            final byte[] buf = new byte[8192];
+            int len = 0;
+            while ((len = is.read(buf)) != -1) {
+                for (final MessageDigest digest : digests) {
+                    digest.update(buf, 0, len);
+                }
+            }
+            final Map<String, String> result = new LinkedHashMap<String, String>();
+            for (int i = 0; i < algorithms.length; i++) {
+                result.put(algorithms[i], JkUtilsString.toHexString(digests[i].digest()));
+            }
+            return result;
+        } catch (final Exception e) {
+            throw JkUtilsThrowable.unchecked(e);
+        } finally {
+            JkUtilsIO.closeQuietly(is);
+        }
+    }
+
     /**
      * Same as {@link File#createTempFile(String, String)} but throwing only
      * unchecked exceptions.
@@ -651,7 +721,7 @@ public final class JkUtilsFile {
             reportStream.println("Coping and replacing tokens " + replacements + " to file " + from.getAbsolutePath()
                     + " to " + toFile.getAbsolutePath());
         }
-        final char[] buf = new char[1024];
+        final char[] buf = new char[8192];
         int len;
         try {
             while ((len = replacingReader.read(buf)) > 0) {
@@ -665,6 +735,62 @@ public final class JkUtilsFile {
         }
     }
 
+    /**
+     * Same as {@link #copyFileReplacingTokens(File, File, Map, PrintStream)} but does not write the target
+     * file if it already has the expected content (see {@link #copyFileIfChanged(File, File, PrintStream)}
+     * when there is no token to replace). Returns <code>false</code> if the target file has not been written.
+     */
+    public static boolean copyFileReplacingTokensIfChanged(File from, File toFile, Map<String, String> replacements,
+            PrintStream reportStream) {
+        if (replacements == null || replacements.isEmpty()) {
+            return copyFileIfChanged(from, toFile, reportStream);
+        }
+        final TokenReplacingReader replacingReader = new TokenReplacingReader(from, replacements);
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream((int) from.length());
+        final Writer writer = new OutputStreamWriter(outputStream);
+        final char[] buf = new char[8192];
+        int len;
+        try {
+            while ((len = replacingReader.read(buf)) > 0) {
+                writer.write(buf, 0, len);
+            }
+            writer.close();
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            JkUtilsIO.closeQuietly(replacingReader);
+        }
+        final byte[] content = outputStream.toByteArray();
+        if (toFile.isFile() && toFile.length() == content.length && Arrays.equals(readBytes(toFile), content)) {
+            return false;
+        }
+        if (reportStream != null) {
+            reportStream.println("Coping and replacing tokens " + replacements + " to file " + from.getAbsolutePath()
+                    + " to " + toFile.getAbsolutePath());
+        }
+        createFileIfNotExist(toFile);
+        final OutputStream fileOutputStream = JkUtilsIO.outputStream(toFile, false);
+        try {
+            fileOutputStream.write(content);
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            JkUtilsIO.closeQuietly(fileOutputStream);
+        }
+        return true;
+    }
+
+    private static byte[] readBytes(File file) {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream((int) file.length());
+        final InputStream inputStream = JkUtilsIO.inputStream(file);
+        try {
+            JkUtilsIO.copy(inputStream, outputStream);
+        } finally {
+            JkUtilsIO.closeQuietly(inputStream);
+        }
+        return outputStream.toByteArray();
+    }
+
     /**
      * Copies the content of the specified url to the specified file. While
      * coping token ${key} are replaced by the value found in the specified
@@ -710,7 +836,7 @@ public final class JkUtilsFile {
             JkUtilsIO.closeQuietly(replacingReader);
             throw new RuntimeException(e);
         }
-        final char[] buf = new char[1024];
+        final char[] buf = new char[8192];
         int len;
         try {
             while ((len = replacingReader.read(buf)) > 0) {
@@ -62,6 +62,42 @@ public final class JkUtilsIO {
         };
     }
 
+    /**
+     * Creates an output stream writing to both specified streams. Closing it
+     * closes both streams.
+     */
+    public static OutputStream teeOutputStream(final OutputStream main, final OutputStream copy) {
+        return new OutputStream() {
+
+            @Override
+            public void write(int b) throws IOException {
+                main.write(b);
+                copy.write(b);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                main.write(bytes, offset, length);
+                copy.write(bytes, offset, length);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                main.flush();
+                copy.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    main.close();
+                } finally {
+                    copy.close();
+                }
+            }
+        };
+    }
+
     /**
      * Closes the specified closeable object, ignoring any exceptions.
      */
@@ -329,7 +365,7 @@ public final class JkUtilsIO {
      * stream.
      */
     public static void copy(InputStream in, OutputStream out) {
-        final byte[] buf = new byte[1024];
+        final byte[] buf = new byte[8192];
         int len;
         try {
             while ((len = in.read(buf)) > 0) {
@@ -485,16 +521,14 @@ public final class JkUtilsIO {
                 this.out = os;
             }
 
+            // Copies bytes as they come, without decoding lines
             @Override
             public void run() {
+                final byte[] buffer = new byte[8192];
                 try {
-                    final InputStreamReader isr = new InputStreamReader(in);
-                    final BufferedReader br = new BufferedReader(isr);
-                    String line = null;
-                    while (!stop.get() && (line = br.readLine()) != null) {
-                        final byte[] bytes = line.getBytes();
-                        out.write(bytes, 0, bytes.length);
-                        out.write('\n');
+                    int count;
+                    while (!stop.get() && (count = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, count);
                     }
                 } catch (final IOException e) {
                     throw new RuntimeException(e);
@@ -520,4 +554,4 @@ public final class JkUtilsIO {
         primClasses.put("void", void.class);
     }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
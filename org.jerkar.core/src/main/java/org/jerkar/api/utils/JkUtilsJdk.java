@@ -40,4 +40,14 @@ public final class JkUtilsJdk {
         return fullVersion.substring(0, index);
     }
 
+    /**
+     * Returns the major version of the running JDK, as <code>8</code> for Java 1.8 or <code>11</code>
+     * for Java 11.
+     */
+    public static int runningMajorVersion() {
+        final String specVersion = System.getProperty("java.specification.version");
+        final String major = specVersion.startsWith("1.") ? specVersion.substring(2) : specVersion;
+        return Integer.parseInt(JkUtilsString.substringBeforeFirst(major + ".", "."));
+    }
+
 }
@@ -37,24 +37,21 @@ public final class JkUtilsReflect {
      * name base to handle different classloaders.
      */
     public static Method methodWithSameNameAndArgType(Method original, Class<?> targetClass) {
+        final Class<?>[] originalTypes = original.getParameterTypes();
         for (final Method method : targetClass.getMethods()) {
             if (!method.getName().equals(original.getName())) {
                 continue;
             }
-            final Class<?>[] originalTypes = method.getParameterTypes();
             final Class<?>[] types = method.getParameterTypes();
-            if (types.length == 0 && originalTypes.length == 0) {
-                return method;
-            }
             if (types.length != originalTypes.length) {
                 continue;
             }
-            boolean found = false;
+            boolean found = true;
             for (int i = 0; i < originalTypes.length; i++) {
                 if (!originalTypes[i].getName().equals(types[i].getName())) {
+                    found = false;
                     break;
                 }
-                found = true;
             }
             if (found) {
                 return method;
@@ -403,15 +400,28 @@ public final class JkUtilsReflect {
             Object... args) {
         final boolean staticMethod = target == null;
         final Class<?> effectiveClass = clazz == null ? target.getClass() : clazz;
-        final String className = effectiveClass.getName();
-        final Set<Method> canditates = new HashSet<Method>(Arrays.asList(effectiveClass
-                .getMethods()));
-        canditates.addAll(Arrays.asList(effectiveClass.getDeclaredMethods()));
         final Class<?> types[] = new Class<?>[args.length];
         for (int i = 0; i < args.length; i++) {
             final Object arg = args[i];
             types[i] = arg == null ? null : arg.getClass();
         }
+        final Method method = findMethodCompatibleWith(effectiveClass, staticMethod, methodName, types);
+        return invoke(target, method, args);
+    }
+
+    /**
+     * Returns the method of the specified class that can be invoked with
+     * arguments of the specified types. A <code>null</code> type stands for a
+     * <code>null</code> argument and matches any parameter type.
+     *
+     * @throws IllegalArgumentException
+     *             if no or several methods match.
+     */
+    public static Method findMethodCompatibleWith(Class<?> clazz, boolean staticMethod,
+            String methodName, Class<?>... types) {
+        final String className = clazz.getName();
+        final Set<Method> canditates = new HashSet<Method>(Arrays.asList(clazz.getMethods()));
+        canditates.addAll(Arrays.asList(clazz.getDeclaredMethods()));
         final Set<Method> result = findMethodsCompatibleWith(staticMethod, canditates, methodName,
                 types);
         if (result.isEmpty()) {
@@ -424,8 +434,7 @@ public final class JkUtilsReflect {
                     + " and param types " + Arrays.toString(types)
                     + ". You should use method #invoke(Method, Object[] args) instead.");
         }
-        final Method method = result.iterator().next();
-        return invoke(target, method, args);
+        return result.iterator().next();
     }
 
     private static Set<Method> findMethodsCompatibleWith(boolean staticMethod, Set<Method> methods,
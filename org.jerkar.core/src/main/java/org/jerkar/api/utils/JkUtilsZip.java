@@ -1,12 +1,14 @@
 package org.jerkar.api.utils;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -307,10 +309,21 @@ public final class JkUtilsZip {
      * Creates a {@link ZipOutputStream} to a given file (existing or not).
      */
     public static ZipOutputStream createZipOutputStream(File file, int compressLevel) {
+        return createZipOutputStream(file, compressLevel, null);
+    }
+
+    /**
+     * Same as {@link #createZipOutputStream(File, int)} but also writing the archive bytes
+     * to the specified stream, if not <code>null</code>. This stream is closed along the
+     * returned one.
+     */
+    public static ZipOutputStream createZipOutputStream(File file, int compressLevel, OutputStream copy) {
         try {
             JkUtilsFile.createFileIfNotExist(file);
             final FileOutputStream fos = new FileOutputStream(file);
-            final ZipOutputStream zos = new ZipOutputStream(fos);
+            final OutputStream out = copy == null ? fos : new BufferedOutputStream(
+                    JkUtilsIO.teeOutputStream(fos, copy));
+            final ZipOutputStream zos = new ZipOutputStream(out);
             zos.setLevel(compressLevel);
             return zos;
         } catch (final IOException e) {
@@ -4,24 +4,31 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.PushbackReader;
 import java.io.Reader;
 import java.nio.CharBuffer;
 import java.util.Map;
 
 /*
- *  Kindly borrowed from https://github.com/jjenkov/TokenReplacingReader/blob/master/src/main/java/com/jenkov/io/TokenReplacingReader.java
+ * Reader replacing ${key} tokens by their values. Source is read by large chunks and text between tokens
+ * is copied in bulk, only the token names being read character per character.
+ * Initially inspired from https://github.com/jjenkov/TokenReplacingReader
  */
 final class TokenReplacingReader extends Reader {
 
-    private final PushbackReader pushbackReader;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader source;
     private final Map<String, String> tokenResolver;
-    private final StringBuilder tokenNameBuffer = new StringBuilder();
-    private String tokenValue = null;
-    protected int tokenValueIndex = 0;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    // Replacement of the last token read, not yet returned to the caller
+    private final StringBuilder pending = new StringBuilder();
+    private int pendingIndex;
 
     public TokenReplacingReader(Reader source, Map<String, String> resolver) {
-        this.pushbackReader = new PushbackReader(source, 2);
+        this.source = source;
         this.tokenResolver = resolver;
     }
 
@@ -36,42 +43,11 @@ final class TokenReplacingReader extends Reader {
 
     @Override
     public int read() throws IOException {
-        if (this.tokenValue != null) {
-            if (this.tokenValueIndex < this.tokenValue.length()) {
-                return this.tokenValue.charAt(this.tokenValueIndex++);
-            }
-            if (this.tokenValueIndex == this.tokenValue.length()) {
-                this.tokenValue = null;
-                this.tokenValueIndex = 0;
-            }
+        final char[] result = new char[1];
+        if (read(result, 0, 1) == -1) {
+            return -1;
         }
-
-        int data = this.pushbackReader.read();
-        if (data != '$') {
-            return data;
-        }
-
-        data = this.pushbackReader.read();
-        if (data != '{') {
-            this.pushbackReader.unread(data);
-            return '$';
-        }
-        this.tokenNameBuffer.delete(0, this.tokenNameBuffer.length());
-
-        data = this.pushbackReader.read();
-        while (data != '}') {
-            this.tokenNameBuffer.append((char) data);
-            data = this.pushbackReader.read();
-        }
-        this.tokenValue = this.resolveToken(this.tokenNameBuffer.toString());
-        if (this.tokenValue == null) {
-            this.tokenValue = "${" + this.tokenNameBuffer.toString() + "}";
-        }
-        if (this.tokenValue.length() == 0) {
-            return read();
-        }
-        return this.tokenValue.charAt(this.tokenValueIndex++);
-
+        return result[0];
     }
 
     @Override
@@ -81,24 +57,79 @@ final class TokenReplacingReader extends Reader {
 
     @Override
     public int read(char cbuf[], int off, int len) throws IOException {
-        int charsRead = 0;
-        for (int i = 0; i < len; i++) {
-            final int nextChar = read();
-            if (nextChar == -1) {
-                if (charsRead == 0) {
-                    charsRead = -1;
-                }
+        if (len == 0) {
+            return 0;
+        }
+        int count = 0;
+        while (count < len) {
+            if (pendingIndex < pending.length()) {
+                final int length = Math.min(len - count, pending.length() - pendingIndex);
+                pending.getChars(pendingIndex, pendingIndex + length, cbuf, off + count);
+                pendingIndex += length;
+                count += length;
+                continue;
+            }
+            if (peek() == -1) {
                 break;
             }
-            charsRead = i + 1;
-            cbuf[off + i] = (char) nextChar;
+            if (buffer[position] == '$') {
+                readToken();
+                continue;
+            }
+            final int max = Math.min(limit, position + len - count);
+            int end = position;
+            while (end < max && buffer[end] != '$') {
+                end++;
+            }
+            System.arraycopy(buffer, position, cbuf, off + count, end - position);
+            count += end - position;
+            position = end;
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    // Reads from the '$' at the current position up to the end of the token and puts its replacement in
+    // the pending buffer. Text that turns out not to be a token is left as is.
+    private void readToken() throws IOException {
+        pending.setLength(0);
+        pendingIndex = 0;
+        position++;
+        if (peek() != '{') {
+            pending.append('$');
+            return;
+        }
+        position++;
+        final StringBuilder tokenName = new StringBuilder();
+        int data = peek();
+        while (data != -1 && data != '}') {
+            tokenName.append((char) data);
+            position++;
+            data = peek();
+        }
+        if (data == -1) {
+            pending.append("${").append(tokenName);
+            return;
+        }
+        position++;
+        pending.append(this.resolveToken(tokenName.toString()));
+    }
+
+    // Returns the character at the current position without consuming it, or -1 at the end of the source
+    private int peek() throws IOException {
+        if (position == limit) {
+            final int read = source.read(buffer, 0, buffer.length);
+            if (read <= 0) {
+                return -1;
+            }
+            position = 0;
+            limit = read;
         }
-        return charsRead;
+        return buffer[position];
     }
 
     @Override
     public void close() throws IOException {
-        this.pushbackReader.close();
+        this.source.close();
     }
 
     @Override
@@ -108,7 +139,7 @@ final class TokenReplacingReader extends Reader {
 
     @Override
     public boolean ready() throws IOException {
-        return this.pushbackReader.ready();
+        return pendingIndex < pending.length() || position < limit || this.source.ready();
     }
 
     @Override
@@ -142,4 +173,4 @@ final class TokenReplacingReader extends Reader {
         }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,69 @@
+package org.jerkar.tool;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import org.jerkar.api.java.JkClassDataSharing;
+import org.jerkar.api.java.JkClasspath;
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsString;
+
+/**
+ * Maintains the file read by the launcher scripts to pass class data sharing options to the Jerkar JVM.
+ * The JVM can not apply these options to itself, so each run prepares the options of the next one :
+ * a first run asks the next one to record the classes it loads, the run after dumps the archive out of
+ * the recorded classes, and subsequent runs use this archive until the Jerkar classpath changes.
+ */
+final class ClassDataSharingOptions {
+
+    /** Location, relative to the project directory, of the file read by the launcher scripts */
+    static final String OPTIONS_FILE = "build/output/jerkar-cds.options";
+
+    private static final String TRAINING_OPTION = "-XX:DumpLoadedClassList=";
+
+    private ClassDataSharingOptions() {
+        // Can not instantiate
+    }
+
+    /**
+     * Writes the class data sharing options for the next launch of Jerkar in the specified project
+     * directory, or removes them if class data sharing is not active.
+     */
+    static void prepareNextLaunch(File projectDir, boolean active) {
+        final File optionsFile = new File(projectDir, OPTIONS_FILE);
+        final File javaDir = new File(System.getProperty("java.home"), "bin");
+        if (!active || !JkClassDataSharing.isSupported(javaDir)) {
+            JkUtilsFile.deleteIfExist(optionsFile);
+            return;
+        }
+        final JkClassDataSharing classDataSharing = JkClassDataSharing.of("jerkar", javaDir, JkClasspath.current());
+
+        // Launcher scripts do not handle quoted options
+        if (!classDataSharing.isApplicable() || classDataSharing.archive().getAbsolutePath().contains(" ")) {
+            JkUtilsFile.deleteIfExist(optionsFile);
+            return;
+        }
+
+        // The class list recorded by this JVM is not complete until it exits
+        final boolean training = isTraining();
+        if (!training) {
+            classDataSharing.afterRun();
+        }
+        final List<String> options = classDataSharing.jvmOptions();
+        final String content = training ? "" : JkUtilsString.join(options, " ");
+        JkUtilsFile.writeString(optionsFile, content, false);
+        JkLog.trace("Class data sharing options for next launch : " + content);
+    }
+
+    private static boolean isTraining() {
+        for (final String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith(TRAINING_OPTION)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -10,10 +10,12 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.jerkar.api.depmanagement.JkComputedDependency;
 import org.jerkar.api.depmanagement.JkDependencyResolver;
 import org.jerkar.api.file.JkFileTree;
+import org.jerkar.api.file.JkFileTreeSet;
 import org.jerkar.api.file.JkPath;
 import org.jerkar.api.system.JkLog;
 import org.jerkar.api.utils.*;
@@ -213,6 +215,23 @@ public class JkBuild {
         return ouputDir().file(relativePath);
     }
 
+    /**
+     * Returns the files to watch when Jerkar runs in watch mode (<code>-watch</code> option). The build
+     * definition is always watched in addition to these files.
+     */
+    public JkFileTreeSet watchedFiles() {
+        return JkFileTreeSet.empty();
+    }
+
+    /**
+     * When Jerkar runs in watch mode, returns the watched files that have been created, modified or
+     * deleted since the last successful build. Returns <code>null</code> if everything has to be built,
+     * that is outside of watch mode or for the first build.
+     */
+    protected final Set<File> watchedChanges() {
+        return Watcher.changes();
+    }
+
     // ------------ Jerkar methods ------------
 
     /**
@@ -236,6 +255,10 @@ public class JkBuild {
     /** Clean the output directory. */
     @JkDoc("Cleans the output directory.")
     public void clean() {
+        if (watchedChanges() != null) {
+            JkLog.info("Output directory kept to build incrementally in watch mode.");
+            return;
+        }
         JkLog.start("Cleaning output directory " + ouputDir().root().getPath());
         ouputDir().exclude(JkConstants.BUILD_DEF_BIN_DIR_NAME + "/**").deleteAll();
         JkLog.done();
@@ -261,6 +284,7 @@ public class JkBuild {
             final Element buildEl = ProjectDef.ProjectBuildClassDef.of(this).toElement(document);
             document.appendChild(buildEl);
             if (help.xmlFile == null) {
+                JkLog.flush();
                 JkUtilsXml.output(document, System.out);
             } else {
                 JkUtilsFile.createFileIfNotExist(help.xmlFile);
@@ -119,6 +119,14 @@ public class JkBuildDependencySupport extends JkBuild {
         return mavenPublishLocal().and(JkRepo.firstNonNull(repoFromOptions("download"), JkRepo.mavenCentral()));
     }
 
+    /**
+     * Returns the repositories returned by {@link #downloadRepositories()}, so plugins can download
+     * the tools they need from the same repositories as the build dependencies.
+     */
+    public final JkRepos effectiveDownloadRepositories() {
+        return downloadRepositories();
+    }
+
     /**
      * Returns the repositories where are published artifacts. By default it
      * takes the repository defined in options <code>repo.publish.url</code>,
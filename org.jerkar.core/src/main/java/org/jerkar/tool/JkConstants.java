@@ -15,6 +15,10 @@ public final class JkConstants {
 
     static final String DEFAULT_JAVA_SOURCE = "src/main/java";
 
+    static final String PROFILE_TRACE_FILE = "profile/build-trace.json";
+
+    static final String PROFILE_CSV_FILE = "profile/build-profile.csv";
+
     static final Class<?> DEFAULT_BUILD_CLASS = JkClassLoader.current().load(
             "org.jerkar.tool.builtins.javabuild.JkJavaBuild");
 
@@ -8,10 +8,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
+import org.jerkar.api.file.JkBuildCache;
+import org.jerkar.api.file.JkHttpBuildCache;
+import org.jerkar.api.java.JkClassDataSharing;
 import org.jerkar.api.java.JkClassLoader;
+import org.jerkar.api.java.JkJavacServer;
 import org.jerkar.api.system.JkInfo;
 import org.jerkar.api.system.JkLocator;
 import org.jerkar.api.system.JkLog;
+import org.jerkar.api.system.JkProfiler;
 import org.jerkar.api.utils.JkUtilsFile;
 import org.jerkar.api.utils.JkUtilsIterable;
 import org.jerkar.api.utils.JkUtilsObject;
@@ -126,6 +131,14 @@ public final class JkInit {
         return loadResult.standardOptions.buildClass;
     }
 
+    boolean watch() {
+        return loadResult.standardOptions.watch;
+    }
+
+    int watchDebounce() {
+        return loadResult.standardOptions.watchDebounce;
+    }
+
     private static LoadResult loadOptionsAndSystemProps(String[] args) {
         final Map<String, String> sysProps = getSpecifiedSystemProps(args);
         JkUtilsTool.setSystemProperties(sysProps);
@@ -141,6 +154,25 @@ public final class JkInit {
         JkOptions.populateFields(standardOptions, optionMap);
         JkLog.silent(standardOptions.silent);
         JkLog.verbose(standardOptions.verbose);
+        if (standardOptions.profile) {
+            JkProfiler.enable();
+        }
+        if (standardOptions.buildCache && JkBuildCache.active() == null) {
+            JkBuildCache buildCache = JkBuildCache.local(standardOptions.buildCacheMaxSize * 1024L * 1024L);
+            if (!JkUtilsString.isBlank(standardOptions.buildCacheUrl)) {
+                final JkHttpBuildCache remote = JkHttpBuildCache.of(standardOptions.buildCacheUrl)
+                        .withPushToken(standardOptions.buildCachePushToken);
+                buildCache = buildCache.withRemote(remote, standardOptions.buildCachePush,
+                        standardOptions.buildCacheTimeBudget);
+            }
+            JkBuildCache.activate(buildCache);
+        }
+        if (standardOptions.cds) {
+            JkClassDataSharing.activate(true);
+        }
+        if (standardOptions.javacServer) {
+            JkJavacServer.activate(true);
+        }
 
         JkOptions.populateFields(standardOptions);
         final JkInit.LoadResult loadResult = new JkInit.LoadResult();
@@ -278,9 +310,37 @@ public final class JkInit {
 
         String buildClass;
 
+        boolean profile;
+
+        boolean buildCache;
+
+        // In megabytes
+        int buildCacheMaxSize = 2048;
+
+        String buildCacheUrl;
+
+        boolean buildCachePush;
+
+        // Not displayed as it is a secret
+        String buildCachePushToken;
+
+        // In milliseconds
+        int buildCacheTimeBudget = 10000;
+
+        boolean watch;
+
+        // In milliseconds
+        int watchDebounce = 300;
+
+        boolean cds;
+
+        boolean javacServer;
+
         @Override
         public String toString() {
-            return "buildClass=" + JkUtilsObject.toString(buildClass) + ", verbose=" + verbose + ", silent=" + silent;
+            return "buildClass=" + JkUtilsObject.toString(buildClass) + ", verbose=" + verbose + ", silent=" + silent
+                    + ", profile=" + profile + ", watch=" + watch + ", cds=" + cds + ", javacServer=" + javacServer + ", buildCache=" + buildCache
+                    + (buildCacheUrl == null ? "" : ", buildCacheUrl=" + buildCacheUrl + ", buildCachePush=" + buildCachePush);
         }
 
     }
@@ -4,6 +4,10 @@ import java.io.File;
 import java.io.InputStream;
 import java.util.List;
 
+import org.jerkar.api.file.JkBuildCache;
+import org.jerkar.api.java.JkClassDataSharing;
+import org.jerkar.api.java.JkJavaCompilerSession;
+import org.jerkar.api.java.JkJavacServer;
 import org.jerkar.api.system.JkLog;
 import org.jerkar.api.utils.JkUtilsFile;
 import org.jerkar.api.utils.JkUtilsIO;
@@ -31,14 +35,25 @@ public final class Main {
         final File workingDir = JkUtilsFile.workingDir();
         final Project project = new Project(workingDir);
         JkLog.nextLine();
+        if (init.watch()) {
+            new Watcher(project, init, init.watchDebounce()).run();
+            return;
+        }
         try {
             project.execute(init);
+            JkJavacServer.shutdownAll();
+            if (JkBuildCache.active() != null) {
+                JkLog.info(JkBuildCache.active().stats());
+            }
+            ClassDataSharingOptions.prepareNextLaunch(workingDir, JkClassDataSharing.active());
+            JkLog.flush();
             if (!JkLog.silent()) {
                 final int lenght = printAscii(false, "success.ascii");
                 System.out.println(JkUtilsString.repeat(" ", lenght) + "Total build time : "
                         + JkUtilsTime.durationInSeconds(start) + " seconds.");
             }
         } catch (final RuntimeException e) {
+            JkLog.flush();
             System.err.println();
             e.printStackTrace(System.err);
             final int lenght = printAscii(true, "failed.ascii");
@@ -54,10 +69,18 @@ public final class Main {
     public static void exec(File projectDir, String... args) {
         final JkInit init = JkInit.of(args);
         final Project project = new Project(projectDir);
-        project.execute(init);
+        try {
+            project.execute(init);
+        } finally {
+
+            // The calling JVM keeps running, so jars opened by the compiler and servers must be released
+            JkJavaCompilerSession.shared().close();
+            JkJavacServer.shutdownAll();
+        }
     }
 
     private static int printAscii(boolean error, String fileName) {
+        JkLog.flush();
         final InputStream inputStream = Main.class.getResourceAsStream(fileName);
         final List<String> lines = JkUtilsIO.readAsLines(inputStream);
         int i = 0;
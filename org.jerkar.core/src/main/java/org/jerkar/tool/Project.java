@@ -9,7 +9,9 @@ import org.jerkar.api.depmanagement.JkDependencyResolver;
 import org.jerkar.api.depmanagement.JkRepo;
 import org.jerkar.api.depmanagement.JkRepos;
 import org.jerkar.api.depmanagement.JkScopeMapping;
+import org.jerkar.api.file.JkBuildCache;
 import org.jerkar.api.file.JkFileTree;
+import org.jerkar.api.file.JkFileTreeSet;
 import org.jerkar.api.file.JkPath;
 import org.jerkar.api.file.JkPathFilter;
 import org.jerkar.api.java.JkClassLoader;
@@ -17,6 +19,7 @@ import org.jerkar.api.java.JkClasspath;
 import org.jerkar.api.java.JkJavaCompiler;
 import org.jerkar.api.system.JkLocator;
 import org.jerkar.api.system.JkLog;
+import org.jerkar.api.system.JkProfiler;
 import org.jerkar.api.utils.JkUtilsFile;
 import org.jerkar.tool.CommandLine.MethodInvocation;
 
@@ -40,6 +43,11 @@ final class Project {
 
     private final BuildResolver resolver;
 
+    // Build classes can not be reloaded so they are compiled once, even if the project is executed many times
+    private JkPath runtimeClasspath;
+
+    private JkBuild lastBuild;
+
     /**
      * Constructs a project to its base directory and the download repository.
      * Download repository is used in case the build classes need some
@@ -105,18 +113,27 @@ final class Project {
      * of this project.
      */
     void execute(JkInit init) {
-        this.buildDependencies = this.buildDependencies.andScopeless(init.commandLine().dependencies());
-        JkPath runtimeClasspath = compile();
-        JkLog.startHeaded("Instantiating build class");
-        if (!init.commandLine().dependencies().isEmpty()) {
-            JkLog.startln("Grab dependencies specified in command line");
-            final JkPath cmdPath = pathOf(init.commandLine().dependencies());
-            runtimeClasspath = runtimeClasspath.andHead(cmdPath);
-            if (JkLog.verbose()) {
-                JkLog.done("Command line extra path : " + cmdPath);
-            } else {
-                JkLog.done();
+        final long profileMark = JkProfiler.mark();
+        final JkBuildCache buildCache = JkBuildCache.active();
+        if (buildCache != null) {
+            buildCache.prefetch(projectBaseDir.getName());
+        }
+        if (runtimeClasspath == null) {
+            this.buildDependencies = this.buildDependencies.andScopeless(init.commandLine().dependencies());
+            runtimeClasspath = compile();
+            JkLog.startHeaded("Instantiating build class");
+            if (!init.commandLine().dependencies().isEmpty()) {
+                JkLog.startln("Grab dependencies specified in command line");
+                final JkPath cmdPath = pathOf(init.commandLine().dependencies());
+                runtimeClasspath = runtimeClasspath.andHead(cmdPath);
+                if (JkLog.verbose()) {
+                    JkLog.done("Command line extra path : " + cmdPath);
+                } else {
+                    JkLog.done();
+                }
             }
+        } else {
+            JkLog.startHeaded("Instantiating build class");
         }
         final BuildAndPluginDictionnary buildAndDict = getBuildInstance(init, runtimeClasspath);
         if (buildAndDict == null) {
@@ -124,12 +141,50 @@ final class Project {
                     + " .\nAre you sure this directory is a buildable project ?");
         }
         JkLog.done();
+        lastBuild = buildAndDict.build;
         try {
             this.launch(buildAndDict.build, buildAndDict.dictionnary, init.commandLine());
         } catch (final RuntimeException e) {
             JkLog.error("Project " + projectBaseDir.getAbsolutePath() + " failed");
             throw e;
+        } finally {
+            writeProfile(buildAndDict.build, profileMark);
+            if (buildCache != null) {
+                buildCache.finish(projectBaseDir.getName());
+            }
+        }
+    }
+
+    /**
+     * Returns the files to watch in watch mode : the build definition and the files declared by the
+     * last executed build and its slaves or, if no build has been instantiated yet, the whole project.
+     */
+    JkFileTreeSet watchedFiles() {
+        if (lastBuild == null) {
+            return JkFileTree.of(projectBaseDir).exclude(JkConstants.BUILD_OUTPUT_PATH + "/**", ".*/**").asSet();
+        }
+        JkFileTreeSet result = JkFileTreeSet.of(resolver.buildSourceDir).and(lastBuild.watchedFiles());
+        for (final JkBuild slave : lastBuild.slaves().all()) {
+            result = result.and(slave.watchedFiles());
+        }
+        return result;
+    }
+
+    boolean isBuildDefinition(File file) {
+        return JkUtilsFile.isAncestor(resolver.buildSourceDir, file);
+    }
+
+    // Only the spans of this execution are written : other projects may have been built, or
+    // former watch cycles run, in the same JVM. Slaves are part of the execution of their master.
+    private static void writeProfile(JkBuild build, long profileMark) {
+        if (!JkProfiler.isEnabled() || !JkProfiler.hasSpans(profileMark)) {
+            return;
         }
+        final File traceFile = build.ouputDir(JkConstants.PROFILE_TRACE_FILE);
+        final File csvFile = build.ouputDir(JkConstants.PROFILE_CSV_FILE);
+        JkProfiler.writeChromeTrace(traceFile, profileMark);
+        JkProfiler.writeCsv(csvFile, profileMark);
+        JkLog.info("Build profile written in " + traceFile.getPath() + " and " + csvFile.getPath());
     }
 
     private JkPath pathOf(List<? extends JkDependency> dependencies) {
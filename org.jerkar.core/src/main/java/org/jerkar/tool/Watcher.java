@@ -0,0 +1,168 @@
+package org.jerkar.tool;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.jerkar.api.depmanagement.JkDependencyResolver;
+import org.jerkar.api.file.JkFileTree;
+import org.jerkar.api.file.JkFileTreeSet;
+import org.jerkar.api.system.JkLog;
+
+/**
+ * Runs the build of a project each time one of its watched files changes (<code>-watch</code> option).
+ * Files are polled, and a cycle starts once no more change has been detected during the debounce
+ * period, so saving many files at once triggers a single cycle.
+ * <p>
+ * Build classes are loaded in the Jerkar class loader and can not be reloaded : when the build
+ * definition changes, Jerkar exits with {@link #RESTART_EXIT_CODE} so the launcher script starts
+ * it again.
+ */
+final class Watcher {
+
+    /** Exit code telling the launcher script to restart Jerkar. */
+    static final int RESTART_EXIT_CODE = 3;
+
+    private static final long POLL_PERIOD = 200;
+
+    // Files changed since the last successful cycle, null if everything has to be built
+    private static volatile Set<File> changes;
+
+    private final Project project;
+
+    private final JkInit init;
+
+    private final long debounceMillis;
+
+    Watcher(Project project, JkInit init, long debounceMillis) {
+        this.project = project;
+        this.init = init;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Returns the files created, modified or deleted since the last successful build cycle, or
+     * <code>null</code> if the current build is not an incremental watch cycle.
+     */
+    static Set<File> changes() {
+        return changes;
+    }
+
+    /**
+     * Runs build cycles forever.
+     */
+    void run() {
+        Set<File> pending = null;
+        long detectionTime = System.nanoTime();
+        JkFileTreeSet watched = null;
+        Map<File, Long> snapshot = null;
+        while (true) {
+            changes = pending == null ? null : Collections.unmodifiableSet(pending);
+            final boolean success = cycle(pending, detectionTime);
+            if (success) {
+                pending = new HashSet<File>();
+            }
+
+            // Watched files are only known once the build has been instantiated
+            if (watched == null || !project.watchedFiles().roots().equals(watched.roots())) {
+                watched = project.watchedFiles();
+                snapshot = snapshot(watched);
+            }
+            JkLog.info("Watching " + watched.roots() + " for changes (Ctrl+C to stop).");
+            JkLog.flush();
+            final Map<File, Long> next = waitForChanges(watched, snapshot);
+            detectionTime = System.nanoTime();
+            final Set<File> changed = diff(snapshot, next);
+            snapshot = next;
+            if (pending != null) {
+                pending.addAll(changed);
+            }
+            for (final File file : changed) {
+                if (project.isBuildDefinition(file)) {
+                    JkLog.info("Build definition changed, restarting Jerkar.");
+                    JkLog.flush();
+                    System.exit(RESTART_EXIT_CODE);
+                }
+            }
+        }
+    }
+
+    private boolean cycle(Set<File> pending, long detectionTime) {
+        if (pending != null) {
+            JkLog.nextLine();
+            JkLog.infoHeaded("Rebuilding after change of " + pending.size() + " file(s)");
+        }
+        boolean success = true;
+
+        // Slave builds and their resolvers are kept between cycles
+        JkDependencyResolver.clearCachedResults();
+        try {
+            project.execute(init);
+        } catch (final RuntimeException e) {
+            success = false;
+            JkLog.error("Build failed : " + e.getMessage());
+            if (JkLog.verbose()) {
+                e.printStackTrace(JkLog.errorStream());
+            }
+        }
+        final long latency = (System.nanoTime() - detectionTime) / 1000000;
+        JkLog.info((success ? "Build succeeded" : "Build failed") + ", cycle latency : " + latency + " ms.");
+        return success;
+    }
+
+    private Map<File, Long> waitForChanges(JkFileTreeSet watched, Map<File, Long> snapshot) {
+        Map<File, Long> current = snapshot;
+        long lastChangeTime = 0;
+        while (true) {
+            sleep(POLL_PERIOD);
+            final Map<File, Long> next = snapshot(watched);
+            if (!next.equals(current)) {
+                current = next;
+                lastChangeTime = System.currentTimeMillis();
+            } else if (lastChangeTime > 0 && System.currentTimeMillis() - lastChangeTime >= debounceMillis) {
+                return current;
+            }
+        }
+    }
+
+    private static Map<File, Long> snapshot(JkFileTreeSet trees) {
+        final Map<File, Long> result = new HashMap<File, Long>();
+        for (final JkFileTree tree : trees.fileTrees()) {
+            if (!tree.exists()) {
+                continue;
+            }
+            for (final File file : tree) {
+                result.put(file, file.lastModified() * 31 + file.length());
+            }
+        }
+        return result;
+    }
+
+    private static Set<File> diff(Map<File, Long> before, Map<File, Long> after) {
+        final Set<File> result = new HashSet<File>();
+        for (final Map.Entry<File, Long> entry : after.entrySet()) {
+            if (!entry.getValue().equals(before.get(entry.getKey()))) {
+                result.add(entry.getKey());
+            }
+        }
+        for (final File file : before.keySet()) {
+            if (!after.containsKey(file)) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+}
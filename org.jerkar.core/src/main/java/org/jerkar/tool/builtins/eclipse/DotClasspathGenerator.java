@@ -4,6 +4,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -101,6 +103,11 @@ final class DotClasspathGenerator {
      */
     public boolean useAbsolutePaths;
 
+    /**
+     * Max number of source/javadoc artifacts downloaded concurrently
+     */
+    int maxConcurrentDownloads = JkBuildPluginEclipse.DEFAULT_CONCURRENT_DOWNLOADS;
+
     /**
      * Constructs a {@link DotClasspathGenerator} to the project base
      * directory
@@ -315,13 +322,28 @@ final class DotClasspathGenerator {
             allDeps = allDeps.and(this.buildDefDependencyResolver.dependenciesToResolve());
             repos = repos.and(buildDefDependencyResolver.repositories());
         }
-        for (JkDependencyNode node : resolveResult.dependencyTree().flatten()) {
+        final List<JkDependencyNode> nodes = resolveResult.dependencyTree().flatten();
+
+        // Fetch sources and, when missing, javadoc of all modules prior writing entries
+        final Set<JkVersionedModule> modules = new LinkedHashSet<JkVersionedModule>();
+        for (JkDependencyNode node : nodes) {
+            if (node.isModuleNode()) {
+                modules.add(versionedModule(node.moduleInfo()));
+            }
+        }
+        final Map<JkVersionedModule, File> sources = repos.get(modules, "sources", maxConcurrentDownloads);
+        final List<JkVersionedModule> modulesWithoutSources = new LinkedList<JkVersionedModule>(modules);
+        modulesWithoutSources.removeAll(sources.keySet());
+        final Map<JkVersionedModule, File> javadocs = repos.get(modulesWithoutSources, "javadoc",
+                maxConcurrentDownloads);
+
+        for (JkDependencyNode node : nodes) {
             // Maven dependency
             if (node.isModuleNode()) {
                 JkDependencyNode.ModuleNodeInfo moduleNodeInfo = node.moduleInfo();
-                writeModuleEntry(writer,
-                        JkVersionedModule.of(moduleNodeInfo.moduleId(), moduleNodeInfo.resolvedVersion()),
-                        moduleNodeInfo.files(), repos, allPaths);
+                final JkVersionedModule versionedModule = versionedModule(moduleNodeInfo);
+                writeModuleEntry(writer, moduleNodeInfo.files(), sources.get(versionedModule),
+                        javadocs.get(versionedModule), allPaths);
 
                 // File dependencies (file system + computed)
             } else {
@@ -342,6 +364,9 @@ final class DotClasspathGenerator {
 
     }
 
+    private static JkVersionedModule versionedModule(JkDependencyNode.ModuleNodeInfo moduleNodeInfo) {
+        return JkVersionedModule.of(moduleNodeInfo.moduleId(), moduleNodeInfo.resolvedVersion());
+    }
 
     private File getProjectDir(Iterable<File> files) {
 
@@ -364,25 +389,8 @@ final class DotClasspathGenerator {
         return null;
     }
 
-    private void writeExternalModuleEntries(final XMLStreamWriter writer,
-                                            JkResolveResult resolveResult, Set<String> paths, JkRepos repos) throws XMLStreamException {
-        for (final JkVersionedModule versionedModule : resolveResult.involvedModules()) {
-            JkModuleId moduleId = versionedModule.moduleId();
-            JkVersion version = resolveResult.versionOf(moduleId);
-            if (version != null) {
-                JkVersionedModule resolvedModule = JkVersionedModule.of(moduleId, version);
-                writeModuleEntry(writer, resolvedModule, resolveResult.filesOf(moduleId), repos, paths);
-            }
-        }
-    }
-
-    private void writeModuleEntry(XMLStreamWriter writer, JkVersionedModule versionedModule, Iterable<File> files,
-                                  JkRepos repos, Set<String> paths) throws XMLStreamException {
-        File source = repos.get(JkModuleDependency.of(versionedModule).classifier("sources"));
-        File javadoc = null;
-        if (source == null || !source.exists()) {
-            javadoc = repos.get(JkModuleDependency.of(versionedModule).classifier("javadoc"));
-        }
+    private void writeModuleEntry(XMLStreamWriter writer, Iterable<File> files, File source, File javadoc,
+                                  Set<String> paths) throws XMLStreamException {
         for (final File file : files) {
             writeClasspathEntry(writer, file, source, javadoc, paths, true);
         }
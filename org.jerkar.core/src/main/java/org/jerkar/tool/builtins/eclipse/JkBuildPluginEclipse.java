@@ -6,6 +6,7 @@ import java.util.*;
 import org.jerkar.api.depmanagement.JkDependencies;
 import org.jerkar.api.file.JkFileTreeSet;
 import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsConcurrent;
 import org.jerkar.tool.*;
 import org.jerkar.tool.builtins.javabuild.JkJavaBuild;
 import org.jerkar.tool.builtins.javabuild.JkJavaBuildPlugin;
@@ -17,6 +18,8 @@ public final class JkBuildPluginEclipse extends JkJavaBuildPlugin {
 
     static final String OPTION_VAR_PREFIX = "eclipse.var.";
 
+    static final int DEFAULT_CONCURRENT_DOWNLOADS = 4;
+
     private JkBuild build;
 
     @JkDoc("Set it to false to not mention javadoc in generated .classpath file.")
@@ -41,6 +44,14 @@ public final class JkBuildPluginEclipse extends JkJavaBuildPlugin {
     @JkDoc({ "Set it to true to use absolute paths in the classpath instead of classpath variables." })
     public boolean useAbsolutePathsInClasspath = false;
 
+    /** Max number of source and javadoc artifacts downloaded concurrently */
+    @JkDoc({ "Max number of source and javadoc artifacts downloaded concurrently." })
+    public int downloadThreads = DEFAULT_CONCURRENT_DOWNLOADS;
+
+    /** Max number of projects whose files are generated concurrently by 'generateAll' task */
+    @JkDoc({ "Max number of projects whose files are generated concurrently by 'generateAll' task." })
+    public int generateThreads = JkUtilsConcurrent.defaultParallelism();
+
     private DotClasspathModel cachedClasspath = null;
 
     /* see #useProjectDependencyInsteadOfFileFor */
@@ -72,6 +83,7 @@ public final class JkBuildPluginEclipse extends JkJavaBuildPlugin {
             generator.fileDependencyToProjectSubstitution = this.fileDependencyToProjectSubstitution;
             generator.useAbsolutePaths = this.useAbsolutePathsInClasspath;
             generator.projectDependencyToFileSubstitutions = this.projectDependencyToFileSubstitutions;
+            generator.maxConcurrentDownloads = this.downloadThreads;
             generator.generate();
 
             if (!dotProject.exists()) {
@@ -85,17 +97,55 @@ public final class JkBuildPluginEclipse extends JkJavaBuildPlugin {
     }
 
     /** Generate Eclipse files on all sub folders of the current directory **/
-    @JkDoc("Generate Eclipse files on all subfolder of the current directory. Only subfolder having a build/def directory are impacted.")
+    @JkDoc({"Generate Eclipse files on all subfolder of the current directory. Only subfolder having a build/def directory are impacted.",
+        "Builds are instantiated and their dependencies resolved one after the other, then files are generated concurrently."})
     public void generateAll() {
         final Iterable<File> folders = build.baseDir()
                 .include("**/" + JkConstants.BUILD_DEF_DIR)
                 .exclude("**/build/output/**")
                 .files(true);
+        final List<Runnable> generations = new LinkedList<Runnable>();
         for (File folder : folders) {
-            File projectFolder = folder.getParentFile().getParentFile();
-            JkLog.startln("Generating Eclipse files on " + projectFolder);
-            Main.exec(projectFolder, "eclipse#generateFiles");
+            final File projectFolder = folder.getParentFile().getParentFile();
+            JkLog.startln("Preparing Eclipse files generation on " + projectFolder);
+            final JkBuildPluginEclipse plugin = pluginFor(JkInit.instanceOf(projectFolder));
+            plugin.resolveDependencies();
             JkLog.done();
+            generations.add(new Runnable() {
+
+                @Override
+                public void run() {
+                    plugin.generateFiles();
+                    JkLog.info("Eclipse files generated on " + projectFolder);
+                }
+            });
+        }
+        JkUtilsConcurrent.runAll("eclipse", generations, generateThreads);
+    }
+
+    // Returns the plugin instance the specified build has been configured with, or a new one sharing this plugin settings.
+    private JkBuildPluginEclipse pluginFor(JkBuild projectBuild) {
+        final JkBuildPluginEclipse configured = projectBuild.plugins.findInstanceOf(JkBuildPluginEclipse.class);
+        if (configured != null) {
+            return configured;
+        }
+        final JkBuildPluginEclipse result = new JkBuildPluginEclipse();
+        result.javadoc = this.javadoc;
+        result.smartScope = this.smartScope;
+        result.jreContainer = this.jreContainer;
+        result.useAbsolutePathsInClasspath = this.useAbsolutePathsInClasspath;
+        result.downloadThreads = this.downloadThreads;
+        result.configure(projectBuild);
+        return result;
+    }
+
+    // Resolution results are cached by resolvers so generation does not resolve again
+    private void resolveDependencies() {
+        if (this.build instanceof JkJavaBuild) {
+            ((JkJavaBuild) build).dependencyResolver().resolve();
+        }
+        if (this.build.buildDefDependencyResolver() != null) {
+            this.build.buildDefDependencyResolver().resolve();
         }
     }
 
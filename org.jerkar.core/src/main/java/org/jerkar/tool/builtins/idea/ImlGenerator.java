@@ -79,6 +79,9 @@ final class ImlGenerator {
     /* When true, path will be mentioned with $JERKAR_HOME$ and $JERKAR_REPO$ instead of explicit absolute path. */
     boolean useVarPath;
 
+    /** Max number of source/javadoc artifacts downloaded concurrently */
+    int maxConcurrentDownloads = JkBuildPluginIdea.DEFAULT_CONCURRENT_DOWNLOADS;
+
     private final Set<String> paths = new HashSet<String>();
 
     private final ByteArrayOutputStream fos = new ByteArrayOutputStream();
@@ -248,13 +251,27 @@ final class ImlGenerator {
                                    boolean forceTest) throws XMLStreamException {
 
         final JkResolveResult resolveResult = resolver.resolve();
-        final JkDependencyNode tree = resolveResult.dependencyTree();
-        for (final JkDependencyNode node : tree.flatten()) {
+        final List<JkDependencyNode> nodes = resolveResult.dependencyTree().flatten();
+
+        // Fetch sources and javadoc of all modules at once
+        final Set<JkVersionedModule> modules = new LinkedHashSet<JkVersionedModule>();
+        for (final JkDependencyNode node : nodes) {
+            if (node.isModuleNode()) {
+                modules.add(versionedModule(node.moduleInfo()));
+            }
+        }
+        final JkRepos repos = resolver.repositories();
+        final Map<JkVersionedModule, File> sources = repos.get(modules, "sources", maxConcurrentDownloads);
+        final Map<JkVersionedModule, File> javadocs = repos.get(modules, "javadoc", maxConcurrentDownloads);
+
+        for (final JkDependencyNode node : nodes) {
 
             // Maven dependency
             if (node.isModuleNode()) {
                 String ideScope = forceTest ? "TEST" : ideScope(node.moduleInfo().resolvedScopes());
-                final List<LibPath> paths = toLibPath(node.moduleInfo(), resolver.repositories(), ideScope);
+                final JkVersionedModule versionedModule = versionedModule(node.moduleInfo());
+                final List<LibPath> paths = toLibPath(node.moduleInfo().files(), sources.get(versionedModule),
+                        javadocs.get(versionedModule), ideScope);
                 for (LibPath libPath : paths) {
                     if (!allPaths.contains(libPath.bin)) {
                         writeOrderEntryForLib(libPath);
@@ -291,19 +308,18 @@ final class ImlGenerator {
         }
     }
 
-    private List<LibPath> toLibPath(JkDependencyNode.ModuleNodeInfo moduleInfo, JkRepos repos,
-                                    String scope) {
+    private static JkVersionedModule versionedModule(JkDependencyNode.ModuleNodeInfo moduleInfo) {
+        return JkVersionedModule.of(moduleInfo.moduleId(), moduleInfo.resolvedVersion());
+    }
+
+    private List<LibPath> toLibPath(List<File> files, File source, File javadoc, String scope) {
         final List<LibPath> result = new LinkedList<LibPath>();
-        final JkModuleId moduleId = moduleInfo.moduleId();
-        final JkVersion version = moduleInfo.resolvedVersion();
-        final JkVersionedModule versionedModule = JkVersionedModule.of(moduleId, version);
-        final List<File> files = moduleInfo.files();
         for (File file : files) {
             LibPath libPath = new LibPath();
             libPath.bin = file;
             libPath.scope = scope;
-            libPath.source = repos.get(JkModuleDependency.of(versionedModule).classifier("sources"));
-            libPath.javadoc = repos.get(JkModuleDependency.of(versionedModule).classifier("javadoc"));
+            libPath.source = source;
+            libPath.javadoc = javadoc;
             result.add(libPath);
         }
         return result;
@@ -5,6 +5,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsConcurrent;
 import org.jerkar.tool.*;
 import org.jerkar.tool.builtins.javabuild.JkJavaBuild;
 import org.jerkar.tool.builtins.javabuild.JkJavaBuildPlugin;
@@ -14,6 +15,8 @@ import org.jerkar.tool.builtins.javabuild.JkJavaBuildPlugin;
  */
 public final class JkBuildPluginIdea extends JkJavaBuildPlugin {
 
+    static final int DEFAULT_CONCURRENT_DOWNLOADS = 4;
+
     private JkBuild build;
 
     @Override
@@ -24,6 +27,12 @@ public final class JkBuildPluginIdea extends JkJavaBuildPlugin {
     @JkDoc("If true, path to cache repository and to Jerkar install will be replaces by $JERKAR_REPO$ and $JERKAR_HOME$ path variable")
     boolean useVarPath = false;
 
+    @JkDoc("Max number of source and javadoc artifacts downloaded concurrently.")
+    int downloadThreads = DEFAULT_CONCURRENT_DOWNLOADS;
+
+    @JkDoc("Max number of projects whose iml files are generated concurrently by 'generateAllIml' task.")
+    int generateThreads = JkUtilsConcurrent.defaultParallelism();
+
     /** Generates Idea [my-module].iml file */
     @JkDoc("Generates Idea [my-module].iml file")
     public void generateIml() {
@@ -33,6 +42,7 @@ public final class JkBuildPluginIdea extends JkJavaBuildPlugin {
         }
         final ImlGenerator generator = new ImlGenerator(build.baseDir().root());
         generator.useVarPath = useVarPath;
+        generator.maxConcurrentDownloads = downloadThreads;
         generator.buildDefDependencyResolver = build.buildDefDependencyResolver();
         generator.projectDependencies = depProjects;
         if (this.build instanceof JkBuildDependencySupport) {
@@ -62,17 +72,51 @@ public final class JkBuildPluginIdea extends JkJavaBuildPlugin {
         modulesXmlGenerator.generate();
     }
 
-    @JkDoc("Generates iml files on this folder and its descendant recursively.")
+    @JkDoc({"Generates iml files on this folder and its descendant recursively.",
+        "Builds are instantiated and their dependencies resolved one after the other, then files are generated concurrently."})
     public void generateAllIml() {
         Iterable<File> folders = build.baseDir()
                 .include("**/" + JkConstants.BUILD_DEF_DIR)
                 .exclude("**/build/output/**")
                 .files(true);
+        final List<Runnable> generations = new LinkedList<Runnable>();
         for (File folder : folders) {
-            File projectFolder = folder.getParentFile().getParentFile();
-            JkLog.startln("Generating iml file on " + projectFolder);
-            Main.exec(projectFolder, "idea#generateIml");
+            final File projectFolder = folder.getParentFile().getParentFile();
+            JkLog.startln("Preparing iml file generation on " + projectFolder);
+            final JkBuildPluginIdea plugin = pluginFor(JkInit.instanceOf(projectFolder));
+            plugin.resolveDependencies();
             JkLog.done();
+            generations.add(new Runnable() {
+
+                @Override
+                public void run() {
+                    plugin.generateIml();
+                }
+            });
+        }
+        JkUtilsConcurrent.runAll("idea", generations, generateThreads);
+    }
+
+    // Returns the plugin instance the specified build has been configured with, or a new one sharing this plugin settings.
+    private JkBuildPluginIdea pluginFor(JkBuild projectBuild) {
+        final JkBuildPluginIdea configured = projectBuild.plugins.findInstanceOf(JkBuildPluginIdea.class);
+        if (configured != null) {
+            return configured;
+        }
+        final JkBuildPluginIdea result = new JkBuildPluginIdea();
+        result.useVarPath = this.useVarPath;
+        result.downloadThreads = this.downloadThreads;
+        result.configure(projectBuild);
+        return result;
+    }
+
+    // Resolution results are cached by resolvers so generation does not resolve again
+    private void resolveDependencies() {
+        if (this.build instanceof JkBuildDependencySupport) {
+            ((JkBuildDependencySupport) build).dependencyResolver().resolve();
+        }
+        if (this.build.buildDefDependencyResolver() != null) {
+            this.build.buildDefDependencyResolver().resolve();
         }
     }
 
@@ -82,4 +126,4 @@ public final class JkBuildPluginIdea extends JkJavaBuildPlugin {
         generateModulesXml();
     }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,198 @@
+package org.jerkar.tool.builtins.javabuild;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jerkar.api.file.JkFileTree;
+import org.jerkar.api.file.JkFileTreeSet;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsString;
+
+/**
+ * Finds the Java sources affected by a set of changed files, for building incrementally in watch
+ * mode. A source is considered to depend on a type if it mentions its simple name, which may select
+ * more sources than needed but is cheap and does not require to parse sources.
+ */
+final class AffectedSources {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+
+    // Identifiers found in source files, recomputed when the file changes
+    private static final Map<File, Identifiers> IDENTIFIERS = new HashMap<File, Identifiers>();
+
+    private AffectedSources() {
+        // Can not instantiate
+    }
+
+    /**
+     * Returns <code>true</code> if one of the specified changed files is a Java source that has been
+     * deleted from the specified trees.
+     */
+    static boolean hasDeletedSource(JkFileTreeSet trees, Collection<File> changes) {
+        for (final File file : changes) {
+            if (!file.exists() && isJava(file) && contains(trees, file)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the files of the specified trees that belong to the specified changed files.
+     */
+    static List<File> changed(JkFileTreeSet trees, Collection<File> changes) {
+        final List<File> result = new LinkedList<File>();
+        for (final File file : changes) {
+            if (contains(trees, file)) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the changed Java sources of the specified trees along the sources mentioning a type
+     * declared in one of them.
+     */
+    static Set<File> toRecompile(JkFileTreeSet trees, Collection<File> changes) {
+        final List<File> sources = javaSources(trees);
+        final Set<File> result = new LinkedHashSet<File>();
+        final Set<String> typeNames = new HashSet<String>();
+        for (final File source : sources) {
+            if (changes.contains(source)) {
+                result.add(source);
+                typeNames.add(typeName(source));
+            }
+        }
+        for (final File source : sources) {
+            if (!result.contains(source) && mentions(source, typeNames)) {
+                result.add(source);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the Java sources of the specified trees that have changed or that depend, directly or
+     * transitively, on a changed source or on one of the specified type names. The simple names of the
+     * returned sources are added to <code>typeNames</code>.
+     */
+    static Set<File> dependents(JkFileTreeSet trees, Collection<File> changes, Set<String> typeNames) {
+        final List<File> sources = javaSources(trees);
+        final Set<File> result = new LinkedHashSet<File>();
+        for (final File source : sources) {
+            if (changes.contains(source)) {
+                result.add(source);
+                typeNames.add(typeName(source));
+            }
+        }
+        boolean grown = true;
+        while (grown) {
+            grown = false;
+            for (final File source : sources) {
+                if (!result.contains(source) && mentions(source, typeNames)) {
+                    result.add(source);
+                    typeNames.add(typeName(source));
+                    grown = true;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the Ant patterns matching the class files compiled from the specified sources.
+     */
+    static List<String> classFilePatterns(JkFileTreeSet trees, Collection<File> sources) {
+        final List<String> result = new LinkedList<String>();
+        for (final JkFileTree tree : trees.fileTrees()) {
+            for (final File source : sources) {
+                if (tree.contains(source)) {
+                    final String relativePath = tree.relativePath(source).replace(File.separatorChar, '/');
+                    result.add(JkUtilsString.substringBeforeLast(relativePath, ".") + ".class");
+                }
+            }
+        }
+        return result;
+    }
+
+    private static List<File> javaSources(JkFileTreeSet trees) {
+        final List<File> result = new LinkedList<File>();
+        for (final JkFileTree tree : trees.fileTrees()) {
+            if (!tree.exists()) {
+                continue;
+            }
+            for (final File file : tree) {
+                if (isJava(file)) {
+                    result.add(file);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean contains(JkFileTreeSet trees, File file) {
+        for (final JkFileTree tree : trees.fileTrees()) {
+            if (tree.contains(file)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isJava(File file) {
+        return file.getName().endsWith(".java");
+    }
+
+    private static String typeName(File source) {
+        return JkUtilsString.substringBeforeLast(source.getName(), ".");
+    }
+
+    private static boolean mentions(File source, Set<String> typeNames) {
+        final Set<String> identifiers = identifiers(source);
+        for (final String typeName : typeNames) {
+            if (identifiers.contains(typeName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static synchronized Set<String> identifiers(File source) {
+        final long stamp = source.lastModified() * 31 + source.length();
+        final Identifiers cached = IDENTIFIERS.get(source);
+        if (cached != null && cached.stamp == stamp) {
+            return cached.names;
+        }
+        final Set<String> names = new HashSet<String>();
+        final Matcher matcher = IDENTIFIER.matcher(JkUtilsFile.read(source));
+        while (matcher.find()) {
+            names.add(matcher.group());
+        }
+        IDENTIFIERS.put(source, new Identifiers(stamp, names));
+        return names;
+    }
+
+    private static final class Identifiers {
+
+        final long stamp;
+
+        final Set<String> names;
+
+        Identifiers(long stamp, Set<String> names) {
+            this.stamp = stamp;
+            this.names = names;
+        }
+
+    }
+
+}
@@ -0,0 +1,148 @@
+package org.jerkar.tool.builtins.javabuild;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import org.jerkar.api.depmanagement.JkDependencyNode;
+import org.jerkar.api.depmanagement.JkScope;
+import org.jerkar.api.file.JkPath;
+import org.jerkar.api.java.JkClasspathUsage;
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsFile;
+
+/**
+ * Restricts the compilation classpaths of a {@link JkJavaBuild} to the dependencies the compiled
+ * classes actually use, and reports the declared dependencies that are not used along with the
+ * transitive ones that are used directly. The used dependencies are recorded after a compilation
+ * against the full classpath, and reused as long as the dependencies stay the same.
+ */
+final class ClasspathPruning {
+
+    static final String PRODUCTION = "compile";
+
+    static final String TEST = "test";
+
+    private ClasspathPruning() {
+        // Can not instantiate
+    }
+
+    /**
+     * Returns the dependencies to compile against : the used ones when they are known for the
+     * specified dependencies, all of them otherwise.
+     */
+    static JkPath classpath(JkJavaBuild build, String compilation, JkPath deps) {
+        if (!build.pruneClasspath) {
+            return deps;
+        }
+        final List<File> used = JkClasspathUsage.usedEntriesStoredIn(usageFile(build, compilation), deps);
+        return used == null ? deps : JkPath.of(used);
+    }
+
+    /**
+     * Returns <code>true</code> if the specified compilation runs against a pruned classpath.
+     */
+    static boolean isPruned(JkJavaBuild build, String compilation, JkPath deps) {
+        return build.pruneClasspath
+                && JkClasspathUsage.usedEntriesStoredIn(usageFile(build, compilation), deps) != null;
+    }
+
+    /**
+     * Records the dependencies used by the specified compiled classes.
+     */
+    static void record(JkJavaBuild build, String compilation, Iterable<File> classes, JkPath deps) {
+        final JkClasspathUsage usage = JkClasspathUsage.of(classes, deps);
+        usage.store(usageFile(build, compilation));
+        JkLog.info("Classpath for " + compilation + " pruned to " + usage + ".");
+    }
+
+    /**
+     * Forgets the used dependencies recorded for the specified compilation, so the next one runs
+     * against the full classpath.
+     */
+    static void forget(JkJavaBuild build, String compilation) {
+        JkUtilsFile.deleteIfExist(usageFile(build, compilation));
+    }
+
+    /**
+     * Logs the declared dependencies having one of the specified scopes that are not used by the
+     * specified compiled classes, and the dependencies they use without declaring them.
+     */
+    static void report(String compilation, JkClasspathUsage usage, JkDependencyNode tree,
+            JkScope... declaredScopes) {
+        final Set<File> declaredFiles = new HashSet<File>();
+        final List<String> unused = new LinkedList<String>();
+        for (final JkDependencyNode node : tree.children()) {
+            final List<File> files = node.nodeInfo().files();
+            declaredFiles.addAll(files);
+            final boolean evicted = node.isModuleNode() && node.moduleInfo().isEvicted();
+            if (evicted || files.isEmpty() || !containsAny(node.nodeInfo().declaredScopes(), declaredScopes)) {
+                continue;
+            }
+            boolean used = false;
+            for (final File file : files) {
+                used = used || usage.isUsed(file);
+            }
+            if (!used) {
+                unused.add(label(node));
+            }
+        }
+        final Set<String> undeclared = new LinkedHashSet<String>();
+        for (final File file : usage.usedEntries()) {
+            if (!declaredFiles.contains(file)) {
+                undeclared.add(label(tree, file));
+            }
+        }
+        JkLog.infoHeaded("Dependency usage of " + compilation + " classes (" + usage + ")");
+        JkLog.info("Declared but unused : " + (unused.isEmpty() ? "none" : ""));
+        JkLog.info(indent(unused));
+        JkLog.info("Used but not declared : " + (undeclared.isEmpty() ? "none" : ""));
+        JkLog.info(indent(undeclared));
+    }
+
+    private static File usageFile(JkJavaBuild build, String compilation) {
+        return build.ouputDir("classpath-usage/" + compilation + ".txt");
+    }
+
+    private static boolean containsAny(Set<JkScope> scopes, JkScope... candidates) {
+        for (final JkScope candidate : candidates) {
+            if (scopes.contains(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String label(JkDependencyNode node) {
+        if (node.isModuleNode()) {
+            return node.moduleInfo().moduleId() + ":" + node.moduleInfo().resolvedVersion();
+        }
+        final List<String> names = new LinkedList<String>();
+        for (final File file : node.nodeInfo().files()) {
+            names.add(file.getName());
+        }
+        return names.toString();
+    }
+
+    // Transitive dependencies are named after the module bringing the file
+    private static String label(JkDependencyNode tree, File file) {
+        for (final JkDependencyNode node : tree.flatten()) {
+            if (node.isModuleNode() && node.nodeInfo().files().contains(file)) {
+                return label(node);
+            }
+        }
+        return file.getPath();
+    }
+
+    private static List<String> indent(Iterable<String> items) {
+        final List<String> result = new LinkedList<String>();
+        for (final String item : items) {
+            result.add("  " + item);
+        }
+        return result;
+    }
+
+}
@@ -1,9 +1,13 @@
 package org.jerkar.tool.builtins.javabuild;
 
 import java.io.File;
+import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import org.jerkar.api.depmanagement.JkComputedDependency;
 import org.jerkar.api.depmanagement.JkDependencies;
@@ -14,11 +18,14 @@ import org.jerkar.api.depmanagement.JkPopularModules;
 import org.jerkar.api.depmanagement.JkScope;
 import org.jerkar.api.depmanagement.JkScopeMapping;
 import org.jerkar.api.depmanagement.JkVersionProvider;
+import org.jerkar.api.file.JkBuildCache;
 import org.jerkar.api.file.JkFileTree;
 import org.jerkar.api.file.JkFileTreeSet;
+import org.jerkar.api.file.JkPath;
 import org.jerkar.api.file.JkPathFilter;
 import org.jerkar.api.java.JkClassLoader;
 import org.jerkar.api.java.JkClasspath;
+import org.jerkar.api.java.JkClasspathUsage;
 import org.jerkar.api.java.JkJavaCompiler;
 import org.jerkar.api.java.JkJavaProcess;
 import org.jerkar.api.java.JkJavadocMaker;
@@ -27,8 +34,11 @@ import org.jerkar.api.java.JkResourceProcessor;
 import org.jerkar.api.java.junit.JkUnit;
 import org.jerkar.api.java.junit.JkUnit.JunitReportDetail;
 import org.jerkar.api.system.JkLog;
+import org.jerkar.api.system.JkTaskGraph;
 import org.jerkar.api.tooling.JkCodeWriterForBuildClass;
 import org.jerkar.api.tooling.JkMvn;
+import org.jerkar.api.tooling.JkPomResolver;
+import org.jerkar.api.utils.JkUtilsIterable;
 import org.jerkar.api.utils.JkUtilsJdk;
 import org.jerkar.api.utils.JkUtilsString;
 import org.jerkar.tool.JkBuildDependencySupport;
@@ -142,6 +152,36 @@ public class JkJavaBuild extends JkBuildDependencySupport {
     @JkDoc("Manifest")
     public final JkManifestOption manifest = new JkManifestOption();
 
+    /**
+     * When true, compilations only get the dependencies the compiled classes referenced at the
+     * previous compilation. The full classpath is used again when dependencies change or when
+     * compilation fails.
+     */
+    @JkDoc({"When true, compilations only get the dependencies the compiled classes referenced at the previous compilation.",
+        "The full classpath is used again when dependencies change or when compilation fails."})
+    public boolean pruneClasspath;
+
+    /**
+     * Max number of threads running concurrently the independent steps of the lifecycle, as
+     * javadoc generation and unit tests. 1, the default, runs the steps in sequence. When steps run
+     * concurrently, the output of each step is displayed once the step is over.
+     */
+    @JkDoc({"Max number of threads running concurrently the independent steps of the lifecycle, as javadoc",
+        "generation and unit tests. 1 runs the steps in sequence. When steps run concurrently, the output of",
+        "each step is displayed once the step is over."})
+    public int lifecycleThreads = 1;
+
+    /**
+     * When true and #lifecycleThreads is greater than 1, resources are generated and processed while
+     * production sources compile. This is ignored when #generateResources or #processResources are
+     * overridden, as they may rely on compiled classes, and when the build cache is active, as
+     * resources written during the compilation would be stored as compilation outputs.
+     */
+    @JkDoc({"When true and lifecycleThreads is greater than 1, resources are generated and processed while production sources compile.",
+        "Ignored when generateResources or processResources are overridden, as they may rely on compiled classes,",
+        "and when the build cache is active, as resources would be cached as compilation outputs."})
+    public boolean concurrentResources;
+
     @SuppressWarnings({ "unchecked", "rawtypes" })
     @Override
     protected List<Class<Object>> pluginTemplateClasses() {
@@ -285,7 +325,8 @@ public class JkJavaBuild extends JkBuildDependencySupport {
      */
     public JkJavaCompiler productionCompiler() {
         return JkJavaCompiler.outputtingIn(classDir()).andSources(sources())
-                .withClasspath(depsFor(COMPILE, PROVIDED))
+                .withClasspath(ClasspathPruning.classpath(this, ClasspathPruning.PRODUCTION,
+                        depsFor(COMPILE, PROVIDED)))
                 .withSourceVersion(this.javaSourceVersion())
                 .withTargetVersion(this.javaTargetVersion())
                 .withEncoding(this.sourceEncoding())
@@ -297,7 +338,8 @@ public class JkJavaBuild extends JkBuildDependencySupport {
      */
     public JkJavaCompiler unitTestCompiler() {
         return JkJavaCompiler.outputtingIn(testClassDir()).andSources(unitTestSources())
-                .withClasspath(this.depsFor(TEST, PROVIDED).andHead(classDir()))
+                .withClasspath(ClasspathPruning.classpath(this, ClasspathPruning.TEST,
+                        depsFor(TEST, PROVIDED)).andHead(classDir()))
                 .withSourceVersion(this.javaSourceVersion())
                 .withTargetVersion(this.javaTargetVersion())
                 .withEncoding(this.sourceEncoding())
@@ -326,7 +368,11 @@ public class JkJavaBuild extends JkBuildDependencySupport {
                     this.tests.jvmOptions);
             result = result.forked(javaProcess, true);
         }
-        return result.withOutputOnConsole(this.tests.output || JkLog.verbose());
+        final File shardHistory = JkUtilsString.isBlank(this.tests.shardHistory) ? null : file(this.tests.shardHistory);
+        final File failedTests = this.tests.failedFirst ? new File(this.testReportDir(), "failed-tests.txt") : null;
+        return result.withOutputOnConsole(this.tests.output || JkLog.verbose())
+                .withShard(this.tests.shard, shardHistory).withFailedFirst(failedTests)
+                .withMaxFailures(this.tests.maxFailures);
     }
 
     /**
@@ -396,13 +442,22 @@ public class JkJavaBuild extends JkBuildDependencySupport {
 
     private Object scaffoldedBuildClassCode() {
         final JkCodeWriterForBuildClass codeWriter = new JkCodeWriterForBuildClass();
-        if (baseDir().file("pom.xml").exists() && JkMvn.INSTALLED) {
-            JkLog.info("pom.xml detected and Maven installed : try to generate build class to existing pom.");
+        final File pom = baseDir().file("pom.xml");
+        if (pom.exists()) {
+            JkLog.info("pom.xml detected : try to generate build class to existing pom.");
             try {
-                return JkMvn.of(baseDir().root()).createBuildClassCode(null, "Build", baseDir());
+                return JkPomResolver.of(downloadRepositories()).effectivePom(pom).jerkarSourceCode(baseDir());
             } catch (final RuntimeException e) {
-                e.printStackTrace();
-                JkLog.info("Maven migration failed. Just generate standard build class.");
+                JkLog.info("Native effective pom computation failed : " + e.getMessage());
+            }
+            if (JkMvn.INSTALLED) {
+                JkLog.info("Maven installed : try to generate build class using Maven effective pom.");
+                try {
+                    return JkMvn.of(baseDir().root()).createBuildClassCode(null, "Build", baseDir());
+                } catch (final RuntimeException e) {
+                    e.printStackTrace();
+                    JkLog.info("Maven migration failed. Just generate standard build class.");
+                }
             }
         }
 
@@ -421,12 +476,51 @@ public class JkJavaBuild extends JkBuildDependencySupport {
         JkLog.startln("Processing production code and resources");
         JkJavaBuildPlugin.applyPriorCompile(this.plugins.getActives());
         generateSources();
-        productionCompiler().compile();
-        generateResources();
-        processResources();
+        if (!concurrentResources || lifecycleThreads <= 1 || JkBuildCache.active() != null
+                || overrides("generateResources", "processResources")) {
+            compileClasses();
+            generateResources();
+            processResources();
+            JkLog.done();
+            return;
+        }
+
+        // Default resource processing does not need classes
+        JkTaskGraph.of("compile").and("classes", new Runnable() {
+
+            @Override
+            public void run() {
+                compileClasses();
+            }
+
+        }).and("resources", new Runnable() {
+
+            @Override
+            public void run() {
+                generateResources();
+                processResources();
+            }
+
+        }).run(lifecycleThreads);
         JkLog.done();
     }
 
+    private void compileClasses() {
+        final Set<File> changes = watchedChanges();
+        if (changes == null || AffectedSources.hasDeletedSource(sources(), changes)) {
+            if (changes != null) {
+                JkLog.info("Source files have been deleted, recompile all.");
+                JkFileTree.of(classDir()).include("**/*.class").deleteAll();
+            }
+            compile(true, null);
+        } else {
+            final Set<File> toRecompile = AffectedSources.toRecompile(sources(), changes);
+            if (!toRecompile.isEmpty()) {
+                compile(true, toRecompile);
+            }
+        }
+    }
+
     /** Compiles and runs all unit tests. */
     @JkDoc("Compiles and runs all unit tests.")
     public void unitTest() {
@@ -435,13 +529,113 @@ public class JkJavaBuild extends JkBuildDependencySupport {
             return;
         }
         JkLog.startln("Process unit tests");
-        unitTestCompiler().compile();
-        generateUnitTestResources();
-        processUnitTestResources();
-        unitTester().run();
+        final Set<File> changes = watchedChanges();
+        if (changes == null || AffectedSources.hasDeletedSource(unitTestSources(), changes)) {
+            if (changes != null) {
+                JkFileTree.of(testClassDir()).include("**/*.class").deleteAll();
+            }
+            compile(false, null);
+            generateUnitTestResources();
+            processUnitTestResources();
+            unitTester().run();
+        } else {
+
+            // Tests depending on changed production code are rerun along changed tests
+            final Set<String> changedTypes = new HashSet<String>();
+            AffectedSources.dependents(sources(), changes, changedTypes);
+            final Set<File> affectedTests = AffectedSources.dependents(unitTestSources(), changes, changedTypes);
+            if (!affectedTests.isEmpty()) {
+                compile(false, affectedTests);
+            }
+            generateUnitTestResources();
+            processUnitTestResources();
+            if (affectedTests.isEmpty() && AffectedSources.changed(unitTestResources(), changes).isEmpty()) {
+                JkLog.info("No test affected by changes.");
+            } else {
+                final List<String> classFiles = AffectedSources.classFilePatterns(unitTestSources(), affectedTests);
+                JkLog.info("Rerun tests affected by changes : " + classFiles);
+                final JkUnit unitTester = unitTester();
+                final JkFileTreeSet classesToTest = affectedTests.isEmpty() ? JkFileTreeSet.of(testClassDir())
+                        : JkFileTreeSet.of(JkFileTree.of(testClassDir()).include(classFiles.toArray(new String[0])));
+                unitTester.withClassesToTest(classesToTest).run();
+            }
+        }
         JkLog.done();
     }
 
+    // Compiles against the used dependencies if known, then against all of them if one is missing
+    private void compile(boolean production, Set<File> toRecompile) {
+        final String compilation = production ? ClasspathPruning.PRODUCTION : ClasspathPruning.TEST;
+        final JkPath deps = production ? depsFor(COMPILE, PROVIDED) : depsFor(TEST, PROVIDED);
+        final boolean pruned = ClasspathPruning.isPruned(this, compilation, deps);
+        JkJavaCompiler compiler = production ? productionCompiler() : unitTestCompiler();
+        if (toRecompile != null) {
+            compiler = compiler.recompiling(toRecompile);
+        }
+        if (!pruned) {
+            compiler.compile();
+            if (pruneClasspath) {
+                final List<File> classes = production ? JkUtilsIterable.listOf(classDir())
+                        : JkUtilsIterable.listOf(testClassDir(), classDir());
+                ClasspathPruning.record(this, compilation, classes, deps);
+            }
+        } else if (!compiler.failOnError(false).compile()) {
+            JkLog.warn("Compilation failed against used dependencies only, retry against all of them.");
+            ClasspathPruning.forget(this, compilation);
+            compile(production, toRecompile);
+        }
+    }
+
+    /**
+     * Displays, for production and test classes, the declared dependencies they don't use and the
+     * transitive dependencies they use directly.
+     */
+    @JkDoc({"Displays, for production and test classes, the declared dependencies they don't use and",
+        "the transitive dependencies they use directly. Classes must have been compiled beforehand."})
+    public void showDependencyUsage() {
+        final JkClasspathUsage compileUsage = JkClasspathUsage.of(JkUtilsIterable.listOf(classDir()),
+                depsFor(COMPILE, PROVIDED));
+        ClasspathPruning.report(ClasspathPruning.PRODUCTION, compileUsage,
+                dependencyResolver().resolve(COMPILE, PROVIDED).dependencyTree(), COMPILE, PROVIDED);
+        final JkClasspathUsage testUsage = JkClasspathUsage.of(
+                JkUtilsIterable.listOf(testClassDir(), classDir()), depsFor(TEST, PROVIDED));
+        ClasspathPruning.report(ClasspathPruning.TEST, testUsage,
+                dependencyResolver().resolve(TEST, PROVIDED).dependencyTree(), TEST);
+    }
+
+    /**
+     * Merges the test reports of each shard located in the directory specified by the
+     * <code>tests.shardReports</code> option into the test report directory.
+     */
+    @JkDoc({"Merges the test reports of each shard, located in subdirectories of the directory specified by",
+        "the tests.shardReports option, into the test report directory."})
+    public void mergeTestReports() {
+        if (JkUtilsString.isBlank(this.tests.shardReports)) {
+            throw new JkException("No shard report directory specified : use -tests.shardReports=path/to/reports");
+        }
+        final List<File> shardReportDirs = new LinkedList<File>();
+        final File[] files = file(this.tests.shardReports).listFiles();
+        if (files != null) {
+            Arrays.sort(files);
+            for (final File file : files) {
+                if (file.isDirectory()) {
+                    shardReportDirs.add(file);
+                }
+            }
+        }
+        final File junitReport = new File(this.testReportDir(), "junit");
+        JkUnit.mergeReports(shardReportDirs, junitReport);
+        JkLog.info("Reports of " + shardReportDirs.size() + " shards merged in " + junitReport.getPath());
+    }
+
+    /**
+     * Returns the edited production and test sources and resources.
+     */
+    @Override
+    public JkFileTreeSet watchedFiles() {
+        return editedSources().and(editedResources()).and(unitTestSources());
+    }
+
     /** Produces documents for this project (javadoc, Html site, ...) */
     @JkDoc("Produces documents for this project (javadoc, Html site, ...)")
     public void javadoc() {
@@ -536,7 +730,12 @@ public class JkJavaBuild extends JkBuildDependencySupport {
      * method.
      */
     protected void processResources() {
-        this.resourceProcessor().generateTo(classDir());
+        final Set<File> changes = watchedChanges();
+        if (changes == null) {
+            this.resourceProcessor().generateTo(classDir());
+        } else {
+            this.resourceProcessor().generateTo(classDir(), AffectedSources.changed(resources(), changes));
+        }
     }
 
     /**
@@ -545,8 +744,14 @@ public class JkJavaBuild extends JkBuildDependencySupport {
      * method.
      */
     protected void processUnitTestResources() {
-        JkResourceProcessor.of(unitTestResources()).andIfExist(generatedTestResourceDir())
-        .generateTo(testClassDir());
+        final JkResourceProcessor processor = JkResourceProcessor.of(unitTestResources()).andIfExist(
+                generatedTestResourceDir());
+        final Set<File> changes = watchedChanges();
+        if (changes == null) {
+            processor.generateTo(testClassDir());
+        } else {
+            processor.generateTo(testClassDir(), AffectedSources.changed(unitTestResources(), changes));
+        }
     }
 
     private boolean checkProcessTests(JkFileTreeSet testSourceDirs) {
@@ -678,11 +883,51 @@ public class JkJavaBuild extends JkBuildDependencySupport {
         this.unitTest();
     }
 
-    /** Lifecycle method : #doUnitTest + #pack */
-    @JkDoc("Lifecycle method : #doUnitTest + #pack")
+    /**
+     * Lifecycle method : #doUnitTest + #pack. Packaging steps that do not need tests to pass, as
+     * javadoc and sources jar, run while unit tests execute.
+     */
+    @JkDoc({"Lifecycle method : #doUnitTest + #pack. Packaging steps that do not need tests to pass, as javadoc",
+        "and sources jar, run while unit tests execute."})
     public void doPack() {
-        doUnitTest();
-        pack();
+        if (lifecycleThreads <= 1 || overrides("doCompile", "doUnitTest", "pack")) {
+            doUnitTest();
+            pack();
+            return;
+        }
+        clean();
+        final JkTaskGraph lifecycle = JkTaskGraph.of("lifecycle").and("compile", new Runnable() {
+
+            @Override
+            public void run() {
+                compile();
+            }
+
+        }).and("unit-test", new Runnable() {
+
+            @Override
+            public void run() {
+                unitTest();
+            }
+
+        }, "compile");
+        JkLog.startln("Packaging module");
+        packer().addTasksTo(lifecycle, new String[] {"compile"}, new String[] {"unit-test"})
+        .run(lifecycleThreads);
+        JkLog.done();
+    }
+
+    // Lifecycle steps are scheduled concurrently only if they have their default implementation
+    private boolean overrides(String... methodNames) {
+        final List<String> names = Arrays.asList(methodNames);
+        for (Class<?> clazz = this.getClass(); clazz != JkJavaBuild.class; clazz = clazz.getSuperclass()) {
+            for (final Method method : clazz.getDeclaredMethods()) {
+                if (names.contains(method.getName()) && method.getParameterTypes().length == 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     /** Lifecycle method : #doUnitTest + #pack */
@@ -771,6 +1016,35 @@ public class JkJavaBuild extends JkBuildDependencySupport {
         @JkDoc("Turn it on to display System.out and System.err on console while executing tests.")
         public boolean output;
 
+        /** Turn it on to run first the test classes that failed at the previous run, then the changed ones. */
+        @JkDoc("Turn it on to run first the test classes that failed at the previous run, then the changed ones.")
+        public boolean failedFirst;
+
+        /** Number of test failures aborting the test run. 0 means no limit. */
+        @JkDoc({"Number of test failures aborting the test run, reports being written for the tests that have run.",
+        "0 means no limit. Example : -tests.maxFailures=1" })
+        public int maxFailures;
+
+        /** Shard of the test classes to run, as 3/8 for the third of 8 shards. */
+        @JkDoc({"Shard of the test classes to run, as 3/8 for the third of 8 shards, so tests can be spread over",
+            "several machines. Shards are balanced according the durations of a previous FULL report.",
+        "Example : -tests.shard=3/8" })
+        public String shard;
+
+        /** Directory, relative to the base dir, containing the FULL report used to balance shards. */
+        @JkDoc({"Directory, relative to the base dir, containing the FULL report of a previous run used to balance shards.",
+        "All machines must get the same report. When not set, classes are spread according the hash of their name." })
+        public String shardHistory;
+
+        /**
+         * Directory, relative to the base dir, containing one report directory per shard to merge.
+         * Each one can be the test report directory of a shard, as reports are also looked for in
+         * its <code>junit</code> subdirectory.
+         */
+        @JkDoc({"Directory, relative to the base dir, containing one report directory per shard to merge with #mergeTestReports.",
+            "Each one can be the test report directory of a shard, as reports are also looked for in its junit subdirectory."})
+        public String shardReports;
+
     }
 
     /**
@@ -810,6 +1084,15 @@ public class JkJavaBuild extends JkBuildDependencySupport {
         })
         public String fatJarSuffix = "fat";
 
+        /** When true, classes and resources not reachable from the fat jar entry points are removed from it. */
+        @JkDoc({"When true, classes and resources not reachable from the fat jar entry points (Main-Class, services)",
+            "are removed from it."})
+        public boolean fatJarShrink;
+
+        /** Comma separated list of Ant patterns of fat jar entries to keep when shrinking (ex : 'com/acme/plugins/**'). */
+        @JkDoc({"Comma separated list of Ant patterns of fat jar entries to keep when shrinking, typically classes",
+            "loaded by reflection (ex : 'com/acme/plugins/**')."})
+        public String fatJarKeep;
 
 
     }
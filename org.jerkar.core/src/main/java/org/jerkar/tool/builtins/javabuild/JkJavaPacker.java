@@ -1,17 +1,24 @@
 package org.jerkar.tool.builtins.javabuild;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
 import org.jerkar.api.crypto.pgp.JkPgp;
+import org.jerkar.api.file.JkBuildCache;
+import org.jerkar.api.file.JkBuildCache.JkCacheKey;
 import org.jerkar.api.file.JkFileTree;
 import org.jerkar.api.file.JkFileTreeSet;
 import org.jerkar.api.file.JkPathFilter;
+import org.jerkar.api.file.JkZipper.JkCheckSumer;
+import org.jerkar.api.java.JkAbiFingerprint;
+import org.jerkar.api.java.JkJarShrinker;
 import org.jerkar.api.java.JkManifest;
 import org.jerkar.api.system.JkLog;
+import org.jerkar.api.system.JkTaskGraph;
 import org.jerkar.api.utils.JkUtilsFile;
 import org.jerkar.api.utils.JkUtilsIterable;
 import org.jerkar.api.utils.JkUtilsString;
@@ -43,6 +50,8 @@ public class JkJavaPacker implements Cloneable {
         return new JkJavaPacker(build);
     }
 
+    private static final List<File> NO_ARCHIVE = Collections.emptyList();
+
     private final JkJavaBuild build;
 
     private boolean includeVersion = false;
@@ -65,6 +74,8 @@ public class JkJavaPacker implements Cloneable {
 
     private JkPathFilter fatJarEntryFilter = EXCLUDE_SIGNATURE_FILTER;
 
+    private JkJarShrinker fatJarShrinker = null;
+
     private JkPgp pgp = null;
 
     private JkFileTreeSet extraFilesInJar = JkFileTreeSet.empty();
@@ -76,6 +87,12 @@ public class JkJavaPacker implements Cloneable {
         this.doFatJar = build.pack.fatJar;
         this.fatJarSuffix = build.pack.fatJarSuffix;
         this.doTest = build.pack.tests;
+        if (build.pack.fatJarShrink) {
+            this.fatJarShrinker = JkJarShrinker.of();
+            if (!JkUtilsString.isBlank(build.pack.fatJarKeep)) {
+                this.fatJarShrinker = fatJarShrinker.andKeep(JkUtilsString.split(build.pack.fatJarKeep, ","));
+            }
+        }
         if (build.pack.checksums == null) {
             this.checkSums = new HashSet<String>();
         } else {
@@ -163,43 +180,147 @@ public class JkJavaPacker implements Cloneable {
      */
     public void pack() {
         JkLog.startln("Packaging module");
-        final JkManifest manifest = build.jarManifest();
-        if (!manifest.isEmpty()) {
-            manifest.writeToStandardLocation(build.classDir());
-        }
-        if (doJar && !JkUtilsFile.isEmpty(build.classDir(), false)) {
-            JkFileTreeSet.of(build.classDir()).and(extraFilesInJar).zip().to(jarFile()).md5If(checkSums.contains("MD5"))
-            .sha1If(checkSums.contains("SHA-1"));
-        }
-        final JkFileTreeSet sourceAndResources = build.sources().and(build.resources());
-        if (doSources && sourceAndResources.countFiles(false) > 0) {
-            build.sources().and(build.resources()).and(extraFilesInJar).zip().to(jarSourceFile());
-        }
-        if (doTest && !build.tests.skip && build.testClassDir().exists()
-                && !JkFileTree.of(build.testClassDir()).files(false).isEmpty()) {
-            JkFileTreeSet.of(build.testClassDir()).and(extraFilesInJar).zip().to(jarTestFile());
-        }
-        if (doTest && doSources && !build.unitTestSources().files(false).isEmpty()) {
-            build.unitTestSources().and(build.unitTestResources()).and(extraFilesInJar).zip().to(jarTestSourceFile());
-        }
-        if (doFatJar) {
-            JkFileTreeSet.of(build.classDir()).and(extraFilesInJar).zip().merge(build.depsFor(JkJavaBuild.RUNTIME))
-            .to(fatJarFile(), fatJarEntryFilter).md5If(checkSums.contains("MD5"))
-            .sha1If(checkSums.contains("SHA-1"));
+        addTasksTo(JkTaskGraph.of("pack"), new String[0], new String[0]).run(build.lifecycleThreads);
+        JkLog.done();
+    }
+
+    /**
+     * Adds the steps producing the artifact files to the specified graph. Steps reading sources
+     * start once the <code>compiled</code> tasks are done while the ones producing binaries start
+     * once the <code>tested</code> tasks are done.
+     */
+    JkTaskGraph addTasksTo(JkTaskGraph graph, String[] compiled, String[] tested) {
+        final Set<File> signedFiles = Collections.synchronizedSet(new HashSet<File>());
+        return graph.and("sources-jar", new Runnable() {
+
+            @Override
+            public void run() {
+                final JkFileTreeSet sourceAndResources = build.sources().and(build.resources());
+                if (doSources && sourceAndResources.countFiles(false) > 0) {
+                    zip(sourceAndResources.and(extraFilesInJar), NO_ARCHIVE, jarSourceFile(), JkPathFilter.ACCEPT_ALL,
+                            null, signedFiles);
+                }
+            }
+
+        }, compiled).and("javadoc", new Runnable() {
+
+            @Override
+            public void run() {
+                if (doJavadoc) {
+                    build.javadoc();
+                }
+            }
+
+        }, compiled).and("manifest", new Runnable() {
+
+            @Override
+            public void run() {
+                final JkManifest manifest = build.jarManifest();
+                if (!manifest.isEmpty()) {
+                    manifest.writeToStandardLocation(build.classDir());
+                }
+            }
+
+        }, tested).and("jar", new Runnable() {
+
+            @Override
+            public void run() {
+                if (doJar && !JkUtilsFile.isEmpty(build.classDir(), false)) {
+                    zip(JkFileTreeSet.of(build.classDir()).and(extraFilesInJar), NO_ARCHIVE, jarFile(),
+                            JkPathFilter.ACCEPT_ALL, null, signedFiles)
+                    .md5If(checkSums.contains("MD5")).sha1If(checkSums.contains("SHA-1"));
+                    JkAbiFingerprint.writeNextTo(jarFile());
+                }
+            }
+
+        }, "manifest").and("test-jars", new Runnable() {
+
+            @Override
+            public void run() {
+                if (doTest && !build.tests.skip && build.testClassDir().exists()
+                        && !JkFileTree.of(build.testClassDir()).files(false).isEmpty()) {
+                    zip(JkFileTreeSet.of(build.testClassDir()).and(extraFilesInJar), NO_ARCHIVE, jarTestFile(),
+                            JkPathFilter.ACCEPT_ALL, null, signedFiles);
+                }
+                if (doTest && doSources && !build.unitTestSources().files(false).isEmpty()) {
+                    zip(build.unitTestSources().and(build.unitTestResources()).and(extraFilesInJar), NO_ARCHIVE,
+                            jarTestSourceFile(), JkPathFilter.ACCEPT_ALL, null, signedFiles);
+                }
+            }
+
+        }, tested).and("fat-jar", new Runnable() {
+
+            @Override
+            public void run() {
+                if (doFatJar) {
+                    zip(JkFileTreeSet.of(build.classDir()).and(extraFilesInJar), build.depsFor(JkJavaBuild.RUNTIME),
+                            fatJarFile(), fatJarEntryFilter, fatJarShrinker, signedFiles)
+                    .md5If(checkSums.contains("MD5")).sha1If(checkSums.contains("SHA-1"));
+                }
+            }
+
+        }, "manifest").and("extra-packing", new Runnable() {
+
+            @Override
+            public void run() {
+                for (final JkExtraPacking action : extraActions) {
+                    action.process(build);
+                }
+            }
+
+        }, "sources-jar", "jar", "test-jars", "fat-jar").and("sign", new Runnable() {
+
+            @Override
+            public void run() {
+                if (pgp != null) {
+                    JkLog.start("Sign artifacts");
+                    final List<File> toSign = new LinkedList<File>(JkUtilsIterable.setOf(jarFile(),
+                            jarSourceFile(), jarTestFile(), jarTestSourceFile(), fatJarFile(), javadocFile()));
+                    toSign.removeAll(signedFiles);
+                    pgp.sign(toSign.toArray(new File[0]));
+                    JkLog.done();
+                }
+            }
+
+        }, "javadoc", "extra-packing");
+    }
+
+    // Reuses the archive from the build cache, if active, when its content has not changed. Archives
+    // filtered by a filter that can not be described are not cached as they can not be keyed.
+    private JkCheckSumer zip(JkFileTreeSet content, Iterable<File> archivesToMerge, File target,
+            JkPathFilter filter, JkJarShrinker shrinker, Set<File> signedFiles) {
+        final JkBuildCache cache = JkBuildCache.active();
+        if (cache == null || (filter != null && !filter.hasStableDescription())) {
+            return zipAndShrink(content, archivesToMerge, target, filter, shrinker, signedFiles);
         }
-        for (final JkExtraPacking action : this.extraActions) {
-            action.process(build);
+        final JkCacheKey cacheKey = JkBuildCache.key("archive").andTrees("content", content)
+                .andClasspath("merged", archivesToMerge).and("filter", filter).and("shrinker", shrinker);
+        if (cache.restoreFile(cacheKey, target)) {
+            JkLog.info(target.getName() + " restored from build cache.");
+            return JkCheckSumer.of(target);
         }
-        if (doJavadoc) {
-            this.build.javadoc();
+
+        // The previous archive may be hard linked to a cache entry so it must not be overwritten
+        JkUtilsFile.deleteIfExist(target);
+        final JkCheckSumer result = zipAndShrink(content, archivesToMerge, target, filter, shrinker, signedFiles);
+        cache.storeFile(cacheKey, target);
+        return result;
+    }
+
+    // Signs the archive while it is written unless it is rewritten afterward by the shrinker
+    private JkCheckSumer zipAndShrink(JkFileTreeSet content, Iterable<File> archivesToMerge, File target,
+            JkPathFilter filter, JkJarShrinker shrinker, Set<File> signedFiles) {
+        if (pgp != null && shrinker == null) {
+            final JkCheckSumer result = content.zip().merge(archivesToMerge).to(target, filter,
+                    pgp.signingStream(JkPgp.signatureFile(target)));
+            signedFiles.add(target);
+            return result;
         }
-        if (pgp != null) {
-            JkLog.start("Sign artifacts");
-            pgp.sign(jarFile(), jarSourceFile(), jarTestFile(), jarTestSourceFile(), fatJarFile(),
-                    javadocFile());
-            JkLog.done();
+        final JkCheckSumer result = content.zip().merge(archivesToMerge).to(target, filter);
+        if (shrinker != null) {
+            shrinker.shrink(target);
         }
-        JkLog.done();
+        return result;
     }
 
     /**
@@ -346,6 +467,15 @@ public class JkJavaPacker implements Cloneable {
             return this;
         }
 
+        /**
+         * Set a shrinker to remove from the fat jar the classes and resources not reachable from its
+         * entry points. <code>null</code> means that the fat jar is not shrunk.
+         */
+        public Builder fatJarShrinker(JkJarShrinker shrinker) {
+            this.packer.fatJarShrinker = shrinker;
+            return this;
+        }
+
         /**
          * Add extra files to jars that aren't required to be on the project classpath.
          * Useful for licenes, readmes, etc.
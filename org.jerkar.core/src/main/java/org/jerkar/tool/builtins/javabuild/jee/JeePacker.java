@@ -1,10 +1,14 @@
 package org.jerkar.tool.builtins.javabuild.jee;
 
 import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+import org.jerkar.api.file.JkFileCopier;
 import org.jerkar.api.file.JkFileTree;
 import org.jerkar.api.file.JkFileTreeSet;
 import org.jerkar.api.file.JkPath;
+import org.jerkar.api.system.JkLog;
 import org.jerkar.tool.builtins.javabuild.JkJavaBuild;
 import org.jerkar.tool.builtins.javabuild.JkJavaPacker.JkExtraPacking;
 
@@ -34,10 +38,16 @@ class JeePacker {
                     + " does not contains WEB-INF" + File.separator + "web.xml file");
         }
         final JkPath path = build.depsFor(JkJavaBuild.RUNTIME);
-        JkFileTree.of(warDirDest).importDirContent(webappSrc)
-                .go("WEB-INF/classes").importDirContent(build.classDir())
-                .go("../lib").importFiles(path);
-        extra.copyTo(warDirDest);
+
+        // The exploded war is synced rather than rebuilt, so only changed files are written
+        final Map<String, File> entries = new LinkedHashMap<String, File>();
+        entries.putAll(JkFileCopier.entries("", JkFileTree.of(webappSrc)));
+        entries.putAll(JkFileCopier.entries("WEB-INF/classes", JkFileTree.of(build.classDir())));
+        entries.putAll(JkFileCopier.entries("WEB-INF/lib", path));
+        for (final JkFileTree fileTree : extra.fileTrees()) {
+            entries.putAll(JkFileCopier.entries("", fileTree));
+        }
+        JkFileCopier.of().withMirror(true).withReportStream(JkLog.infoStreamIfVerbose()).copy(entries, warDirDest);
 
     }
 
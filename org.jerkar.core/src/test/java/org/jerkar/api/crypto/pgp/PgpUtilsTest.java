@@ -2,9 +2,11 @@ package org.jerkar.api.crypto.pgp;
 
 import java.io.File;
 import java.io.InputStream;
+import java.io.OutputStream;
 
 import org.jerkar.api.utils.JkUtilsFile;
 import org.jerkar.api.utils.JkUtilsIO;
+import org.junit.Assert;
 import org.junit.Test;
 
 @SuppressWarnings("javadoc")
@@ -23,6 +25,40 @@ public class PgpUtilsTest {
 
     }
 
+    @Test
+    public void testSignSeveralFilesWithSameKey() throws Exception {
+        final File secring = JkUtilsFile.fromUrl(PgpUtilsTest.class.getResource("secring.gpg"));
+        final File sampleFile = JkUtilsFile.fromUrl(PgpUtilsTest.class.getResource("sampleFileToSign.txt"));
+        final Object signingKey = PgpUtils.signingKey(secring, "jerkar".toCharArray());
+        for (int i = 0; i < 2; i++) {
+            final File signatureFile = JkUtilsFile.createFileIfNotExist(new File(
+                    "build/output/test-out/signature-key-" + i + ".asm"));
+            PgpUtils.signWithKey(sampleFile, signingKey, signatureFile, true);
+            Assert.assertTrue(PgpUtils.verify(sample(), JkUtilsIO.inputStream(signatureFile),
+                    PgpUtilsTest.class.getResourceAsStream("pubring.gpg")));
+        }
+    }
+
+    @Test
+    public void testSigningStream() throws Exception {
+        final File secring = JkUtilsFile.fromUrl(PgpUtilsTest.class.getResource("secring.gpg"));
+        final File signatureFile = JkUtilsFile.createFileIfNotExist(new File(
+                "build/output/test-out/signature-stream.asm"));
+        final OutputStream signingStream = PgpUtils.signingStream(
+                PgpUtils.signingKey(secring, "jerkar".toCharArray()),
+                JkUtilsIO.outputStream(signatureFile, false), true);
+        JkUtilsIO.copy(sample(), signingStream);
+        signingStream.close();
+        Assert.assertTrue(PgpUtils.verify(sample(), JkUtilsIO.inputStream(signatureFile),
+                PgpUtilsTest.class.getResourceAsStream("pubring.gpg")));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSigningKeyWithBadPassword() {
+        final File secring = JkUtilsFile.fromUrl(PgpUtilsTest.class.getResource("secring.gpg"));
+        PgpUtils.signingKey(secring, "badPassword".toCharArray());
+    }
+
     static InputStream sample() {
         return PgpUtilsTest.class.getResourceAsStream("sampleFileToSign.txt");
     }
@@ -0,0 +1,211 @@
+package org.jerkar.api.depmanagement;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsIO;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+@SuppressWarnings("javadoc")
+public class IvyPublisherForMavenTest {
+
+    private File root;
+
+    private File jar;
+
+    private File sources;
+
+    @Before
+    public void setup() {
+        root = JkUtilsFile.createTempDir("maven-publish");
+        jar = new File(root, "mymodule.jar");
+        JkUtilsFile.writeString(jar, "jar content", false);
+        sources = new File(root, "mymodule-sources.jar");
+        JkUtilsFile.writeString(sources, "sources content", false);
+    }
+
+    @After
+    public void cleanup() {
+        JkUtilsFile.tryDeleteDir(root);
+    }
+
+    @Test
+    public void testPublishReleaseOnFileRepo() {
+        final File repo = new File(root, "repo");
+        final JkPublishRepos repos = JkPublishRepos.maven(repo).withMd5AndSha1Checksum();
+        publish(repos, "1.0");
+
+        final File versionDir = new File(repo, "mygroup/mymodule/1.0");
+        final File publishedJar = new File(versionDir, "mymodule-1.0.jar");
+        Assert.assertEquals("jar content", JkUtilsFile.read(publishedJar).trim());
+        Assert.assertEquals("sources content", JkUtilsFile.read(new File(versionDir,
+                "mymodule-1.0-sources.jar")).trim());
+        Assert.assertTrue(new File(versionDir, "mymodule-1.0.pom").exists());
+        Assert.assertEquals(JkUtilsFile.checksum(publishedJar, "SHA-1"),
+                JkUtilsFile.read(new File(versionDir, "mymodule-1.0.jar.sha1")).trim());
+        Assert.assertEquals(JkUtilsFile.checksum(publishedJar, "MD5"),
+                JkUtilsFile.read(new File(versionDir, "mymodule-1.0.jar.md5")).trim());
+
+        try {
+            publish(repos, "1.0");
+            Assert.fail("Publishing twice the same release should fail");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testPublishUniqueSnapshotOnFileRepo() {
+        final File repo = new File(root, "repo");
+        final JkPublishRepos repos = JkPublishRepos.maven(repo).withSha1Checksum().withUniqueSnapshot(true);
+        publish(repos, "1.0-SNAPSHOT");
+        publish(repos, "1.0-SNAPSHOT");
+
+        final File versionDir = new File(repo, "mygroup/mymodule/1.0-SNAPSHOT");
+        final String metadata = JkUtilsFile.read(new File(versionDir, "maven-metadata.xml"));
+        Assert.assertTrue(metadata, metadata.contains("<buildNumber>2</buildNumber>"));
+        final List<String> names = new LinkedList<String>();
+        for (final File file : versionDir.listFiles()) {
+            names.add(file.getName());
+        }
+        int jars = 0;
+        for (final String name : names) {
+            if (name.matches("mymodule-1\\.0-\\d{8}\\.\\d{6}-\\d+\\.jar")) {
+                jars++;
+            }
+        }
+        Assert.assertEquals(names.toString(), 2, jars);
+        Assert.assertTrue(new File(repo, "mygroup/mymodule/maven-metadata.xml").exists());
+    }
+
+    @Test
+    public void testPublishOnHttpRepoUploadsMetadataLast() throws IOException {
+        final RepoServer server = new RepoServer();
+        try {
+            final JkPublishRepos repos = JkPublishRepos.maven(server.url()).withMd5AndSha1Checksum()
+                    .withUniqueSnapshot(true).withUploadParallelism(2);
+            publish(repos, "1.0-SNAPSHOT");
+
+            final String jarPath = "/mygroup/mymodule/1.0-SNAPSHOT/mymodule-1.0-";
+            String publishedJar = null;
+            for (final String path : server.content.keySet()) {
+                if (path.startsWith(jarPath) && path.endsWith(".jar") && !path.endsWith("-sources.jar")) {
+                    publishedJar = path;
+                }
+            }
+            Assert.assertNotNull(server.content.keySet().toString(), publishedJar);
+            Assert.assertEquals("jar content", new String(server.content.get(publishedJar), "UTF-8"));
+            Assert.assertEquals(JkUtilsFile.checksum(jar, "SHA-1"),
+                    new String(server.content.get(publishedJar + ".sha1"), "UTF-8"));
+
+            int lastArtifact = -1;
+            int firstMetadata = Integer.MAX_VALUE;
+            for (int i = 0; i < server.puts.size(); i++) {
+                if (server.puts.get(i).contains("maven-metadata.xml")) {
+                    firstMetadata = Math.min(firstMetadata, i);
+                } else {
+                    lastArtifact = i;
+                }
+            }
+            Assert.assertTrue(server.puts.toString(), lastArtifact < firstMetadata);
+            Assert.assertTrue(server.maxConcurrentPuts.get() <= 2);
+        } finally {
+            server.stop();
+        }
+    }
+
+    private void publish(JkPublishRepos repos, String version) {
+        final IvyPublisher publisher = IvyPublisher.of(repos, null);
+        final JkMavenPublication publication = JkMavenPublication.of(jar).and(sources, "sources");
+        publisher.publishMaven(JkVersionedModule.of(JkModuleId.of("mygroup", "mymodule"),
+                JkVersion.name(version)), publication, JkDependencies.builder().build());
+    }
+
+    // Minimal Maven repository stand-in storing uploaded files in memory
+    private static class RepoServer implements HttpHandler {
+
+        final Map<String, byte[]> content = new ConcurrentHashMap<String, byte[]>();
+
+        final List<String> puts = Collections.synchronizedList(new LinkedList<String>());
+
+        final AtomicInteger maxConcurrentPuts = new AtomicInteger();
+
+        private final AtomicInteger concurrentPuts = new AtomicInteger();
+
+        private final HttpServer server;
+
+        RepoServer() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/", this);
+            server.setExecutor(java.util.concurrent.Executors.newCachedThreadPool());
+            server.start();
+        }
+
+        String url() {
+            return "http://localhost:" + server.getAddress().getPort() + "/";
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            final String path = exchange.getRequestURI().getPath();
+            final String method = exchange.getRequestMethod();
+            try {
+                if ("PUT".equals(method)) {
+                    final int current = concurrentPuts.incrementAndGet();
+                    synchronized (maxConcurrentPuts) {
+                        maxConcurrentPuts.set(Math.max(maxConcurrentPuts.get(), current));
+                    }
+                    try {
+                        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+                        JkUtilsIO.copy(exchange.getRequestBody(), body);
+                        content.put(path, body.toByteArray());
+                        puts.add(path);
+                    } finally {
+                        concurrentPuts.decrementAndGet();
+                    }
+                    exchange.sendResponseHeaders(201, -1);
+                    return;
+                }
+                final byte[] bytes = content.get(path);
+                if (bytes == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                if ("HEAD".equals(method)) {
+                    exchange.getResponseHeaders().add("Content-Length", Integer.toString(bytes.length));
+                    exchange.sendResponseHeaders(200, -1);
+                    return;
+                }
+                exchange.sendResponseHeaders(200, bytes.length);
+                final OutputStream outputStream = exchange.getResponseBody();
+                outputStream.write(bytes);
+                outputStream.close();
+            } finally {
+                exchange.close();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,46 @@
+package org.jerkar.api.depmanagement;
+
+import java.io.File;
+
+import org.jerkar.api.utils.JkUtilsFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class MissingArtifactCacheTest {
+
+    private File dir;
+
+    @Before
+    public void setup() {
+        dir = JkUtilsFile.createTempDir("missing-artifacts");
+    }
+
+    @After
+    public void cleanup() {
+        JkUtilsFile.tryDeleteDir(dir);
+    }
+
+    @Test
+    public void testSaveKeepsEntriesWrittenByOtherInstances() {
+        final File file = new File(dir, "missing-artifacts.properties");
+        final JkRepos repos = JkRepos.maven("http://localhost/repo");
+        final JkModuleDependency sources = JkModuleDependency.of("foo:bar:1.0").classifier("sources");
+        final JkModuleDependency javadoc = JkModuleDependency.of("foo:bar:1.0").classifier("javadoc");
+
+        // Both instances read the file before any of them saves, as two JVMs running at once
+        final MissingArtifactCache first = new MissingArtifactCache(file);
+        final MissingArtifactCache second = new MissingArtifactCache(file);
+        first.markMissing(sources, repos);
+        first.save();
+        second.markMissing(javadoc, repos);
+        second.save();
+
+        final MissingArtifactCache reread = new MissingArtifactCache(file);
+        Assert.assertTrue(reread.isKnownMissing(sources, repos));
+        Assert.assertTrue(reread.isKnownMissing(javadoc, repos));
+    }
+
+}
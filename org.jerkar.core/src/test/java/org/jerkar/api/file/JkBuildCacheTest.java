@@ -0,0 +1,126 @@
+package org.jerkar.api.file;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.jerkar.api.file.JkBuildCache.JkCacheKey;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class JkBuildCacheTest {
+
+    private File root;
+
+    @Before
+    public void setup() {
+        root = JkUtilsFile.createTempDir("buildcache");
+    }
+
+    @After
+    public void cleanup() {
+        JkUtilsFile.tryDeleteDir(root);
+    }
+
+    @Test
+    public void testStoreAndRestore() {
+        final JkBuildCache cache = JkBuildCache.of(new File(root, "cache"), Long.MAX_VALUE);
+        final File input = new File(root, "input");
+        JkUtilsFile.writeString(new File(input, "a.txt"), "content", false);
+        final File output = new File(root, "output");
+        JkUtilsFile.writeString(new File(output, "sub/b.txt"), "result", false);
+
+        Assert.assertFalse(cache.restore(key(input), output));
+        cache.store(key(input), output);
+
+        final File otherOutput = new File(root, "other");
+        Assert.assertTrue(cache.restore(key(input), otherOutput));
+        Assert.assertEquals("result", JkUtilsFile.read(new File(otherOutput, "sub/b.txt")).trim());
+        Assert.assertEquals(1, cache.hitCount());
+        Assert.assertEquals(1, cache.missCount());
+
+        JkUtilsFile.writeString(new File(input, "a.txt"), "changed content", false);
+        Assert.assertFalse(cache.restore(key(input), otherOutput));
+    }
+
+    @Test
+    public void testCorruptedEntryIsDiscarded() {
+        final File cacheDir = new File(root, "cache");
+        final JkBuildCache cache = JkBuildCache.of(cacheDir, Long.MAX_VALUE);
+        final File file = new File(root, "lib.jar");
+        JkUtilsFile.writeString(file, "original", false);
+        final JkCacheKey key = JkBuildCache.key("test").and("name", "lib");
+        cache.storeFile(key, file);
+        JkUtilsFile.writeString(new File(cacheDir, key.hash() + "/files/lib.jar"), "tampered", false);
+
+        Assert.assertFalse(cache.restoreFile(JkBuildCache.key("test").and("name", "lib"), file));
+        Assert.assertFalse(new File(cacheDir, key.hash()).exists());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() {
+        final File cacheDir = new File(root, "cache");
+        final JkBuildCache cache = JkBuildCache.of(cacheDir, 15);
+        final File file = new File(root, "file.txt");
+        JkUtilsFile.writeString(file, "0123456789", false);
+        final JkCacheKey first = JkBuildCache.key("test").and("index", 1);
+        cache.storeFile(first, file);
+        new File(cacheDir, first.hash() + "/entry.properties").setLastModified(System.currentTimeMillis() - 10000);
+        final JkCacheKey second = JkBuildCache.key("test").and("index", 2);
+        cache.storeFile(second, file);
+
+        Assert.assertFalse(new File(cacheDir, first.hash()).exists());
+        Assert.assertTrue(new File(cacheDir, second.hash()).exists());
+    }
+
+    @Test
+    public void testEntriesAreSharedThroughRemoteCache() {
+        final JkBuildCacheServer server = JkBuildCacheServer.start(0, new File(root, "server"));
+        try {
+            final JkRemoteBuildCache remote = JkHttpBuildCache.of(server.url()).withPushToken(server.pushToken());
+            final JkBuildCache pushing = JkBuildCache.of(new File(root, "cache1"), Long.MAX_VALUE)
+                    .withRemote(remote, true, 10000);
+            final File file = new File(root, "lib.jar");
+            JkUtilsFile.writeString(file, "shared", false);
+            pushing.storeFile(JkBuildCache.key("test").and("name", "lib"), file);
+            pushing.finish("project");
+
+            final JkBuildCache pulling = JkBuildCache.of(new File(root, "cache2"), Long.MAX_VALUE)
+                    .withRemote(remote, false, 10000);
+            final File restored = new File(root, "restored/lib.jar");
+            Assert.assertTrue(pulling.restoreFile(JkBuildCache.key("test").and("name", "lib"), restored));
+            Assert.assertEquals("shared", JkUtilsFile.read(restored).trim());
+            Assert.assertFalse(pulling.restoreFile(JkBuildCache.key("test").and("name", "other"), restored));
+            pulling.finish("project");
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testServerRejectsPushWithoutToken() {
+        final JkBuildCacheServer server = JkBuildCacheServer.start(0, new File(root, "server"));
+        try {
+            Assert.assertTrue(server.url().startsWith("http://127.0.0.1:"));
+            final File file = new File(root, "lib.jar");
+            JkUtilsFile.writeString(file, "poisoned", false);
+            try {
+                JkHttpBuildCache.of(server.url()).withPushToken("wrong").put("entry", file);
+                Assert.fail("Push with a wrong token should be rejected");
+            } catch (final IllegalStateException e) {
+                // expected
+            }
+            Assert.assertFalse(JkHttpBuildCache.of(server.url()).get("entry", new File(root, "restored.jar")));
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static JkCacheKey key(File input) {
+        return JkBuildCache.key("test").andJdk().andFiles("input", Arrays.asList(new File(input, "a.txt")));
+    }
+
+}
@@ -0,0 +1,94 @@
+package org.jerkar.api.file;
+
+import java.io.File;
+
+import org.jerkar.api.utils.JkUtilsFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class JkFileCopierTest {
+
+    private File root;
+
+    private File source;
+
+    private File target;
+
+    @Before
+    public void setup() {
+        root = JkUtilsFile.createTempDir("copier");
+        source = new File(root, "source");
+        target = new File(root, "target");
+        JkUtilsFile.writeString(new File(source, "a.txt"), "a", false);
+        JkUtilsFile.writeString(new File(source, "sub/b.txt"), "b", false);
+        new File(source, "empty").mkdirs();
+    }
+
+    @After
+    public void cleanup() {
+        JkUtilsFile.tryDeleteDir(root);
+    }
+
+    @Test
+    public void testCopySkipsUnchangedFiles() {
+        Assert.assertEquals(2, JkFileCopier.of().copy(JkFileTree.of(source), target));
+        final File copy = new File(target, "sub/b.txt");
+        Assert.assertEquals("b", JkUtilsFile.read(copy).trim());
+        Assert.assertTrue(new File(target, "empty").isDirectory());
+        Assert.assertEquals(new File(source, "sub/b.txt").lastModified(), copy.lastModified());
+
+        // Same size and modification time : the target is not written again
+        JkUtilsFile.writeString(copy, "c", false);
+        copy.setLastModified(new File(source, "sub/b.txt").lastModified());
+        JkFileCopier.of().copy(JkFileTree.of(source), target);
+        Assert.assertEquals("c", JkUtilsFile.read(copy).trim());
+        JkFileCopier.of().withSkipUnchanged(false).withParallelism(1).copy(JkFileTree.of(source), target);
+        Assert.assertEquals("b", JkUtilsFile.read(copy).trim());
+    }
+
+    @Test
+    public void testMirrorDeletesExtraneousFiles() {
+        JkUtilsFile.writeString(new File(target, "old.txt"), "old", false);
+        JkUtilsFile.writeString(new File(target, "olddir/old.txt"), "old", false);
+        JkUtilsFile.writeString(new File(target, "sub/old.txt"), "old", false);
+        JkFileCopier.of().copy(JkFileTree.of(source), target);
+        Assert.assertTrue(new File(target, "old.txt").exists());
+
+        JkFileCopier.of().withMirror(true).copy(JkFileTree.of(source), target);
+        Assert.assertFalse(new File(target, "old.txt").exists());
+        Assert.assertFalse(new File(target, "olddir").exists());
+        Assert.assertFalse(new File(target, "sub/old.txt").exists());
+        Assert.assertTrue(new File(target, "sub/b.txt").exists());
+        Assert.assertTrue(new File(target, "empty").isDirectory());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMirrorRefusesTargetContainingSources() {
+        JkFileCopier.of().withMirror(true).copy(JkFileTree.of(source), root);
+    }
+
+    @Test
+    public void testHardLinkSharesContent() {
+        final File linkedSource = new File(source, "a.txt");
+        JkFileCopier.of().withHardLink(true).copy(JkFileTree.of(source), target);
+        final File link = new File(target, "a.txt");
+        Assert.assertEquals("a", JkUtilsFile.read(link).trim());
+        JkUtilsFile.writeString(linkedSource, "modified", false);
+        if (JkUtilsFile.hardLink(linkedSource, new File(root, "probe.txt"))) {
+            Assert.assertEquals("modified", JkUtilsFile.read(link).trim());
+        }
+    }
+
+    @Test
+    public void testLastTreeWins() {
+        final File other = new File(root, "other");
+        JkUtilsFile.writeString(new File(other, "a.txt"), "other", false);
+        final int count = JkFileCopier.of().copy(JkFileTreeSet.of(source, other), target);
+        Assert.assertEquals(2, count);
+        Assert.assertEquals("other", JkUtilsFile.read(new File(target, "a.txt")).trim());
+    }
+
+}
@@ -1,5 +1,7 @@
 package org.jerkar.api.file;
 
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -31,4 +33,37 @@ public class JkPathFilterTest {
         Assert.assertTrue(include.accept("meta/toto.txt"));
     }
 
+    @Test
+    public void testDescription() {
+        final JkPathFilter include = JkPathFilter.include("meta/*.txt");
+        Assert.assertFalse(include.toString().equals(include.caseSensitive(false).toString()));
+        final JkPathFilter reverse = include.and(JkPathFilter.exclude("**/foo.txt")).reverse();
+        Assert.assertTrue(reverse.hasStableDescription());
+        Assert.assertTrue(reverse.toString().startsWith("Reverse of {includes"));
+        Assert.assertEquals(include.getIncludePatterns(), include.reverse().getExcludePatterns());
+        Assert.assertFalse(new JkPathFilter() {
+
+            @Override
+            public boolean accept(String relativePath) {
+                return true;
+            }
+
+            @Override
+            public List<String> getIncludePatterns() {
+                return null;
+            }
+
+            @Override
+            public List<String> getExcludePatterns() {
+                return null;
+            }
+
+            @Override
+            public JkPathFilter caseSensitive(boolean caseSensitive) {
+                return this;
+            }
+
+        }.and(include).hasStableDescription());
+    }
+
 }
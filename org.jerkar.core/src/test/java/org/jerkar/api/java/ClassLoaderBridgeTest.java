@@ -0,0 +1,155 @@
+package org.jerkar.api.java;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class ClassLoaderBridgeTest {
+
+    private URLClassLoader otherLoader;
+
+    @Before
+    public void setup() {
+        final URL testClasses = ClassLoaderBridgeTest.class.getProtectionDomain().getCodeSource()
+                .getLocation();
+        final URL mainClasses = JkClassLoader.class.getProtectionDomain().getCodeSource()
+                .getLocation();
+        otherLoader = new URLClassLoader(new URL[] { testClasses, mainClasses }, ClassLoader
+                .getSystemClassLoader().getParent());
+    }
+
+    @Test
+    public void testCopyWithoutSerialization() throws Exception {
+        final Sample root = new Sample("root", Level.HIGH);
+        final Sample child = new Sample("child", Level.LOW);
+        child.parent = root;
+        root.children.add(child);
+        root.attributes.put("child", child);
+        root.attributes.put("text", "value");
+        root.array = new Sample[] { child, root };
+        root.cache = "cache";
+
+        final Object copy = new ClassLoaderBridge(otherLoader).transfer(root);
+        final Class<?> otherSampleClass = otherLoader.loadClass(Sample.class.getName());
+        Assert.assertSame(otherSampleClass, copy.getClass());
+        Assert.assertEquals("root", field(copy, "name"));
+        Assert.assertSame(otherLoader.loadClass(Level.class.getName()).getEnumConstants()[1],
+                field(copy, "level"));
+        Assert.assertSame(root.numbers, field(copy, "numbers"));
+        Assert.assertNull(field(copy, "cache"));
+
+        final List<?> children = (List<?>) field(copy, "children");
+        final Object childCopy = children.get(0);
+        Assert.assertSame(otherSampleClass, childCopy.getClass());
+        Assert.assertSame(copy, field(childCopy, "parent"));
+        Assert.assertSame(childCopy, ((Map<?, ?>) field(copy, "attributes")).get("child"));
+        final Object[] array = (Object[]) field(copy, "array");
+        Assert.assertSame(otherSampleClass, array.getClass().getComponentType());
+        Assert.assertSame(childCopy, array[0]);
+        Assert.assertSame(copy, array[1]);
+    }
+
+    @Test
+    public void testJdkObjectsArePassedAsIs() {
+        final List<String> list = new ArrayList<String>(Arrays.asList("a", "b"));
+        final Object[] array = new Object[] { list, "c" };
+        Assert.assertSame(array, new ClassLoaderBridge(otherLoader).transfer(array));
+        Assert.assertSame(Level.LOW, new ClassLoaderBridge(ClassLoaderBridgeTest.class.getClassLoader())
+                .transfer(Level.LOW));
+    }
+
+    @Test
+    public void testCustomSerializationFallsBack() throws Exception {
+        final Custom custom = new Custom();
+        custom.value = "foo";
+        final Object copy = new ClassLoaderBridge(otherLoader).transfer(custom);
+        Assert.assertSame(otherLoader.loadClass(Custom.class.getName()), copy.getClass());
+        Assert.assertEquals("foo", field(copy, "value"));
+    }
+
+    @Test
+    public void testInvokeStaticMethodRoundTrip() throws Exception {
+        final JkClassLoader classLoader = JkClassLoader.of(otherLoader.loadClass(Echo.class.getName()));
+        final Sample sample = new Sample("sample", Level.LOW);
+        for (int i = 0; i < 2; i++) {
+            final Sample result = classLoader.invokeStaticMethod(true, Echo.class.getName(), "echo",
+                    sample);
+            Assert.assertEquals("sample!", result.name);
+            Assert.assertEquals(Level.HIGH, result.level);
+            Assert.assertEquals("sample", result.children.get(0).name);
+        }
+    }
+
+    private static Object field(Object object, String name) throws Exception {
+        final Field field = object.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(object);
+    }
+
+    public enum Level {
+        LOW, HIGH
+    }
+
+    public static class Sample implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        String name;
+
+        Level level;
+
+        Sample parent;
+
+        List<Sample> children = new ArrayList<Sample>();
+
+        Map<String, Object> attributes = new HashMap<String, Object>();
+
+        int[] numbers = { 1, 2 };
+
+        Sample[] array;
+
+        transient String cache;
+
+        Sample(String name, Level level) {
+            this.name = name;
+            this.level = level;
+        }
+
+    }
+
+    public static class Custom implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        String value;
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            out.defaultWriteObject();
+        }
+
+    }
+
+    public static class Echo {
+
+        public static Sample echo(Sample sample) {
+            final Sample result = new Sample(sample.name + "!", Level.HIGH);
+            result.children.add(sample);
+            return result;
+        }
+
+    }
+
+}
@@ -0,0 +1,103 @@
+package org.jerkar.api.java;
+
+import java.io.File;
+
+import org.jerkar.api.file.JkFileTree;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class JkAbiFingerprintTest {
+
+    private File root;
+
+    @Before
+    public void setup() {
+        root = JkUtilsFile.createTempDir("abi");
+    }
+
+    @After
+    public void cleanup() {
+        JkUtilsFile.tryDeleteDir(root);
+    }
+
+    @Test
+    public void testOnlyAbiChangesAreDetected() {
+        final String base = compile("base", "public class A { public static final int C = 1; "
+                + "private int p; public int m() { return 1; } }");
+        final String bodyChanged = compile("body", "public class A { public static final int C = 1; "
+                + "private String p; private void q() {} public int m() { return 2; } }");
+        final String constantChanged = compile("constant", "public class A { public static final int C = 2; "
+                + "private int p; public int m() { return 1; } }");
+        final String signatureChanged = compile("signature", "public class A { public static final int C = 1; "
+                + "private int p; public long m() { return 1; } }");
+
+        Assert.assertEquals(base, bodyChanged);
+        Assert.assertFalse(base.equals(constantChanged));
+        Assert.assertFalse(base.equals(signatureChanged));
+    }
+
+    @Test
+    public void testCompilationIsAvoidedWhenInputsAndOutputsAreUnchanged() throws InterruptedException {
+        compile("base", "public class A {}");
+        final File classFile = new File(root, "base/classes/pack/A.class");
+        final long compiledAt = classFile.lastModified();
+        Thread.sleep(1100); // A new compilation would change the modification time
+        compile("base", "public class A {}");
+        Assert.assertEquals(compiledAt, classFile.lastModified());
+
+        classFile.delete();
+        compile("base", "public class A {}");
+        Assert.assertTrue(classFile.exists());
+
+        classFile.setLastModified(1000);
+        compile("base", "public class A {}");
+        Assert.assertTrue(classFile.lastModified() > 1000);
+
+        final long recompiledAt = classFile.lastModified();
+        Thread.sleep(1100);
+        compile("base", "public class A { public void m() {} }");
+        Assert.assertTrue(classFile.lastModified() > recompiledAt);
+    }
+
+    @Test
+    public void testResourcesAndAnnotationProcessorsAreDetectedInJars() {
+        compile("base", "public class A { public int m() { return 1; } }");
+        compile("body", "public class A { public int m() { return 2; } }");
+        final String base = jar("base", "base.jar");
+        Assert.assertEquals(base, jar("body", "body.jar"));
+
+        JkUtilsFile.writeString(new File(root, "base/classes/pack/a.properties"), "a=1", false);
+        final String withResource = jar("base", "resource.jar");
+        Assert.assertFalse(base.equals(withResource));
+        JkUtilsFile.writeString(new File(root, "base/classes/pack/a.properties"), "a=2", false);
+        Assert.assertFalse(withResource.equals(jar("base", "resource2.jar")));
+
+        // Processor implementations change generated code, so any change is detected
+        final String service = AnnotationProcessors.SERVICE_FILE;
+        JkUtilsFile.writeString(new File(root, "base/classes/" + service), "pack.A", false);
+        JkUtilsFile.writeString(new File(root, "body/classes/" + service), "pack.A", false);
+        Assert.assertFalse(jar("base", "processor.jar").equals(jar("body", "processor2.jar")));
+        Assert.assertFalse(JkAbiFingerprint.of(new File(root, "base/classes"))
+                .equals(JkAbiFingerprint.of(new File(root, "body/classes"))));
+    }
+
+    private String jar(String name, String jarName) {
+        final File jar = new File(root, jarName);
+        JkFileTree.of(new File(root, name + "/classes")).zip().to(jar);
+        return JkAbiFingerprint.of(jar);
+    }
+
+    private String compile(String name, String source) {
+        final File sourceFile = new File(root, name + "/src/pack/A.java");
+        JkUtilsFile.writeString(sourceFile, "package pack; " + source, false);
+        final File classDir = new File(root, name + "/classes");
+        JkJavaCompiler.outputtingIn(classDir).andSources(JkUtilsFile.filesOf(sourceFile.getParentFile(), false))
+                .compile();
+        return JkAbiFingerprint.of(classDir);
+    }
+
+}
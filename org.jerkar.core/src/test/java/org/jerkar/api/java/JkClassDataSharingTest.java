@@ -0,0 +1,73 @@
+package org.jerkar.api.java;
+
+import java.io.File;
+
+import org.jerkar.api.file.JkFileTree;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class JkClassDataSharingTest {
+
+    private File root;
+
+    private JkClassDataSharing classDataSharing;
+
+    @Before
+    public void setup() {
+        root = JkUtilsFile.createTempDir("cds");
+    }
+
+    @After
+    public void cleanup() {
+        JkClassDataSharing.activate(false);
+        if (classDataSharing != null) {
+            JkUtilsFile.deleteIfExist(classDataSharing.archive());
+            JkUtilsFile.deleteIfExist(classDataSharing.classList());
+        }
+        JkUtilsFile.tryDeleteDir(root);
+    }
+
+    @Test
+    public void testArchiveIsCreatedAfterTrainingRun() {
+        final File javaDir = new File(System.getProperty("java.home"), "bin");
+        Assume.assumeTrue(JkClassDataSharing.isSupported(javaDir));
+        final File jar = jar();
+        final String mainClass = "pack.Hello";
+        final File classes = new File(root, "classes");
+        JkUtilsFile.writeString(new File(classes, "resource.txt"), "content", false);
+        classDataSharing = JkClassDataSharing.of(mainClass, javaDir, JkClasspath.of(jar, classes));
+        Assert.assertTrue(classDataSharing.isApplicable());
+        Assert.assertFalse(JkClassDataSharing.of(mainClass, javaDir, JkClasspath.of(classes, jar)).isApplicable());
+        Assert.assertTrue(classDataSharing.jvmOptions().get(0).startsWith("-XX:DumpLoadedClassList="));
+
+        JkClassDataSharing.activate(true);
+        final JkJavaProcess process = JkJavaProcess.of().withClasspath(jar, classes);
+        process.runClassSync(mainClass);
+        Assert.assertTrue(classDataSharing.archive().exists());
+        Assert.assertFalse(classDataSharing.classList().exists());
+        Assert.assertTrue(classDataSharing.jvmOptions().get(0).startsWith("-XX:SharedArchiveFile="));
+        process.runClassSync(mainClass);
+
+        // A change in a jar makes the archive out of date
+        jar.setLastModified(jar.lastModified() - 10000);
+        final JkClassDataSharing changed = JkClassDataSharing.of(mainClass, javaDir, JkClasspath.of(jar, classes));
+        Assert.assertFalse(changed.archive().equals(classDataSharing.archive()));
+    }
+
+    private File jar() {
+        final File src = new File(root, "src");
+        JkUtilsFile.writeString(new File(src, "pack/Hello.java"), "package pack; public class Hello { "
+                + "public static void main(String[] args) { System.out.println(\"hello\"); } }", false);
+        final File bin = new File(root, "bin");
+        JkJavaCompiler.outputtingIn(bin).andSources(JkFileTree.of(src)).compile();
+        final File jar = new File(root, "hello.jar");
+        JkFileTree.of(bin).zip().to(jar);
+        return jar;
+    }
+
+}
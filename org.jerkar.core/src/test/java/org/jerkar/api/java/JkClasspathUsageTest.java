@@ -0,0 +1,98 @@
+package org.jerkar.api.java;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jerkar.api.file.JkFileTree;
+import org.jerkar.api.file.JkZipper;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class JkClasspathUsageTest {
+
+    private File root;
+
+    private File baseJar;
+
+    private File apiDir;
+
+    private File unusedJar;
+
+    private File classes;
+
+    @Before
+    public void setup() {
+        root = JkUtilsFile.createTempDir("classpath-usage");
+        final File baseDir = compile("base", "base/Base.java", "package base; public class Base {}");
+        baseJar = new File(root, "base.jar");
+        JkZipper.of(baseDir).to(baseJar);
+        apiDir = compile("api", "api/Api.java", "package api; public class Api extends base.Base {}",
+                baseDir);
+        final File unusedDir = compile("unused", "unused/Unused.java", "package unused; public class Unused {}");
+        unusedJar = new File(root, "unused.jar");
+        JkZipper.of(unusedDir).to(unusedJar);
+        classes = compile("client", "client/Client.java",
+                "package client; public class Client { api.Api[] apis; }", apiDir, baseDir);
+    }
+
+    @After
+    public void cleanup() {
+        JkUtilsFile.tryDeleteDir(root);
+    }
+
+    @Test
+    public void testUsedEntriesIncludeSupertypes() {
+        final JkClasspathUsage usage = JkClasspathUsage.of(Arrays.asList(classes),
+                Arrays.asList(unusedJar, apiDir, baseJar));
+        Assert.assertEquals(Arrays.asList(apiDir, baseJar), usage.usedEntries());
+        Assert.assertEquals(Arrays.asList(unusedJar), usage.unusedEntries());
+        Assert.assertTrue(usage.missingClasses().isEmpty());
+
+        final JkClasspathUsage withoutBase = JkClasspathUsage.of(Arrays.asList(classes),
+                Arrays.asList(unusedJar, apiDir));
+        Assert.assertEquals(Arrays.asList("base/Base"), Arrays.asList(withoutBase.missingClasses().toArray()));
+    }
+
+    @Test
+    public void testStoredEntriesAreDroppedWhenClasspathChanges() {
+        final List<File> classpath = Arrays.asList(unusedJar, apiDir, baseJar);
+        final File file = new File(root, "usage.txt");
+        JkClasspathUsage.of(Arrays.asList(classes), classpath).store(file);
+        Assert.assertEquals(Arrays.asList(apiDir, baseJar), JkClasspathUsage.usedEntriesStoredIn(file, classpath));
+
+        Assert.assertNull(JkClasspathUsage.usedEntriesStoredIn(file, Arrays.asList(apiDir, baseJar)));
+        unusedJar.setLastModified(unusedJar.lastModified() - 10000);
+        Assert.assertNull(JkClasspathUsage.usedEntriesStoredIn(file, classpath));
+    }
+
+    @Test
+    public void testEntriesDeclaringAnnotationProcessorsAreUsed() {
+        final File processorDir = compile("processor", "processor/Processor.java",
+                "package processor; public class Processor {}");
+        JkUtilsFile.writeString(new File(processorDir, AnnotationProcessors.SERVICE_FILE), "processor.Processor",
+                false);
+        final File processorJar = new File(root, "processor.jar");
+        JkFileTree.of(processorDir).zip().to(processorJar);
+
+        final JkClasspathUsage usage = JkClasspathUsage.of(Arrays.asList(classes),
+                Arrays.asList(unusedJar, processorJar, apiDir, baseJar));
+        Assert.assertEquals(Arrays.asList(processorJar, apiDir, baseJar), usage.usedEntries());
+        Assert.assertTrue(JkClasspathUsage.of(Arrays.asList(classes), Arrays.asList(processorDir))
+                .isUsed(processorDir));
+    }
+
+    private File compile(String name, String path, String source, File... classpath) {
+        final File sourceFile = new File(root, name + "/src/" + path);
+        JkUtilsFile.writeString(sourceFile, source, false);
+        final File classDir = new File(root, name + "/classes");
+        JkJavaCompiler.outputtingIn(classDir).andSources(JkUtilsFile.filesOf(new File(root, name + "/src"), false))
+                .withClasspath(Arrays.asList(classpath)).compile();
+        return classDir;
+    }
+
+}
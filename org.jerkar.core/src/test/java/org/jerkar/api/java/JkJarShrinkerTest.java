@@ -0,0 +1,90 @@
+package org.jerkar.api.java;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.jerkar.api.file.JkFileTree;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsIO;
+import org.jerkar.api.utils.JkUtilsString;
+import org.jerkar.api.utils.JkUtilsZip;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class JkJarShrinkerTest {
+
+    private File root;
+
+    @Before
+    public void setup() {
+        root = JkUtilsFile.createTempDir("shrinker");
+    }
+
+    @After
+    public void cleanup() {
+        JkUtilsFile.tryDeleteDir(root);
+    }
+
+    @Test
+    public void testUnreachableEntriesAreRemoved() {
+        final File src = new File(root, "src");
+        source(src, "app/Main", "public class Main { public static void main(String[] args) throws Exception { "
+                + "new A().run(null); Class.forName(\"app.Reflected\"); } }");
+        source(src, "app/A", "public class A { void run(lib.Param param) {} }");
+        source(src, "app/Reflected", "public class Reflected {}");
+        source(src, "lib/Param", "public class Param {}");
+        source(src, "lib/Unused", "public class Unused {}");
+        source(src, "other/Provider", "public class Provider {}");
+        source(src, "other/Plugin", "public class Plugin {}");
+        source(src, "dead/Dead", "public class Dead {}");
+        final File classes = new File(root, "classes");
+        JkJavaCompiler.outputtingIn(classes).andSources(JkFileTree.of(src)).compile();
+        JkUtilsFile.writeString(new File(classes, "app/app.properties"), "a=b", false);
+        JkUtilsFile.writeString(new File(classes, "dead/dead.properties"), "a=b", false);
+        JkUtilsFile.writeString(new File(classes, "META-INF/services/java.lang.Runnable"),
+                "# comment\nother.Provider\n", false);
+        JkManifest.empty().addMainClass("app.Main").writeToStandardLocation(classes);
+        final File jar = new File(root, "app.jar");
+        JkFileTree.of(classes).zip().to(jar);
+
+        JkJarShrinker.of().andKeep("other/Plugin.class").shrink(jar);
+
+        final Set<String> entries = entries(jar);
+        Assert.assertTrue(entries.contains("app/Main.class"));
+        Assert.assertTrue(entries.contains("app/A.class"));
+        Assert.assertTrue(entries.contains("app/Reflected.class"));
+        Assert.assertTrue(entries.contains("lib/Param.class"));
+        Assert.assertTrue(entries.contains("other/Provider.class"));
+        Assert.assertTrue(entries.contains("other/Plugin.class"));
+        Assert.assertTrue(entries.contains("app/app.properties"));
+        Assert.assertTrue(entries.contains(JkManifest.PATH));
+        Assert.assertFalse(entries.contains("lib/Unused.class"));
+        Assert.assertFalse(entries.contains("dead/Dead.class"));
+        Assert.assertFalse(entries.contains("dead/dead.properties"));
+    }
+
+    private static void source(File dir, String name, String content) {
+        final String packageName = JkUtilsString.substringBeforeLast(name, "/");
+        JkUtilsFile.writeString(new File(dir, name + ".java"), "package " + packageName + "; " + content, false);
+    }
+
+    private static Set<String> entries(File jar) {
+        final ZipFile zipFile = JkUtilsZip.zipFile(jar);
+        try {
+            final Set<String> result = new HashSet<String>();
+            for (final ZipEntry entry : JkUtilsZip.zipEntries(zipFile)) {
+                result.add(entry.getName());
+            }
+            return result;
+        } finally {
+            JkUtilsIO.closeQuietly(zipFile);
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+package org.jerkar.api.java;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.jerkar.api.file.JkFileTree;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsReflect;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class JkJavaCompilerSessionTest {
+
+    private File root;
+
+    private JkJavaCompilerSession session;
+
+    @Before
+    public void setup() {
+        root = JkUtilsFile.createTempDir("compilersession");
+        session = JkJavaCompilerSession.of(JkJavaCompilerSession.shared().compiler());
+    }
+
+    @After
+    public void cleanup() {
+        session.close();
+        JkUtilsFile.tryDeleteDir(root);
+    }
+
+    @Test
+    public void testCompileInMemory() throws Exception {
+        final File lib = lib("public static String name() { return \"lib\"; }");
+        final File src = new File(root, "src");
+        JkUtilsFile.writeString(new File(src, "app/App.java"), "package app; public class App { "
+                + "public static String hello() { return \"hello \" + lib.Lib.name(); } }", false);
+        final File bin = new File(root, "bin");
+        final ClassLoader classLoader = JkJavaCompiler.outputtingIn(bin).withSession(session)
+                .andSourceDir(src).withClasspath(JkClasspath.of(lib)).compileInMemory(new URLClassLoader(
+                        new URL[] { JkUtilsFile.toUrl(lib) }, getClass().getClassLoader()));
+        Assert.assertFalse(new File(bin, "app/App.class").exists());
+        final Class<?> clazz = classLoader.loadClass("app.App");
+        Assert.assertEquals("hello lib", JkUtilsReflect.invoke(null, clazz.getMethod("hello")));
+    }
+
+    @Test
+    public void testChangedJarIsReopened() {
+        final File lib = lib("public static String name() { return \"lib\"; }");
+        Assert.assertTrue(compiler("lib.Lib.name()").withClasspath(JkClasspath.of(lib)).compile());
+
+        // The jar opened by the previous compilation has changed
+        JkUtilsFile.delete(lib);
+        lib("public static String otherName() { return \"lib\"; }");
+        lib.setLastModified(lib.lastModified() - 10000);
+        Assert.assertTrue(compiler("lib.Lib.otherName()").withClasspath(JkClasspath.of(lib)).compile());
+    }
+
+    @Test
+    public void testClasspathIsNotKeptBetweenCompilations() {
+        final File lib = lib("public static String name() { return \"lib\"; }");
+        Assert.assertTrue(compiler("lib.Lib.name()").withClasspath(JkClasspath.of(lib)).compile());
+        Assert.assertFalse(compiler("lib.Lib.name()").failOnError(false).compile());
+    }
+
+    private JkJavaCompiler compiler(String expression) {
+        final File src = new File(root, "app-src-" + System.nanoTime());
+        JkUtilsFile.writeString(new File(src, "app/App.java"), "package app; public class App { "
+                + "String value = " + expression + "; }", false);
+        return JkJavaCompiler.outputtingIn(new File(root, "app-bin-" + System.nanoTime())).withSession(session)
+                .andSourceDir(src);
+    }
+
+    private File lib(String method) {
+        final File src = new File(root, "lib-src");
+        JkUtilsFile.deleteIfExist(new File(src, "lib/Lib.java"));
+        JkUtilsFile.writeString(new File(src, "lib/Lib.java"), "package lib; public class Lib { " + method + " }",
+                false);
+        final File bin = new File(root, "lib-bin-" + System.nanoTime());
+        JkJavaCompiler.outputtingIn(bin).andSourceDir(src).compile();
+        final File jar = new File(root, "lib.jar");
+        JkFileTree.of(bin).zip().to(jar);
+        return jar;
+    }
+
+}
@@ -0,0 +1,56 @@
+package org.jerkar.api.java;
+
+import java.io.File;
+
+import org.jerkar.api.system.JkProcess;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class JkJavacServerTest {
+
+    private File root;
+
+    @Before
+    public void setup() {
+        root = JkUtilsFile.createTempDir("javacserver");
+        JkJavacServer.activate(true);
+    }
+
+    @After
+    public void cleanup() {
+        JkJavacServer.activate(false);
+        JkJavacServer.shutdownAll();
+        JkUtilsFile.tryDeleteDir(root);
+    }
+
+    @Test
+    public void testServerIsReusedAcrossCompilations() {
+        final File src = new File(root, "src");
+        JkUtilsFile.writeString(new File(src, "pack/Hello.java"), "package pack; public class Hello {}", false);
+        final File bin = new File(root, "bin");
+        Assert.assertTrue(JkJavaCompiler.outputtingIn(bin).andSourceDir(src).fork().compile());
+        Assert.assertTrue(new File(bin, "pack/Hello.class").exists());
+        final File binDir = new File(JkProcess.ofJavaTool("javac").command()).getParentFile();
+        final String server = JkJavacServer.of(binDir).toString();
+        Assert.assertTrue(server, server.contains("port"));
+
+        final File otherBin = new File(root, "otherBin");
+        Assert.assertTrue(JkJavaCompiler.outputtingIn(otherBin).andSourceDir(src).fork().compile());
+        Assert.assertTrue(new File(otherBin, "pack/Hello.class").exists());
+        Assert.assertEquals(server, JkJavacServer.of(binDir).toString());
+    }
+
+    @Test
+    public void testCompilationErrorIsReported() {
+        final File src = new File(root, "src");
+        JkUtilsFile.writeString(new File(src, "pack/Broken.java"), "package pack; public class Broken { int i = \"\"; }",
+                false);
+        Assert.assertFalse(JkJavaCompiler.outputtingIn(new File(root, "bin")).andSourceDir(src).fork()
+                .failOnError(false).compile());
+    }
+
+}
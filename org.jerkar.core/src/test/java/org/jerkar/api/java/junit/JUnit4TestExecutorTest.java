@@ -0,0 +1,69 @@
+package org.jerkar.api.java.junit;
+
+import java.io.File;
+
+import org.jerkar.api.java.junit.JkUnit.JunitReportDetail;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class JUnit4TestExecutorTest {
+
+    private File reportDir;
+
+    @Before
+    public void setup() {
+        reportDir = JkUtilsFile.createTempDir("junit4-executor");
+    }
+
+    @After
+    public void cleanup() {
+        JkUtilsFile.tryDeleteDir(reportDir);
+    }
+
+    @Test
+    public void testRunReachingMaxFailuresOnLastTestIsNotAborted() {
+        final JkTestSuiteResult result = launch(2);
+        Assert.assertEquals(2, result.runCount());
+        Assert.assertEquals(2, result.failureCount());
+        Assert.assertFalse(result.isAborted());
+    }
+
+    @Test
+    public void testRunStoppedWhileTestsRemainIsAborted() {
+        final JkTestSuiteResult result = launch(1);
+        Assert.assertEquals(1, result.runCount());
+        Assert.assertEquals(1, result.failureCount());
+        Assert.assertTrue(result.isAborted());
+    }
+
+    @Test
+    public void testRunWithoutLimitIsNotAborted() {
+        final JkTestSuiteResult result = launch(0);
+        Assert.assertEquals(2, result.runCount());
+        Assert.assertFalse(result.isAborted());
+    }
+
+    private JkTestSuiteResult launch(int maxFailures) {
+        return JUnit4TestExecutor.launchInProcess(new Class<?>[] { TwoFailingTests.class }, false,
+                JunitReportDetail.NONE, reportDir, maxFailures, true);
+    }
+
+    public static class TwoFailingTests {
+
+        @Test
+        public void first() {
+            Assert.fail();
+        }
+
+        @Test
+        public void second() {
+            Assert.fail();
+        }
+
+    }
+
+}
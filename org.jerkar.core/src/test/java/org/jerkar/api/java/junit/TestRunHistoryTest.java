@@ -0,0 +1,68 @@
+package org.jerkar.api.java.junit;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Properties;
+
+import org.jerkar.api.file.JkFileTreeSet;
+import org.jerkar.api.java.junit.JkTestSuiteResult.ExceptionDescription;
+import org.jerkar.api.java.junit.JkTestSuiteResult.TestCaseFailure;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings({ "javadoc", "rawtypes" })
+public class TestRunHistoryTest {
+
+    private File root;
+
+    @Before
+    public void setup() {
+        root = JkUtilsFile.createTempDir("test-run-history");
+    }
+
+    @After
+    public void cleanup() {
+        JkUtilsFile.tryDeleteDir(root);
+    }
+
+    @Test
+    public void testFailedThenChangedClassesRunFirst() {
+        final File classDir = new File(root, "classes");
+        final File historyFile = new File(root, "failed-tests.txt");
+        final TestRunHistory history = new TestRunHistory(historyFile);
+        final JkFileTreeSet classRoots = JkFileTreeSet.of(classDir);
+        final List<Class> classes = Arrays.<Class> asList(String.class, Integer.class, Long.class);
+        Assert.assertEquals(classes, history.order(classes, classRoots));
+
+        history.record(result(Long.class), true);
+        historyFile.setLastModified(System.currentTimeMillis() - 10000);
+        final File changedClass = new File(classDir, "java/lang/Integer.class");
+        JkUtilsFile.writeString(changedClass, "", false);
+        Assert.assertEquals(Arrays.asList(Long.class, Integer.class, String.class),
+                history.order(classes, classRoots));
+
+        history.record(result(String.class), false);
+        historyFile.setLastModified(System.currentTimeMillis() + 10000);
+        final Collection<Class> ordered = history.order(classes, classRoots);
+        Assert.assertEquals(Arrays.asList(String.class, Long.class, Integer.class), ordered);
+
+        history.record(result(), true);
+        Assert.assertEquals(classes, history.order(classes, classRoots));
+    }
+
+    private static JkTestSuiteResult result(Class<?>... failedClasses) {
+        final List<TestCaseFailure> failures = new LinkedList<TestCaseFailure>();
+        for (final Class<?> clazz : failedClasses) {
+            failures.add(new TestCaseFailure(clazz.getName(), "test", 0,
+                    new ExceptionDescription(new AssertionError())));
+        }
+        return new JkTestSuiteResult(new Properties(), "all", 3, 0, failures, 10);
+    }
+
+}
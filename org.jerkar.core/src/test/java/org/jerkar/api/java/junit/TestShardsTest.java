@@ -0,0 +1,131 @@
+package org.jerkar.api.java.junit;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.jerkar.api.java.junit.JkTestSuiteResult.TestCaseResult;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsXml;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Element;
+
+@SuppressWarnings("javadoc")
+public class TestShardsTest {
+
+    private File root;
+
+    @Before
+    public void setup() {
+        root = JkUtilsFile.createTempDir("test-shards");
+    }
+
+    @After
+    public void cleanup() {
+        JkUtilsFile.tryDeleteDir(root);
+    }
+
+    @Test
+    public void testShardsArePartitionedAndBalanced() {
+        final List<String> names = Arrays.asList("a.Slow", "a.Medium", "b.Fast1", "b.Fast2", "c.New");
+        final Map<String, Float> durations = new HashMap<String, Float>();
+        durations.put("a.Slow", 10f);
+        durations.put("a.Medium", 6f);
+        durations.put("b.Fast1", 2f);
+        durations.put("b.Fast2", 2f);
+
+        final Map<String, Integer> shards = TestShards.assign(names, 2, durations);
+        final List<String> reversed = new ArrayList<String>(names);
+        Collections.reverse(reversed);
+        Assert.assertEquals(shards, TestShards.assign(reversed, 2, durations));
+        final float[] loads = new float[2];
+        for (final String name : names) {
+            loads[shards.get(name)] += durations.containsKey(name) ? durations.get(name) : 5f;
+        }
+        Assert.assertEquals(loads[0], loads[1], 5f);
+        Assert.assertEquals(shards.get("a.Slow"), shards.get("b.Fast1"));
+
+        final Set<Integer> hashedShards = new HashSet<Integer>(TestShards.assign(names, 3,
+                new HashMap<String, Float>()).values());
+        for (final int index : hashedShards) {
+            Assert.assertTrue(index >= 0 && index < 3);
+        }
+    }
+
+    @Test
+    public void testDurationsAreReadFromReportsAndMerged() {
+        final File shard1 = new File(root, "shard1");
+        final File shard2 = new File(root, "shard2");
+        write(shard1, "a.Slow", "a.Slow", 10f);
+        write(shard2, "b.Fast", "b.Fast", 2f);
+        write(shard1, "all", "a.Slow", 1f);
+        write(shard2, "all", "b.Fast", 3f);
+
+        final Map<String, Float> durations = TestShards.durationsIn(shard1);
+        Assert.assertEquals(10f, durations.get("a.Slow"), 0.01f);
+
+        final File merged = new File(root, "merged");
+        JkUnit.mergeReports(Arrays.asList(shard1, shard2), merged);
+        Assert.assertEquals(10f, TestShards.durationsIn(merged).get("a.Slow"), 0.01f);
+        Assert.assertTrue(new File(merged, "b.Fast.txt").exists());
+        final Element all = JkUtilsXml.documentFrom(new File(merged, "TEST-all.xml")).getDocumentElement();
+        Assert.assertEquals("2", all.getAttribute("tests"));
+        Assert.assertEquals(4f, Float.parseFloat(all.getAttribute("time")), 0.01f);
+        Assert.assertEquals(2, JkUtilsXml.directChildren(all, "testcase").size());
+    }
+
+    @Test
+    public void testReportsAreReadInJunitSubdirectory() {
+        final File shard1 = new File(root, "shard1");
+        final File shard2 = new File(root, "shard2");
+        write(new File(shard1, "junit"), "a.Slow", "a.Slow", 10f);
+        write(new File(shard2, "junit"), "b.Fast", "b.Fast", 2f);
+
+        Assert.assertEquals(10f, TestShards.durationsIn(shard1).get("a.Slow"), 0.01f);
+        final File merged = new File(root, "merged");
+        JkUnit.mergeReports(Arrays.asList(shard1, shard2), merged);
+        Assert.assertTrue(new File(merged, "TEST-a.Slow.xml").exists());
+        Assert.assertTrue(new File(merged, "TEST-b.Fast.xml").exists());
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Test
+    public void testShardsWithoutHistoryDependOnClassNamesOnly() {
+        final List<Class> classes = Arrays.<Class> asList(String.class, Integer.class, Long.class, Map.class);
+        final List<String> names = new ArrayList<String>();
+        for (final Class<?> clazz : classes) {
+            names.add(clazz.getName());
+        }
+        final Map<String, Integer> hashed = TestShards.assign(names, 2, new HashMap<String, Float>());
+        final List<Class> expected = new ArrayList<Class>();
+        for (final Class<?> clazz : classes) {
+            if (hashed.get(clazz.getName()) == 1) {
+                expected.add(clazz);
+            }
+        }
+        Assert.assertEquals(expected, TestShards.parse("2/2", null).select(classes));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidShard() {
+        TestShards.parse("9/8", null);
+    }
+
+    private static void write(File dir, String suiteName, String className, float duration) {
+        final TestCaseResult testCase = new TestCaseResult(className, "test", duration);
+        final JkTestSuiteResult result = new JkTestSuiteResult(new Properties(), suiteName, 1, 0,
+                Arrays.asList(testCase), (long) (duration * 1000));
+        TestReportBuilder.of(result).writeToFileSystem(dir);
+    }
+
+}
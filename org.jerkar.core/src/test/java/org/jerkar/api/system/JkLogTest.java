@@ -1,7 +1,11 @@
 package org.jerkar.api.system;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
 import org.junit.After;
 import org.junit.Test;
 
@@ -16,6 +20,49 @@ public class JkLogTest {
         assertTrue(JkLog.silent());
     }
 
+    @Test
+    public void testLinesOfConcurrentContextsAreNotMixed() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final LogSink sink = new LogSink(new PrintStream(out), new PrintStream(new ByteArrayOutputStream()));
+        final LogContext first = new LogContext(1, 0);
+        final LogContext second = new LogContext(0, 0);
+        write(first, sink, "Starting");
+        write(second, sink, "other\n");
+        write(first, sink, " done\n");
+        first.startBuffering();
+        write(first, sink, "buffered\n");
+        write(second, sink, "not buffered\n");
+        first.stopBuffering(sink);
+        sink.flush();
+        final String nl = System.getProperty("line.separator");
+        assertEquals("|  Starting" + nl + "other\n|   done\nnot buffered\n|  buffered\n", out.toString());
+    }
+
+    @Test
+    public void testForwardingContextWritesAsItsTarget() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final LogSink sink = new LogSink(new PrintStream(out), new PrintStream(new ByteArrayOutputStream()));
+        final LogContext caller = new LogContext(2, 0);
+        final LogContext forwarding = new LogContext(caller);
+        caller.startBuffering();
+        final byte[] bytes = "process output".getBytes();
+        forwarding.write(sink, LogSink.OUT, bytes, 0, bytes.length);
+        sink.flush();
+        assertEquals("", out.toString());
+        forwarding.flushPendingLines(sink);
+        write(caller, sink, "done\n");
+        caller.stopBuffering(sink);
+        sink.flush();
+        final String nl = System.getProperty("line.separator");
+        assertEquals("|  |  process output" + nl + "|  |  done\n", out.toString());
+    }
+
+    private static void write(LogContext context, LogSink sink, String text) {
+        final byte[] bytes = text.getBytes();
+        context.write(sink, LogSink.OUT, bytes, 0, bytes.length);
+        context.flushPendingLines(sink);
+    }
+
     @After
     public void resetJkLog() {
         JkLog.verbose(false);
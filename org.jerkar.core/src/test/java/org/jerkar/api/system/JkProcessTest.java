@@ -6,8 +6,11 @@ import org.jerkar.api.utils.JkUtilsSystem;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Created by angibaudj on 25-07-17.
@@ -28,4 +31,87 @@ public class JkProcessTest {
         }
     }
 
+    @Test
+    public void testCaptureOutputAndExitCode() {
+        if (JkUtilsSystem.IS_WINDOWS) {
+            return;
+        }
+        final JkProcessResult result = JkProcess.of("sh", "-c", "echo hello; echo world 1>&2; exit 3")
+                .withOutputCapture(1024).withLogOutput(false).execute();
+        Assert.assertEquals(3, result.exitCode());
+        Assert.assertFalse(result.isSuccess());
+        Assert.assertEquals("hello\nworld\n", result.output());
+        Assert.assertFalse(result.isOutputTruncated());
+    }
+
+    @Test
+    public void testCaptureIsBounded() {
+        if (JkUtilsSystem.IS_WINDOWS) {
+            return;
+        }
+        final JkProcessResult result = JkProcess.of("sh", "-c", "i=0; while [ $i -lt 2000 ]; do echo line$i; i=$((i+1)); done")
+                .withOutputCapture(100).withLogOutput(false).execute();
+        Assert.assertTrue(result.isSuccess());
+        Assert.assertTrue(result.isOutputTruncated());
+        Assert.assertEquals(100, result.outputBytes().length);
+        Assert.assertTrue(result.output(), result.output().endsWith("line1999\n"));
+    }
+
+    @Test
+    public void testUnterminatedLastLineIsFlushed() throws IOException {
+        if (JkUtilsSystem.IS_WINDOWS) {
+            return;
+        }
+        final StringBuilder flushed = new StringBuilder();
+        final ByteArrayOutputStream log = new ByteArrayOutputStream() {
+
+            @Override
+            public void flush() {
+                flushed.append(toString());
+            }
+
+        };
+        final Process process = new ProcessBuilder("printf", "no-newline").redirectErrorStream(true).start();
+        new JkProcessHandle("printf", process, log, 0, 0).waitFor();
+        Assert.assertEquals("no-newline", flushed.toString());
+    }
+
+    @Test
+    public void testTimeout() {
+        if (JkUtilsSystem.IS_WINDOWS) {
+            return;
+        }
+        final JkProcessResult result = JkProcess.of("sleep", "20").withTimeout(200).withLogOutput(false).execute();
+        Assert.assertTrue(result.isTimedOut());
+        Assert.assertFalse(result.isSuccess());
+        Assert.assertTrue(result.durationMillis() < 10000);
+    }
+
+    @Test
+    public void testExecuteAll() {
+        if (JkUtilsSystem.IS_WINDOWS) {
+            return;
+        }
+        final JkProcess process = JkProcess.of("sh", "-c", "sleep 0.3; echo $0").withOutputCapture(100)
+                .withLogOutput(false);
+        final long start = System.nanoTime();
+        final List<JkProcessResult> results = JkProcess.executeAll(Arrays.asList(
+                process.andParameters("first"), process.andParameters("second")), 2);
+        Assert.assertEquals("first\n", results.get(0).output());
+        Assert.assertEquals("second\n", results.get(1).output());
+        Assert.assertTrue((System.nanoTime() - start) / 1000000 < 1000);
+    }
+
+    @Test
+    public void testBoundedCapture() throws IOException {
+        final BoundedCapture capture = new BoundedCapture(5);
+        capture.write("abc".getBytes());
+        Assert.assertEquals("abc", new String(capture.bytes()));
+        capture.write("defg".getBytes());
+        Assert.assertEquals("cdefg", new String(capture.bytes()));
+        capture.write("0123456789".getBytes(), 2, 7);
+        Assert.assertEquals("45678", new String(capture.bytes()));
+        Assert.assertEquals(14, capture.count());
+    }
+
 }
@@ -0,0 +1,79 @@
+package org.jerkar.api.system;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import org.jerkar.api.utils.JkUtilsFile;
+import org.junit.After;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class JkProfilerTest {
+
+    @Test
+    public void testSpansAreWritten() throws Exception {
+        JkProfiler.reset();
+        JkProfiler.enable();
+        JkLog.startln("outer");
+        JkLog.start("inner");
+        JkProfiler.count("files", 3);
+        JkLog.done();
+        JkLog.done();
+        JkProfiler.disable();
+        JkLog.start("ignored");
+        JkLog.done();
+
+        final File dir = JkUtilsFile.createTempDir("profiler");
+        final File csv = new File(dir, "profile.csv");
+        JkProfiler.writeCsv(csv);
+        final List<String> lines = JkUtilsFile.readLines(csv);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).endsWith(",files"));
+        assertTrue(lines.get(1).contains(",0,outer,"));
+        final String outerId = lines.get(1).split(",")[0];
+        assertTrue(lines.get(2).contains("," + outerId + ",inner,"));
+        assertTrue(lines.get(2).endsWith(",3"));
+
+        final File trace = new File(dir, "trace.json");
+        JkProfiler.writeChromeTrace(trace);
+        final String json = JkUtilsFile.read(trace);
+        assertTrue(json.contains("\"name\":\"inner\""));
+        assertTrue(json.contains("\"files\":3"));
+        JkUtilsFile.deleteDir(dir);
+    }
+
+    @Test
+    public void testOnlySpansSinceMarkAreWritten() throws Exception {
+        JkProfiler.reset();
+        JkProfiler.enable();
+        JkLog.start("former project");
+        JkLog.done();
+        final long mark = JkProfiler.mark();
+        assertFalse(JkProfiler.hasSpans(mark));
+        JkLog.start("current project");
+        JkLog.done();
+        assertTrue(JkProfiler.hasSpans(mark));
+
+        final File dir = JkUtilsFile.createTempDir("profiler");
+        final File csv = new File(dir, "profile.csv");
+        JkProfiler.writeCsv(csv, mark);
+        final List<String> lines = JkUtilsFile.readLines(csv);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(1).contains(",current project,"));
+        final File trace = new File(dir, "trace.json");
+        JkProfiler.writeChromeTrace(trace, mark);
+        assertFalse(JkUtilsFile.read(trace).contains("former project"));
+        JkUtilsFile.deleteDir(dir);
+    }
+
+    @After
+    public void resetProfiler() {
+        JkProfiler.disable();
+        JkProfiler.reset();
+    }
+
+}
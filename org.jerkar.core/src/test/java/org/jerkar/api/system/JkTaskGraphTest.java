@@ -0,0 +1,83 @@
+package org.jerkar.api.system;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class JkTaskGraphTest {
+
+    @Test
+    public void testIndependentTasksOverlap() {
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        final JkTaskGraph graph = JkTaskGraph.of("test")
+                .and("compile", record(events, "compile", null))
+                .and("test", record(events, "test", bothStarted), "compile")
+                .and("javadoc", record(events, "javadoc", bothStarted), "compile")
+                .and("sign", record(events, "sign", null), "test", "javadoc");
+        graph.run(4);
+        Assert.assertEquals(0, bothStarted.getCount());
+        Assert.assertEquals("compile", events.get(0));
+        Assert.assertEquals("sign", events.get(3));
+
+        events.clear();
+        graph.run(1);
+        Assert.assertEquals(Arrays.asList("compile", "test", "javadoc", "sign"), events);
+    }
+
+    @Test
+    public void testFailureStopsDependents() {
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        final JkTaskGraph graph = JkTaskGraph.of("test")
+                .and("compile", record(events, "compile", null))
+                .and("test", new Runnable() {
+
+                    @Override
+                    public void run() {
+                        throw new IllegalStateException("Test failed");
+                    }
+
+                }, "compile")
+                .and("jar", record(events, "jar", null), "test");
+        try {
+            graph.run(2);
+            Assert.fail("Failure should be rethrown");
+        } catch (final IllegalStateException e) {
+            Assert.assertEquals("Test failed", e.getMessage());
+        }
+        Assert.assertEquals(Arrays.asList("compile"), events);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDependenciesMustBeDeclaredFirst() {
+        JkTaskGraph.of("test").and("jar", record(null, "jar", null), "compile");
+    }
+
+    // Tasks sharing a latch wait for each other, so they can only succeed if they run concurrently
+    private static Runnable record(final List<String> events, final String name, final CountDownLatch latch) {
+        return new Runnable() {
+
+            @Override
+            public void run() {
+                if (latch != null) {
+                    latch.countDown();
+                    try {
+                        latch.await(10, TimeUnit.SECONDS);
+                    } catch (final InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                events.add(name);
+            }
+
+        };
+    }
+
+}
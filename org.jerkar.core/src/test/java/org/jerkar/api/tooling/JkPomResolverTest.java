@@ -0,0 +1,138 @@
+package org.jerkar.api.tooling;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.jerkar.api.depmanagement.JkDepExclude;
+import org.jerkar.api.depmanagement.JkModuleDependency;
+import org.jerkar.api.depmanagement.JkRepos;
+import org.jerkar.api.depmanagement.JkScopedDependency;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class JkPomResolverTest {
+
+    private File root;
+
+    private JkPomResolver resolver;
+
+    @Before
+    public void setup() {
+        root = JkUtilsFile.createTempDir("pom-resolver");
+        write("repo/org/bom/bom/2.0/bom-2.0.pom", "<project>"
+                + "<groupId>org.bom</groupId><artifactId>bom</artifactId><version>2.0</version>"
+                + "<packaging>pom</packaging>"
+                + "<properties><junit.version>4.11</junit.version></properties>"
+                + "<dependencyManagement><dependencies>"
+                + dependency("junit", "junit", "${junit.version}", null)
+                + dependency("com.google.guava", "guava", "17.0", null)
+                + "</dependencies></dependencyManagement></project>");
+        write("project/pom.xml", "<project>"
+                + "<groupId>org.sample</groupId><artifactId>parent</artifactId><version>1.0</version>"
+                + "<packaging>pom</packaging>"
+                + "<properties><guava.version>18.0</guava.version></properties>"
+                + "<dependencyManagement><dependencies>"
+                + "<dependency><groupId>com.google.guava</groupId><artifactId>guava</artifactId>"
+                + "<version>${guava.version}</version><exclusions><exclusion><groupId>com.google.code.findbugs"
+                + "</groupId><artifactId>jsr305</artifactId></exclusion></exclusions></dependency>"
+                + "<dependency><groupId>org.bom</groupId><artifactId>bom</artifactId><version>2.0</version>"
+                + "<type>pom</type><scope>import</scope></dependency>"
+                + "</dependencies></dependencyManagement>"
+                + "<profiles>"
+                + "<profile><id>extra</id><activation><property><name>withExtra</name></property></activation>"
+                + "<dependencies>" + dependency("commons-io", "commons-io", "2.4", null) + "</dependencies>"
+                + "</profile>"
+                + "<profile><id>oldJdk</id><activation><jdk>(,1.6)</jdk></activation>"
+                + "<properties><guava.version>10.0</guava.version></properties></profile>"
+                + "</profiles></project>");
+        for (final String module : Arrays.asList("module1", "module2")) {
+            write("project/" + module + "/pom.xml", "<project>"
+                    + "<parent><groupId>org.sample</groupId><artifactId>parent</artifactId>"
+                    + "<version>1.0</version></parent>"
+                    + "<artifactId>" + module + "</artifactId>"
+                    + "<dependencies>"
+                    + dependency("com.google.guava", "guava", null, null)
+                    + dependency("junit", "junit", null, "test")
+                    + dependency("org.sample", "core", "${project.version}", null)
+                    + "</dependencies></project>");
+        }
+        resolver = JkPomResolver.of(JkRepos.maven(new File(root, "repo"))).withJdkVersion("1.8.0_60");
+    }
+
+    @After
+    public void cleanup() {
+        JkUtilsFile.tryDeleteDir(root);
+    }
+
+    @Test
+    public void testEffectivePom() {
+        final JkPom pom = resolver.effectivePom(new File(root, "project/module1/pom.xml"));
+        Assert.assertEquals("org.sample", pom.groupId());
+        Assert.assertEquals("1.0", pom.version());
+
+        final JkScopedDependency guava = dependency(pom, "guava");
+        Assert.assertEquals("18.0", version(guava));
+        final List<JkDepExclude> excludes = ((JkModuleDependency) guava.dependency()).excludes();
+        Assert.assertEquals(1, excludes.size());
+        Assert.assertEquals("com.google.code.findbugs:jsr305", excludes.get(0).moduleId().groupAndName());
+        final JkScopedDependency junit = dependency(pom, "junit");
+        Assert.assertEquals("4.11", version(junit));
+        Assert.assertEquals("test", junit.scopes().iterator().next().name());
+        Assert.assertEquals("1.0", version(dependency(pom, "core")));
+        Assert.assertNull(dependency(pom, "commons-io"));
+    }
+
+    @Test
+    public void testProfileActivation() {
+        final File pomFile = new File(root, "project/module1/pom.xml");
+        final JkPom pom = resolver.withProperties(Collections.singletonMap("withExtra", "true"))
+                .effectivePom(pomFile);
+        Assert.assertEquals("2.4", version(dependency(pom, "commons-io")));
+
+        final JkPom oldJdkPom = resolver.withJdkVersion("1.5").effectivePom(pomFile);
+        Assert.assertEquals("10.0", version(dependency(oldJdkPom, "guava")));
+    }
+
+    @Test
+    public void testEffectivePomsConcurrently() {
+        final File pom1 = new File(root, "project/module1/pom.xml");
+        final File pom2 = new File(root, "project/module2/pom.xml");
+        final Map<File, JkPom> poms = resolver.effectivePoms(Arrays.asList(pom1, pom2), 2);
+        Assert.assertEquals(Arrays.asList(pom1, pom2), Arrays.asList(poms.keySet().toArray()));
+        Assert.assertEquals("module2", poms.get(pom2).artifactId());
+        Assert.assertEquals("4.11", version(dependency(poms.get(pom2), "junit")));
+    }
+
+    private static JkScopedDependency dependency(JkPom pom, String name) {
+        for (final JkScopedDependency scopedDependency : pom.dependencies()) {
+            if (((JkModuleDependency) scopedDependency.dependency()).moduleId().name().equals(name)) {
+                return scopedDependency;
+            }
+        }
+        return null;
+    }
+
+    private static String version(JkScopedDependency scopedDependency) {
+        return ((JkModuleDependency) scopedDependency.dependency()).versionRange().definition();
+    }
+
+    private static String dependency(String group, String name, String version, String scope) {
+        return "<dependency><groupId>" + group + "</groupId><artifactId>" + name + "</artifactId>"
+                + (version == null ? "" : "<version>" + version + "</version>")
+                + (scope == null ? "" : "<scope>" + scope + "</scope>") + "</dependency>";
+    }
+
+    private void write(String path, String content) {
+        final File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        JkUtilsFile.writeString(file, content, false);
+    }
+
+}
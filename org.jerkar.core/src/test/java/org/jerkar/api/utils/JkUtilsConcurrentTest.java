@@ -0,0 +1,53 @@
+package org.jerkar.api.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class JkUtilsConcurrentTest {
+
+    @Test
+    public void testInvokeAllKeepsOrder() {
+        final List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        for (int i = 0; i < 20; i++) {
+            final int value = i;
+            tasks.add(new Callable<Integer>() {
+
+                @Override
+                public Integer call() throws Exception {
+                    Thread.sleep(20 - value);
+                    return value;
+                }
+            });
+        }
+        final List<Integer> result = JkUtilsConcurrent.invokeAll("test", tasks, 4);
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals(Integer.valueOf(i), result.get(i));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFailureIsPropagated() {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        tasks.add(new Runnable() {
+
+            @Override
+            public void run() {
+                // do nothing
+            }
+        });
+        tasks.add(new Runnable() {
+
+            @Override
+            public void run() {
+                throw new IllegalStateException();
+            }
+        });
+        JkUtilsConcurrent.runAll("test", tasks, 2);
+    }
+
+}
@@ -1,13 +1,16 @@
 package org.jerkar.api.utils;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
 import java.net.URL;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Ignore;
 import org.junit.Test;
@@ -69,4 +72,37 @@ public class JkUtilsFileTest {
         assertEquals(".." + File.separator + "foo" + File.separator + "bar.txt", JkUtilsFile.getRelativePath(base, file2));
     }
 
+    @Test
+    public void testCopyReplacingTokens() {
+        final File dir = JkUtilsFile.createTempDir("copy");
+        try {
+            final StringBuilder content = new StringBuilder();
+            final StringBuilder expected = new StringBuilder();
+            for (int i = 0; i < 5000; i++) {
+                content.append("a$b${name}c${unknown}$");
+                expected.append("a$bjerkarc${unknown}$");
+            }
+            content.append("${unclosed");
+            expected.append("${unclosed");
+            final File source = new File(dir, "source.txt");
+            JkUtilsFile.writeString(source, content.toString(), false);
+            final Map<String, String> tokens = new HashMap<String, String>();
+            tokens.put("name", "jerkar");
+            final File target = new File(dir, "target.txt");
+
+            assertTrue(JkUtilsFile.copyFileReplacingTokensIfChanged(source, target, tokens, null));
+            assertEquals(expected.toString(), JkUtilsFile.read(target).trim());
+            assertFalse(JkUtilsFile.copyFileReplacingTokensIfChanged(source, target, tokens, null));
+            tokens.put("name", "other");
+            assertTrue(JkUtilsFile.copyFileReplacingTokensIfChanged(source, target, tokens, null));
+
+            final File copy = new File(dir, "copy.txt");
+            assertTrue(JkUtilsFile.copyFileIfChanged(source, copy, null));
+            assertEquals(content.toString(), JkUtilsFile.read(copy).trim());
+            assertFalse(JkUtilsFile.copyFileIfChanged(source, copy, null));
+        } finally {
+            JkUtilsFile.tryDeleteDir(dir);
+        }
+    }
+
 }
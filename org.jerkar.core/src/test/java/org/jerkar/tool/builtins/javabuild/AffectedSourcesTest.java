@@ -0,0 +1,68 @@
+package org.jerkar.tool.builtins.javabuild;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.jerkar.api.file.JkFileTreeSet;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class AffectedSourcesTest {
+
+    private File root;
+
+    @Before
+    public void setup() {
+        root = JkUtilsFile.createTempDir("affected");
+    }
+
+    @After
+    public void cleanup() {
+        JkUtilsFile.tryDeleteDir(root);
+    }
+
+    @Test
+    public void testDependents() {
+        final File main = new File(root, "main");
+        final File a = source(main, "A", "class A {}");
+        final File b = source(main, "B", "class B { A a; }");
+        final File c = source(main, "C", "class C { B b; }");
+        source(main, "D", "class D {}");
+        final File test = new File(root, "test");
+        final File cTest = source(test, "CTest", "class CTest { C c; }");
+        source(test, "DTest", "class DTest { D d; }");
+
+        final Set<File> toRecompile = AffectedSources.toRecompile(JkFileTreeSet.of(main), Arrays.asList(a));
+        Assert.assertEquals(new HashSet<File>(Arrays.asList(a, b)), toRecompile);
+
+        final Set<String> typeNames = new HashSet<String>();
+        final Set<File> dependents = AffectedSources.dependents(JkFileTreeSet.of(main), Arrays.asList(a), typeNames);
+        Assert.assertEquals(new HashSet<File>(Arrays.asList(a, b, c)), dependents);
+        final Set<File> tests = AffectedSources.dependents(JkFileTreeSet.of(test), Arrays.asList(a), typeNames);
+        Assert.assertEquals(new HashSet<File>(Arrays.asList(cTest)), tests);
+        Assert.assertEquals(Arrays.asList("pack/CTest.class"),
+                AffectedSources.classFilePatterns(JkFileTreeSet.of(test), tests));
+    }
+
+    @Test
+    public void testDeletedSource() {
+        final File main = new File(root, "main");
+        final File a = source(main, "A", "class A {}");
+        final File deleted = new File(main, "pack/B.java");
+        Assert.assertFalse(AffectedSources.hasDeletedSource(JkFileTreeSet.of(main), Arrays.asList(a)));
+        Assert.assertTrue(AffectedSources.hasDeletedSource(JkFileTreeSet.of(main), Arrays.asList(a, deleted)));
+    }
+
+    private static File source(File dir, String name, String content) {
+        final File file = new File(dir, "pack/" + name + ".java");
+        JkUtilsFile.writeString(file, "package pack; " + content, false);
+        return file;
+    }
+
+}
@@ -16,7 +16,9 @@ public class PluginsJacocoBuild extends AbstractBuild {
 
     @Override
     protected JkDependencies dependencies() {
+        // Jacoco is downloaded at runtime, in the version set on the plugin
         return JkDependencies.builder().on(core.asDependency(core.packer().jarFile())).scope(PROVIDED)
+                .on("org.jacoco:org.jacoco.report:0.8.15").scope(PROVIDED)
                 .on(core.file("build/libs/provided/junit-4.11.jar"),
                         core.file("build/libs/provided/hamcrest-core-1.3.jar"))
                 .scope(TEST).build();
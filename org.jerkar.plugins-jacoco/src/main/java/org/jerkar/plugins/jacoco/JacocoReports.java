@@ -0,0 +1,448 @@
+package org.jerkar.plugins.jacoco;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.zip.CRC32;
+
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.ICoverageVisitor;
+import org.jacoco.core.analysis.ILine;
+import org.jacoco.core.analysis.IMethodCoverage;
+import org.jacoco.core.analysis.ISourceNode;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.CounterImpl;
+import org.jacoco.core.internal.analysis.MethodCoverageImpl;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.report.DirectorySourceFileLocator;
+import org.jacoco.report.FileMultiReportOutput;
+import org.jacoco.report.IReportVisitor;
+import org.jacoco.report.MultiReportVisitor;
+import org.jacoco.report.MultiSourceFileLocator;
+import org.jacoco.report.csv.CSVFormatter;
+import org.jacoco.report.html.HTMLFormatter;
+import org.jacoco.report.xml.XMLFormatter;
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsConcurrent;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.jerkar.api.utils.JkUtilsIO;
+
+/**
+ * Writes Jacoco reports. This class is compiled against the Jacoco API and is loaded in a class
+ * loader containing Jacoco jars : it must only be invoked with JDK types.
+ * <p>
+ * The coverage computed for a class file is cached along the identifier of the class, which is a
+ * checksum of its content, and a checksum of its execution data. Class files having the same
+ * content and the same execution data than at the previous report are not analysed again.
+ */
+final class JacocoReports {
+
+    private static final int CACHE_VERSION = 1;
+
+    private static final int TAB_WIDTH = 4;
+
+    private JacocoReports() {
+        // Can not instantiate
+    }
+
+    /**
+     * Merges the specified execution data files, writes the result in the specified merged file
+     * and writes reports in the specified formats (HTML, XML or CSV) in the report directory.
+     */
+    static void write(List<File> execFiles, File mergedExecFile, List<File> classDirs,
+            List<File> sourceDirs, String encoding, String title, List<String> formats,
+            File reportDir, File cacheFile, int threads) {
+        final ExecutionDataStore executionData = new ExecutionDataStore();
+        final SessionInfoStore sessionInfos = new SessionInfoStore();
+        for (final File execFile : execFiles) {
+            load(execFile, executionData, sessionInfos);
+        }
+        if (execFiles.size() != 1 || !execFiles.get(0).equals(mergedExecFile)) {
+            save(mergedExecFile, executionData, sessionInfos);
+            JkLog.info(execFiles.size() + " execution data files merged in " + mergedExecFile.getPath());
+        }
+        if (formats.isEmpty()) {
+            return;
+        }
+        final IBundleCoverage bundle = analyze(classDirs, executionData, cacheFile, title, threads);
+        reportDir.mkdirs();
+        try {
+            final List<IReportVisitor> visitors = new LinkedList<IReportVisitor>();
+            final List<OutputStream> outputStreams = new LinkedList<OutputStream>();
+            try {
+                if (formats.contains("HTML")) {
+                    final HTMLFormatter formatter = new HTMLFormatter();
+                    formatter.setOutputEncoding(encoding);
+                    visitors.add(formatter.createVisitor(new FileMultiReportOutput(new File(reportDir, "html"))));
+                }
+                if (formats.contains("XML")) {
+                    final XMLFormatter formatter = new XMLFormatter();
+                    formatter.setOutputEncoding(encoding);
+                    final OutputStream outputStream = JkUtilsIO.outputStream(new File(reportDir, "jacoco.xml"), false);
+                    outputStreams.add(outputStream);
+                    visitors.add(formatter.createVisitor(outputStream));
+                }
+                if (formats.contains("CSV")) {
+                    final CSVFormatter formatter = new CSVFormatter();
+                    formatter.setOutputEncoding(encoding);
+                    final OutputStream outputStream = JkUtilsIO.outputStream(new File(reportDir, "jacoco.csv"), false);
+                    outputStreams.add(outputStream);
+                    visitors.add(formatter.createVisitor(outputStream));
+                }
+                final IReportVisitor visitor = new MultiReportVisitor(visitors);
+                visitor.visitInfo(sessionInfos.getInfos(), executionData.getContents());
+                visitor.visitBundle(bundle, sourceLocator(sourceDirs, encoding));
+                visitor.visitEnd();
+            } finally {
+                JkUtilsIO.closeQuietly(outputStreams.toArray(new OutputStream[0]));
+            }
+        } catch (final IOException e) {
+            throw new RuntimeException("Error while writing Jacoco reports in " + reportDir.getPath(), e);
+        }
+        JkLog.info("Jacoco " + formats + " reports written in " + reportDir.getPath());
+    }
+
+    private static void load(File execFile, ExecutionDataStore executionData, SessionInfoStore sessionInfos) {
+        final InputStream inputStream = new BufferedInputStream(JkUtilsIO.inputStream(execFile));
+        try {
+            final ExecutionDataReader reader = new ExecutionDataReader(inputStream);
+            reader.setExecutionDataVisitor(executionData);
+            reader.setSessionInfoVisitor(sessionInfos);
+            reader.read();
+        } catch (final IOException e) {
+            throw new RuntimeException("Error while reading Jacoco execution data file " + execFile.getPath(), e);
+        } finally {
+            JkUtilsIO.closeQuietly(inputStream);
+        }
+    }
+
+    private static void save(File execFile, ExecutionDataStore executionData, SessionInfoStore sessionInfos) {
+        execFile.getParentFile().mkdirs();
+        final OutputStream outputStream = new BufferedOutputStream(JkUtilsIO.outputStream(execFile, false));
+        try {
+            final ExecutionDataWriter writer = new ExecutionDataWriter(outputStream);
+            sessionInfos.accept(writer);
+            executionData.accept(writer);
+        } catch (final IOException e) {
+            throw new RuntimeException("Error while writing Jacoco execution data file " + execFile.getPath(), e);
+        } finally {
+            JkUtilsIO.closeQuietly(outputStream);
+        }
+    }
+
+    // Class files are analysed concurrently, each task producing the coverage of a single class
+    private static IBundleCoverage analyze(List<File> classDirs, final ExecutionDataStore executionData,
+            File cacheFile, String title, int threads) {
+        final Map<String, CachedClass> previous = readCache(cacheFile);
+        final List<Callable<CachedClass>> tasks = new ArrayList<Callable<CachedClass>>();
+        for (final File classDir : classDirs) {
+            if (!classDir.isDirectory()) {
+                continue;
+            }
+            for (final File file : JkUtilsFile.filesOf(classDir, false)) {
+                if (!file.getName().endsWith(".class")) {
+                    continue;
+                }
+                final String path = JkUtilsFile.getRelativePath(classDir, file).replace(File.separatorChar, '/');
+                final CachedClass cached = previous.get(path);
+                tasks.add(new Callable<CachedClass>() {
+
+                    @Override
+                    public CachedClass call() throws IOException {
+                        return analyze(path, file, cached, executionData);
+                    }
+
+                });
+            }
+        }
+        final List<CachedClass> classes = JkUtilsConcurrent.invokeAll("jacoco-analysis", tasks, threads);
+        final CoverageBuilder builder = new CoverageBuilder();
+        int analysed = 0;
+        for (final CachedClass cachedClass : classes) {
+            if (cachedClass.coverage != null) {
+                builder.visitCoverage(cachedClass.coverage);
+            }
+            if (cachedClass.analysed) {
+                analysed++;
+            }
+        }
+        writeCache(cacheFile, classes);
+        JkLog.info(analysed + " class files analysed, " + (classes.size() - analysed)
+                + " unchanged since the previous report.");
+        return builder.getBundle(title);
+    }
+
+    private static CachedClass analyze(String path, File file, CachedClass cached,
+            ExecutionDataStore executionData) throws IOException {
+        final byte[] bytes = readBytes(file);
+        final long classId = CRC64.classId(bytes);
+        final ExecutionData data = executionData.get(classId);
+        final long probesChecksum = data == null ? 0 : checksum(data.getProbes());
+        if (cached != null && cached.classId == classId && cached.probesChecksum == probesChecksum
+                && (cached.coverage == null || data != null
+                || cached.coverage.isNoMatch() == executionData.contains(cached.coverage.getName()))) {
+            return new CachedClass(path, classId, probesChecksum, cached.coverage, false);
+        }
+        final List<IClassCoverage> coverages = new ArrayList<IClassCoverage>(1);
+        final Analyzer analyzer = new Analyzer(executionData, new ICoverageVisitor() {
+
+            @Override
+            public void visitCoverage(IClassCoverage coverage) {
+                coverages.add(coverage);
+            }
+
+        });
+        analyzer.analyzeClass(bytes, path);
+        final IClassCoverage coverage = coverages.isEmpty() ? null : coverages.get(0);
+        return new CachedClass(path, classId, probesChecksum, coverage, true);
+    }
+
+    private static MultiSourceFileLocator sourceLocator(List<File> sourceDirs, String encoding) {
+        final MultiSourceFileLocator result = new MultiSourceFileLocator(TAB_WIDTH);
+        for (final File sourceDir : sourceDirs) {
+            result.add(new DirectorySourceFileLocator(sourceDir, encoding, TAB_WIDTH));
+        }
+        return result;
+    }
+
+    private static long checksum(boolean[] probes) {
+        final CRC32 crc = new CRC32();
+        for (final boolean probe : probes) {
+            crc.update(probe ? 1 : 0);
+        }
+        return crc.getValue();
+    }
+
+    private static byte[] readBytes(File file) {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream((int) file.length());
+        final InputStream inputStream = JkUtilsIO.inputStream(file);
+        try {
+            JkUtilsIO.copy(inputStream, outputStream);
+        } finally {
+            JkUtilsIO.closeQuietly(inputStream);
+        }
+        return outputStream.toByteArray();
+    }
+
+    // ---------------------------- Analysis cache -------------------------------
+
+    private static Map<String, CachedClass> readCache(File cacheFile) {
+        final Map<String, CachedClass> result = new HashMap<String, CachedClass>();
+        if (cacheFile == null || !cacheFile.isFile()) {
+            return result;
+        }
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(JkUtilsIO.inputStream(cacheFile)));
+        try {
+            if (in.readInt() != CACHE_VERSION) {
+                return result;
+            }
+            final int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                final CachedClass cachedClass = CachedClass.read(in);
+                result.put(cachedClass.path, cachedClass);
+            }
+        } catch (final IOException e) {
+            JkLog.warn("Jacoco analysis cache " + cacheFile.getPath() + " is not readable, all classes are analysed.");
+            result.clear();
+        } finally {
+            JkUtilsIO.closeQuietly(in);
+        }
+        return result;
+    }
+
+    private static void writeCache(File cacheFile, List<CachedClass> classes) {
+        if (cacheFile == null) {
+            return;
+        }
+        cacheFile.getParentFile().mkdirs();
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(JkUtilsIO.outputStream(cacheFile,
+                false)));
+        try {
+            out.writeInt(CACHE_VERSION);
+            out.writeInt(classes.size());
+            for (final CachedClass cachedClass : classes) {
+                cachedClass.write(out);
+            }
+        } catch (final IOException e) {
+            throw new RuntimeException("Error while writing Jacoco analysis cache " + cacheFile.getPath(), e);
+        } finally {
+            JkUtilsIO.closeQuietly(out);
+        }
+    }
+
+    /**
+     * Coverage of a class file, along the checksums it has been computed from. The coverage is
+     * <code>null</code> for class files containing no code.
+     */
+    private static final class CachedClass {
+
+        private final String path;
+
+        private final long classId;
+
+        private final long probesChecksum;
+
+        private final IClassCoverage coverage;
+
+        private final boolean analysed;
+
+        CachedClass(String path, long classId, long probesChecksum, IClassCoverage coverage, boolean analysed) {
+            this.path = path;
+            this.classId = classId;
+            this.probesChecksum = probesChecksum;
+            this.coverage = coverage;
+            this.analysed = analysed;
+        }
+
+        static CachedClass read(DataInputStream in) throws IOException {
+            final String path = in.readUTF();
+            final long classId = in.readLong();
+            final long probesChecksum = in.readLong();
+            if (!in.readBoolean()) {
+                return new CachedClass(path, classId, probesChecksum, null, false);
+            }
+            final ClassCoverageImpl coverage = new ClassCoverageImpl(in.readUTF(), classId, in.readBoolean());
+            coverage.setSignature(readNullable(in));
+            coverage.setSuperName(readNullable(in));
+            final String[] interfaces = new String[in.readInt()];
+            for (int i = 0; i < interfaces.length; i++) {
+                interfaces[i] = in.readUTF();
+            }
+            coverage.setInterfaces(interfaces);
+            coverage.setSourceFileName(readNullable(in));
+            final int methodCount = in.readInt();
+            for (int i = 0; i < methodCount; i++) {
+                coverage.addMethod(CachedMethodCoverage.read(in));
+            }
+            return new CachedClass(path, classId, probesChecksum, coverage, false);
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeUTF(path);
+            out.writeLong(classId);
+            out.writeLong(probesChecksum);
+            out.writeBoolean(coverage != null);
+            if (coverage == null) {
+                return;
+            }
+            out.writeUTF(coverage.getName());
+            out.writeBoolean(coverage.isNoMatch());
+            writeNullable(out, coverage.getSignature());
+            writeNullable(out, coverage.getSuperName());
+            final String[] interfaces = coverage.getInterfaceNames();
+            out.writeInt(interfaces.length);
+            for (final String name : interfaces) {
+                out.writeUTF(name);
+            }
+            writeNullable(out, coverage.getSourceFileName());
+            out.writeInt(coverage.getMethods().size());
+            for (final IMethodCoverage method : coverage.getMethods()) {
+                CachedMethodCoverage.write(out, method);
+            }
+        }
+
+    }
+
+    /**
+     * Method coverage rebuilt from its line counters. Complexity and method counters can not be
+     * deduced from line counters so they are restored as they were.
+     */
+    private static final class CachedMethodCoverage extends MethodCoverageImpl {
+
+        CachedMethodCoverage(String name, String desc, String signature) {
+            super(name, desc, signature);
+        }
+
+        static CachedMethodCoverage read(DataInputStream in) throws IOException {
+            final CachedMethodCoverage result = new CachedMethodCoverage(in.readUTF(), in.readUTF(),
+                    readNullable(in));
+            final int lineCount = in.readInt();
+            for (int i = 0; i < lineCount; i++) {
+                result.increment(readCounter(in), readCounter(in), in.readInt());
+            }
+            result.increment(readCounter(in), readCounter(in), ISourceNode.UNKNOWN_LINE);
+            result.complexityCounter = readCounter(in);
+            result.methodCounter = readCounter(in);
+            return result;
+        }
+
+        // Instructions and branches not attached to any line are written as a last pseudo line
+        static void write(DataOutputStream out, IMethodCoverage method) throws IOException {
+            out.writeUTF(method.getName());
+            out.writeUTF(method.getDesc());
+            writeNullable(out, method.getSignature());
+            final List<Integer> lines = new LinkedList<Integer>();
+            if (method.getFirstLine() != ISourceNode.UNKNOWN_LINE) {
+                for (int line = method.getFirstLine(); line <= method.getLastLine(); line++) {
+                    final ILine iLine = method.getLine(line);
+                    if (iLine.getInstructionCounter().getTotalCount() > 0
+                            || iLine.getBranchCounter().getTotalCount() > 0) {
+                        lines.add(line);
+                    }
+                }
+            }
+            out.writeInt(lines.size());
+            int instructionsMissed = method.getInstructionCounter().getMissedCount();
+            int instructionsCovered = method.getInstructionCounter().getCoveredCount();
+            int branchesMissed = method.getBranchCounter().getMissedCount();
+            int branchesCovered = method.getBranchCounter().getCoveredCount();
+            for (final int line : lines) {
+                final ILine iLine = method.getLine(line);
+                writeCounter(out, iLine.getInstructionCounter());
+                writeCounter(out, iLine.getBranchCounter());
+                out.writeInt(line);
+                instructionsMissed -= iLine.getInstructionCounter().getMissedCount();
+                instructionsCovered -= iLine.getInstructionCounter().getCoveredCount();
+                branchesMissed -= iLine.getBranchCounter().getMissedCount();
+                branchesCovered -= iLine.getBranchCounter().getCoveredCount();
+            }
+            writeCounter(out, CounterImpl.getInstance(instructionsMissed, instructionsCovered));
+            writeCounter(out, CounterImpl.getInstance(branchesMissed, branchesCovered));
+            writeCounter(out, method.getComplexityCounter());
+            writeCounter(out, method.getMethodCounter());
+        }
+
+    }
+
+    private static CounterImpl readCounter(DataInputStream in) throws IOException {
+        return CounterImpl.getInstance(in.readInt(), in.readInt());
+    }
+
+    private static void writeCounter(DataOutputStream out, ICounter counter) throws IOException {
+        out.writeInt(counter.getMissedCount());
+        out.writeInt(counter.getCoveredCount());
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+}
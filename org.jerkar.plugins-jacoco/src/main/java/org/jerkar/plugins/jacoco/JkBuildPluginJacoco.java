@@ -1,42 +1,83 @@
 package org.jerkar.plugins.jacoco;
 
+import org.jerkar.api.file.JkFileTree;
 import org.jerkar.api.java.junit.JkUnit;
 import org.jerkar.api.java.junit.JkUnit.Enhancer;
+import org.jerkar.api.utils.JkUtilsString;
 import org.jerkar.tool.JkBuild;
 import org.jerkar.tool.JkDoc;
 import org.jerkar.tool.builtins.javabuild.JkJavaBuild;
 import org.jerkar.tool.builtins.javabuild.JkJavaBuildPlugin;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
 
 /**
  * Alter the unitTester to be launched with the Jacoco agent. It results in
- * producing a jacoco.exec test coverage report file.
+ * producing a jacoco.exec test coverage report file, and optionally HTML, XML or
+ * CSV reports.
  *
  * @author Jerome Angibaud
  */
-@JkDoc("Performs Jacoco code coverage analysing while junit is running.")
+@JkDoc({"Performs Jacoco code coverage analysing while junit is running.",
+    "Reports are written in the test report directory once tests have run, or by invoking #report."})
 public class JkBuildPluginJacoco extends JkJavaBuildPlugin {
 
     @JkDoc("true to produce an html report along the binary report")
     private boolean produceHtml;
+
+    @JkDoc("true to produce an xml report along the binary report")
+    private boolean produceXml;
+
+    @JkDoc("true to produce a csv report along the binary report")
+    private boolean produceCsv;
+
+    @JkDoc({"Version of Jacoco instrumenting classes and writing reports. It has to support the Java version",
+        "of the tested classes and of the JVM running tests."})
+    private String jacocoVersion = JkocoReport.JACOCO_VERSION;
+
+    private JkJavaBuild build;
+
     private Enhancer enhancer;
 
     public static Enhancer enhancer(JkJavaBuild jkJavaBuild, boolean produceHtmlReport) {
-        return enhancer(jkJavaBuild, jkJavaBuild.baseDir().root(), produceHtmlReport);
+        final JkocoReport.Format[] formats = produceHtmlReport ? new JkocoReport.Format[] {JkocoReport.Format.HTML}
+                : new JkocoReport.Format[0];
+        return enhancer(jkJavaBuild, JkocoReport.JACOCO_VERSION, formats);
     }
 
-    private static Enhancer enhancer(JkJavaBuild jkJavaBuild, File agent, boolean html) {
-        final File destFile = new File(jkJavaBuild.testReportDir(), "jacoco/jacoco.exec");
-        if (html) {
-            throw new IllegalStateException("Sorry, not implemented yet. Please, turn off produceHtml flag.");
+    private static JkocoJunitEnhancer enhancer(JkJavaBuild jkJavaBuild, String jacocoVersion,
+            JkocoReport.Format... formats) {
+        final JkocoJunitEnhancer enhancer = JkocoJunitEnhancer.of(destFile(jkJavaBuild))
+                .withRepos(jkJavaBuild.effectiveDownloadRepositories()).withJacocoVersion(jacocoVersion);
+        if (formats.length == 0) {
+            return enhancer;
         }
-        return JkocoJunitEnhancer.of(destFile);
+        return enhancer.withReport(report(jkJavaBuild).withJacocoVersion(jacocoVersion).withFormats(formats));
+    }
+
+    /**
+     * Returns a report on the production classes of the specified build, written in the formats
+     * set on this plugin. Jacoco is downloaded from the repositories of the build.
+     */
+    public static JkocoReport report(JkJavaBuild jkJavaBuild) {
+        return JkocoReport.of(destFile(jkJavaBuild))
+                .withClassDirs(Arrays.asList(jkJavaBuild.classDir()))
+                .withSourceDirs(jkJavaBuild.sources().roots(), jkJavaBuild.sourceEncoding())
+                .withTitle(jkJavaBuild.moduleId().fullName())
+                .withRepos(jkJavaBuild.effectiveDownloadRepositories());
+    }
+
+    private static File destFile(JkJavaBuild jkJavaBuild) {
+        return new File(jkJavaBuild.testReportDir(), "jacoco/jacoco.exec");
     }
 
     @Override
     public void configure(JkBuild jkJavaBuild) {
-        this.enhancer = enhancer((JkJavaBuild) jkJavaBuild, produceHtml);
+        this.build = (JkJavaBuild) jkJavaBuild;
+        this.enhancer = enhancer(build, jacocoVersion, formats());
     }
 
     @Override
@@ -44,9 +85,51 @@ public class JkBuildPluginJacoco extends JkJavaBuildPlugin {
         return this.enhancer.enhance(jkUnit);
     }
 
+    /**
+     * Writes reports from the execution data of the last test run, merged with the execution data
+     * files found in the shard report directory if the <code>tests.shardReports</code> option is
+     * set. Reports are written in HTML if no format is set on this plugin.
+     */
+    @JkDoc({"Writes coverage reports from the data of the last test run, merged with the *.exec files found",
+        "under the directory specified by the tests.shardReports option if any."})
+    public void report() {
+        final JkocoReport.Format[] formats = formats();
+        JkocoReport report = report(build).withJacocoVersion(jacocoVersion).withFormats(formats.length == 0
+                ? new JkocoReport.Format[] {JkocoReport.Format.HTML} : formats);
+        if (!JkUtilsString.isBlank(build.tests.shardReports)) {
+            report = report.andExecFiles(JkFileTree.of(build.file(build.tests.shardReports))
+                    .include("**/*.exec").files(false));
+        }
+        report.writeTo(destFile(build).getParentFile());
+    }
+
     public JkBuildPluginJacoco produceHtmlReport(boolean flag) {
         this.produceHtml = flag;
         return this;
     }
 
+    public JkBuildPluginJacoco produceXmlReport(boolean flag) {
+        this.produceXml = flag;
+        return this;
+    }
+
+    public JkBuildPluginJacoco produceCsvReport(boolean flag) {
+        this.produceCsv = flag;
+        return this;
+    }
+
+    private JkocoReport.Format[] formats() {
+        final List<JkocoReport.Format> result = new LinkedList<JkocoReport.Format>();
+        if (produceHtml) {
+            result.add(JkocoReport.Format.HTML);
+        }
+        if (produceXml) {
+            result.add(JkocoReport.Format.XML);
+        }
+        if (produceCsv) {
+            result.add(JkocoReport.Format.CSV);
+        }
+        return result.toArray(new JkocoReport.Format[0]);
+    }
+
 }
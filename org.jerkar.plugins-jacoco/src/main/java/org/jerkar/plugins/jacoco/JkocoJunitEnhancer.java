@@ -1,45 +1,78 @@
 package org.jerkar.plugins.jacoco;
 
-import org.jerkar.api.java.JkClassLoader;
+import org.jerkar.api.depmanagement.JkModuleDependency;
+import org.jerkar.api.depmanagement.JkRepos;
 import org.jerkar.api.java.JkJavaProcess;
 import org.jerkar.api.java.junit.JkUnit;
 import org.jerkar.api.java.junit.JkUnit.Enhancer;
 import org.jerkar.api.system.JkLog;
-import org.jerkar.api.utils.JkUtilsIO;
 
 import java.io.File;
-import java.net.URL;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
+/**
+ * Enhances a {@link JkUnit} so tests run with the Jacoco agent, recording coverage in an execution
+ * data file. Each test run starts from empty coverage data so data of classes that have changed or
+ * disappeared since a previous run do not pile up. Reports can be produced once tests have run.
+ * <p>
+ * Unless an agent jar is specified, the Jacoco agent is downloaded from the specified repositories,
+ * Maven central by default, in the version {@link JkocoReport#JACOCO_VERSION}.
+ *
+ * @author Jerome Angibaud
+ */
 public final class JkocoJunitEnhancer implements Enhancer {
 
+    // null means downloaded from repos
     private final File agent;
 
+    private final JkRepos repos;
+
+    private final String jacocoVersion;
+
     private final boolean enabled;
 
     private final File destFile;
 
     private final List<String> options;
 
-    private JkocoJunitEnhancer(File agent, boolean enabled, File destFile, List<String> options) {
+    private final JkocoReport report;
+
+    private JkocoJunitEnhancer(File agent, JkRepos repos, String jacocoVersion, boolean enabled,
+            File destFile, List<String> options, JkocoReport report) {
         super();
         this.agent = agent;
+        this.repos = repos;
+        this.jacocoVersion = jacocoVersion;
         this.enabled = enabled;
         this.destFile = destFile;
-        this.options = new LinkedList<String>();
+        this.options = options;
+        this.report = report;
     }
 
     public static JkocoJunitEnhancer of(File destFile) {
-        final URL url = JkBuildPluginJacoco.class.getResource("jacocoagent.jar");
-        final File file = JkUtilsIO.copyUrlContentToCacheFile(url, JkLog.infoStreamIfVerbose(),
-                JkClassLoader.urlCacheDir());
-        return new JkocoJunitEnhancer(file, true, destFile, new LinkedList<String>());
+        return new JkocoJunitEnhancer(null, JkRepos.mavenCentral(), JkocoReport.JACOCO_VERSION, true,
+                destFile, new LinkedList<String>(), null);
     }
 
     public JkocoJunitEnhancer withAgent(File jacocoagent) {
-        return new JkocoJunitEnhancer(jacocoagent, enabled, destFile, options);
+        return new JkocoJunitEnhancer(jacocoagent, repos, jacocoVersion, enabled, destFile, options, report);
+    }
+
+    /**
+     * Returns an enhancer downloading the Jacoco agent from the specified repositories.
+     */
+    public JkocoJunitEnhancer withRepos(JkRepos repos) {
+        return new JkocoJunitEnhancer(agent, repos, jacocoVersion, enabled, destFile, options, report);
+    }
+
+    /**
+     * Returns an enhancer downloading the specified version of the Jacoco agent. It has to be able to
+     * instrument classes on the JVM running the tests.
+     */
+    public JkocoJunitEnhancer withJacocoVersion(String jacocoVersion) {
+        return new JkocoJunitEnhancer(agent, repos, jacocoVersion, enabled, destFile, options, report);
     }
 
     /**
@@ -48,11 +81,22 @@ public final class JkocoJunitEnhancer implements Enhancer {
      * Example : <code>withOptions("dumponexit=true", "port=6301");</code>
      */
     public JkocoJunitEnhancer withOptions(String... options) {
-        return new JkocoJunitEnhancer(agent, enabled, destFile, Arrays.asList(options));
+        return new JkocoJunitEnhancer(agent, repos, jacocoVersion, enabled, destFile,
+                Arrays.asList(options), report);
     }
 
     public JkocoJunitEnhancer enabled(boolean enabled) {
-        return new JkocoJunitEnhancer(this.agent, enabled, destFile, options);
+        return new JkocoJunitEnhancer(this.agent, repos, jacocoVersion, enabled, destFile, options, report);
+    }
+
+    /**
+     * Returns an enhancer writing the specified report, in the directory of the execution data
+     * file, once tests have run. The execution data file is added to the ones of the report.
+     */
+    public JkocoJunitEnhancer withReport(JkocoReport report) {
+        final JkocoReport effectiveReport = report == null ? null : report.andExecFiles(Arrays.asList(destFile));
+        return new JkocoJunitEnhancer(this.agent, repos, jacocoVersion, enabled, destFile, options,
+                effectiveReport);
     }
 
     @Override
@@ -62,19 +106,32 @@ public final class JkocoJunitEnhancer implements Enhancer {
         }
         if (jkUnit.forked()) {
             JkJavaProcess process = jkUnit.processFork();
-            process = process.andAgent(destFile, options());
-            return jkUnit.forked(process, false);
+            process = process.andAgent(agentFile(), options());
+            return jkUnit.forked(process, false).withPostAction(new Reporter());
         }
-        final JkJavaProcess process = JkJavaProcess.of().andAgent(agent, options());
+        final JkJavaProcess process = JkJavaProcess.of().andAgent(agentFile(), options());
         return jkUnit.forkKeepingSameClassPath(process).withPostAction(new Reporter());
     }
 
+    /**
+     * Returns the agent jar, downloading it if none has been specified.
+     */
+    public File agentFile() {
+        if (agent != null) {
+            return agent;
+        }
+        final JkModuleDependency dependency = JkModuleDependency.of("org.jacoco", "org.jacoco.agent",
+                jacocoVersion).classifier("runtime");
+        final File file = repos.get(dependency);
+        if (file == null || !file.exists()) {
+            throw new IllegalStateException("Jacoco agent " + dependency + " not found in " + repos);
+        }
+        return file;
+    }
+
     private String options() {
         final StringBuilder builder = new StringBuilder();
-        builder.append("destfile=").append(destFile.getAbsolutePath());
-        if (destFile.exists()) {
-            builder.append(",append=true");
-        }
+        builder.append("destfile=").append(destFile.getAbsolutePath()).append(",append=false");
         for (final String option : options) {
             builder.append(",").append(option);
         }
@@ -87,6 +144,9 @@ public final class JkocoJunitEnhancer implements Enhancer {
         public void run() {
             if (enabled) {
                 JkLog.info("Jacoco report created at " + destFile.getAbsolutePath());
+                if (report != null) {
+                    report.writeTo(destFile.getParentFile());
+                }
             }
 
         }
@@ -0,0 +1,213 @@
+package org.jerkar.plugins.jacoco;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import org.jerkar.api.depmanagement.JkDependencies;
+import org.jerkar.api.depmanagement.JkDependencyResolver;
+import org.jerkar.api.depmanagement.JkModuleDependency;
+import org.jerkar.api.depmanagement.JkRepos;
+import org.jerkar.api.java.JkClassLoader;
+import org.jerkar.api.system.JkLog;
+import org.jerkar.api.utils.JkUtilsConcurrent;
+import org.jerkar.api.utils.JkUtilsIterable;
+import org.jerkar.api.utils.JkUtilsReflect;
+
+/**
+ * Produces Jacoco reports from execution data files, within the running JVM. Execution data files
+ * coming from several runs, as forked or sharded test runs, are merged into a single
+ * <code>jacoco.exec</code> file along the reports.
+ * <p>
+ * Class files are analysed concurrently and the analysis of a class file is reused as long as
+ * its content and its execution data do not change, so regenerating reports after a small change
+ * only analyses the affected classes.
+ * <p>
+ * Jacoco is not embedded in Jerkar : Jacoco report, core and the ASM version they depend on are
+ * downloaded from the specified repositories, Maven central by default. The Jacoco version has to be
+ * able to read the analysed class files, so it can be changed to follow new Java versions.
+ *
+ * @author Jerome Angibaud
+ */
+public final class JkocoReport {
+
+    /**
+     * Formats of the produced reports.
+     */
+    public enum Format {
+
+        /** Browsable report, written in the <code>html</code> subdirectory. */
+        HTML,
+
+        /** Report written in <code>jacoco.xml</code>. */
+        XML,
+
+        /** Report written in <code>jacoco.csv</code>. */
+        CSV
+    }
+
+    /**
+     * Version of Jacoco used by default, reading class files up to Java 25. Versions prior to 0.8.0
+     * are not supported.
+     */
+    public static final String JACOCO_VERSION = "0.8.15";
+
+    private static final String REPORTS_CLASS_NAME = JkocoReport.class.getPackage().getName() + ".JacocoReports";
+
+    private final List<File> execFiles;
+
+    private final List<File> classDirs;
+
+    private final List<File> sourceDirs;
+
+    private final String encoding;
+
+    private final String title;
+
+    private final Set<Format> formats;
+
+    private final int threads;
+
+    private final JkRepos repos;
+
+    private final String jacocoVersion;
+
+    private JkocoReport(List<File> execFiles, List<File> classDirs, List<File> sourceDirs,
+            String encoding, String title, Set<Format> formats, int threads, JkRepos repos,
+            String jacocoVersion) {
+        this.execFiles = execFiles;
+        this.classDirs = classDirs;
+        this.sourceDirs = sourceDirs;
+        this.encoding = encoding;
+        this.title = title;
+        this.formats = formats;
+        this.threads = threads;
+        this.repos = repos;
+        this.jacocoVersion = jacocoVersion;
+    }
+
+    /**
+     * Creates a report on the specified execution data files, in HTML format.
+     */
+    public static JkocoReport of(Iterable<File> execFiles) {
+        return new JkocoReport(JkUtilsIterable.listOf(execFiles), Collections.<File> emptyList(),
+                Collections.<File> emptyList(), "UTF-8", "Coverage", EnumSet.of(Format.HTML),
+                JkUtilsConcurrent.defaultParallelism(), JkRepos.mavenCentral(), JACOCO_VERSION);
+    }
+
+    /**
+     * @see #of(Iterable)
+     */
+    public static JkocoReport of(File... execFiles) {
+        return of(JkUtilsIterable.listOf(execFiles));
+    }
+
+    /**
+     * Returns a report on the execution data files of this one plus the specified ones. Files
+     * that do not exist are ignored.
+     */
+    public JkocoReport andExecFiles(Iterable<File> execFiles) {
+        final List<File> list = new LinkedList<File>(this.execFiles);
+        list.addAll(JkUtilsIterable.listOf(execFiles));
+        return new JkocoReport(list, classDirs, sourceDirs, encoding, title, formats, threads, repos,
+                jacocoVersion);
+    }
+
+    /**
+     * Returns a report on the classes compiled in the specified directories.
+     */
+    public JkocoReport withClassDirs(Iterable<File> classDirs) {
+        return new JkocoReport(execFiles, JkUtilsIterable.listOf(classDirs), sourceDirs, encoding,
+                title, formats, threads, repos, jacocoVersion);
+    }
+
+    /**
+     * Returns a report displaying sources found in the specified directories, read with the
+     * specified encoding.
+     */
+    public JkocoReport withSourceDirs(Iterable<File> sourceDirs, String encoding) {
+        return new JkocoReport(execFiles, classDirs, JkUtilsIterable.listOf(sourceDirs), encoding,
+                title, formats, threads, repos, jacocoVersion);
+    }
+
+    /**
+     * Returns a report with the specified title.
+     */
+    public JkocoReport withTitle(String title) {
+        return new JkocoReport(execFiles, classDirs, sourceDirs, encoding, title, formats, threads, repos,
+                jacocoVersion);
+    }
+
+    /**
+     * Returns a report written in the specified formats. With no format, only the merged execution
+     * data file is written.
+     */
+    public JkocoReport withFormats(Format... formats) {
+        final Set<Format> set = EnumSet.noneOf(Format.class);
+        set.addAll(JkUtilsIterable.listOf(formats));
+        return new JkocoReport(execFiles, classDirs, sourceDirs, encoding, title, set, threads, repos,
+                jacocoVersion);
+    }
+
+    /**
+     * Returns a report analysing class files on at most the specified number of threads.
+     */
+    public JkocoReport withThreads(int threads) {
+        return new JkocoReport(execFiles, classDirs, sourceDirs, encoding, title, formats,
+                Math.max(1, threads), repos, jacocoVersion);
+    }
+
+    /**
+     * Returns a report downloading Jacoco from the specified repositories.
+     */
+    public JkocoReport withRepos(JkRepos repos) {
+        return new JkocoReport(execFiles, classDirs, sourceDirs, encoding, title, formats, threads, repos,
+                jacocoVersion);
+    }
+
+    /**
+     * Returns a report written using the specified version of Jacoco. See {@link #JACOCO_VERSION}.
+     */
+    public JkocoReport withJacocoVersion(String jacocoVersion) {
+        return new JkocoReport(execFiles, classDirs, sourceDirs, encoding, title, formats, threads, repos,
+                jacocoVersion);
+    }
+
+    /**
+     * Merges the execution data files into <code>jacoco.exec</code> of the specified directory and
+     * writes reports in it. Analysis results are cached in the same directory.
+     */
+    public void writeTo(File reportDir) {
+        final List<File> existingExecFiles = new LinkedList<File>();
+        for (final File execFile : execFiles) {
+            if (execFile.isFile() && !existingExecFiles.contains(execFile)) {
+                existingExecFiles.add(execFile);
+            }
+        }
+        if (existingExecFiles.isEmpty()) {
+            JkLog.warn("No Jacoco execution data file found : no coverage report written.");
+            return;
+        }
+        final List<String> formatNames = new LinkedList<String>();
+        for (final Format format : formats) {
+            formatNames.add(format.name());
+        }
+        JkLog.startln("Writing Jacoco reports");
+        JkUtilsReflect.invokeStaticMethod(reportsClass(), "write", existingExecFiles,
+                new File(reportDir, "jacoco.exec"), classDirs, sourceDirs, encoding, title,
+                formatNames, reportDir, new File(reportDir, "analysis-cache.bin"), threads);
+        JkLog.done();
+    }
+
+    // Jacoco report comes along Jacoco core and the ASM jars they depend on
+    private Class<?> reportsClass() {
+        final JkDependencies dependencies = JkDependencies.of(
+                JkModuleDependency.of("org.jacoco", "org.jacoco.report", jacocoVersion));
+        final List<File> jars = JkDependencyResolver.managed(repos, dependencies).get().entries();
+        return JkClassLoader.of(JkocoReport.class).sibling(jars.toArray()).load(REPORTS_CLASS_NAME);
+    }
+
+}
@@ -2,6 +2,8 @@ package org.jerkar.plugins.jacoco;
 
 import org.jerkar.api.java.JkClasspath;
 import org.jerkar.api.java.junit.JkUnit;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.File;
@@ -13,4 +15,15 @@ public class JkocoJunitEnhancerTest {
         JkocoJunitEnhancer.of(new File(".")).enhance(JkUnit.of(JkClasspath.of()));
     }
 
+    @Test
+    public void testReportWithoutExecutionDataWritesNothing() {
+        final File dir = JkUtilsFile.createTempDir("jacoco-report");
+        try {
+            JkocoReport.of(new File(dir, "jacoco.exec")).withFormats(JkocoReport.Format.HTML).writeTo(dir);
+            Assert.assertEquals(0, dir.listFiles().length);
+        } finally {
+            JkUtilsFile.tryDeleteDir(dir);
+        }
+    }
+
 }
@@ -0,0 +1,80 @@
+package org.jerkar.plugins.jacoco;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.jerkar.api.java.JkJavaCompiler;
+import org.jerkar.api.java.JkJavaProcess;
+import org.jerkar.api.utils.JkUtilsFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/*
+ * Downloads the Jacoco agent, report and core from Maven central.
+ */
+@SuppressWarnings("javadoc")
+public class JkocoReportTest {
+
+    private File root;
+
+    @Before
+    public void setup() {
+        root = JkUtilsFile.createTempDir("jacoco-report");
+    }
+
+    @After
+    public void cleanup() {
+        JkUtilsFile.tryDeleteDir(root);
+    }
+
+    @Test
+    public void testReportIsWrittenThenReusesAnalysisCache() {
+        final File sourceFile = new File(root, "src/pack/Foo.java");
+        JkUtilsFile.writeString(sourceFile, "package pack; public class Foo { public static void main(String[] args) { "
+                + "if (args.length > 0) { System.out.println(args[0]); } } }", false);
+        final File classDir = new File(root, "classes");
+        JkJavaCompiler.outputtingIn(classDir).andSources(JkUtilsFile.filesOf(sourceFile.getParentFile(), false))
+        .compile();
+        final File execFile = new File(root, "run/jacoco.exec");
+        final File agent = JkocoJunitEnhancer.of(execFile).agentFile();
+        JkJavaProcess.of().withClasspath(classDir).andAgent(agent, "destfile=" + execFile.getAbsolutePath())
+        .runClassSync("pack.Foo");
+
+        final File reportDir = new File(root, "report");
+        final JkocoReport report = JkocoReport.of(execFile).withClassDirs(Arrays.asList(classDir))
+                .withTitle("Test").withFormats(JkocoReport.Format.XML, JkocoReport.Format.CSV);
+        report.writeTo(reportDir);
+        final List<String> counters = fooLines(reportDir);
+        Assert.assertEquals(1, counters.size());
+        final String[] items = counters.get(0).split(",");
+        Assert.assertTrue(Integer.parseInt(items[3]) > 0); // instructions missed
+        Assert.assertTrue(Integer.parseInt(items[4]) > 0); // instructions covered
+        Assert.assertTrue(new File(reportDir, "jacoco.exec").isFile());
+        Assert.assertTrue(new File(reportDir, "jacoco.xml").isFile());
+
+        // Unchanged classes and execution data : coverage comes from the analysis cache
+        final File cacheFile = new File(reportDir, "analysis-cache.bin");
+        Assert.assertTrue(cacheFile.length() > 0);
+        report.writeTo(reportDir);
+        Assert.assertEquals(counters, fooLines(reportDir));
+
+        cacheFile.delete();
+        report.writeTo(reportDir);
+        Assert.assertEquals(counters, fooLines(reportDir));
+    }
+
+    private static List<String> fooLines(File reportDir) {
+        final List<String> result = new LinkedList<String>();
+        for (final String line : JkUtilsFile.readLines(new File(reportDir, "jacoco.csv"))) {
+            if (line.startsWith("Test,pack,Foo,")) {
+                result.add(line);
+            }
+        }
+        return result;
+    }
+
+}